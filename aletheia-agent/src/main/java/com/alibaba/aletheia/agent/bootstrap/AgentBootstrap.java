@@ -3,12 +3,18 @@ package com.alibaba.aletheia.agent.bootstrap;
 import com.alibaba.aletheia.agent.collector.CollectorManager;
 import com.alibaba.aletheia.agent.config.AgentConfig;
 import com.alibaba.aletheia.agent.config.ConfigLoader;
+import com.alibaba.aletheia.agent.config.RtConfig;
 import com.alibaba.aletheia.agent.control.AgentControl;
 import com.alibaba.aletheia.agent.diagnostic.DiagnosticHelper;
 import com.alibaba.aletheia.agent.diagnostic.DiagnosticManager;
 import com.alibaba.aletheia.agent.diagnostic.control.DiagnosticControl;
 import com.alibaba.aletheia.agent.exporter.ExporterManager;
+import com.alibaba.aletheia.agent.sampler.HotMethodDeinstrumenter;
+import com.alibaba.aletheia.agent.sampler.HotMethodProfiler;
+import com.alibaba.aletheia.agent.sampler.OverheadGovernor;
+import com.alibaba.aletheia.agent.sampler.ProbeEventPipeline;
 import com.alibaba.aletheia.agent.transformer.TransformerManager;
+import com.alibaba.aletheia.common.constant.AletheiaConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,6 +22,7 @@ import javax.management.MBeanServer;
 import javax.management.ObjectName;
 import java.lang.instrument.Instrumentation;
 import java.lang.management.ManagementFactory;
+import java.util.Map;
 
 /**
  * Agent 启动器
@@ -34,6 +41,10 @@ public class AgentBootstrap {
     private TransformerManager transformerManager;
     private CollectorManager collectorManager;
     private ExporterManager exporterManager;
+    private OverheadGovernor overheadGovernor;
+    private HotMethodProfiler hotMethodProfiler;
+    private HotMethodDeinstrumenter hotMethodDeinstrumenter;
+    private ProbeEventPipeline probeEventPipeline;
     private AgentControl agentControl;
     private Instrumentation instrumentation;
     private boolean isPremain;
@@ -65,7 +76,7 @@ public class AgentBootstrap {
         }
 
         this.isPremain = true;
-        initAgent(agentArgs, inst, false); // premain 时类未加载，canRetransform=false
+        initAgent(agentArgs, inst, true); // 运行时启停功能、修改范围时需要对已加载类 retransform
     }
 
     /**
@@ -100,10 +111,28 @@ public class AgentBootstrap {
                 ConfigLoader.loadFromFile(configPath, config);
             }
 
+            // 启动探针事件流水线（可选），埋点经由环形缓冲区交给聚合线程
+            RtConfig rtConfig = config.getRtConfig();
+            if (rtConfig.isPipelineEnabled()) {
+                probeEventPipeline = ProbeEventPipeline.create(rtConfig.getPipelineType(),
+                        rtConfig.getPipelineRingBufferSize(), rtConfig.getPipelineWaitStrategy());
+                probeEventPipeline.start();
+            }
+
             // 3. 初始化 TransformerManager
             transformerManager = new TransformerManager(instrumentation, config);
             transformerManager.initDefaultTransformers(canRetransform);
 
+            // 按热点增强：采样热点方法并只为其埋点
+            if (transformerManager.getInstrumentationScope() != null) {
+                if (transformerManager.canRetransform()) {
+                    hotMethodProfiler = new HotMethodProfiler(config, transformerManager);
+                    hotMethodProfiler.start();
+                } else {
+                    LOGGER.warn("Profile guided instrumentation requires class retransformation, disabled");
+                }
+            }
+
             // 4. 初始化 ExporterManager
             exporterManager = new ExporterManager(config);
             exporterManager.start();
@@ -111,17 +140,26 @@ public class AgentBootstrap {
             // 5. 初始化 CollectorManager
             collectorManager = new CollectorManager(config);
             collectorManager.setExporterManager(exporterManager);
+            // 去除热点廉价方法的埋点需要重新转换已加载的类
+            if (transformerManager.canRetransform()) {
+                hotMethodDeinstrumenter = new HotMethodDeinstrumenter(config, transformerManager);
+                collectorManager.setHotMethodDeinstrumenter(hotMethodDeinstrumenter);
+            }
             collectorManager.start();
 
-            // 6. 初始化诊断管理器
+            // 6. 启动开销控制器
+            overheadGovernor = new OverheadGovernor(config, collectorManager);
+            overheadGovernor.start();
+
+            // 7. 初始化诊断管理器
             DiagnosticManager diagnosticManager = DiagnosticManager.getInstance(config);
             diagnosticManager.start();
             DiagnosticHelper.init(config);
 
-            // 7. 注册 JMX MBean
+            // 8. 注册 JMX MBean
             registerMBean(diagnosticManager);
 
-            // 8. 注册 Shutdown Hook
+            // 9. 注册 Shutdown Hook
             registerShutdownHook();
 
             initialized = true;
@@ -141,7 +179,10 @@ public class AgentBootstrap {
 
             // 注册 AgentControl MBean
             ObjectName agentControlName = new ObjectName("com.alibaba.aletheia:type=AgentControl");
-            agentControl = new AgentControl(config, transformerManager, collectorManager);
+            agentControl = new AgentControl(config, transformerManager, collectorManager, overheadGovernor);
+            agentControl.setHotMethodProfiler(hotMethodProfiler);
+            agentControl.setHotMethodDeinstrumenter(hotMethodDeinstrumenter);
+            agentControl.setProbeEventPipeline(probeEventPipeline);
             mbs.registerMBean(agentControl, agentControlName);
             LOGGER.info("AgentControl MBean registered: {}", agentControlName);
 
@@ -161,14 +202,25 @@ public class AgentBootstrap {
     private void registerShutdownHook() {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             LOGGER.info("Agent shutdown hook triggered");
-            shutdown();
+            // JVM 即将退出，无需恢复类
+            shutdown(false);
         }, "Aletheia-ShutdownHook"));
     }
 
+    /**
+     * 关闭 Agent，并恢复所有修改过的类
+     */
+    public void shutdown() {
+        shutdown(true);
+    }
+
     /**
      * 关闭 Agent
+     *
+     * @param restoreClasses 是否卸载所有 Transformer 并把修改过的类恢复为原始字节码（等待恢复完成，最长
+     *                       {@link AletheiaConstants#DETACH_AWAIT_TIMEOUT_MS} 毫秒）
      */
-    public synchronized void shutdown() {
+    public synchronized void shutdown(boolean restoreClasses) {
         if (!initialized) {
             return;
         }
@@ -176,10 +228,33 @@ public class AgentBootstrap {
         try {
             LOGGER.info("Shutting down Aletheia Agent...");
 
+            if (overheadGovernor != null) {
+                overheadGovernor.stop();
+            }
+
+            if (hotMethodProfiler != null) {
+                hotMethodProfiler.stop();
+            }
+
+            // 先停止流水线，使已发布的事件在最后一次采集前完成聚合
+            if (probeEventPipeline != null) {
+                probeEventPipeline.stop();
+            }
+
             if (collectorManager != null) {
                 collectorManager.stop();
             }
 
+            if (transformerManager != null) {
+                if (restoreClasses) {
+                    transformerManager.detach();
+                    Map<String, Object> detachStatus =
+                            transformerManager.awaitDetach(AletheiaConstants.DETACH_AWAIT_TIMEOUT_MS);
+                    LOGGER.info("Instrumentation rolled back: {}", detachStatus);
+                }
+                transformerManager.shutdown();
+            }
+
             if (exporterManager != null) {
                 exporterManager.stop();
             }
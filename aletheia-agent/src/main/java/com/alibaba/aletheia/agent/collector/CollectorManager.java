@@ -5,15 +5,24 @@ import com.alibaba.aletheia.agent.collector.memory.MemoryCollector;
 import com.alibaba.aletheia.agent.collector.thread.ThreadCollector;
 import com.alibaba.aletheia.agent.config.AgentConfig;
 import com.alibaba.aletheia.agent.exporter.ExporterManager;
+import com.alibaba.aletheia.agent.sampler.HotMethodDeinstrumenter;
+import com.alibaba.aletheia.agent.sampler.RtEventBuffer;
+import com.alibaba.aletheia.agent.sampler.RtSampler;
 import com.alibaba.aletheia.common.model.AgentData;
+import com.alibaba.aletheia.common.model.GcEvent;
+import com.alibaba.aletheia.common.model.MemoryEvent;
+import com.alibaba.aletheia.common.model.RtEvent;
+import com.alibaba.aletheia.common.model.ThreadEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -29,9 +38,18 @@ public class CollectorManager {
     private final AgentConfig config;
     private final Map<String, BaseCollector> collectors = new ConcurrentHashMap<>();
     private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> collectTask;
     private ExporterManager exporterManager;
+    private volatile HotMethodDeinstrumenter hotMethodDeinstrumenter;
     private volatile boolean started = false;
 
+    /**
+     * 以下对象只由单线程调度器上的采集任务访问，每次采集复用（导出器同步序列化，不会持有到下次采集）
+     */
+    private final AgentData agentData = new AgentData();
+    private final List<GcEvent> gcEventBuffer = new ArrayList<>();
+    private final RtEventBuffer rtEventBuffer = new RtEventBuffer();
+
     public CollectorManager(AgentConfig config) {
         this.config = config;
     }
@@ -43,6 +61,13 @@ public class CollectorManager {
         this.exporterManager = exporterManager;
     }
 
+    /**
+     * 设置去除埋点器（每个窗口的 RT 数据刷新后交由其检查）
+     */
+    public void setHotMethodDeinstrumenter(HotMethodDeinstrumenter hotMethodDeinstrumenter) {
+        this.hotMethodDeinstrumenter = hotMethodDeinstrumenter;
+    }
+
     /**
      * 启动采集器管理器
      */
@@ -75,16 +100,17 @@ public class CollectorManager {
                 threadCollector.start();
             }
 
-            // 创建调度器
-            scheduler = Executors.newScheduledThreadPool(2, r -> {
+            // 创建调度器（单线程：采集任务复用事件对象，重新调度后新旧任务也不能并发执行）
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
                 Thread t = new Thread(r, "Aletheia-CollectorManager");
                 t.setDaemon(true);
                 return t;
             });
 
-            // 启动定时采集任务
+            // 启动定时采集任务，首次在下一个按推送间隔对齐的墙上时钟边界触发
             long pushIntervalMs = config.getPushIntervalMs();
-            scheduler.scheduleAtFixedRate(this::collectAndExportData, 0,
+            collectTask = scheduler.scheduleAtFixedRate(this::collectAndExportData,
+                    delayToNextBoundaryMs(System.currentTimeMillis(), pushIntervalMs),
                     pushIntervalMs, TimeUnit.MILLISECONDS);
 
             started = true;
@@ -131,6 +157,26 @@ public class CollectorManager {
         }
     }
 
+    /**
+     * 调整推送间隔并重新调度采集任务
+     *
+     * @param pushIntervalMs 推送间隔（毫秒）
+     */
+    public synchronized void reschedule(long pushIntervalMs) {
+        config.setPushIntervalMs(pushIntervalMs);
+        if (!started) {
+            return;
+        }
+
+        if (collectTask != null) {
+            collectTask.cancel(false);
+        }
+        collectTask = scheduler.scheduleAtFixedRate(this::collectAndExportData,
+                delayToNextBoundaryMs(System.currentTimeMillis(), pushIntervalMs),
+                pushIntervalMs, TimeUnit.MILLISECONDS);
+        LOGGER.info("Collect task rescheduled, pushInterval: {}ms", pushIntervalMs);
+    }
+
     /**
      * 注册采集器
      */
@@ -163,21 +209,46 @@ public class CollectorManager {
         }
     }
 
+    /**
+     * 计算到下一个按间隔对齐的墙上时钟边界（如整秒、整分钟）的延迟
+     *
+     * @param nowMs      当前时间（毫秒）
+     * @param intervalMs 间隔（毫秒）
+     * @return 延迟（毫秒）
+     */
+    static long delayToNextBoundaryMs(long nowMs, long intervalMs) {
+        return intervalMs - nowMs % intervalMs;
+    }
+
+    /**
+     * 取离当前时间最近的按间隔对齐的边界
+     *
+     * @param nowMs      当前时间（毫秒）
+     * @param intervalMs 间隔（毫秒）
+     * @return 对齐的边界（毫秒）
+     */
+    static long nearestBoundaryMs(long nowMs, long intervalMs) {
+        return (nowMs + intervalMs / 2) / intervalMs * intervalMs;
+    }
+
     /**
      * 采集数据并导出
+     * 事件对象与列表在每次采集时复用，稳态下（方法数稳定、没有 GC 和死锁）采集本身几乎不分配
      */
-    private void collectAndExportData() {
+    void collectAndExportData() {
         try {
-            AgentData agentData = new AgentData();
+            agentData.setGcEvents(null);
+            agentData.setThreadEvent(null);
+            agentData.setMemoryEvent(null);
+            agentData.setRtEvents(null);
 
             // 采集 GC 事件
             if (config.isFeatureEnabled("GC")) {
                 GcEventCollector gcCollector = (GcEventCollector) collectors.get("GC");
                 if (gcCollector != null && gcCollector.isStarted()) {
-                    List<com.alibaba.aletheia.common.model.GcEvent> gcEvents =
-                            gcCollector.getAndClearGcEvents();
-                    if (gcEvents != null && !gcEvents.isEmpty()) {
-                        agentData.setGcEvents(gcEvents);
+                    gcEventBuffer.clear();
+                    if (gcCollector.drainGcEvents(gcEventBuffer) > 0) {
+                        agentData.setGcEvents(gcEventBuffer);
                     }
                 }
             }
@@ -186,7 +257,7 @@ public class CollectorManager {
             if (config.isFeatureEnabled("Thread")) {
                 ThreadCollector threadCollector = (ThreadCollector) collectors.get("Thread");
                 if (threadCollector != null && threadCollector.isStarted()) {
-                    com.alibaba.aletheia.common.model.ThreadEvent threadEvent = threadCollector.collect();
+                    ThreadEvent threadEvent = threadCollector.collect();
                     if (threadEvent != null) {
                         agentData.setThreadEvent(threadEvent);
                     }
@@ -197,7 +268,7 @@ public class CollectorManager {
             if (config.isFeatureEnabled("Memory")) {
                 MemoryCollector memoryCollector = (MemoryCollector) collectors.get("Memory");
                 if (memoryCollector != null && memoryCollector.isStarted()) {
-                    com.alibaba.aletheia.common.model.MemoryEvent memoryEvent = memoryCollector.collect();
+                    MemoryEvent memoryEvent = memoryCollector.collect();
                     if (memoryEvent != null) {
                         agentData.setMemoryEvent(memoryEvent);
                     }
@@ -206,10 +277,15 @@ public class CollectorManager {
 
             // 采集 RT 数据（由 RtSampler 管理）
             if (config.isFeatureEnabled("RT")) {
-                List<com.alibaba.aletheia.common.model.RtEvent> rtEvents =
-                        com.alibaba.aletheia.agent.sampler.RtSampler.getAndClearRtEvents();
-                if (rtEvents != null && !rtEvents.isEmpty()) {
+                // 窗口结束时间取最近的对齐边界，消除调度抖动，使各 JVM 的窗口一致
+                long windowEndMs = nearestBoundaryMs(System.currentTimeMillis(), config.getPushIntervalMs());
+                List<RtEvent> rtEvents = RtSampler.getAndClearRtEvents(windowEndMs, rtEventBuffer);
+                if (!rtEvents.isEmpty()) {
                     agentData.setRtEvents(rtEvents);
+                    HotMethodDeinstrumenter deinstrumenter = hotMethodDeinstrumenter;
+                    if (deinstrumenter != null) {
+                        deinstrumenter.onWindow(rtEvents);
+                    }
                 }
             }
 
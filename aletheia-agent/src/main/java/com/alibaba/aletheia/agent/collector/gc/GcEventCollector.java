@@ -1,6 +1,7 @@
 package com.alibaba.aletheia.agent.collector.gc;
 
 import com.alibaba.aletheia.agent.collector.BaseCollector;
+import com.alibaba.aletheia.agent.collector.memory.MemoryPools;
 import com.alibaba.aletheia.agent.config.AgentConfig;
 import com.alibaba.aletheia.common.model.GcEvent;
 import com.alibaba.aletheia.common.util.TimeUtil;
@@ -14,7 +15,8 @@ import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryPoolMXBean;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * GC 事件采集器
@@ -24,8 +26,12 @@ import java.util.concurrent.CopyOnWriteArrayList;
  */
 public class GcEventCollector extends BaseCollector implements NotificationListener {
 
-    private final List<GcEvent> gcEvents = new CopyOnWriteArrayList<>();
+    /**
+     * GC 通知线程写入、采集线程取出的事件队列
+     */
+    private final Queue<GcEvent> gcEvents = new ConcurrentLinkedQueue<>();
     private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+    private final MemoryPools memoryPools = new MemoryPools();
     private List<GarbageCollectorMXBean> gcBeans;
 
     /**
@@ -128,18 +134,17 @@ public class GcEventCollector extends BaseCollector implements NotificationListe
      */
     private void updateMemoryInfo(GcEvent event) {
         try {
-            List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
-            for (MemoryPoolMXBean pool : pools) {
-                String poolName = pool.getName();
-                long used = pool.getUsage().getUsed();
-
-                if (poolName.contains("Eden")) {
-                    event.setEdenUsedBytes(used);
-                } else if (poolName.contains("Survivor")) {
-                    event.setSurvivorUsedBytes(used);
-                } else if (poolName.contains("Old") || poolName.contains("Tenured")) {
-                    event.setOldUsedBytes(used);
-                }
+            MemoryPoolMXBean pool = memoryPools.getEdenPool();
+            if (pool != null) {
+                event.setEdenUsedBytes(pool.getUsage().getUsed());
+            }
+            pool = memoryPools.getSurvivorPool();
+            if (pool != null) {
+                event.setSurvivorUsedBytes(pool.getUsage().getUsed());
+            }
+            pool = memoryPools.getOldPool();
+            if (pool != null) {
+                event.setOldUsedBytes(pool.getUsage().getUsed());
             }
 
             // 堆内存信息
@@ -157,8 +162,24 @@ public class GcEventCollector extends BaseCollector implements NotificationListe
      * @return GC 事件列表
      */
     public List<GcEvent> getAndClearGcEvents() {
-        List<GcEvent> result = new ArrayList<>(gcEvents);
-        gcEvents.clear();
+        List<GcEvent> result = new ArrayList<>();
+        drainGcEvents(result);
         return result;
     }
+
+    /**
+     * 取出所有 GC 事件追加到调用方复用的列表中（没有 GC 事件时不产生分配）
+     *
+     * @param target 目标列表
+     * @return 取出的事件数
+     */
+    public int drainGcEvents(List<GcEvent> target) {
+        int drained = 0;
+        GcEvent event;
+        while ((event = gcEvents.poll()) != null) {
+            target.add(event);
+            drained++;
+        }
+        return drained;
+    }
 }
@@ -8,8 +8,7 @@ import com.alibaba.aletheia.common.util.TimeUtil;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryPoolMXBean;
-import java.lang.reflect.Field;
-import java.util.List;
+import java.lang.management.MemoryUsage;
 
 /**
  * 内存数据采集器
@@ -20,6 +19,16 @@ public class MemoryCollector extends BaseCollector {
 
     private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
 
+    /**
+     * 启动时归类好的内存池句柄
+     */
+    private final MemoryPools memoryPools = new MemoryPools();
+
+    /**
+     * 每次采集复用的内存事件（仅由采集线程访问）
+     */
+    private final MemoryEvent event = new MemoryEvent();
+
     /**
      * 构造函数
      */
@@ -44,56 +53,45 @@ public class MemoryCollector extends BaseCollector {
 
     /**
      * 采集内存数据
+     * 返回的事件对象在每次采集时复用，调用方需在下次采集前处理完毕
      *
      * @return 内存事件
      */
     public MemoryEvent collect() {
         try {
-            MemoryEvent event = new MemoryEvent();
             event.setTimestampNs(TimeUtil.currentTimeNs());
 
             // 堆内存信息
-            long heapUsed = memoryMXBean.getHeapMemoryUsage().getUsed();
-            long heapMax = memoryMXBean.getHeapMemoryUsage().getMax();
-            event.setHeapUsedBytes(heapUsed);
-            event.setHeapMaxBytes(heapMax);
+            MemoryUsage heapUsage = memoryMXBean.getHeapMemoryUsage();
+            event.setHeapUsedBytes(heapUsage.getUsed());
+            event.setHeapMaxBytes(heapUsage.getMax());
 
             // 各内存池信息
-            List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
-            for (MemoryPoolMXBean pool : pools) {
-                String poolName = pool.getName();
-                long used = pool.getUsage().getUsed();
-                long max = pool.getUsage().getMax();
-
-                if (poolName.contains("Eden")) {
-                    event.setEdenUsedBytes(used);
-                    event.setEdenMaxBytes(max);
-                } else if (poolName.contains("Survivor")) {
-                    event.setSurvivorUsedBytes(used);
-                    event.setSurvivorMaxBytes(max);
-                } else if (poolName.contains("Old") || poolName.contains("Tenured")) {
-                    event.setOldUsedBytes(used);
-                    event.setOldMaxBytes(max);
-                } else if (poolName.contains("Metaspace")) {
-                    event.setMetaspaceUsedBytes(used);
-                    event.setMetaspaceMaxBytes(max);
-                }
+            MemoryUsage usage = usageOf(memoryPools.getEdenPool());
+            if (usage != null) {
+                event.setEdenUsedBytes(usage.getUsed());
+                event.setEdenMaxBytes(usage.getMax());
+            }
+            usage = usageOf(memoryPools.getSurvivorPool());
+            if (usage != null) {
+                event.setSurvivorUsedBytes(usage.getUsed());
+                event.setSurvivorMaxBytes(usage.getMax());
+            }
+            usage = usageOf(memoryPools.getOldPool());
+            if (usage != null) {
+                event.setOldUsedBytes(usage.getUsed());
+                event.setOldMaxBytes(usage.getMax());
+            }
+            usage = usageOf(memoryPools.getMetaspacePool());
+            if (usage != null) {
+                event.setMetaspaceUsedBytes(usage.getUsed());
+                event.setMetaspaceMaxBytes(usage.getMax());
             }
 
-            // 直接内存（如果可获取）
-            try {
-                // 通过反射获取 java.nio.Bits 中的直接内存使用量
-                Class<?> bitsClass = Class.forName("java.nio.Bits");
-                Field reservedMemoryField = bitsClass.getDeclaredField("reservedMemory");
-                reservedMemoryField.setAccessible(true);
-                Long reservedMemory = (Long) reservedMemoryField.get(null);
-                
-                if (reservedMemory != null) {
-                    event.setDirectMemoryUsedBytes(reservedMemory);
-                }
-            } catch (Exception e) {
-                // 忽略，直接内存可能无法获取（某些 JVM 版本或配置可能不支持）
-                logger.debug("Unable to get direct memory usage", e);
+            // 直接内存（通过 direct 缓冲池获取，无法获取时保持为 0）
+            long directMemoryUsed = memoryPools.getDirectMemoryUsed();
+            if (directMemoryUsed >= 0) {
+                event.setDirectMemoryUsedBytes(directMemoryUsed);
             }
 
             return event;
@@ -102,4 +100,8 @@ public class MemoryCollector extends BaseCollector {
             return null;
         }
     }
+
+    private static MemoryUsage usageOf(MemoryPoolMXBean pool) {
+        return pool != null ? pool.getUsage() : null;
+    }
 }
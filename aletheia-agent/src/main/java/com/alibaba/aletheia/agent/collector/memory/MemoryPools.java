@@ -0,0 +1,103 @@
+package com.alibaba.aletheia.agent.collector.memory;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.util.List;
+
+/**
+ * 内存池句柄缓存
+ * 启动时获取一次内存池 MXBean 并按名称归类（Eden、Survivor、Old、Metaspace），
+ * 之后每次采集直接读取缓存的句柄，不再重复调用 {@link ManagementFactory#getMemoryPoolMXBeans()} 和按名称匹配
+ *
+ * @author Aletheia Team
+ */
+public final class MemoryPools {
+
+    /**
+     * 直接内存对应的缓冲池名称
+     */
+    private static final String DIRECT_BUFFER_POOL = "direct";
+
+    private final MemoryPoolMXBean edenPool;
+    private final MemoryPoolMXBean survivorPool;
+    private final MemoryPoolMXBean oldPool;
+    private final MemoryPoolMXBean metaspacePool;
+    private final BufferPoolMXBean directBufferPool;
+
+    public MemoryPools() {
+        this(ManagementFactory.getMemoryPoolMXBeans(), ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class));
+    }
+
+    /**
+     * @param pools       内存池（同一类别有多个时取最后一个）
+     * @param bufferPools 缓冲池
+     */
+    MemoryPools(List<MemoryPoolMXBean> pools, List<BufferPoolMXBean> bufferPools) {
+        MemoryPoolMXBean eden = null;
+        MemoryPoolMXBean survivor = null;
+        MemoryPoolMXBean old = null;
+        MemoryPoolMXBean metaspace = null;
+        for (MemoryPoolMXBean pool : pools) {
+            String poolName = pool.getName();
+            if (poolName.contains("Eden")) {
+                eden = pool;
+            } else if (poolName.contains("Survivor")) {
+                survivor = pool;
+            } else if (poolName.contains("Old") || poolName.contains("Tenured")) {
+                old = pool;
+            } else if (poolName.contains("Metaspace")) {
+                metaspace = pool;
+            }
+        }
+        this.edenPool = eden;
+        this.survivorPool = survivor;
+        this.oldPool = old;
+        this.metaspacePool = metaspace;
+
+        BufferPoolMXBean direct = null;
+        for (BufferPoolMXBean bufferPool : bufferPools) {
+            if (DIRECT_BUFFER_POOL.equals(bufferPool.getName())) {
+                direct = bufferPool;
+            }
+        }
+        this.directBufferPool = direct;
+    }
+
+    /**
+     * @return Eden 区内存池，当前垃圾收集器没有该区时为 null
+     */
+    public MemoryPoolMXBean getEdenPool() {
+        return edenPool;
+    }
+
+    /**
+     * @return Survivor 区内存池，当前垃圾收集器没有该区时为 null
+     */
+    public MemoryPoolMXBean getSurvivorPool() {
+        return survivorPool;
+    }
+
+    /**
+     * @return Old 区内存池，当前垃圾收集器没有该区时为 null
+     */
+    public MemoryPoolMXBean getOldPool() {
+        return oldPool;
+    }
+
+    /**
+     * @return 元空间内存池，不存在时为 null
+     */
+    public MemoryPoolMXBean getMetaspacePool() {
+        return metaspacePool;
+    }
+
+    /**
+     * 获取直接内存使用量
+     *
+     * @return 直接内存使用量（字节），无法获取时返回 -1
+     */
+    public long getDirectMemoryUsed() {
+        return directBufferPool != null ? directBufferPool.getMemoryUsed() : -1;
+    }
+}
@@ -22,6 +22,11 @@ public class ThreadCollector extends BaseCollector {
 
     private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
 
+    /**
+     * 每次采集复用的线程事件（仅由采集线程访问）
+     */
+    private final ThreadEvent event = new ThreadEvent();
+
     /**
      * 构造函数
      */
@@ -46,28 +51,32 @@ public class ThreadCollector extends BaseCollector {
 
     /**
      * 采集线程数据
+     * 返回的事件对象在每次采集时复用，调用方需在下次采集前处理完毕
      *
      * @return 线程事件
      */
     public ThreadEvent collect() {
         try {
-            ThreadEvent event = new ThreadEvent();
             event.setTimestampNs(TimeUtil.currentTimeNs());
 
             // 获取线程统计信息
             int totalThreadCount = threadMXBean.getThreadCount();
             event.setTotalThreadCount(totalThreadCount);
 
-            // 统计各状态线程数
-            ThreadInfo[] allThreads = threadMXBean.dumpAllThreads(false, false);
+            // 统计各状态线程数（只需要状态和锁名，不获取调用栈）
+            ThreadInfo[] allThreads = threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds(), 0);
             int runnableCount = 0;
             int blockedCount = 0;
             int waitingCount = 0;
             int timedWaitingCount = 0;
 
-            Map<String, List<String>> lockContentionMap = new HashMap<>();
+            Map<String, List<String>> lockContentionMap = null;
 
             for (ThreadInfo threadInfo : allThreads) {
+                if (threadInfo == null) {
+                    // 线程已结束
+                    continue;
+                }
                 Thread.State state = threadInfo.getThreadState();
                 switch (state) {
                     case RUNNABLE:
@@ -78,6 +87,9 @@ public class ThreadCollector extends BaseCollector {
                         // 记录锁竞争信息
                         String lockName = threadInfo.getLockName();
                         if (lockName != null) {
+                            if (lockContentionMap == null) {
+                                lockContentionMap = new HashMap<>();
+                            }
                             lockContentionMap.computeIfAbsent(lockName, k -> new ArrayList<>())
                                     .add(threadInfo.getThreadName());
                         }
@@ -119,10 +131,12 @@ public class ThreadCollector extends BaseCollector {
                 }
                 event.setDeadlockedThreads(deadlockInfoList);
                 logger.warn("Deadlock detected: {} threads", deadlockedThreads.length);
+            } else {
+                event.setDeadlockedThreads(null);
             }
 
             // 构建锁竞争信息
-            if (!lockContentionMap.isEmpty()) {
+            if (lockContentionMap != null) {
                 List<ThreadEvent.LockContentionInfo> lockContentionInfoList = new ArrayList<>();
                 for (Map.Entry<String, List<String>> entry : lockContentionMap.entrySet()) {
                     ThreadEvent.LockContentionInfo info = new ThreadEvent.LockContentionInfo();
@@ -132,6 +146,8 @@ public class ThreadCollector extends BaseCollector {
                     lockContentionInfoList.add(info);
                 }
                 event.setLockContentionInfo(lockContentionInfoList);
+            } else {
+                event.setLockContentionInfo(null);
             }
 
             return event;
@@ -6,6 +6,9 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Agent 配置管理类
@@ -22,6 +25,9 @@ public class AgentConfig {
     // 功能开关
     private final Map<String, Boolean> featureEnabled = new ConcurrentHashMap<>();
 
+    // 功能开关变更监听器（参数为功能名）
+    private final List<Consumer<String>> featureListeners = new CopyOnWriteArrayList<>();
+
     // 采样率配置
     private final Map<String, Double> sampleRates = new ConcurrentHashMap<>();
 
@@ -31,6 +37,12 @@ public class AgentConfig {
     // 排除模式（黑名单）
     private final Set<String> excludePatterns = ConcurrentHashMap.newKeySet();
 
+    // 方法级切点表达式（为空时不做方法级限制）
+    private final Set<String> pointcuts = ConcurrentHashMap.newKeySet();
+
+    // 包含/排除模式和切点的版本号，任一变化时递增（供 transformer.ScopeMatchers 判断是否重新编译）
+    private final AtomicLong patternVersion = new AtomicLong(0);
+
     // 数据目录
     private volatile String dataDir;
 
@@ -40,6 +52,18 @@ public class AgentConfig {
     // 最大类大小（字节），超过此大小的类不增强
     private volatile int maxClassSize = 1024 * 1024; // 1MB
 
+    // RT 采集配置
+    private final RtConfig rtConfig = new RtConfig();
+
+    // Agent 开销预算配置
+    private final OverheadConfig overheadConfig = new OverheadConfig();
+
+    // 埋点与重新转换配置
+    private final InstrumentConfig instrumentConfig = new InstrumentConfig();
+
+    // 按热点增强与去除埋点配置
+    private final ProfileConfig profileConfig = new ProfileConfig();
+
     private AgentConfig() {
         // 初始化默认配置
         initDefaultConfig();
@@ -96,6 +120,7 @@ public class AgentConfig {
     public void enableFeature(String feature) {
         featureEnabled.put(feature, true);
         LOGGER.info("Feature {} enabled", feature);
+        fireFeatureChanged(feature);
     }
 
     /**
@@ -104,6 +129,24 @@ public class AgentConfig {
     public void disableFeature(String feature) {
         featureEnabled.put(feature, false);
         LOGGER.info("Feature {} disabled", feature);
+        fireFeatureChanged(feature);
+    }
+
+    /**
+     * 注册功能开关变更监听器
+     */
+    public void addFeatureListener(Consumer<String> listener) {
+        featureListeners.add(listener);
+    }
+
+    private void fireFeatureChanged(String feature) {
+        for (Consumer<String> listener : featureListeners) {
+            try {
+                listener.accept(feature);
+            } catch (Exception e) {
+                LOGGER.warn("Feature listener failed for {}", feature, e);
+            }
+        }
     }
 
     /**
@@ -136,6 +179,7 @@ public class AgentConfig {
      */
     public void addIncludePattern(String pattern) {
         includePatterns.add(pattern);
+        patternVersion.incrementAndGet();
         LOGGER.info("Include pattern added: {}", pattern);
     }
 
@@ -144,6 +188,7 @@ public class AgentConfig {
      */
     public void removeIncludePattern(String pattern) {
         includePatterns.remove(pattern);
+        patternVersion.incrementAndGet();
         LOGGER.info("Include pattern removed: {}", pattern);
     }
 
@@ -152,6 +197,7 @@ public class AgentConfig {
      */
     public void addExcludePattern(String pattern) {
         excludePatterns.add(pattern);
+        patternVersion.incrementAndGet();
         LOGGER.info("Exclude pattern added: {}", pattern);
     }
 
@@ -160,9 +206,44 @@ public class AgentConfig {
      */
     public void removeExcludePattern(String pattern) {
         excludePatterns.remove(pattern);
+        patternVersion.incrementAndGet();
         LOGGER.info("Exclude pattern removed: {}", pattern);
     }
 
+    /**
+     * 获取包含/排除模式和切点的版本号（任一模式或切点变化后递增）
+     */
+    public long getPatternVersion() {
+        return patternVersion.get();
+    }
+
+    /**
+     * 添加方法级切点
+     *
+     * @param pointcut 切点表达式，语法见 transformer.PointcutMatcher（调用方负责校验，无法解析的切点在编译时忽略）
+     */
+    public void addPointcut(String pointcut) {
+        pointcuts.add(pointcut.trim());
+        patternVersion.incrementAndGet();
+        LOGGER.info("Pointcut added: {}", pointcut);
+    }
+
+    /**
+     * 移除方法级切点
+     */
+    public void removePointcut(String pointcut) {
+        pointcuts.remove(pointcut.trim());
+        patternVersion.incrementAndGet();
+        LOGGER.info("Pointcut removed: {}", pointcut);
+    }
+
+    /**
+     * 获取所有切点表达式
+     */
+    public Set<String> getPointcuts() {
+        return new HashSet<>(pointcuts);
+    }
+
     /**
      * 获取所有包含模式
      */
@@ -201,6 +282,22 @@ public class AgentConfig {
         this.maxClassSize = maxClassSize;
     }
 
+    public RtConfig getRtConfig() {
+        return rtConfig;
+    }
+
+    public OverheadConfig getOverheadConfig() {
+        return overheadConfig;
+    }
+
+    public InstrumentConfig getInstrumentConfig() {
+        return instrumentConfig;
+    }
+
+    public ProfileConfig getProfileConfig() {
+        return profileConfig;
+    }
+
     /**
      * 解析 Agent 参数
      * 格式：key1=value1,key2=value2
@@ -235,6 +332,60 @@ public class AgentConfig {
                             LOGGER.warn("Invalid maxClassSize: {}", value);
                         }
                         break;
+                    case "histogramDigits":
+                        try {
+                            rtConfig.setHistogramSignificantDigits(Integer.parseInt(value));
+                        } catch (IllegalArgumentException e) {
+                            LOGGER.warn("Invalid histogramDigits: {}", value);
+                        }
+                        break;
+                    case "rtTargetSamples":
+                        try {
+                            rtConfig.setRtTargetSamplesPerWindow(Integer.parseInt(value));
+                        } catch (IllegalArgumentException e) {
+                            LOGGER.warn("Invalid rtTargetSamples: {}", value);
+                        }
+                        break;
+                    case "overheadBudget":
+                        try {
+                            overheadConfig.setOverheadBudget(Double.parseDouble(value));
+                        } catch (IllegalArgumentException e) {
+                            LOGGER.warn("Invalid overheadBudget: {}", value);
+                        }
+                        break;
+                    case "overheadEnforce":
+                        overheadConfig.setOverheadEnforce(Boolean.parseBoolean(value));
+                        break;
+                    case "skipShapes":
+                        try {
+                            instrumentConfig.setSkippedMethodShapes(value);
+                        } catch (IllegalArgumentException e) {
+                            LOGGER.warn("Invalid skipShapes: {}", value);
+                        }
+                        break;
+                    case "minBytecodeSize":
+                        try {
+                            instrumentConfig.setMinInstrumentBytecodeSize(Integer.parseInt(value));
+                        } catch (IllegalArgumentException e) {
+                            LOGGER.warn("Invalid minBytecodeSize: {}", value);
+                        }
+                        break;
+                    case "skipInlineCrossing":
+                        instrumentConfig.setSkipInlineCrossing(Boolean.parseBoolean(value));
+                        break;
+                    case "transformCache":
+                        instrumentConfig.setTransformCacheEnabled(Boolean.parseBoolean(value));
+                        break;
+                    case "profileGuided":
+                        profileConfig.setProfileGuided(Boolean.parseBoolean(value));
+                        break;
+                    case "profileTopN":
+                        try {
+                            profileConfig.setProfileGuidedTopN(Integer.parseInt(value));
+                        } catch (IllegalArgumentException e) {
+                            LOGGER.warn("Invalid profileTopN: {}", value);
+                        }
+                        break;
                     default:
                         LOGGER.debug("Unknown config key: {}", key);
                 }
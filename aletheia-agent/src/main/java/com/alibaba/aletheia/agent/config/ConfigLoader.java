@@ -77,6 +77,206 @@ public class ConfigLoader {
             }
         }
 
+        // 加载 RT 直方图精度
+        String histogramDigits = props.getProperty("rt.histogram.significant.digits");
+        if (histogramDigits != null) {
+            try {
+                config.getRtConfig().setHistogramSignificantDigits(Integer.parseInt(histogramDigits));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid rt.histogram.significant.digits: {}", histogramDigits);
+            }
+        }
+
+        // 加载 RT 按方法自适应采样的目标采样数
+        String rtTargetSamples = props.getProperty("rt.sample.target.per.window");
+        if (rtTargetSamples != null) {
+            try {
+                config.getRtConfig().setRtTargetSamplesPerWindow(Integer.parseInt(rtTargetSamples));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid rt.sample.target.per.window: {}", rtTargetSamples);
+            }
+        }
+
+        // 加载 Agent 开销预算
+        String overheadBudget = props.getProperty("overhead.budget");
+        if (overheadBudget != null) {
+            try {
+                config.getOverheadConfig().setOverheadBudget(Double.parseDouble(overheadBudget));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid overhead.budget: {}", overheadBudget);
+            }
+        }
+        String overheadEnforce = props.getProperty("overhead.enforce");
+        if (overheadEnforce != null) {
+            config.getOverheadConfig().setOverheadEnforce(Boolean.parseBoolean(overheadEnforce.trim()));
+        }
+
+        // 加载 RT 埋点过滤配置
+        String skipShapes = props.getProperty("instrument.skip.shapes");
+        if (skipShapes != null) {
+            try {
+                config.getInstrumentConfig().setSkippedMethodShapes(skipShapes);
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid instrument.skip.shapes: {}", skipShapes);
+            }
+        }
+        String minBytecodeSize = props.getProperty("instrument.min.bytecode.size");
+        if (minBytecodeSize != null) {
+            try {
+                config.getInstrumentConfig().setMinInstrumentBytecodeSize(Integer.parseInt(minBytecodeSize));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid instrument.min.bytecode.size: {}", minBytecodeSize);
+            }
+        }
+        String skipInlineCrossing = props.getProperty("instrument.skip.inline.crossing");
+        if (skipInlineCrossing != null) {
+            config.getInstrumentConfig().setSkipInlineCrossing(Boolean.parseBoolean(skipInlineCrossing.trim()));
+        }
+
+        // 加载运行时重新转换配置
+        String retransformBatchSize = props.getProperty("retransform.batch.size");
+        if (retransformBatchSize != null) {
+            try {
+                config.getInstrumentConfig().setRetransformBatchSize(Integer.parseInt(retransformBatchSize));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid retransform.batch.size: {}", retransformBatchSize);
+            }
+        }
+        String retransformPauseBudget = props.getProperty("retransform.pause.budget.ms");
+        if (retransformPauseBudget != null) {
+            try {
+                config.getInstrumentConfig().setRetransformPauseBudgetMs(Long.parseLong(retransformPauseBudget));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid retransform.pause.budget.ms: {}", retransformPauseBudget);
+            }
+        }
+
+        // 加载增强结果缓存配置
+        String transformCacheEnabled = props.getProperty("transform.cache.enabled");
+        if (transformCacheEnabled != null) {
+            config.getInstrumentConfig().setTransformCacheEnabled(Boolean.parseBoolean(transformCacheEnabled.trim()));
+        }
+        String transformCacheMaxMb = props.getProperty("transform.cache.max.mb");
+        if (transformCacheMaxMb != null) {
+            try {
+                config.getInstrumentConfig().setTransformCacheMaxMb(Integer.parseInt(transformCacheMaxMb));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid transform.cache.max.mb: {}", transformCacheMaxMb);
+            }
+        }
+
+        // 加载按热点增强配置
+        String profileGuided = props.getProperty("instrument.profile.guided");
+        if (profileGuided != null) {
+            config.getProfileConfig().setProfileGuided(Boolean.parseBoolean(profileGuided.trim()));
+        }
+        String profileTopN = props.getProperty("instrument.profile.top.n");
+        if (profileTopN != null) {
+            try {
+                config.getProfileConfig().setProfileGuidedTopN(Integer.parseInt(profileTopN));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid instrument.profile.top.n: {}", profileTopN);
+            }
+        }
+        String profileSampleInterval = props.getProperty("instrument.profile.sample.interval.ms");
+        if (profileSampleInterval != null) {
+            try {
+                config.getProfileConfig().setProfileSampleIntervalMs(Long.parseLong(profileSampleInterval));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid instrument.profile.sample.interval.ms: {}", profileSampleInterval);
+            }
+        }
+        String profileRerankInterval = props.getProperty("instrument.profile.rerank.interval.ms");
+        if (profileRerankInterval != null) {
+            try {
+                config.getProfileConfig().setProfileRerankIntervalMs(Long.parseLong(profileRerankInterval));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid instrument.profile.rerank.interval.ms: {}", profileRerankInterval);
+            }
+        }
+
+        // 加载去除热点廉价方法埋点配置
+        String deinstrumentEnabled = props.getProperty("instrument.deinstrument.enabled");
+        if (deinstrumentEnabled != null) {
+            config.getProfileConfig().setDeinstrumentEnabled(Boolean.parseBoolean(deinstrumentEnabled.trim()));
+        }
+        String deinstrumentMinCalls = props.getProperty("instrument.deinstrument.min.calls.per.sec");
+        if (deinstrumentMinCalls != null) {
+            try {
+                config.getProfileConfig().setDeinstrumentMinCallsPerSec(Long.parseLong(deinstrumentMinCalls));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid instrument.deinstrument.min.calls.per.sec: {}", deinstrumentMinCalls);
+            }
+        }
+        String deinstrumentMaxMean = props.getProperty("instrument.deinstrument.max.mean.ns");
+        if (deinstrumentMaxMean != null) {
+            try {
+                config.getProfileConfig().setDeinstrumentMaxMeanNs(Long.parseLong(deinstrumentMaxMean));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid instrument.deinstrument.max.mean.ns: {}", deinstrumentMaxMean);
+            }
+        }
+        String deinstrumentMaxPerMinute = props.getProperty("instrument.deinstrument.max.per.minute");
+        if (deinstrumentMaxPerMinute != null) {
+            try {
+                config.getProfileConfig().setDeinstrumentMaxPerMinute(Integer.parseInt(deinstrumentMaxPerMinute));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid instrument.deinstrument.max.per.minute: {}", deinstrumentMaxPerMinute);
+            }
+        }
+
+        // 加载探针事件流水线配置
+        String pipelineEnabled = props.getProperty("pipeline.enabled");
+        if (pipelineEnabled != null) {
+            config.getRtConfig().setPipelineEnabled(Boolean.parseBoolean(pipelineEnabled.trim()));
+        }
+        String pipelineType = props.getProperty("pipeline.type");
+        if (pipelineType != null) {
+            try {
+                config.getRtConfig().setPipelineType(pipelineType.trim());
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid pipeline.type: {}", pipelineType);
+            }
+        }
+        String pipelineBufferSize = props.getProperty("pipeline.ring.buffer.size");
+        if (pipelineBufferSize != null) {
+            try {
+                config.getRtConfig().setPipelineRingBufferSize(Integer.parseInt(pipelineBufferSize));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid pipeline.ring.buffer.size: {}", pipelineBufferSize);
+            }
+        }
+        String pipelineWaitStrategy = props.getProperty("pipeline.wait.strategy");
+        if (pipelineWaitStrategy != null) {
+            try {
+                config.getRtConfig().setPipelineWaitStrategy(pipelineWaitStrategy.trim());
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid pipeline.wait.strategy: {}", pipelineWaitStrategy);
+            }
+        }
+
+        // 加载滚动 RT 窗口配置
+        String rollingEnabled = props.getProperty("rt.rolling.enabled");
+        if (rollingEnabled != null) {
+            config.getRtConfig().setRollingWindowsEnabled(Boolean.parseBoolean(rollingEnabled.trim()));
+        }
+        String rollingLevels = props.getProperty("rt.rolling.levels");
+        if (rollingLevels != null) {
+            try {
+                config.getRtConfig().setRollingWindowLevels(rollingLevels.trim());
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid rt.rolling.levels: {}", rollingLevels);
+            }
+        }
+        String rollingMaxMethods = props.getProperty("rt.rolling.max.methods");
+        if (rollingMaxMethods != null) {
+            try {
+                config.getRtConfig().setRollingWindowMaxMethods(Integer.parseInt(rollingMaxMethods.trim()));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid rt.rolling.max.methods: {}", rollingMaxMethods);
+            }
+        }
+
         // 加载数据目录
         String dataDir = props.getProperty("data.dir");
         if (dataDir != null) {
@@ -110,5 +310,15 @@ public class ConfigLoader {
                 config.addExcludePattern(pattern.trim());
             }
         }
+
+        // 加载方法级切点（表达式内含逗号，以分号分隔；无法解析的切点在编译时告警并忽略）
+        String pointcuts = props.getProperty("instrument.pointcuts");
+        if (pointcuts != null) {
+            for (String pointcut : pointcuts.split(";")) {
+                if (!pointcut.trim().isEmpty()) {
+                    config.addPointcut(pointcut);
+                }
+            }
+        }
     }
 }
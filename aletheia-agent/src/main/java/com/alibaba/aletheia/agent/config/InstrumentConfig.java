@@ -0,0 +1,145 @@
+package com.alibaba.aletheia.agent.config;
+
+import com.alibaba.aletheia.common.constant.AletheiaConstants;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 埋点与重新转换配置
+ * 包括 RT 埋点过滤、运行时重新转换的批处理和增强结果磁盘缓存
+ *
+ * @author Aletheia Team
+ */
+public class InstrumentConfig {
+
+    // RT 埋点跳过的方法形态名（大写，取值见 transformer.MethodShape）
+    private volatile Set<String> skippedMethodShapes = Collections.unmodifiableSet(
+            new LinkedHashSet<>(Arrays.asList("EMPTY", "GETTER", "SETTER", "DELEGATOR")));
+
+    // RT 埋点的最小方法字节码长度（字节）
+    private volatile int minInstrumentBytecodeSize = AletheiaConstants.DEFAULT_MIN_INSTRUMENT_BYTECODE_SIZE;
+
+    // 是否跳过埋点后会越过 JIT 内联阈值的方法
+    private volatile boolean skipInlineCrossing = true;
+
+    // 运行时重新转换的批大小
+    private volatile int retransformBatchSize = AletheiaConstants.DEFAULT_RETRANSFORM_BATCH_SIZE;
+
+    // 运行时重新转换单批的停顿预算（毫秒）
+    private volatile long retransformPauseBudgetMs = AletheiaConstants.DEFAULT_RETRANSFORM_PAUSE_BUDGET_MS;
+
+    // 是否启用增强结果磁盘缓存
+    private volatile boolean transformCacheEnabled = true;
+
+    // 增强结果缓存文件最大长度（MB）
+    private volatile int transformCacheMaxMb = AletheiaConstants.DEFAULT_TRANSFORM_CACHE_MAX_MB;
+
+    /**
+     * 获取 RT 埋点跳过的方法形态名（不可变集合，每次修改整体替换）
+     */
+    public Set<String> getSkippedMethodShapes() {
+        return skippedMethodShapes;
+    }
+
+    /**
+     * 设置 RT 埋点跳过的方法形态（空集合表示不按形态跳过），未知的形态名在增强时忽略并告警
+     */
+    public void setSkippedMethodShapes(Collection<String> shapes) {
+        Set<String> copy = new LinkedHashSet<>();
+        for (String shape : shapes) {
+            copy.add(shape.trim().toUpperCase(Locale.ROOT));
+        }
+        this.skippedMethodShapes = Collections.unmodifiableSet(copy);
+    }
+
+    /**
+     * 按逗号分隔的形态名设置跳过的方法形态，如 "GETTER,SETTER"，"NONE" 或空串表示不跳过
+     */
+    public void setSkippedMethodShapes(String shapes) {
+        Set<String> parsed = new LinkedHashSet<>();
+        for (String shape : shapes.split("[,;]")) {
+            String name = shape.trim().toUpperCase(Locale.ROOT);
+            if (!name.isEmpty() && !"NONE".equals(name)) {
+                parsed.add(name);
+            }
+        }
+        setSkippedMethodShapes(parsed);
+    }
+
+    public int getMinInstrumentBytecodeSize() {
+        return minInstrumentBytecodeSize;
+    }
+
+    /**
+     * 设置 RT 埋点的最小方法字节码长度（0 表示不按长度跳过）
+     */
+    public void setMinInstrumentBytecodeSize(int minInstrumentBytecodeSize) {
+        if (minInstrumentBytecodeSize < 0) {
+            throw new IllegalArgumentException("Min instrument bytecode size must be >= 0");
+        }
+        this.minInstrumentBytecodeSize = minInstrumentBytecodeSize;
+    }
+
+    public boolean isSkipInlineCrossing() {
+        return skipInlineCrossing;
+    }
+
+    public void setSkipInlineCrossing(boolean skipInlineCrossing) {
+        this.skipInlineCrossing = skipInlineCrossing;
+    }
+
+    public int getRetransformBatchSize() {
+        return retransformBatchSize;
+    }
+
+    /**
+     * 设置运行时重新转换的批大小（每批最多的类数）
+     */
+    public void setRetransformBatchSize(int retransformBatchSize) {
+        if (retransformBatchSize < 1) {
+            throw new IllegalArgumentException("Retransform batch size must be >= 1");
+        }
+        this.retransformBatchSize = retransformBatchSize;
+    }
+
+    public long getRetransformPauseBudgetMs() {
+        return retransformPauseBudgetMs;
+    }
+
+    /**
+     * 设置运行时重新转换单批的停顿预算（毫秒）
+     */
+    public void setRetransformPauseBudgetMs(long retransformPauseBudgetMs) {
+        if (retransformPauseBudgetMs < 1) {
+            throw new IllegalArgumentException("Retransform pause budget must be >= 1 ms");
+        }
+        this.retransformPauseBudgetMs = retransformPauseBudgetMs;
+    }
+
+    public boolean isTransformCacheEnabled() {
+        return transformCacheEnabled;
+    }
+
+    public void setTransformCacheEnabled(boolean transformCacheEnabled) {
+        this.transformCacheEnabled = transformCacheEnabled;
+    }
+
+    public int getTransformCacheMaxMb() {
+        return transformCacheMaxMb;
+    }
+
+    /**
+     * 设置增强结果缓存文件最大长度（MB）
+     */
+    public void setTransformCacheMaxMb(int transformCacheMaxMb) {
+        if (transformCacheMaxMb < 1) {
+            throw new IllegalArgumentException("Transform cache size must be >= 1 MB");
+        }
+        this.transformCacheMaxMb = transformCacheMaxMb;
+    }
+}
@@ -0,0 +1,42 @@
+package com.alibaba.aletheia.agent.config;
+
+import com.alibaba.aletheia.common.constant.AletheiaConstants;
+
+/**
+ * Agent 开销预算配置
+ *
+ * @author Aletheia Team
+ */
+public class OverheadConfig {
+
+    // Agent 开销预算（占进程全部 CPU 的比例，0 表示只统计不调控）
+    private volatile double overheadBudget = AletheiaConstants.DEFAULT_OVERHEAD_BUDGET;
+
+    // 超出开销预算时是否调控（降采样、拉长推送间隔、关闭功能），关闭时只统计和报告
+    private volatile boolean overheadEnforce = AletheiaConstants.DEFAULT_OVERHEAD_ENFORCE;
+
+    public double getOverheadBudget() {
+        return overheadBudget;
+    }
+
+    /**
+     * 设置 Agent 开销预算（0.0 - 1.0，0 表示只统计不调控）
+     */
+    public void setOverheadBudget(double overheadBudget) {
+        if (overheadBudget < 0 || overheadBudget > 1) {
+            throw new IllegalArgumentException("Overhead budget must be between 0 and 1");
+        }
+        this.overheadBudget = overheadBudget;
+    }
+
+    public boolean isOverheadEnforce() {
+        return overheadEnforce;
+    }
+
+    /**
+     * 设置超出开销预算时是否调控（false 表示只统计和报告）
+     */
+    public void setOverheadEnforce(boolean overheadEnforce) {
+        this.overheadEnforce = overheadEnforce;
+    }
+}
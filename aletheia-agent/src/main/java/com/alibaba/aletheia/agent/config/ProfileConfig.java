@@ -0,0 +1,141 @@
+package com.alibaba.aletheia.agent.config;
+
+import com.alibaba.aletheia.common.constant.AletheiaConstants;
+
+/**
+ * 按热点增强与去除埋点配置
+ *
+ * @author Aletheia Team
+ */
+public class ProfileConfig {
+
+    // 是否只为栈采样发现的热点方法埋点
+    private volatile boolean profileGuided = false;
+
+    // 按热点增强时保留埋点的方法数
+    private volatile int profileGuidedTopN = AletheiaConstants.DEFAULT_PROFILE_GUIDED_TOP_N;
+
+    // 按热点增强时的栈采样间隔（毫秒）
+    private volatile long profileSampleIntervalMs = AletheiaConstants.DEFAULT_PROFILE_SAMPLE_INTERVAL_MS;
+
+    // 按热点增强时的重新排序间隔（毫秒）
+    private volatile long profileRerankIntervalMs = AletheiaConstants.DEFAULT_PROFILE_RERANK_INTERVAL_MS;
+
+    // 是否为调用极频繁且极廉价的方法去除埋点
+    private volatile boolean deinstrumentEnabled = true;
+
+    // 去除埋点的调用频率下限（次/秒）
+    private volatile long deinstrumentMinCallsPerSec = AletheiaConstants.DEFAULT_DEINSTRUMENT_MIN_CALLS_PER_SEC;
+
+    // 去除埋点的平均 RT 上限（纳秒）
+    private volatile long deinstrumentMaxMeanNs = AletheiaConstants.DEFAULT_DEINSTRUMENT_MAX_MEAN_NS;
+
+    // 每分钟最多去除埋点的方法数
+    private volatile int deinstrumentMaxPerMinute = AletheiaConstants.DEFAULT_DEINSTRUMENT_MAX_PER_MINUTE;
+
+    public boolean isProfileGuided() {
+        return profileGuided;
+    }
+
+    /**
+     * 设置是否只为热点方法埋点（需要在初始化 Transformer 之前设置）
+     */
+    public void setProfileGuided(boolean profileGuided) {
+        this.profileGuided = profileGuided;
+    }
+
+    public int getProfileGuidedTopN() {
+        return profileGuidedTopN;
+    }
+
+    /**
+     * 设置按热点增强时保留埋点的方法数
+     */
+    public void setProfileGuidedTopN(int profileGuidedTopN) {
+        if (profileGuidedTopN < 1) {
+            throw new IllegalArgumentException("Profile guided top N must be >= 1");
+        }
+        this.profileGuidedTopN = profileGuidedTopN;
+    }
+
+    public long getProfileSampleIntervalMs() {
+        return profileSampleIntervalMs;
+    }
+
+    /**
+     * 设置按热点增强时的栈采样间隔（毫秒）
+     */
+    public void setProfileSampleIntervalMs(long profileSampleIntervalMs) {
+        if (profileSampleIntervalMs < 1) {
+            throw new IllegalArgumentException("Profile sample interval must be >= 1 ms");
+        }
+        this.profileSampleIntervalMs = profileSampleIntervalMs;
+    }
+
+    public long getProfileRerankIntervalMs() {
+        return profileRerankIntervalMs;
+    }
+
+    /**
+     * 设置按热点增强时的重新排序间隔（毫秒）
+     */
+    public void setProfileRerankIntervalMs(long profileRerankIntervalMs) {
+        if (profileRerankIntervalMs < 1) {
+            throw new IllegalArgumentException("Profile rerank interval must be >= 1 ms");
+        }
+        this.profileRerankIntervalMs = profileRerankIntervalMs;
+    }
+
+    public boolean isDeinstrumentEnabled() {
+        return deinstrumentEnabled;
+    }
+
+    /**
+     * 设置是否为调用极频繁且极廉价的方法去除埋点
+     */
+    public void setDeinstrumentEnabled(boolean deinstrumentEnabled) {
+        this.deinstrumentEnabled = deinstrumentEnabled;
+    }
+
+    public long getDeinstrumentMinCallsPerSec() {
+        return deinstrumentMinCallsPerSec;
+    }
+
+    /**
+     * 设置去除埋点的调用频率下限（次/秒）
+     */
+    public void setDeinstrumentMinCallsPerSec(long deinstrumentMinCallsPerSec) {
+        if (deinstrumentMinCallsPerSec < 1) {
+            throw new IllegalArgumentException("Deinstrument min calls per second must be >= 1");
+        }
+        this.deinstrumentMinCallsPerSec = deinstrumentMinCallsPerSec;
+    }
+
+    public long getDeinstrumentMaxMeanNs() {
+        return deinstrumentMaxMeanNs;
+    }
+
+    /**
+     * 设置去除埋点的平均 RT 上限（纳秒）
+     */
+    public void setDeinstrumentMaxMeanNs(long deinstrumentMaxMeanNs) {
+        if (deinstrumentMaxMeanNs < 1) {
+            throw new IllegalArgumentException("Deinstrument max mean must be >= 1 ns");
+        }
+        this.deinstrumentMaxMeanNs = deinstrumentMaxMeanNs;
+    }
+
+    public int getDeinstrumentMaxPerMinute() {
+        return deinstrumentMaxPerMinute;
+    }
+
+    /**
+     * 设置每分钟最多去除埋点的方法数
+     */
+    public void setDeinstrumentMaxPerMinute(int deinstrumentMaxPerMinute) {
+        if (deinstrumentMaxPerMinute < 1) {
+            throw new IllegalArgumentException("Deinstrument max per minute must be >= 1");
+        }
+        this.deinstrumentMaxPerMinute = deinstrumentMaxPerMinute;
+    }
+}
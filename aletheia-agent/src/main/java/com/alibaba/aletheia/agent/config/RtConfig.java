@@ -0,0 +1,162 @@
+package com.alibaba.aletheia.agent.config;
+
+import com.alibaba.aletheia.agent.sampler.LogLinearHistogram;
+import com.alibaba.aletheia.agent.sampler.ProbeEventPipeline;
+import com.alibaba.aletheia.agent.sampler.RollingRtWindows;
+import com.alibaba.aletheia.common.constant.AletheiaConstants;
+
+/**
+ * RT 采集配置
+ * 包括直方图精度、按方法自适应采样、探针事件流水线和滚动 RT 窗口
+ *
+ * @author Aletheia Team
+ */
+public class RtConfig {
+
+    // RT 直方图有效数字位数
+    private volatile int histogramSignificantDigits = AletheiaConstants.DEFAULT_HISTOGRAM_SIGNIFICANT_DIGITS;
+
+    // RT 每个方法每个窗口的目标采样数（0 表示使用全局采样率）
+    private volatile int rtTargetSamplesPerWindow = AletheiaConstants.DEFAULT_RT_TARGET_SAMPLES_PER_WINDOW;
+
+    // 是否经由环形缓冲区把探针事件交给聚合线程
+    private volatile boolean pipelineEnabled = false;
+
+    // 探针事件环形缓冲区大小（2 的幂）
+    private volatile int pipelineRingBufferSize = AletheiaConstants.DEFAULT_RING_BUFFER_SIZE;
+
+    // 探针事件缓冲区实现（disruptor、offheap）
+    private volatile String pipelineType = AletheiaConstants.DEFAULT_PIPELINE_TYPE;
+
+    // 聚合线程等待策略
+    private volatile String pipelineWaitStrategy = AletheiaConstants.DEFAULT_PIPELINE_WAIT_STRATEGY;
+
+    // 是否在 Agent 内保留多分辨率滚动 RT 窗口
+    private volatile boolean rollingWindowsEnabled = AletheiaConstants.DEFAULT_ROLLING_WINDOWS_ENABLED;
+
+    // 滚动窗口分辨率级别
+    private volatile String rollingWindowLevels = AletheiaConstants.DEFAULT_ROLLING_WINDOW_LEVELS;
+
+    // 滚动窗口最多跟踪的方法数
+    private volatile int rollingWindowMaxMethods = AletheiaConstants.DEFAULT_ROLLING_WINDOW_MAX_METHODS;
+
+    public int getHistogramSignificantDigits() {
+        return histogramSignificantDigits;
+    }
+
+    /**
+     * 设置 RT 直方图有效数字位数（1 - 3），每增加一位每个方法的直方图内存约增加 8 倍
+     */
+    public void setHistogramSignificantDigits(int histogramSignificantDigits) {
+        if (histogramSignificantDigits < LogLinearHistogram.MIN_SIGNIFICANT_DIGITS
+                || histogramSignificantDigits > LogLinearHistogram.MAX_SIGNIFICANT_DIGITS) {
+            throw new IllegalArgumentException("Histogram significant digits must be between "
+                    + LogLinearHistogram.MIN_SIGNIFICANT_DIGITS + " and " + LogLinearHistogram.MAX_SIGNIFICANT_DIGITS);
+        }
+        this.histogramSignificantDigits = histogramSignificantDigits;
+    }
+
+    public int getRtTargetSamplesPerWindow() {
+        return rtTargetSamplesPerWindow;
+    }
+
+    /**
+     * 设置 RT 每个方法每个窗口的目标采样数（0 表示关闭按方法自适应采样）
+     */
+    public void setRtTargetSamplesPerWindow(int rtTargetSamplesPerWindow) {
+        if (rtTargetSamplesPerWindow < 0) {
+            throw new IllegalArgumentException("RT target samples per window must be >= 0");
+        }
+        this.rtTargetSamplesPerWindow = rtTargetSamplesPerWindow;
+    }
+
+    public boolean isPipelineEnabled() {
+        return pipelineEnabled;
+    }
+
+    /**
+     * 设置是否启用探针事件流水线（需要在 Agent 启动前设置）
+     */
+    public void setPipelineEnabled(boolean pipelineEnabled) {
+        this.pipelineEnabled = pipelineEnabled;
+    }
+
+    public String getPipelineType() {
+        return pipelineType;
+    }
+
+    /**
+     * 设置探针事件缓冲区实现（disruptor 或 offheap，offheap 把事件放在堆外直接内存中）
+     */
+    public void setPipelineType(String pipelineType) {
+        if (!ProbeEventPipeline.isTypeSupported(pipelineType)) {
+            throw new IllegalArgumentException("Unknown pipeline type: " + pipelineType);
+        }
+        this.pipelineType = pipelineType;
+    }
+
+    public int getPipelineRingBufferSize() {
+        return pipelineRingBufferSize;
+    }
+
+    /**
+     * 设置探针事件环形缓冲区大小
+     */
+    public void setPipelineRingBufferSize(int pipelineRingBufferSize) {
+        if (pipelineRingBufferSize < 1 || Integer.bitCount(pipelineRingBufferSize) != 1) {
+            throw new IllegalArgumentException("Pipeline ring buffer size must be a power of 2");
+        }
+        this.pipelineRingBufferSize = pipelineRingBufferSize;
+    }
+
+    public String getPipelineWaitStrategy() {
+        return pipelineWaitStrategy;
+    }
+
+    /**
+     * 设置聚合线程等待策略（blocking、sleeping、yielding、busy-spin）
+     */
+    public void setPipelineWaitStrategy(String pipelineWaitStrategy) {
+        if (!ProbeEventPipeline.isWaitStrategySupported(pipelineWaitStrategy)) {
+            throw new IllegalArgumentException("Unknown pipeline wait strategy: " + pipelineWaitStrategy);
+        }
+        this.pipelineWaitStrategy = pipelineWaitStrategy;
+    }
+
+    public boolean isRollingWindowsEnabled() {
+        return rollingWindowsEnabled;
+    }
+
+    /**
+     * 设置是否启用滚动 RT 窗口（需要在 Agent 启动前设置）
+     */
+    public void setRollingWindowsEnabled(boolean rollingWindowsEnabled) {
+        this.rollingWindowsEnabled = rollingWindowsEnabled;
+    }
+
+    public String getRollingWindowLevels() {
+        return rollingWindowLevels;
+    }
+
+    /**
+     * 设置滚动窗口分辨率级别，例如 1s*60,10s*60,1m*60
+     */
+    public void setRollingWindowLevels(String rollingWindowLevels) {
+        RollingRtWindows.parseLevels(rollingWindowLevels);
+        this.rollingWindowLevels = rollingWindowLevels;
+    }
+
+    public int getRollingWindowMaxMethods() {
+        return rollingWindowMaxMethods;
+    }
+
+    /**
+     * 设置滚动窗口最多跟踪的方法数
+     */
+    public void setRollingWindowMaxMethods(int rollingWindowMaxMethods) {
+        if (rollingWindowMaxMethods < 1) {
+            throw new IllegalArgumentException("Rolling window max methods must be >= 1");
+        }
+        this.rollingWindowMaxMethods = rollingWindowMaxMethods;
+    }
+}
@@ -2,7 +2,20 @@ package com.alibaba.aletheia.agent.control;
 
 import com.alibaba.aletheia.agent.collector.CollectorManager;
 import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.agent.probe.ProbeBootstrap;
+import com.alibaba.aletheia.agent.sampler.HotMethodDeinstrumenter;
+import com.alibaba.aletheia.agent.sampler.ProbeEventPipeline;
+import com.alibaba.aletheia.agent.sampler.HotMethodProfiler;
+import com.alibaba.aletheia.agent.sampler.OverheadGovernor;
+import com.alibaba.aletheia.agent.sampler.RtSampler;
+import com.alibaba.aletheia.agent.transformer.BaseTransformer;
+import com.alibaba.aletheia.agent.transformer.ClassHierarchy;
+import com.alibaba.aletheia.agent.transformer.HierarchyClassWriter;
+import com.alibaba.aletheia.agent.transformer.MethodRtTransformer;
+import com.alibaba.aletheia.agent.transformer.PointcutMatcher;
 import com.alibaba.aletheia.agent.transformer.TransformerManager;
+import com.alibaba.aletheia.agent.weaver.WovenMarker;
+import com.alibaba.aletheia.common.constant.AletheiaConstants;
 import com.alibaba.aletheia.common.util.JsonUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,13 +36,44 @@ public class AgentControl implements AgentControlMBean {
     private final AgentConfig config;
     private final TransformerManager transformerManager;
     private final CollectorManager collectorManager;
+    private final OverheadGovernor overheadGovernor;
+    private volatile HotMethodProfiler hotMethodProfiler;
+    private volatile HotMethodDeinstrumenter hotMethodDeinstrumenter;
+    private volatile ProbeEventPipeline probeEventPipeline;
     private volatile boolean shutdown = false;
 
     public AgentControl(AgentConfig config, TransformerManager transformerManager,
                        CollectorManager collectorManager) {
+        this(config, transformerManager, collectorManager, null);
+    }
+
+    public AgentControl(AgentConfig config, TransformerManager transformerManager,
+                       CollectorManager collectorManager, OverheadGovernor overheadGovernor) {
         this.config = config;
         this.transformerManager = transformerManager;
         this.collectorManager = collectorManager;
+        this.overheadGovernor = overheadGovernor;
+    }
+
+    /**
+     * 设置热点方法采样器（按热点增强模式下用于状态查询）
+     */
+    public void setHotMethodProfiler(HotMethodProfiler hotMethodProfiler) {
+        this.hotMethodProfiler = hotMethodProfiler;
+    }
+
+    /**
+     * 设置去除埋点器（用于去除报告查询）
+     */
+    public void setHotMethodDeinstrumenter(HotMethodDeinstrumenter hotMethodDeinstrumenter) {
+        this.hotMethodDeinstrumenter = hotMethodDeinstrumenter;
+    }
+
+    /**
+     * 设置探针事件流水线（用于发布/丢弃计数查询）
+     */
+    public void setProbeEventPipeline(ProbeEventPipeline probeEventPipeline) {
+        this.probeEventPipeline = probeEventPipeline;
     }
 
     @Override
@@ -40,6 +84,10 @@ public class AgentControl implements AgentControlMBean {
         }
 
         config.enableFeature(feature);
+        if (overheadGovernor != null) {
+            // 运维的设置优先，控制器不再恢复或覆盖该功能
+            overheadGovernor.onFeatureChangedByOperator(feature);
+        }
 
         // 启用对应的采集器
         if (collectorManager != null) {
@@ -57,6 +105,9 @@ public class AgentControl implements AgentControlMBean {
     @Override
     public void disableFeature(String feature) {
         config.disableFeature(feature);
+        if (overheadGovernor != null) {
+            overheadGovernor.onFeatureChangedByOperator(feature);
+        }
 
         // 禁用对应的采集器
         if (collectorManager != null) {
@@ -82,6 +133,14 @@ public class AgentControl implements AgentControlMBean {
             throw new IllegalArgumentException("Sample rate must be between 0 and 1");
         }
         config.setSampleRate(feature, rate);
+        if ("RT".equals(feature)) {
+            // RT 采样决策在埋点热路径上，需要同步到 RtSampler
+            RtSampler.setSampleRate(rate);
+            if (overheadGovernor != null) {
+                // 新值作为控制器恢复的上限
+                overheadGovernor.onRtSampleRateChanged(rate);
+            }
+        }
         LOGGER.info("Sample rate for {} set to {} via JMX", feature, rate);
     }
 
@@ -92,22 +151,126 @@ public class AgentControl implements AgentControlMBean {
 
     @Override
     public void addIncludePattern(String pattern) {
+        // 首个白名单会把范围从全部类收窄到该模式，其余类也需要恢复
+        boolean wasUnrestricted = config.getIncludePatterns().isEmpty();
         config.addIncludePattern(pattern);
+        retransformScope("add include " + pattern, wasUnrestricted ? null : pattern);
     }
 
     @Override
     public void removeIncludePattern(String pattern) {
         config.removeIncludePattern(pattern);
+        // 移除最后一个白名单后范围扩大到全部类
+        boolean nowUnrestricted = config.getIncludePatterns().isEmpty();
+        retransformScope("remove include " + pattern, nowUnrestricted ? null : pattern);
     }
 
     @Override
     public void addExcludePattern(String pattern) {
         config.addExcludePattern(pattern);
+        retransformScope("add exclude " + pattern, pattern);
     }
 
     @Override
     public void removeExcludePattern(String pattern) {
         config.removeExcludePattern(pattern);
+        retransformScope("remove exclude " + pattern, pattern);
+    }
+
+    @Override
+    public void addPointcut(String pointcut) {
+        // 首个切点把范围从全部方法收窄到切点，其余类的埋点也需要移除
+        PointcutMatcher.validate(pointcut);
+        boolean wasUnrestricted = config.getPointcuts().isEmpty();
+        config.addPointcut(pointcut);
+        retransformPointcut("add pointcut " + pointcut, wasUnrestricted ? null : pointcut);
+    }
+
+    @Override
+    public void removePointcut(String pointcut) {
+        config.removePointcut(pointcut);
+        // 移除最后一个切点后范围扩大到全部方法
+        boolean nowUnrestricted = config.getPointcuts().isEmpty();
+        retransformPointcut("remove pointcut " + pointcut, nowUnrestricted ? null : pointcut);
+    }
+
+    private void retransformPointcut(String reason, String pointcut) {
+        if (transformerManager == null || shutdown) {
+            return;
+        }
+        if (pointcut == null) {
+            transformerManager.retransformScope(reason, null);
+        } else {
+            transformerManager.retransform(reason, PointcutMatcher.classSelector(pointcut));
+        }
+    }
+
+    @Override
+    public String getRetransformProgress() {
+        if (transformerManager == null) {
+            return JsonUtil.toJson(new HashMap<String, Object>());
+        }
+        return JsonUtil.toJson(transformerManager.getRetransformProgress());
+    }
+
+    private void retransformScope(String reason, String pattern) {
+        if (transformerManager != null && !shutdown) {
+            transformerManager.retransformScope(reason, pattern);
+        }
+    }
+
+    @Override
+    public String getOverheadReport() {
+        if (overheadGovernor == null) {
+            Map<String, Object> report = new HashMap<>();
+            report.put("budget", config.getOverheadConfig().getOverheadBudget());
+            report.put("governorStarted", false);
+            return JsonUtil.toJson(report);
+        }
+        return JsonUtil.toJson(overheadGovernor.getReport());
+    }
+
+    @Override
+    public void setOverheadBudget(double budget) {
+        config.getOverheadConfig().setOverheadBudget(budget);
+        LOGGER.info("Overhead budget set to {} via JMX", budget);
+    }
+
+    @Override
+    public double getOverheadBudget() {
+        return config.getOverheadConfig().getOverheadBudget();
+    }
+
+    @Override
+    public void setOverheadEnforce(boolean enforce) {
+        config.getOverheadConfig().setOverheadEnforce(enforce);
+        LOGGER.info("Overhead enforcement set to {} via JMX", enforce);
+    }
+
+    @Override
+    public boolean isOverheadEnforce() {
+        return config.getOverheadConfig().isOverheadEnforce();
+    }
+
+    @Override
+    public String getDeinstrumentReport() {
+        if (hotMethodDeinstrumenter == null) {
+            Map<String, Object> report = new HashMap<>();
+            report.put("enabled", false);
+            report.put("removed", 0);
+            return JsonUtil.toJson(report);
+        }
+        return JsonUtil.toJson(hotMethodDeinstrumenter.getReport());
+    }
+
+    @Override
+    public String detach() {
+        if (transformerManager == null) {
+            return JsonUtil.toJson(new HashMap<String, Object>());
+        }
+        transformerManager.detach();
+        LOGGER.info("Agent detach requested via JMX");
+        return JsonUtil.toJson(transformerManager.getDetachStatus());
     }
 
     @Override
@@ -138,27 +301,91 @@ public class AgentControl implements AgentControlMBean {
         // 排除模式
         Set<String> excludePatterns = config.getExcludePatterns();
         status.put("excludePatterns", excludePatterns);
+        status.put("pointcuts", config.getPointcuts());
+
+        // 埋点过滤统计
+        if (transformerManager != null) {
+            BaseTransformer rtTransformer = transformerManager.getTransformer("RT");
+            if (rtTransformer instanceof MethodRtTransformer) {
+                status.put("instrumentation", ((MethodRtTransformer) rtTransformer).getInstrumentStats());
+            }
+            status.put("transformCache", transformerManager.getTransformCacheStats());
+            Map<String, Object> hierarchy = new HashMap<>(ClassHierarchy.getInstance().getStats());
+            hierarchy.put("classLoadingFallbacks", HierarchyClassWriter.getFallbackCount());
+            status.put("classHierarchy", hierarchy);
+            status.put("prewovenClassesSkipped", WovenMarker.getSkippedCount());
+            status.put("detach", transformerManager.getDetachStatus());
+        }
+        if (hotMethodProfiler != null) {
+            status.put("profileGuided", hotMethodProfiler.getStats());
+        }
+        if (hotMethodDeinstrumenter != null) {
+            status.put("deinstrumentedMethods", hotMethodDeinstrumenter.getRemovedCount());
+        }
+        if (probeEventPipeline != null) {
+            status.put("probePipeline", probeEventPipeline.getStats());
+        }
+        status.put("linkedProbes", ProbeBootstrap.getProbeCount());
 
         // Collector 状态
         if (collectorManager != null) {
             status.put("collectorStarted", collectorManager.isStarted());
         }
 
+        // 开销
+        status.put("overheadBudget", config.getOverheadConfig().getOverheadBudget());
+        if (overheadGovernor != null) {
+            status.put("overhead", overheadGovernor.getLastOverhead());
+        }
+
         return JsonUtil.toJson(status);
     }
 
     @Override
-    public void shutdown() {
+    public synchronized void shutdown() {
+        if (shutdown) {
+            return;
+        }
         LOGGER.info("Agent shutdown requested via JMX");
         shutdown = true;
 
-        // 停止采集器
+        // 停止后台线程：开销控制器、热点采样、探针事件流水线和采集器（与 AgentBootstrap.shutdown 顺序一致）
+        if (overheadGovernor != null) {
+            overheadGovernor.stop();
+        }
+        if (hotMethodProfiler != null) {
+            hotMethodProfiler.stop();
+        }
+        if (probeEventPipeline != null) {
+            probeEventPipeline.stop();
+        }
         if (collectorManager != null) {
             collectorManager.stop();
         }
 
-        // 注意：不能移除 Transformer，因为类已经加载
-        // Transformer 会通过功能开关自动跳过增强
+        // 卸载 Transformer（埋点随即链接为空方法）并在后台恢复修改过的类，
+        // 恢复完成后停止重新转换线程并关闭增强结果缓存（释放映射和文件锁）
+        if (transformerManager != null) {
+            transformerManager.detach();
+            LOGGER.info("Instrumentation rollback started: {}", transformerManager.getDetachStatus());
+            Thread closer = new Thread(this::closeTransformerManager, "Aletheia-Shutdown");
+            closer.setDaemon(true);
+            closer.start();
+        }
+    }
+
+    /**
+     * 等待类恢复完成（最长 {@link AletheiaConstants#DETACH_AWAIT_TIMEOUT_MS} 毫秒）后关闭 TransformerManager，
+     * 与 AgentBootstrap 关闭时的顺序一致
+     */
+    private void closeTransformerManager() {
+        try {
+            Map<String, Object> detachStatus =
+                    transformerManager.awaitDetach(AletheiaConstants.DETACH_AWAIT_TIMEOUT_MS);
+            LOGGER.info("Instrumentation rolled back: {}", detachStatus);
+        } finally {
+            transformerManager.shutdown();
+        }
     }
 
     public boolean isShutdown() {
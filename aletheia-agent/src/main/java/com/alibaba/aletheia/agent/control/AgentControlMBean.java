@@ -74,6 +74,67 @@ public interface AgentControlMBean {
      */
     void removeExcludePattern(String pattern);
 
+    /**
+     * 添加方法级切点，并重新转换可能命中的已加载类
+     *
+     * @param pointcut 切点表达式（如 class=com.example.*Service method=get* modifiers=public）
+     */
+    void addPointcut(String pointcut);
+
+    /**
+     * 移除方法级切点，并重新转换受影响的已加载类
+     *
+     * @param pointcut 切点表达式
+     */
+    void removePointcut(String pointcut);
+
+    /**
+     * 获取已加载类重新转换的进度
+     *
+     * @return 进度信息（触发原因、总类数、已完成数、失败数、当前批大小，JSON 格式）
+     */
+    String getRetransformProgress();
+
+    /**
+     * 获取 Agent 开销报告
+     *
+     * @return 开销报告（预算、实测开销、调控状态和最近决策，JSON 格式）
+     */
+    String getOverheadReport();
+
+    /**
+     * 设置 Agent 开销预算
+     *
+     * @param budget 占进程全部 CPU 的比例（0.0 - 1.0，0 表示只统计不调控）
+     */
+    void setOverheadBudget(double budget);
+
+    /**
+     * 获取 Agent 开销预算
+     *
+     * @return 占进程全部 CPU 的比例
+     */
+    double getOverheadBudget();
+
+    /**
+     * 设置超出开销预算时是否调控
+     *
+     * @param enforce true 时降采样、拉长推送间隔、关闭诊断功能；false 时只统计和报告，已做的调整逐步恢复
+     */
+    void setOverheadEnforce(boolean enforce);
+
+    /**
+     * 超出开销预算时是否调控
+     */
+    boolean isOverheadEnforce();
+
+    /**
+     * 获取热点廉价方法去除埋点报告
+     *
+     * @return 去除报告（阈值、去除数、因每分钟上限推迟的次数，以及每个方法的调用频率、平均 RT 和原因，JSON 格式）
+     */
+    String getDeinstrumentReport();
+
     /**
      * 获取 Agent 状态
      *
@@ -82,7 +143,16 @@ public interface AgentControlMBean {
     String getStatus();
 
     /**
-     * 关闭 Agent
+     * 卸载 Agent 的所有 Transformer，并在后台分批把修改过的类恢复为原始字节码
+     * 重复调用不会重新执行，返回当前状态
+     *
+     * @return 卸载状态（需恢复的类数、是否完成、进度或已恢复的类数，JSON 格式）
+     */
+    String detach();
+
+    /**
+     * 关闭 Agent（停止采集并卸载所有 Transformer，恢复进度通过 {@link #detach()} 或状态查询；
+     * 恢复完成后在后台关闭重新转换线程和增强结果缓存）
      */
     void shutdown();
 }
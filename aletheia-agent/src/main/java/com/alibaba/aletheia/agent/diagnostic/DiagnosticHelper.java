@@ -2,10 +2,12 @@ package com.alibaba.aletheia.agent.diagnostic;
 
 import com.alibaba.aletheia.agent.config.AgentConfig;
 import com.alibaba.aletheia.agent.diagnostic.collector.LockDiagnosticCollector;
+import com.alibaba.aletheia.agent.sampler.ProbeEventPipeline;
 
 /**
  * 诊断辅助类
  * 提供静态方法供字节码增强调用
+ * 启用了 {@link ProbeEventPipeline} 时锁事件发布到流水线，由聚合线程写入 LockSampler，业务线程不访问锁统计结构
  *
  * @author Aletheia Team
  */
@@ -51,4 +53,73 @@ public class DiagnosticHelper {
             collector.recordLockRelease(lockIdentity, threadId);
         }
     }
+
+    /**
+     * 记录锁获取（指定时间，由探针事件流水线的聚合线程调用）
+     */
+    public static void recordLockAcquire(String lockIdentity, long threadId, long timeNs) {
+        LockDiagnosticCollector collector = getLockDiagnosticCollector();
+        if (collector != null) {
+            collector.recordLockAcquire(lockIdentity, threadId, timeNs);
+        }
+    }
+
+    /**
+     * 记录锁释放（指定时间，由探针事件流水线的聚合线程调用）
+     */
+    public static void recordLockRelease(String lockIdentity, long threadId, long timeNs) {
+        LockDiagnosticCollector collector = getLockDiagnosticCollector();
+        if (collector != null) {
+            collector.recordLockRelease(lockIdentity, threadId, timeNs);
+        }
+    }
+
+    /**
+     * 进入 synchronized 方法（供埋点调用，线程 ID 在此处获取，功能关闭时埋点不计算任何参数）
+     */
+    public static void onMonitorEnter(String lockIdentity) {
+        ProbeEventPipeline pipeline = ProbeEventPipeline.active();
+        if (pipeline != null) {
+            pipeline.publishLock(true, lockIdentity, 0, Thread.currentThread().getId());
+            return;
+        }
+        recordLockAcquire(lockIdentity, Thread.currentThread().getId());
+    }
+
+    /**
+     * 退出 synchronized 方法（供埋点调用）
+     */
+    public static void onMonitorExit(String lockIdentity) {
+        ProbeEventPipeline pipeline = ProbeEventPipeline.active();
+        if (pipeline != null) {
+            pipeline.publishLock(false, lockIdentity, 0, Thread.currentThread().getId());
+            return;
+        }
+        recordLockRelease(lockIdentity, Thread.currentThread().getId());
+    }
+
+    /**
+     * 调用 Lock.lock() 前（供埋点调用，锁标识为锁对象的 identityHashCode）
+     */
+    public static void onLockAcquire(Object lock) {
+        ProbeEventPipeline pipeline = ProbeEventPipeline.active();
+        if (pipeline != null) {
+            // 只发布 identityHashCode，锁标识字符串由聚合线程生成
+            pipeline.publishLock(true, null, System.identityHashCode(lock), Thread.currentThread().getId());
+            return;
+        }
+        recordLockAcquire(String.valueOf(System.identityHashCode(lock)), Thread.currentThread().getId());
+    }
+
+    /**
+     * 调用 Lock.unlock() 前（供埋点调用）
+     */
+    public static void onLockRelease(Object lock) {
+        ProbeEventPipeline pipeline = ProbeEventPipeline.active();
+        if (pipeline != null) {
+            pipeline.publishLock(false, null, System.identityHashCode(lock), Thread.currentThread().getId());
+            return;
+        }
+        recordLockRelease(String.valueOf(System.identityHashCode(lock)), Thread.currentThread().getId());
+    }
 }
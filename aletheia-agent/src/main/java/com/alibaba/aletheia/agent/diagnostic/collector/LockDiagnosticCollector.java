@@ -80,6 +80,20 @@ public class LockDiagnosticCollector extends BaseCollector {
         lockSampler.recordLockRelease(lockIdentity, threadId);
     }
 
+    /**
+     * 记录锁获取（指定时间）
+     */
+    public void recordLockAcquire(String lockIdentity, long threadId, long timeNs) {
+        lockSampler.recordLockAcquire(lockIdentity, threadId, timeNs);
+    }
+
+    /**
+     * 记录锁释放（指定时间）
+     */
+    public void recordLockRelease(String lockIdentity, long threadId, long timeNs) {
+        lockSampler.recordLockRelease(lockIdentity, threadId, timeNs);
+    }
+
     /**
      * 记录锁等待
      */
@@ -6,13 +6,18 @@ import com.alibaba.aletheia.agent.diagnostic.collector.GcDiagnosticCollector;
 import com.alibaba.aletheia.agent.diagnostic.collector.LockDiagnosticCollector;
 import com.alibaba.aletheia.agent.diagnostic.collector.ThreadDiagnosticCollector;
 import com.alibaba.aletheia.agent.diagnostic.sampler.MethodSampler;
+import com.alibaba.aletheia.agent.sampler.RollingRtWindows;
+import com.alibaba.aletheia.agent.sampler.RtSampler;
 import com.alibaba.aletheia.common.util.JsonUtil;
+import com.alibaba.aletheia.common.util.TimeUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 诊断控制 MBean 实现
@@ -157,6 +162,60 @@ public class DiagnosticControl implements DiagnosticControlMBean {
         }
     }
 
+    @Override
+    public String getRollingRt(String methodSignature, int rangeSeconds) {
+        try {
+            RollingRtWindows windows = RtSampler.getRollingWindows();
+            if (windows == null || methodSignature == null || rangeSeconds <= 0) {
+                return JsonUtil.toJson(Collections.emptyMap());
+            }
+            Map<String, Object> result = windows.query(methodSignature,
+                    TimeUnit.SECONDS.toMillis(rangeSeconds), TimeUtil.currentTimeMs());
+            return JsonUtil.toJson(result != null ? result : Collections.emptyMap());
+        } catch (Exception e) {
+            LOGGER.error("Error getting rolling RT", e);
+            return JsonUtil.toJson(Collections.emptyMap());
+        }
+    }
+
+    @Override
+    public String getRollingRtMethods() {
+        try {
+            RollingRtWindows windows = RtSampler.getRollingWindows();
+            if (windows == null) {
+                return JsonUtil.toJson(Collections.emptyMap());
+            }
+            Map<String, Object> result = new LinkedHashMap<>(windows.getStats());
+            result.put("methods", windows.getTrackedMethods());
+            return JsonUtil.toJson(result);
+        } catch (Exception e) {
+            LOGGER.error("Error getting rolling RT methods", e);
+            return JsonUtil.toJson(Collections.emptyMap());
+        }
+    }
+
+    @Override
+    public boolean trackRollingRt(String methodSignature) {
+        RollingRtWindows windows = RtSampler.getRollingWindows();
+        if (windows == null || methodSignature == null) {
+            return false;
+        }
+        boolean tracked = windows.track(methodSignature, TimeUtil.currentTimeMs());
+        LOGGER.info("Rolling RT tracking for {} requested via JMX, tracked: {}", methodSignature, tracked);
+        return tracked;
+    }
+
+    @Override
+    public boolean untrackRollingRt(String methodSignature) {
+        RollingRtWindows windows = RtSampler.getRollingWindows();
+        if (windows == null || methodSignature == null) {
+            return false;
+        }
+        boolean untracked = windows.untrack(methodSignature);
+        LOGGER.info("Rolling RT tracking for {} released via JMX", methodSignature);
+        return untracked;
+    }
+
     @Override
     public String getRecentGcEvents(int count) {
         try {
@@ -83,6 +83,38 @@ public interface DiagnosticControlMBean {
      */
     String getHotMethods(int topN);
 
+    /**
+     * 获取方法最近一段时间的 RT 分布（来自 Agent 内的多分辨率滚动窗口）
+     *
+     * @param methodSignature 方法签名
+     * @param rangeSeconds    查询区间（秒），例如 10 或 300
+     * @return JSON 格式的区间统计（估算调用数、最小/最大/平均值与分位数，单位纳秒），方法未被跟踪或未启用滚动窗口时为空对象
+     */
+    String getRollingRt(String methodSignature, int rangeSeconds);
+
+    /**
+     * 获取滚动窗口正在跟踪的方法及统计信息
+     *
+     * @return JSON 格式的方法列表与统计信息
+     */
+    String getRollingRtMethods();
+
+    /**
+     * 让滚动窗口跟踪指定方法（不受按调用量准入和回收的影响）
+     *
+     * @param methodSignature 方法签名
+     * @return 是否已跟踪（所有槽位都被按请求跟踪的方法占用或未启用滚动窗口时返回 false）
+     */
+    boolean trackRollingRt(String methodSignature);
+
+    /**
+     * 取消按请求跟踪，方法的槽位重新按调用量参与回收
+     *
+     * @param methodSignature 方法签名
+     * @return 方法此前是否按请求跟踪
+     */
+    boolean untrackRollingRt(String methodSignature);
+
     /**
      * 获取最近的 GC 事件
      *
@@ -1,5 +1,6 @@
 package com.alibaba.aletheia.agent.diagnostic.sampler;
 
+import com.alibaba.aletheia.common.constant.AletheiaConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -8,12 +9,14 @@ import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 锁采样器
  * 用于诊断锁竞争问题
  * 记录锁等待时间、锁持有时间、锁竞争统计
+ * 跟踪的锁数量有上限，超过后新锁的事件只计入未跟踪计数；线程释放锁后即移除其持锁记录，
+ * 占用的堆大小不随突发流量增长
  *
  * @author Aletheia Team
  */
@@ -26,11 +29,24 @@ public class LockSampler {
     private final Map<Long, ThreadLockInfo> threadLockMap = new ConcurrentHashMap<>();
 
     // 锁竞争统计
-    private final AtomicLong totalLockContentionCount = new AtomicLong(0);
-    private final AtomicLong totalLockWaitTime = new AtomicLong(0);
+    private final LongAdder totalLockContentionCount = new LongAdder();
+    private final LongAdder totalLockWaitTime = new LongAdder();
+
+    // 超过跟踪上限而未记录的锁事件数
+    private final LongAdder untrackedLockEvents = new LongAdder();
+
+    private final int maxTrackedLocks;
 
     public LockSampler() {
+        this(AletheiaConstants.DEFAULT_MAX_TRACKED_LOCKS);
+    }
+
+    /**
+     * @param maxTrackedLocks 最多跟踪的锁数量
+     */
+    public LockSampler(int maxTrackedLocks) {
         this.threadMXBean = ManagementFactory.getThreadMXBean();
+        this.maxTrackedLocks = maxTrackedLocks;
     }
 
     /**
@@ -40,12 +56,25 @@ public class LockSampler {
      * @param threadId 线程ID
      */
     public void recordLockAcquire(String lockIdentity, long threadId) {
+        recordLockAcquire(lockIdentity, threadId, System.nanoTime());
+    }
+
+    /**
+     * 记录锁获取（事件由探针事件流水线异步投递时使用埋点时的时间）
+     *
+     * @param lockIdentity 锁标识（类名+字段名或对象hashCode）
+     * @param threadId 线程ID
+     * @param currentTime 获取锁的时间（纳秒）
+     */
+    public void recordLockAcquire(String lockIdentity, long threadId, long currentTime) {
         try {
-            long currentTime = System.nanoTime();
-            LockInfo lockInfo = lockInfoMap.computeIfAbsent(lockIdentity, k -> new LockInfo(lockIdentity));
+            LockInfo lockInfo = getOrCreateLockInfo(lockIdentity);
+            if (lockInfo == null) {
+                return;
+            }
             lockInfo.lastAcquireTime = currentTime;
             lockInfo.currentHolderThreadId = threadId;
-            lockInfo.acquireCount.incrementAndGet();
+            lockInfo.acquireCount.increment();
 
             ThreadLockInfo threadInfo = threadLockMap.computeIfAbsent(threadId,
                     k -> new ThreadLockInfo(threadId));
@@ -63,18 +92,29 @@ public class LockSampler {
      * @param threadId 线程ID
      */
     public void recordLockRelease(String lockIdentity, long threadId) {
+        recordLockRelease(lockIdentity, threadId, System.nanoTime());
+    }
+
+    /**
+     * 记录锁释放（事件由探针事件流水线异步投递时使用埋点时的时间）
+     *
+     * @param lockIdentity 锁标识
+     * @param threadId 线程ID
+     * @param currentTime 释放锁的时间（纳秒）
+     */
+    public void recordLockRelease(String lockIdentity, long threadId, long currentTime) {
         try {
-            long currentTime = System.nanoTime();
             LockInfo lockInfo = lockInfoMap.get(lockIdentity);
             if (lockInfo != null && lockInfo.currentHolderThreadId == threadId) {
                 long holdTime = currentTime - lockInfo.lastAcquireTime;
-                lockInfo.totalHoldTime.addAndGet(holdTime);
+                lockInfo.totalHoldTime.add(holdTime);
                 lockInfo.currentHolderThreadId = -1;
             }
 
             ThreadLockInfo threadInfo = threadLockMap.get(threadId);
             if (threadInfo != null && lockIdentity.equals(threadInfo.currentLock)) {
-                threadInfo.currentLock = null;
+                // 不再持锁的线程不保留记录
+                threadLockMap.remove(threadId);
             }
         } catch (Exception e) {
             LOGGER.debug("Error recording lock release", e);
@@ -90,11 +130,13 @@ public class LockSampler {
      */
     public void recordLockWait(String lockIdentity, long threadId, long waitTime) {
         try {
-            LockInfo lockInfo = lockInfoMap.computeIfAbsent(lockIdentity, k -> new LockInfo(lockIdentity));
-            lockInfo.waitCount.incrementAndGet();
-            lockInfo.totalWaitTime.addAndGet(waitTime);
-            totalLockContentionCount.incrementAndGet();
-            totalLockWaitTime.addAndGet(waitTime);
+            totalLockContentionCount.increment();
+            totalLockWaitTime.add(waitTime);
+            LockInfo lockInfo = getOrCreateLockInfo(lockIdentity);
+            if (lockInfo != null) {
+                lockInfo.waitCount.increment();
+                lockInfo.totalWaitTime.add(waitTime);
+            }
         } catch (Exception e) {
             LOGGER.debug("Error recording lock wait", e);
         }
@@ -117,8 +159,10 @@ public class LockSampler {
                 if (state == Thread.State.BLOCKED) {
                     String lockName = threadInfo.getLockName();
                     if (lockName != null) {
-                        LockInfo lockInfo = lockInfoMap.computeIfAbsent(lockName, k -> new LockInfo(lockName));
-                        lockInfo.blockedThreadCount.incrementAndGet();
+                        LockInfo lockInfo = getOrCreateLockInfo(lockName);
+                        if (lockInfo != null) {
+                            lockInfo.blockedThreadCount.increment();
+                        }
                     }
                 }
             }
@@ -127,6 +171,21 @@ public class LockSampler {
         }
     }
 
+    /**
+     * 获取锁信息，尚未跟踪且已达到跟踪上限时返回 null
+     */
+    private LockInfo getOrCreateLockInfo(String lockIdentity) {
+        LockInfo lockInfo = lockInfoMap.get(lockIdentity);
+        if (lockInfo != null) {
+            return lockInfo;
+        }
+        if (lockInfoMap.size() >= maxTrackedLocks) {
+            untrackedLockEvents.increment();
+            return null;
+        }
+        return lockInfoMap.computeIfAbsent(lockIdentity, LockInfo::new);
+    }
+
     /**
      * 获取锁竞争最严重的锁（Top N）
      *
@@ -135,7 +194,7 @@ public class LockSampler {
      */
     public List<LockInfo> getTopContendedLocks(int topN) {
         List<LockInfo> list = new ArrayList<>(lockInfoMap.values());
-        list.sort((a, b) -> Long.compare(b.waitCount.get(), a.waitCount.get()));
+        list.sort((a, b) -> Long.compare(b.waitCount.sum(), a.waitCount.sum()));
         return list.subList(0, Math.min(topN, list.size()));
     }
 
@@ -151,9 +210,10 @@ public class LockSampler {
      */
     public LockContentionStats getContentionStats() {
         return new LockContentionStats(
-                totalLockContentionCount.get(),
-                totalLockWaitTime.get(),
-                lockInfoMap.size()
+                totalLockContentionCount.sum(),
+                totalLockWaitTime.sum(),
+                lockInfoMap.size(),
+                untrackedLockEvents.sum()
         );
     }
 
@@ -163,20 +223,22 @@ public class LockSampler {
     public void clear() {
         lockInfoMap.clear();
         threadLockMap.clear();
-        totalLockContentionCount.set(0);
-        totalLockWaitTime.set(0);
+        totalLockContentionCount.reset();
+        totalLockWaitTime.reset();
+        untrackedLockEvents.reset();
     }
 
     /**
      * 锁信息
+     * 热点锁的计数会被多个线程同时更新，使用按线程分散的 {@link LongAdder}
      */
     public static class LockInfo {
         public final String lockIdentity;
-        public final AtomicLong acquireCount = new AtomicLong(0);
-        public final AtomicLong waitCount = new AtomicLong(0);
-        public final AtomicLong totalHoldTime = new AtomicLong(0);
-        public final AtomicLong totalWaitTime = new AtomicLong(0);
-        public final AtomicLong blockedThreadCount = new AtomicLong(0);
+        public final LongAdder acquireCount = new LongAdder();
+        public final LongAdder waitCount = new LongAdder();
+        public final LongAdder totalHoldTime = new LongAdder();
+        public final LongAdder totalWaitTime = new LongAdder();
+        public final LongAdder blockedThreadCount = new LongAdder();
         public long currentHolderThreadId = -1;
         public long lastAcquireTime = 0;
 
@@ -188,16 +250,16 @@ public class LockSampler {
          * 获取平均持有时间（纳秒）
          */
         public long getAvgHoldTime() {
-            long count = acquireCount.get();
-            return count > 0 ? totalHoldTime.get() / count : 0;
+            long count = acquireCount.sum();
+            return count > 0 ? totalHoldTime.sum() / count : 0;
         }
 
         /**
          * 获取平均等待时间（纳秒）
          */
         public long getAvgWaitTime() {
-            long count = waitCount.get();
-            return count > 0 ? totalWaitTime.get() / count : 0;
+            long count = waitCount.sum();
+            return count > 0 ? totalWaitTime.sum() / count : 0;
         }
     }
 
@@ -221,11 +283,18 @@ public class LockSampler {
         public final long totalContentionCount;
         public final long totalWaitTime;
         public final int lockCount;
+        public final long untrackedLockEvents;
 
         public LockContentionStats(long totalContentionCount, long totalWaitTime, int lockCount) {
+            this(totalContentionCount, totalWaitTime, lockCount, 0);
+        }
+
+        public LockContentionStats(long totalContentionCount, long totalWaitTime, int lockCount,
+                                   long untrackedLockEvents) {
             this.totalContentionCount = totalContentionCount;
             this.totalWaitTime = totalWaitTime;
             this.lockCount = lockCount;
+            this.untrackedLockEvents = untrackedLockEvents;
         }
     }
 }
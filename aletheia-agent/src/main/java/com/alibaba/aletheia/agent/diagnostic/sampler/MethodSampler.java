@@ -1,17 +1,25 @@
 package com.alibaba.aletheia.agent.diagnostic.sampler;
 
+import com.alibaba.aletheia.agent.sampler.CountdownSampler;
+import com.alibaba.aletheia.agent.sampler.LogLinearHistogram;
+import com.alibaba.aletheia.common.constant.AletheiaConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 方法采样器
  * 用于诊断方法热点和执行时间分布
  * 支持采样方式，降低开销
+ * 热点方法会被大量线程同时记录：计数使用 {@link LongAdder}，极值使用 {@link LongAccumulator}，
+ * 分布使用无锁的 {@link LogLinearHistogram}，竞争分散到按线程划分的单元，读取时才合并
+ * 直方图约 30 KB，只在方法累计采样达到 {@link #HISTOGRAM_MIN_SAMPLES} 次后才创建；
+ * 跟踪的方法数量有上限，超过后新方法的样本只计入未跟踪计数，占用的堆大小不随方法数量无限增长
  *
  * @author Aletheia Team
  */
@@ -19,9 +27,42 @@ public class MethodSampler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MethodSampler.class);
 
+    /**
+     * 执行时间直方图可记录的最大值（纳秒）
+     */
+    private static final long HIGHEST_TRACKABLE_TIME_NS = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * 执行时间直方图有效数字位数
+     */
+    private static final int HISTOGRAM_SIGNIFICANT_DIGITS = 2;
+
+    /**
+     * 方法累计采样达到该次数后才创建直方图，偶发方法不占用直方图内存
+     */
+    static final int HISTOGRAM_MIN_SAMPLES = 64;
+
+    private static final double PERCENT = 100.0;
+
     private final Map<String, MethodInfo> methodInfoMap = new ConcurrentHashMap<>();
-    private volatile double sampleRate = 0.01; // 默认 1% 采样率
-    private final AtomicLong totalSamples = new AtomicLong(0);
+    private final CountdownSampler sampler = new CountdownSampler(0.01); // 默认 1% 采样率
+    private final LongAdder totalSamples = new LongAdder();
+
+    // 超过跟踪上限而未记录的样本数
+    private final LongAdder untrackedSamples = new LongAdder();
+
+    private final int maxTrackedMethods;
+
+    public MethodSampler() {
+        this(AletheiaConstants.DEFAULT_MAX_TRACKED_METHODS);
+    }
+
+    /**
+     * @param maxTrackedMethods 最多跟踪的方法数量
+     */
+    public MethodSampler(int maxTrackedMethods) {
+        this.maxTrackedMethods = maxTrackedMethods;
+    }
 
     /**
      * 记录方法执行
@@ -30,21 +71,38 @@ public class MethodSampler {
      * @param executionTimeNs 执行时间（纳秒）
      */
     public void recordMethod(String methodSignature, long executionTimeNs) {
-        // 采样判断
-        if (ThreadLocalRandom.current().nextDouble() > sampleRate) {
+        // 采样判断（倒计数，未命中时不生成随机数）
+        if (!sampler.shouldSample()) {
             return;
         }
 
         try {
-            MethodInfo info = methodInfoMap.computeIfAbsent(methodSignature,
-                    k -> new MethodInfo(methodSignature));
+            MethodInfo info = getOrCreateMethodInfo(methodSignature);
+            if (info == null) {
+                return;
+            }
             info.recordExecution(executionTimeNs);
-            totalSamples.incrementAndGet();
+            totalSamples.increment();
         } catch (Exception e) {
             LOGGER.debug("Error recording method execution", e);
         }
     }
 
+    /**
+     * 获取方法信息，尚未跟踪且已达到跟踪上限时返回 null
+     */
+    private MethodInfo getOrCreateMethodInfo(String methodSignature) {
+        MethodInfo info = methodInfoMap.get(methodSignature);
+        if (info != null) {
+            return info;
+        }
+        if (methodInfoMap.size() >= maxTrackedMethods) {
+            untrackedSamples.increment();
+            return null;
+        }
+        return methodInfoMap.computeIfAbsent(methodSignature, MethodInfo::new);
+    }
+
     /**
      * 获取方法热点（Top N）
      *
@@ -53,7 +111,7 @@ public class MethodSampler {
      */
     public List<MethodInfo> getHotMethods(int topN) {
         List<MethodInfo> list = new ArrayList<>(methodInfoMap.values());
-        list.sort((a, b) -> Long.compare(b.totalTime.get(), a.totalTime.get()));
+        list.sort((a, b) -> Long.compare(b.totalTime.sum(), a.totalTime.sum()));
         return list.subList(0, Math.min(topN, list.size()));
     }
 
@@ -75,24 +133,28 @@ public class MethodSampler {
      * 设置采样率
      */
     public void setSampleRate(double sampleRate) {
-        if (sampleRate < 0 || sampleRate > 1) {
-            throw new IllegalArgumentException("Sample rate must be between 0 and 1");
-        }
-        this.sampleRate = sampleRate;
+        sampler.setRate(sampleRate);
     }
 
     /**
      * 获取采样率
      */
     public double getSampleRate() {
-        return sampleRate;
+        return sampler.getRate();
     }
 
     /**
      * 获取总采样次数
      */
     public long getTotalSamples() {
-        return totalSamples.get();
+        return totalSamples.sum();
+    }
+
+    /**
+     * 获取超过跟踪上限而未记录的样本数
+     */
+    public long getUntrackedSamples() {
+        return untrackedSamples.sum();
     }
 
     /**
@@ -100,7 +162,8 @@ public class MethodSampler {
      */
     public void clear() {
         methodInfoMap.clear();
-        totalSamples.set(0);
+        totalSamples.reset();
+        untrackedSamples.reset();
     }
 
     /**
@@ -108,62 +171,54 @@ public class MethodSampler {
      */
     public static class MethodInfo {
         public final String methodSignature;
-        public final AtomicLong invokeCount = new AtomicLong(0);
-        public final AtomicLong totalTime = new AtomicLong(0);
-        public final AtomicLong minTime = new AtomicLong(Long.MAX_VALUE);
-        public final AtomicLong maxTime = new AtomicLong(0);
+        public final LongAdder invokeCount = new LongAdder();
+        public final LongAdder totalTime = new LongAdder();
+        public final LongAccumulator minTime = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        public final LongAccumulator maxTime = new LongAccumulator(Math::max, 0);
 
-        // 用于计算分位数
-        private final List<Long> executionTimes = Collections.synchronizedList(new ArrayList<>());
+        // 用于计算分位数（无锁记录），采样达到 HISTOGRAM_MIN_SAMPLES 次后创建
+        private volatile LogLinearHistogram executionTimes;
 
         public MethodInfo(String methodSignature) {
             this.methodSignature = methodSignature;
         }
 
         public void recordExecution(long executionTimeNs) {
-            invokeCount.incrementAndGet();
-            totalTime.addAndGet(executionTimeNs);
-
-            long currentMin = minTime.get();
-            while (executionTimeNs < currentMin && !minTime.compareAndSet(currentMin, executionTimeNs)) {
-                currentMin = minTime.get();
-            }
-
-            long currentMax = maxTime.get();
-            while (executionTimeNs > currentMax && !maxTime.compareAndSet(currentMax, executionTimeNs)) {
-                currentMax = maxTime.get();
+            invokeCount.increment();
+            totalTime.add(executionTimeNs);
+            minTime.accumulate(executionTimeNs);
+            maxTime.accumulate(executionTimeNs);
+            LogLinearHistogram histogram = executionTimes;
+            if (histogram == null) {
+                if (invokeCount.sum() < HISTOGRAM_MIN_SAMPLES) {
+                    return;
+                }
+                histogram = getOrCreateHistogram();
             }
+            histogram.recordValue(executionTimeNs);
+        }
 
-            // 记录执行时间用于分位数计算（限制大小，避免内存溢出）
-            synchronized (executionTimes) {
-                if (executionTimes.size() < 10000) {
-                    executionTimes.add(executionTimeNs);
-                }
+        private synchronized LogLinearHistogram getOrCreateHistogram() {
+            if (executionTimes == null) {
+                executionTimes = new LogLinearHistogram(HIGHEST_TRACKABLE_TIME_NS, HISTOGRAM_SIGNIFICANT_DIGITS);
             }
+            return executionTimes;
         }
 
         /**
          * 获取平均执行时间（纳秒）
          */
         public long getAvgTime() {
-            long count = invokeCount.get();
-            return count > 0 ? totalTime.get() / count : 0;
+            long count = invokeCount.sum();
+            return count > 0 ? totalTime.sum() / count : 0;
         }
 
         /**
-         * 计算分位数（P50/P99/P999）
+         * 计算分位数（P50/P99/P999），采样次数不足、尚未创建直方图时返回 0
          */
         public long getPercentile(double percentile) {
-            synchronized (executionTimes) {
-                if (executionTimes.isEmpty()) {
-                    return 0;
-                }
-                List<Long> sorted = new ArrayList<>(executionTimes);
-                Collections.sort(sorted);
-                int index = (int) Math.ceil(sorted.size() * percentile) - 1;
-                index = Math.max(0, Math.min(index, sorted.size() - 1));
-                return sorted.get(index);
-            }
+            LogLinearHistogram histogram = executionTimes;
+            return histogram != null ? histogram.getValueAtPercentile(percentile * PERCENT) : 0;
         }
     }
 }
@@ -2,16 +2,15 @@ package com.alibaba.aletheia.agent.diagnostic.transformer;
 
 import com.alibaba.aletheia.agent.config.AgentConfig;
 import com.alibaba.aletheia.agent.transformer.BaseTransformer;
+import com.alibaba.aletheia.agent.transformer.ProbeEmitter;
 import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Opcodes;
 
-import java.lang.instrument.IllegalClassFormatException;
-import java.security.ProtectionDomain;
-
 /**
  * 锁增强 Transformer
  * 在 synchronized 方法和 Lock.lock() 调用处添加锁竞争监控
+ * 埋点通过 {@link ProbeEmitter} 生成，Lock 和 Thread 功能都关闭后已增强类中的埋点被重新链接为空方法
  *
  * @author Aletheia Team
  */
@@ -19,30 +18,29 @@ public class LockTransformer extends BaseTransformer {
 
     private static final String DIAGNOSTIC_HELPER_CLASS = "com/alibaba/aletheia/agent/diagnostic/DiagnosticHelper";
 
+    /**
+     * 控制锁埋点的功能（任一启用即生效，与 {@link #isFeatureEnabled()} 一致）
+     */
+    private static final String PROBE_FEATURES = "Lock,Thread";
+
     public LockTransformer(AgentConfig config) {
         super(config);
     }
 
+    @Override
+    protected String cacheFingerprint() {
+        // 锁埋点只依赖原始字节码
+        return "lock-v1";
+    }
+
     @Override
     protected boolean isFeatureEnabled() {
         return config.isFeatureEnabled("Lock") || config.isFeatureEnabled("Thread");
     }
 
     @Override
-    protected byte[] doTransform(ClassLoader loader, String className, Class<?> classBeingRedefined,
-                                ProtectionDomain protectionDomain, byte[] classfileBuffer)
-            throws IllegalClassFormatException {
-        try {
-            ClassReader classReader = new ClassReader(classfileBuffer);
-            ClassWriter classWriter = new ClassWriter(classReader, ClassWriter.COMPUTE_FRAMES);
-            LockClassAdapter adapter = new LockClassAdapter(classWriter, className);
-
-            classReader.accept(adapter, ClassReader.EXPAND_FRAMES);
-            return classWriter.toByteArray();
-        } catch (Exception e) {
-            logger.warn("Failed to transform class for lock monitoring: {}", className, e);
-            return null;
-        }
+    protected ClassVisitor createVisitor(ClassVisitor next, ClassReader classReader, String className) {
+        return new LockClassAdapter(next, className);
     }
 
     /**
@@ -51,12 +49,20 @@ public class LockTransformer extends BaseTransformer {
     private static class LockClassAdapter extends org.objectweb.asm.ClassVisitor {
 
         private String className;
+        private boolean indy;
 
         LockClassAdapter(org.objectweb.asm.ClassVisitor cv, String className) {
             super(Opcodes.ASM9, cv);
             this.className = className;
         }
 
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName,
+                          String[] interfaces) {
+            indy = ProbeEmitter.supportsInvokeDynamic(version);
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
         @Override
         public org.objectweb.asm.MethodVisitor visitMethod(int access, String name, String descriptor,
                                                             String signature, String[] exceptions) {
@@ -74,10 +80,10 @@ public class LockTransformer extends BaseTransformer {
             boolean isSynchronized = (access & Opcodes.ACC_SYNCHRONIZED) != 0;
 
             if (isSynchronized) {
-                return new SynchronizedMethodAdapter(mv, className, name, descriptor);
+                return new SynchronizedMethodAdapter(mv, className, name, indy);
             }
 
-            return new LockMethodAdapter(mv, className, name, descriptor);
+            return new LockMethodAdapter(mv, indy);
         }
     }
 
@@ -86,34 +92,25 @@ public class LockTransformer extends BaseTransformer {
      */
     private static class SynchronizedMethodAdapter extends org.objectweb.asm.MethodVisitor {
 
-        private String className;
-        private String methodName;
+        private final String lockIdentity;
+        private final boolean indy;
 
         SynchronizedMethodAdapter(org.objectweb.asm.MethodVisitor mv, String className,
-                                  String methodName, String descriptor) {
+                                  String methodName, boolean indy) {
             super(Opcodes.ASM9, mv);
-            this.className = className;
-            this.methodName = methodName;
+            // 生成锁标识
+            this.lockIdentity = className.replace('/', '.') + "." + methodName + " (synchronized)";
+            this.indy = indy;
         }
 
         @Override
         public void visitCode() {
             super.visitCode();
 
-            // 生成锁标识
-            String lockIdentity = className.replace('/', '.') + "." + methodName + " (synchronized)";
-
             // 在方法开始处注入锁获取监控
             mv.visitLdcInsn(lockIdentity);
-            mv.visitMethodInsn(Opcodes.INVOKESTATIC,
-                    "java/lang/Thread", "currentThread", "()Ljava/lang/Thread;", false);
-            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
-                    "java/lang/Thread", "getId", "()J", false);
-            mv.visitMethodInsn(Opcodes.INVOKESTATIC,
-                    DIAGNOSTIC_HELPER_CLASS,
-                    "recordLockAcquire",
-                    "(Ljava/lang/String;J)V",
-                    false);
+            ProbeEmitter.invokeProbe(mv, indy, DIAGNOSTIC_HELPER_CLASS, "onMonitorEnter",
+                    "(Ljava/lang/String;)V", PROBE_FEATURES);
         }
 
         @Override
@@ -123,17 +120,9 @@ public class LockTransformer extends BaseTransformer {
                     || opcode == Opcodes.DRETURN || opcode == Opcodes.ARETURN
                     || opcode == Opcodes.ATHROW) {
                 // 在方法返回前注入锁释放监控
-                String lockIdentity = className.replace('/', '.') + "." + methodName + " (synchronized)";
                 mv.visitLdcInsn(lockIdentity);
-                mv.visitMethodInsn(Opcodes.INVOKESTATIC,
-                        "java/lang/Thread", "currentThread", "()Ljava/lang/Thread;", false);
-                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
-                        "java/lang/Thread", "getId", "()J", false);
-                mv.visitMethodInsn(Opcodes.INVOKESTATIC,
-                        DIAGNOSTIC_HELPER_CLASS,
-                        "recordLockRelease",
-                        "(Ljava/lang/String;J)V",
-                        false);
+                ProbeEmitter.invokeProbe(mv, indy, DIAGNOSTIC_HELPER_CLASS, "onMonitorExit",
+                        "(Ljava/lang/String;)V", PROBE_FEATURES);
             }
             super.visitInsn(opcode);
         }
@@ -144,9 +133,11 @@ public class LockTransformer extends BaseTransformer {
      */
     private static class LockMethodAdapter extends org.objectweb.asm.MethodVisitor {
 
-        LockMethodAdapter(org.objectweb.asm.MethodVisitor mv, String className,
-                         String methodName, String descriptor) {
+        private final boolean indy;
+
+        LockMethodAdapter(org.objectweb.asm.MethodVisitor mv, boolean indy) {
             super(Opcodes.ASM9, mv);
+            this.indy = indy;
         }
 
         @Override
@@ -157,19 +148,8 @@ public class LockTransformer extends BaseTransformer {
                     && "lock".equals(name) && "()V".equals(descriptor)) {
                 // 在 lock() 调用前记录
                 mv.visitInsn(Opcodes.DUP); // 复制 Lock 对象引用
-                mv.visitMethodInsn(Opcodes.INVOKESTATIC,
-                        "java/lang/System", "identityHashCode", "(Ljava/lang/Object;)I", false);
-                mv.visitMethodInsn(Opcodes.INVOKESTATIC,
-                        "java/lang/String", "valueOf", "(I)Ljava/lang/String;", false);
-                mv.visitMethodInsn(Opcodes.INVOKESTATIC,
-                        "java/lang/Thread", "currentThread", "()Ljava/lang/Thread;", false);
-                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
-                        "java/lang/Thread", "getId", "()J", false);
-                mv.visitMethodInsn(Opcodes.INVOKESTATIC,
-                        DIAGNOSTIC_HELPER_CLASS,
-                        "recordLockAcquire",
-                        "(Ljava/lang/String;J)V",
-                        false);
+                ProbeEmitter.invokeProbe(mv, indy, DIAGNOSTIC_HELPER_CLASS, "onLockAcquire",
+                        "(Ljava/lang/Object;)V", PROBE_FEATURES);
             }
 
             // 监控 Lock.unlock() 调用
@@ -177,19 +157,8 @@ public class LockTransformer extends BaseTransformer {
                     && "unlock".equals(name) && "()V".equals(descriptor)) {
                 // 在 unlock() 调用前记录
                 mv.visitInsn(Opcodes.DUP);
-                mv.visitMethodInsn(Opcodes.INVOKESTATIC,
-                        "java/lang/System", "identityHashCode", "(Ljava/lang/Object;)I", false);
-                mv.visitMethodInsn(Opcodes.INVOKESTATIC,
-                        "java/lang/String", "valueOf", "(I)Ljava/lang/String;", false);
-                mv.visitMethodInsn(Opcodes.INVOKESTATIC,
-                        "java/lang/Thread", "currentThread", "()Ljava/lang/Thread;", false);
-                mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
-                        "java/lang/Thread", "getId", "()J", false);
-                mv.visitMethodInsn(Opcodes.INVOKESTATIC,
-                        DIAGNOSTIC_HELPER_CLASS,
-                        "recordLockRelease",
-                        "(Ljava/lang/String;J)V",
-                        false);
+                ProbeEmitter.invokeProbe(mv, indy, DIAGNOSTIC_HELPER_CLASS, "onLockRelease",
+                        "(Ljava/lang/Object;)V", PROBE_FEATURES);
             }
 
             super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
@@ -0,0 +1,298 @@
+package com.alibaba.aletheia.agent.probe;
+
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.agent.sampler.MethodRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 埋点 invokedynamic 引导类
+ * 增强后的埋点以 invokedynamic 调用，本类将其链接到按功能开关切换的 {@link MutableCallSite}：
+ * 功能启用时指向真实的记录方法，关闭时指向返回零值的空方法。
+ *
+ * <p>同一个记录方法的所有调用点共享一个 {@link MutableCallSite}（调用点本身是指向其
+ * dynamicInvoker 的常量调用点），JIT 会把当前目标当作常量内联，关闭后埋点被完全消除；
+ * 切换开关只需重设一次目标，不需要重新转换已加载的类。
+ *
+ * <p>离线织入的类在构建时无法确定方法 ID，其 RT 埋点通过 {@link #bootstrapMethod} 链接：
+ * 链接时按方法签名向 {@link MethodRegistry} 注册，再把分配到的 ID 绑定为记录方法的第一个参数。
+ *
+ * @author Aletheia Team
+ */
+public final class ProbeBootstrap {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProbeBootstrap.class);
+
+    /**
+     * 引导方法名（增强代码中引用）
+     */
+    public static final String BOOTSTRAP_METHOD = "bootstrap";
+
+    /**
+     * 引导方法描述符：(Lookup, 方法名, 方法类型, 记录类内部名, 功能列表)
+     */
+    public static final String BOOTSTRAP_DESCRIPTOR = "(Ljava/lang/invoke/MethodHandles$Lookup;"
+            + "Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;Ljava/lang/String;)"
+            + "Ljava/lang/invoke/CallSite;";
+
+    /**
+     * 延迟绑定方法 ID 的引导方法名
+     */
+    public static final String BIND_METHOD_BOOTSTRAP = "bootstrapMethod";
+
+    /**
+     * 延迟绑定方法 ID 的引导方法描述符：(Lookup, 方法名, 方法类型, 记录类内部名, 功能列表, 方法签名)
+     */
+    public static final String BIND_METHOD_BOOTSTRAP_DESCRIPTOR = "(Ljava/lang/invoke/MethodHandles$Lookup;"
+            + "Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;Ljava/lang/String;"
+            + "Ljava/lang/String;)Ljava/lang/invoke/CallSite;";
+
+    /**
+     * 功能列表分隔符，任一功能启用即视为启用
+     */
+    public static final String FEATURE_SEPARATOR = ",";
+
+    /**
+     * 记录方法 -> 共享的可切换调用点
+     */
+    private static final Map<String, Probe> PROBES = new ConcurrentHashMap<>();
+
+    private static final AgentConfig CONFIG = AgentConfig.getInstance();
+
+    /**
+     * 卸载后所有埋点固定链接为空方法，功能开关不再生效
+     */
+    private static volatile boolean detached;
+
+    static {
+        CONFIG.addFeatureListener(ProbeBootstrap::onFeatureChanged);
+    }
+
+    private ProbeBootstrap() {
+    }
+
+    /**
+     * invokedynamic 引导方法
+     *
+     * @param caller   调用方 Lookup（未使用，记录方法按 Agent 自身的可见性解析）
+     * @param name     记录方法名
+     * @param type     记录方法类型
+     * @param owner    记录方法所在类的内部名
+     * @param features 控制该埋点的功能名（逗号分隔）
+     * @return 调用点
+     */
+    public static CallSite bootstrap(MethodHandles.Lookup caller, String name, MethodType type,
+                                     String owner, String features) throws ReflectiveOperationException {
+        Probe probe = getProbe(owner, name, type, features);
+        return new ConstantCallSite(probe.site.dynamicInvoker());
+    }
+
+    /**
+     * 延迟绑定方法 ID 的 invokedynamic 引导方法
+     *
+     * @param caller          调用方 Lookup（未使用）
+     * @param name            记录方法名
+     * @param type            调用点类型（记录方法类型去掉第一个 int 方法 ID 参数）
+     * @param owner           记录方法所在类的内部名
+     * @param features        控制该埋点的功能名（逗号分隔）
+     * @param methodSignature 方法签名（类名.方法名）
+     * @return 调用点，注册表已满或已卸载时链接为空方法
+     */
+    public static CallSite bootstrapMethod(MethodHandles.Lookup caller, String name, MethodType type,
+                                           String owner, String features, String methodSignature)
+            throws ReflectiveOperationException {
+        if (detached) {
+            return new ConstantCallSite(noop(type));
+        }
+        int methodId = MethodRegistry.getInstance().register(methodSignature);
+        if (methodId == MethodRegistry.UNREGISTERED_ID) {
+            return new ConstantCallSite(noop(type));
+        }
+        Probe probe = getProbe(owner, name, type.insertParameterTypes(0, int.class), features);
+        return new ConstantCallSite(MethodHandles.insertArguments(probe.site.dynamicInvoker(), 0, methodId));
+    }
+
+    /**
+     * 卸载时把所有埋点重新链接为空方法，之后链接的埋点也保持为空方法
+     * 未能恢复为原始字节码的类仍保留 invokedynamic 调用，但不再记录任何数据
+     */
+    public static void unlinkAll() {
+        synchronized (ProbeBootstrap.class) {
+            detached = true;
+            List<MutableCallSite> changed = new ArrayList<>();
+            for (Probe probe : PROBES.values()) {
+                if (probe.link(false)) {
+                    changed.add(probe.site);
+                }
+            }
+            if (!changed.isEmpty()) {
+                MutableCallSite.syncAll(changed.toArray(new MutableCallSite[0]));
+            }
+            LOGGER.info("Unlinked {} probe(s) on detach", changed.size());
+        }
+    }
+
+    /**
+     * 重新挂载时按功能开关恢复埋点链接（卸载后再次 attach 时调用）
+     */
+    public static void relinkAll() {
+        synchronized (ProbeBootstrap.class) {
+            if (!detached) {
+                return;
+            }
+            detached = false;
+            List<MutableCallSite> changed = new ArrayList<>();
+            for (Probe probe : PROBES.values()) {
+                if (probe.link(probe.isEnabled())) {
+                    changed.add(probe.site);
+                }
+            }
+            if (!changed.isEmpty()) {
+                MutableCallSite.syncAll(changed.toArray(new MutableCallSite[0]));
+            }
+        }
+    }
+
+    /**
+     * 获取已链接的记录方法数
+     */
+    public static int getProbeCount() {
+        return PROBES.size();
+    }
+
+    private static Probe getProbe(String owner, String name, MethodType type, String features)
+            throws ReflectiveOperationException {
+        String key = owner + "." + name + type + "@" + features;
+        Probe probe = PROBES.get(key);
+        if (probe != null) {
+            return probe;
+        }
+        synchronized (ProbeBootstrap.class) {
+            probe = PROBES.get(key);
+            if (probe == null) {
+                Class<?> ownerClass = Class.forName(owner.replace('/', '.'), true,
+                        ProbeBootstrap.class.getClassLoader());
+                MethodHandle live = MethodHandles.lookup().findStatic(ownerClass, name, type);
+                probe = new Probe(features.split(FEATURE_SEPARATOR), live, noop(type));
+                probe.link(!detached && probe.isEnabled());
+                PROBES.put(key, probe);
+            }
+            return probe;
+        }
+    }
+
+    /**
+     * 功能开关变更时重新链接相关埋点
+     */
+    private static void onFeatureChanged(String feature) {
+        synchronized (ProbeBootstrap.class) {
+            if (detached) {
+                return;
+            }
+            List<MutableCallSite> changed = new ArrayList<>();
+            for (Probe probe : PROBES.values()) {
+                if (probe.controlledBy(feature) && probe.link(probe.isEnabled())) {
+                    changed.add(probe.site);
+                }
+            }
+            if (!changed.isEmpty()) {
+                MutableCallSite.syncAll(changed.toArray(new MutableCallSite[0]));
+                LOGGER.info("Relinked {} probe(s) after feature {} changed", changed.size(), feature);
+            }
+        }
+    }
+
+    /**
+     * 与记录方法类型相同、忽略参数并返回零值的空方法
+     */
+    static MethodHandle noop(MethodType type) {
+        Class<?> returnType = type.returnType();
+        MethodHandle constant = returnType == void.class
+                ? MethodHandles.constant(Object.class, null)
+                : MethodHandles.constant(returnType, zeroValue(returnType));
+        return MethodHandles.dropArguments(constant, 0, type.parameterList()).asType(type);
+    }
+
+    private static Object zeroValue(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        }
+        if (type == char.class) {
+            return (char) 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == float.class) {
+            return 0F;
+        }
+        if (type == double.class) {
+            return 0D;
+        }
+        // byte / short / int
+        return 0;
+    }
+
+    /**
+     * 一个记录方法对应的可切换调用点
+     */
+    private static final class Probe {
+
+        private final String[] features;
+        private final MethodHandle live;
+        private final MethodHandle noop;
+        private final MutableCallSite site;
+        private boolean linkedLive;
+
+        Probe(String[] features, MethodHandle live, MethodHandle noop) {
+            this.features = features;
+            this.live = live;
+            this.noop = noop;
+            this.site = new MutableCallSite(noop);
+        }
+
+        boolean isEnabled() {
+            for (String feature : features) {
+                if (CONFIG.isFeatureEnabled(feature)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean controlledBy(String feature) {
+            for (String f : features) {
+                if (f.equals(feature)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return 目标是否发生变化
+         */
+        boolean link(boolean enabled) {
+            if (enabled == linkedLive) {
+                return false;
+            }
+            site.setTarget(enabled ? live : noop);
+            linkedLive = enabled;
+            return true;
+        }
+    }
+}
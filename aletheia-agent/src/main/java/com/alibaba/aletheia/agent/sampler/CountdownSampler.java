@@ -0,0 +1,104 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 倒计数采样器
+ * 每个线程只在命中采样时按几何分布抽取一次到下一次采样的间隔，之后每次调用只做一次自减和一次分支
+ *
+ * <p>几何分布的间隔与逐次独立的伯努利采样等价，因此采样结果是无偏的；
+ * 采样率变更后各线程会在下一次调用时按新采样率重新抽取间隔，不会沿用旧的间隔。
+ *
+ * @author Aletheia Team
+ */
+public class CountdownSampler {
+
+    /**
+     * 每个线程的倒计数状态
+     */
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+    /**
+     * 当前采样率
+     */
+    private volatile double rate;
+
+    /**
+     * 采样率版本号，变更采样率时递增
+     */
+    private volatile int generation;
+
+    /**
+     * 构造函数
+     *
+     * @param rate 采样率（0.0 - 1.0）
+     */
+    public CountdownSampler(double rate) {
+        setRate(rate);
+    }
+
+    /**
+     * 判断当前调用是否采样
+     *
+     * @return true 表示采样
+     */
+    public boolean shouldSample() {
+        State current = state.get();
+        if (current.generation != generation) {
+            current.generation = generation;
+            current.countdown = nextGap(rate);
+        }
+        if (--current.countdown > 0) {
+            return false;
+        }
+        current.countdown = nextGap(rate);
+        return true;
+    }
+
+    /**
+     * 设置采样率
+     *
+     * @param rate 采样率（0.0 - 1.0）
+     */
+    public synchronized void setRate(double rate) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1");
+        }
+        this.rate = rate;
+        generation++;
+    }
+
+    /**
+     * 获取采样率
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * 抽取到下一次采样需要经过的调用次数（含被采样的那一次）
+     *
+     * @param rate 采样率
+     * @return 间隔（>= 1）
+     */
+    static long nextGap(double rate) {
+        if (rate >= 1.0) {
+            return 1;
+        }
+        if (rate <= 0.0) {
+            return Long.MAX_VALUE;
+        }
+        // 取值 (0, 1]，避免 log(0)
+        double u = 1.0 - ThreadLocalRandom.current().nextDouble();
+        double skipped = Math.floor(Math.log(u) / Math.log1p(-rate));
+        return skipped >= Long.MAX_VALUE - 1 ? Long.MAX_VALUE : (long) skipped + 1;
+    }
+
+    /**
+     * 线程倒计数状态
+     */
+    private static final class State {
+        long countdown;
+        int generation = -1;
+    }
+}
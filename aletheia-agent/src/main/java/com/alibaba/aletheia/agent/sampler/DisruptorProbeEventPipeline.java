@@ -0,0 +1,210 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 LMAX Disruptor 的探针事件流水线
+ * 多生产者环形缓冲区中的事件对象预分配在堆内，发布时只填充字段
+ *
+ * @author Aletheia Team
+ */
+final class DisruptorProbeEventPipeline extends ProbeEventPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DisruptorProbeEventPipeline.class);
+
+    /**
+     * 等待剩余事件消费时的轮询间隔
+     */
+    private static final long DRAIN_POLL_MS = 1;
+
+    private static final int TYPE_RT = 1;
+    private static final int TYPE_LOCK_ACQUIRE = 2;
+    private static final int TYPE_LOCK_RELEASE = 3;
+
+    private final int bufferSize;
+    private final Disruptor<ProbeEvent> disruptor;
+    private final AggregationHandler handler = new AggregationHandler();
+    private volatile RingBuffer<ProbeEvent> ringBuffer;
+
+    /**
+     * @param bufferSize   环形缓冲区大小（2 的幂）
+     * @param waitStrategy 聚合线程等待策略（blocking、sleeping、yielding、busy-spin）
+     */
+    DisruptorProbeEventPipeline(int bufferSize, String waitStrategy) {
+        super(waitStrategy);
+        this.bufferSize = bufferSize;
+        this.disruptor = new Disruptor<>(ProbeEvent::new, bufferSize, r -> {
+            Thread t = new Thread(r, THREAD_NAME);
+            t.setDaemon(true);
+            return t;
+        }, ProducerType.MULTI, createWaitStrategy(waitStrategy));
+        disruptor.handleEventsWith(handler);
+    }
+
+    @Override
+    public boolean publishRt(int methodId, long rtNs) {
+        RingBuffer<ProbeEvent> buffer = ringBuffer;
+        long sequence;
+        try {
+            sequence = buffer.tryNext();
+        } catch (InsufficientCapacityException e) {
+            droppedRt.increment();
+            return false;
+        }
+        ProbeEvent event = buffer.get(sequence);
+        event.type = TYPE_RT;
+        event.methodId = methodId;
+        event.value = rtNs;
+        event.threadId = 0;
+        event.lockIdentity = null;
+        buffer.publish(sequence);
+        publishedRt.increment();
+        return true;
+    }
+
+    @Override
+    public boolean publishLock(boolean acquire, String lockIdentity, int lockHash, long threadId) {
+        RingBuffer<ProbeEvent> buffer = ringBuffer;
+        long sequence;
+        try {
+            sequence = buffer.tryNext();
+        } catch (InsufficientCapacityException e) {
+            droppedLock.increment();
+            return false;
+        }
+        ProbeEvent event = buffer.get(sequence);
+        event.type = acquire ? TYPE_LOCK_ACQUIRE : TYPE_LOCK_RELEASE;
+        event.methodId = lockHash;
+        event.value = System.nanoTime();
+        event.threadId = threadId;
+        event.lockIdentity = lockIdentity;
+        buffer.publish(sequence);
+        publishedLock.increment();
+        return true;
+    }
+
+    @Override
+    protected String getType() {
+        return TYPE_DISRUPTOR;
+    }
+
+    @Override
+    protected int getBufferSize() {
+        return bufferSize;
+    }
+
+    @Override
+    protected long getRemainingCapacity() {
+        RingBuffer<ProbeEvent> buffer = ringBuffer;
+        return buffer != null ? buffer.remainingCapacity() : 0;
+    }
+
+    @Override
+    protected void doStart() {
+        ringBuffer = disruptor.start();
+    }
+
+    @Override
+    protected void doStop() {
+        // Disruptor.shutdown 会忽略尚未开始运行的消费者，这里直接比较消费序号与发布序号
+        long cursor = ringBuffer.getCursor();
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MS;
+        while (disruptor.getSequenceValueFor(handler) < cursor) {
+            if (System.currentTimeMillis() >= deadline) {
+                LOGGER.warn("ProbeEventPipeline did not drain in {} ms, halting", SHUTDOWN_TIMEOUT_MS);
+                break;
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(DRAIN_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        disruptor.halt();
+    }
+
+    /**
+     * 按名称创建等待策略
+     *
+     * @throws IllegalArgumentException 未知的等待策略
+     */
+    static WaitStrategy createWaitStrategy(String name) {
+        switch (name) {
+            case "blocking":
+                return new BlockingWaitStrategy();
+            case "sleeping":
+                return new SleepingWaitStrategy();
+            case "yielding":
+                return new YieldingWaitStrategy();
+            case "busy-spin":
+                return new BusySpinWaitStrategy();
+            default:
+                throw new IllegalArgumentException("Unknown wait strategy: " + name);
+        }
+    }
+
+    /**
+     * 预分配的定长事件
+     */
+    private static final class ProbeEvent {
+        private int type;
+        /**
+         * RT 事件为方法 ID，锁事件为锁对象的 identityHashCode
+         */
+        private int methodId;
+        /**
+         * RT 事件为耗时，锁事件为时间戳（纳秒）
+         */
+        private long value;
+        private long threadId;
+        /**
+         * synchronized 方法的锁标识（埋点中的常量，不产生分配）
+         */
+        private String lockIdentity;
+    }
+
+    /**
+     * 聚合线程的事件处理器
+     */
+    private final class AggregationHandler implements EventHandler<ProbeEvent> {
+
+        @Override
+        public void onEvent(ProbeEvent event, long sequence, boolean endOfBatch) {
+            try {
+                switch (event.type) {
+                    case TYPE_RT:
+                        aggregateRt(event.methodId, event.value);
+                        break;
+                    case TYPE_LOCK_ACQUIRE:
+                    case TYPE_LOCK_RELEASE:
+                        String identity = event.lockIdentity != null
+                                ? event.lockIdentity : String.valueOf(event.methodId);
+                        aggregateLock(event.type == TYPE_LOCK_ACQUIRE, identity, event.threadId, event.value);
+                        break;
+                    default:
+                        break;
+                }
+            } catch (Exception e) {
+                LOGGER.debug("Error aggregating probe event", e);
+            } finally {
+                // 不持有锁标识的引用
+                event.lockIdentity = null;
+                consumed++;
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.agent.config.ProfileConfig;
+import com.alibaba.aletheia.agent.transformer.MethodDenylist;
+import com.alibaba.aletheia.agent.transformer.TransformerManager;
+import com.alibaba.aletheia.common.model.RtEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * 热点廉价方法去除埋点器
+ * 每个窗口刷新后按 RT 事件估算每个方法的调用频率（估算调用次数 / 窗口时长）和平均 RT，
+ * 调用频率不低于下限且平均 RT 不高于上限的方法加入 {@link MethodDenylist}，并重新转换所在的类以移除埋点。
+ * 这类方法即使只有采样判断的开销也占比可观，去除后广泛埋点的最坏开销有上界
+ *
+ * <p>每分钟去除的方法数有上限，超出的候选方法留待后续窗口（仍满足条件时）再处理；
+ * 去除的方法及原因保留在报告中，通过 {@link com.alibaba.aletheia.agent.control.AgentControlMBean} 查询。
+ * 去除是单向的，方法在 Agent 运行期间不再恢复埋点。有多个埋点重载的方法名不会去除，
+ * 其统计是各重载合并的结果。
+ *
+ * @author Aletheia Team
+ */
+public class HotMethodDeinstrumenter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HotMethodDeinstrumenter.class);
+
+    /**
+     * 去除数量上限的统计周期
+     */
+    private static final long RATE_LIMIT_PERIOD_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * 平均 RT 可信所需的最少采样数
+     */
+    private static final int MIN_SAMPLES = 32;
+
+    /**
+     * 报告中保留的最近去除记录数
+     */
+    private static final int MAX_REPORTED_REMOVALS = 1000;
+
+    private final AgentConfig config;
+    private final MethodDenylist denylist;
+    private final BiConsumer<String, Predicate<String>> retransformer;
+
+    /**
+     * 最近一个统计周期内的去除时间（毫秒）
+     */
+    private final Deque<Long> recentRemovals = new ArrayDeque<>();
+
+    /**
+     * 去除记录（按时间顺序）
+     */
+    private final Deque<Map<String, Object>> removals = new ArrayDeque<>();
+
+    private long removedTotal;
+    private long deferredTotal;
+
+    public HotMethodDeinstrumenter(AgentConfig config, TransformerManager transformerManager) {
+        this(config, transformerManager.getMethodDenylist(), transformerManager::retransform);
+    }
+
+    HotMethodDeinstrumenter(AgentConfig config, MethodDenylist denylist,
+                            BiConsumer<String, Predicate<String>> retransformer) {
+        this.config = config;
+        this.denylist = denylist;
+        this.retransformer = retransformer;
+    }
+
+    /**
+     * 检查一个窗口的 RT 事件
+     *
+     * @param events 窗口内各方法的 RT 事件
+     */
+    public void onWindow(List<RtEvent> events) {
+        onWindow(events, System.currentTimeMillis());
+    }
+
+    synchronized void onWindow(List<RtEvent> events, long nowMs) {
+        if (!config.getProfileConfig().isDeinstrumentEnabled()) {
+            return;
+        }
+        try {
+            List<Candidate> candidates = findCandidates(events);
+            if (candidates.isEmpty()) {
+                return;
+            }
+            // 先去除最频繁的方法，收益最大
+            candidates.sort((a, b) -> Double.compare(b.callsPerSec, a.callsPerSec));
+
+            while (!recentRemovals.isEmpty() && nowMs - recentRemovals.peekFirst() >= RATE_LIMIT_PERIOD_MS) {
+                recentRemovals.pollFirst();
+            }
+            int maxPerMinute = config.getProfileConfig().getDeinstrumentMaxPerMinute();
+            Set<String> changedClasses = new HashSet<>();
+            for (Candidate candidate : candidates) {
+                if (recentRemovals.size() >= maxPerMinute) {
+                    deferredTotal++;
+                    continue;
+                }
+                if (denylist.add(candidate.signature)) {
+                    recentRemovals.addLast(nowMs);
+                    record(candidate, nowMs);
+                    changedClasses.add(internalClassName(candidate.signature));
+                }
+            }
+            if (!changedClasses.isEmpty()) {
+                retransformer.accept("deinstrument hot trivial methods", changedClasses::contains);
+            }
+        } catch (Exception e) {
+            LOGGER.warn("Error checking methods for deinstrumentation", e);
+        }
+    }
+
+    /**
+     * 获取去除报告（阈值、累计去除数、因数量上限推迟的次数和最近的去除记录）
+     */
+    public synchronized Map<String, Object> getReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        ProfileConfig profileConfig = config.getProfileConfig();
+        report.put("enabled", profileConfig.isDeinstrumentEnabled());
+        report.put("minCallsPerSec", profileConfig.getDeinstrumentMinCallsPerSec());
+        report.put("maxMeanNs", profileConfig.getDeinstrumentMaxMeanNs());
+        report.put("maxPerMinute", profileConfig.getDeinstrumentMaxPerMinute());
+        report.put("removed", removedTotal);
+        report.put("deferred", deferredTotal);
+        report.put("methods", new ArrayList<>(removals));
+        return report;
+    }
+
+    /**
+     * 获取累计去除埋点的方法数
+     */
+    public synchronized long getRemovedCount() {
+        return removedTotal;
+    }
+
+    private List<Candidate> findCandidates(List<RtEvent> events) {
+        long minCallsPerSec = config.getProfileConfig().getDeinstrumentMinCallsPerSec();
+        long maxMeanNs = config.getProfileConfig().getDeinstrumentMaxMeanNs();
+        // 采集线程每个窗口都会调用，没有候选方法时不分配
+        List<Candidate> candidates = Collections.emptyList();
+        for (int i = 0; i < events.size(); i++) {
+            RtEvent event = events.get(i);
+            long windowNs = event.getWindowEndNs() - event.getWindowStartNs();
+            if (windowNs <= 0 || event.getSampleCount() < MIN_SAMPLES || event.getMethodSignature() == null) {
+                continue;
+            }
+            double callsPerSec = event.getEstimatedCount() * (double) TimeUnit.SECONDS.toNanos(1) / windowNs;
+            if (callsPerSec >= minCallsPerSec && event.getAvgNs() <= maxMeanNs
+                    && !denylist.contains(event.getMethodSignature())
+                    && !denylist.isOverloaded(event.getMethodSignature())) {
+                if (candidates.isEmpty()) {
+                    candidates = new ArrayList<>();
+                }
+                candidates.add(new Candidate(event, callsPerSec));
+            }
+        }
+        return candidates;
+    }
+
+    private void record(Candidate candidate, long nowMs) {
+        long minCallsPerSec = config.getProfileConfig().getDeinstrumentMinCallsPerSec();
+        long maxMeanNs = config.getProfileConfig().getDeinstrumentMaxMeanNs();
+        Map<String, Object> removal = new LinkedHashMap<>();
+        removal.put("method", candidate.signature);
+        removal.put("callsPerSec", Math.round(candidate.callsPerSec));
+        removal.put("meanNs", candidate.meanNs);
+        removal.put("samples", candidate.samples);
+        removal.put("reason", String.format("%.0f calls/s >= %d calls/s and mean %.1f ns <= %d ns",
+                candidate.callsPerSec, minCallsPerSec, candidate.meanNs, maxMeanNs));
+        removal.put("timestamp", nowMs);
+        removals.addLast(removal);
+        if (removals.size() > MAX_REPORTED_REMOVALS) {
+            removals.pollFirst();
+        }
+        removedTotal++;
+        LOGGER.info("Deinstrumenting {}: {}", candidate.signature, removal.get("reason"));
+    }
+
+    private static String internalClassName(String methodSignature) {
+        int separator = methodSignature.lastIndexOf('.');
+        return methodSignature.substring(0, Math.max(separator, 0)).replace('.', '/');
+    }
+
+    /**
+     * 去除候选方法
+     */
+    private static final class Candidate {
+
+        private final String signature;
+        private final double callsPerSec;
+        private final double meanNs;
+        private final int samples;
+
+        Candidate(RtEvent event, double callsPerSec) {
+            this.signature = event.getMethodSignature();
+            this.callsPerSec = callsPerSec;
+            this.meanNs = event.getAvgNs();
+            this.samples = event.getSampleCount();
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.agent.transformer.ClassFilter;
+import com.alibaba.aletheia.agent.transformer.InstrumentationScope;
+import com.alibaba.aletheia.agent.transformer.TransformerManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * 热点方法采样器（按热点增强模式）
+ * 以较低频率通过 {@link ThreadMXBean} 采样所有业务线程的调用栈，统计每个方法出现在栈上的次数
+ * （包括正在执行和等待被调方法返回，即既覆盖 CPU 热点也覆盖慢调用），
+ * 周期性地把得分最高的 N 个方法写入 {@link InstrumentationScope}，并只重新转换成员发生变化的类
+ *
+ * <p>每次排序后得分按固定比例衰减，不再出现的方法逐渐退出白名单，其埋点随重新转换被移除。
+ *
+ * <p>每条栈只取栈顶 {@link #MAX_STACK_DEPTH} 帧；得分按类名、方法名两级索引（栈帧中的名称由 JVM 驻留），
+ * 同一方法在一条栈上是否已计分用栈序号标记，记录栈帧时只有首次出现的方法才分配对象。
+ *
+ * @author Aletheia Team
+ */
+public class HotMethodProfiler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HotMethodProfiler.class);
+
+    /**
+     * Agent 线程名前缀（不采样）
+     */
+    private static final String AGENT_THREAD_PREFIX = "Aletheia-";
+
+    /**
+     * 每次排序后得分的衰减系数
+     */
+    private static final double DECAY = 0.5;
+
+    /**
+     * 衰减后低于该得分的方法不再跟踪
+     */
+    private static final double MIN_SCORE = 0.5;
+
+    /**
+     * 最多跟踪的方法数（超出后不再加入新方法，直到衰减腾出空间）
+     */
+    private static final int MAX_TRACKED_METHODS = 20000;
+
+    /**
+     * 每条栈采样的最大帧数（栈顶方法）
+     */
+    static final int MAX_STACK_DEPTH = 64;
+
+    private final AgentConfig config;
+    private final InstrumentationScope scope;
+    private final BiConsumer<String, Predicate<String>> retransformer;
+    private final ClassFilter classFilter;
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * 类名 -> 方法名 -> 得分（只在采样线程中访问）
+     */
+    private final Map<String, Map<String, MethodScore>> scores = new HashMap<>();
+
+    private int trackedMethods;
+
+    /**
+     * 已记录的栈序号，用于同一方法在一条栈上只计一次
+     */
+    private long stackSeq;
+
+    /**
+     * 类名 -> 是否在增强范围内（只在采样线程中访问，每次排序后清空）
+     */
+    private final Map<String, Boolean> classInScope = new HashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private volatile long samples;
+    private volatile long reranks;
+
+    public HotMethodProfiler(AgentConfig config, TransformerManager transformerManager) {
+        this(config, transformerManager.getInstrumentationScope(), transformerManager::retransform);
+    }
+
+    HotMethodProfiler(AgentConfig config, InstrumentationScope scope,
+                      BiConsumer<String, Predicate<String>> retransformer) {
+        this.config = config;
+        this.scope = scope;
+        this.retransformer = retransformer;
+        this.classFilter = new ClassFilter(config);
+    }
+
+    /**
+     * 启动采样
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Aletheia-HotMethodProfiler");
+            t.setDaemon(true);
+            return t;
+        });
+        long sampleIntervalMs = config.getProfileConfig().getProfileSampleIntervalMs();
+        long rerankIntervalMs = config.getProfileConfig().getProfileRerankIntervalMs();
+        scheduler.scheduleAtFixedRate(this::sample, sampleIntervalMs, sampleIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(this::rerank, rerankIntervalMs, rerankIntervalMs, TimeUnit.MILLISECONDS);
+        LOGGER.info("HotMethodProfiler started, top {} methods, sample every {}ms, rerank every {}ms",
+                config.getProfileConfig().getProfileGuidedTopN(), sampleIntervalMs, rerankIntervalMs);
+    }
+
+    /**
+     * 停止采样
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 采样一次所有业务线程的调用栈
+     */
+    void sample() {
+        try {
+            for (ThreadInfo info : threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds(), MAX_STACK_DEPTH)) {
+                if (info != null && !info.getThreadName().startsWith(AGENT_THREAD_PREFIX)) {
+                    recordStack(info.getStackTrace());
+                }
+            }
+            samples++;
+        } catch (Exception e) {
+            LOGGER.warn("Error sampling thread stacks", e);
+        }
+    }
+
+    /**
+     * 记录一条调用栈（同一方法在一条栈上只计一次）
+     */
+    void recordStack(StackTraceElement[] stack) {
+        long seq = ++stackSeq;
+        for (StackTraceElement frame : stack) {
+            String className = frame.getClassName();
+            if (!isInScope(className)) {
+                continue;
+            }
+            Map<String, MethodScore> methods = scores.get(className);
+            MethodScore score = methods != null ? methods.get(frame.getMethodName()) : null;
+            if (score == null) {
+                if (trackedMethods >= MAX_TRACKED_METHODS) {
+                    continue;
+                }
+                if (methods == null) {
+                    methods = new HashMap<>();
+                    scores.put(className, methods);
+                }
+                score = new MethodScore();
+                methods.put(frame.getMethodName(), score);
+                trackedMethods++;
+            }
+            if (score.lastStack != seq) {
+                score.lastStack = seq;
+                score.value++;
+            }
+        }
+    }
+
+    /**
+     * 按得分重新选出热点方法，只重新转换成员有变化的类，然后衰减得分
+     */
+    void rerank() {
+        try {
+            Set<String> changedClasses = scope.update(topMethods(config.getProfileConfig().getProfileGuidedTopN()));
+            reranks++;
+            if (!changedClasses.isEmpty()) {
+                LOGGER.info("Hot method set changed in {} class(es), {} method(s) instrumented",
+                        changedClasses.size(), scope.getMethods().size());
+                retransformer.accept("hot method rerank", changedClasses::contains);
+            }
+            decay();
+            // 增强范围可能已修改，重新判断
+            classInScope.clear();
+        } catch (Exception e) {
+            LOGGER.warn("Error ranking hot methods", e);
+        }
+    }
+
+    /**
+     * 获取采样统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(scope.getStats());
+        stats.put("samples", samples);
+        stats.put("reranks", reranks);
+        return stats;
+    }
+
+    private Set<String> topMethods(int limit) {
+        List<Map.Entry<String, Double>> ranked = new ArrayList<>(trackedMethods);
+        for (Map.Entry<String, Map<String, MethodScore>> classEntry : scores.entrySet()) {
+            for (Map.Entry<String, MethodScore> methodEntry : classEntry.getValue().entrySet()) {
+                ranked.add(new AbstractMap.SimpleImmutableEntry<>(
+                        classEntry.getKey() + "." + methodEntry.getKey(), methodEntry.getValue().value));
+            }
+        }
+        ranked.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
+        Set<String> top = new LinkedHashSet<>();
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            top.add(ranked.get(i).getKey());
+        }
+        return top;
+    }
+
+    private void decay() {
+        Iterator<Map<String, MethodScore>> classes = scores.values().iterator();
+        while (classes.hasNext()) {
+            Map<String, MethodScore> methods = classes.next();
+            Iterator<MethodScore> it = methods.values().iterator();
+            while (it.hasNext()) {
+                MethodScore score = it.next();
+                score.value *= DECAY;
+                if (score.value < MIN_SCORE) {
+                    it.remove();
+                    trackedMethods--;
+                }
+            }
+            if (methods.isEmpty()) {
+                classes.remove();
+            }
+        }
+    }
+
+    private boolean isInScope(String className) {
+        Boolean inScope = classInScope.get(className);
+        if (inScope == null) {
+            inScope = classFilter.matchesPatterns(className.replace('.', '/'));
+            if (classInScope.size() < MAX_TRACKED_METHODS) {
+                classInScope.put(className, inScope);
+            }
+        }
+        return inScope;
+    }
+
+    /**
+     * 方法得分
+     */
+    private static final class MethodScore {
+
+        private double value;
+
+        /**
+         * 最近一次计分的栈序号
+         */
+        private long lastStack;
+    }
+}
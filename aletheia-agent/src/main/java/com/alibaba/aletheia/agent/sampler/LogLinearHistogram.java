@@ -0,0 +1,309 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对数线性分桶直方图（HdrHistogram 风格）
+ * 内存固定、无锁记录：记录一次为 O(1) 且不分配对象，分位数通过扫描桶计算
+ *
+ * <p>值域按 2 的幂划分为若干桶，每个桶再线性划分为若干子桶，
+ * 子桶数量由有效数字位数决定，保证相对误差不超过 10^(-significantDigits)。
+ *
+ * <p>总数、总和使用 {@link LongAdder}，最小/最大值使用 {@link LongAccumulator}：多核同时记录同一方法时
+ * 竞争会分散到按线程划分、填充过缓存行的单元中，读取时才合并；极值未变化时不产生写入。
+ *
+ * @author Aletheia Team
+ */
+public class LogLinearHistogram {
+
+    /**
+     * 最小有效数字位数
+     */
+    public static final int MIN_SIGNIFICANT_DIGITS = 1;
+
+    /**
+     * 最大有效数字位数
+     * 计数数组每增加一位约增长 8 倍：值域 1 分钟（纳秒）时 2 位约 30 KB、3 位约 216 KB，4 位已达数 MB，
+     * 每个方法还有两套缓冲，因此不支持更高精度
+     */
+    public static final int MAX_SIGNIFICANT_DIGITS = 3;
+
+    private static final int BYTES_PER_COUNT = 8;
+
+    private final long highestTrackableValue;
+    private final int significantDigits;
+
+    private final int subBucketHalfCountMagnitude;
+    private final int subBucketHalfCount;
+    private final int subBucketCount;
+    private final long subBucketMask;
+    private final int leadingZeroCountBase;
+
+    /**
+     * 各桶计数
+     */
+    private final AtomicLongArray counts;
+
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalValue = new LongAdder();
+    private final LongAccumulator minValue = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator maxValue = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 构造函数
+     *
+     * @param highestTrackableValue 可记录的最大值，超出的值按最大值计入
+     * @param significantDigits 有效数字位数（1 - 3）
+     */
+    public LogLinearHistogram(long highestTrackableValue, int significantDigits) {
+        if (significantDigits < MIN_SIGNIFICANT_DIGITS || significantDigits > MAX_SIGNIFICANT_DIGITS) {
+            throw new IllegalArgumentException("Significant digits must be between "
+                    + MIN_SIGNIFICANT_DIGITS + " and " + MAX_SIGNIFICANT_DIGITS);
+        }
+        if (highestTrackableValue < 2) {
+            throw new IllegalArgumentException("Highest trackable value must be >= 2");
+        }
+        this.highestTrackableValue = highestTrackableValue;
+        this.significantDigits = significantDigits;
+
+        int subBucketCountMagnitude = subBucketCountMagnitude(significantDigits);
+        this.subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+        this.subBucketCount = 1 << subBucketCountMagnitude;
+        this.subBucketHalfCount = subBucketCount >> 1;
+        this.subBucketMask = subBucketCount - 1;
+        this.leadingZeroCountBase = 64 - subBucketCountMagnitude;
+
+        int bucketCount = bucketsNeeded(highestTrackableValue, subBucketCount);
+        this.counts = new AtomicLongArray((bucketCount + 1) * subBucketHalfCount);
+    }
+
+    /**
+     * 估算一个直方图计数数组占用的内存
+     *
+     * @param highestTrackableValue 可记录的最大值
+     * @param significantDigits 有效数字位数
+     * @return 字节数
+     */
+    public static long footprintBytes(long highestTrackableValue, int significantDigits) {
+        int subBucketCount = 1 << subBucketCountMagnitude(significantDigits);
+        int bucketCount = bucketsNeeded(highestTrackableValue, subBucketCount);
+        return (long) (bucketCount + 1) * (subBucketCount >> 1) * BYTES_PER_COUNT;
+    }
+
+    private static int subBucketCountMagnitude(int significantDigits) {
+        // 单位精度可覆盖的最大值：2 * 10^digits
+        long largestValueWithSingleUnitResolution = 2 * (long) Math.pow(10, significantDigits);
+        return 64 - Long.numberOfLeadingZeros(largestValueWithSingleUnitResolution - 1);
+    }
+
+    /**
+     * 记录一个值
+     *
+     * @param value 值（负数忽略）
+     */
+    public void recordValue(long value) {
+        if (value < 0) {
+            return;
+        }
+
+        long trackedValue = value > highestTrackableValue ? highestTrackableValue : value;
+        counts.incrementAndGet(countsIndexFor(trackedValue));
+        totalCount.increment();
+        totalValue.add(value);
+        minValue.accumulate(value);
+        maxValue.accumulate(value);
+    }
+
+    /**
+     * 清空所有计数，使直方图可以复用
+     * 调用方需保证清空期间没有并发记录
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.lazySet(i, 0);
+        }
+        totalCount.reset();
+        totalValue.reset();
+        minValue.reset();
+        maxValue.reset();
+    }
+
+    /**
+     * 把另一个直方图的计数合并进来
+     * 两者精度和范围相同时按桶直接相加，否则按来源桶的中间值重新分桶（误差取两者中较低的精度）
+     * 调用方需保证合并期间 other 没有并发记录
+     *
+     * @param other 来源直方图
+     */
+    public void add(LogLinearHistogram other) {
+        add(other, 1);
+    }
+
+    /**
+     * 把另一个直方图的计数乘以权重后合并进来（例如按 1/采样率 把样本数换算为估算调用数）
+     * 调用方需保证合并期间 other 没有并发记录
+     *
+     * @param other  来源直方图
+     * @param weight 每个样本代表的次数（>= 1）
+     */
+    public void add(LogLinearHistogram other, long weight) {
+        long count = other.getTotalCount();
+        if (count == 0) {
+            return;
+        }
+        boolean sameLayout = other.significantDigits == significantDigits
+                && other.highestTrackableValue == highestTrackableValue;
+        int length = other.counts.length();
+        for (int i = 0; i < length; i++) {
+            long bucketCount = other.counts.get(i);
+            if (bucketCount == 0) {
+                continue;
+            }
+            if (sameLayout) {
+                counts.addAndGet(i, bucketCount * weight);
+            } else {
+                long value = Math.min(other.medianEquivalentValue(other.valueFromIndex(i)), highestTrackableValue);
+                counts.addAndGet(countsIndexFor(value), bucketCount * weight);
+            }
+        }
+        totalCount.add(count * weight);
+        totalValue.add(other.totalValue.sum() * weight);
+        minValue.accumulate(other.minValue.get());
+        maxValue.accumulate(other.maxValue.get());
+    }
+
+    /**
+     * 获取指定分位数的值
+     *
+     * @param percentile 百分位数（0-100）
+     * @return 分位数值（所在桶的上界，并限制在 [min, max] 之间）
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.sum();
+        if (count == 0) {
+            return 0;
+        }
+
+        double requested = Math.min(Math.max(percentile, 0.0), 100.0);
+        long countAtPercentile = Math.max(1, (long) ((requested / 100.0) * count + 0.5));
+
+        long runningCount = 0;
+        int length = counts.length();
+        for (int i = 0; i < length; i++) {
+            runningCount += counts.get(i);
+            if (runningCount >= countAtPercentile) {
+                long valueAtIndex = valueFromIndex(i);
+                long value = requested == 0.0
+                        ? lowestEquivalentValue(valueAtIndex)
+                        : highestEquivalentValue(valueAtIndex);
+                return Math.min(Math.max(value, getMinValue()), getMaxValue());
+            }
+        }
+        return getMaxValue();
+    }
+
+    /**
+     * 获取记录总数
+     */
+    public long getTotalCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * 获取最小值
+     */
+    public long getMinValue() {
+        long min = minValue.get();
+        return min == Long.MAX_VALUE ? 0 : min;
+    }
+
+    /**
+     * 获取最大值
+     */
+    public long getMaxValue() {
+        return maxValue.get();
+    }
+
+    /**
+     * 获取平均值
+     */
+    public double getMean() {
+        long count = totalCount.sum();
+        return count > 0 ? (double) totalValue.sum() / count : 0.0;
+    }
+
+    /**
+     * 获取有效数字位数
+     */
+    public int getSignificantDigits() {
+        return significantDigits;
+    }
+
+    /**
+     * 获取可记录的最大值
+     */
+    public long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    /**
+     * 获取桶数组长度（用于估算内存占用）
+     */
+    public int getCountsLength() {
+        return counts.length();
+    }
+
+    private static int bucketsNeeded(long value, int subBucketCount) {
+        long smallestUntrackableValue = subBucketCount;
+        int bucketsNeeded = 1;
+        while (smallestUntrackableValue <= value) {
+            if (smallestUntrackableValue > (Long.MAX_VALUE >> 1)) {
+                return bucketsNeeded + 1;
+            }
+            smallestUntrackableValue <<= 1;
+            bucketsNeeded++;
+        }
+        return bucketsNeeded;
+    }
+
+    private int bucketIndexOf(long value) {
+        return leadingZeroCountBase - Long.numberOfLeadingZeros(value | subBucketMask);
+    }
+
+    private int countsIndexFor(long value) {
+        int bucketIndex = bucketIndexOf(value);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        int bucketBaseIndex = (bucketIndex + 1) << subBucketHalfCountMagnitude;
+        return bucketBaseIndex + subBucketIndex - subBucketHalfCount;
+    }
+
+    private long valueFromIndex(int index) {
+        int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+        int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+        if (bucketIndex < 0) {
+            subBucketIndex -= subBucketHalfCount;
+            bucketIndex = 0;
+        }
+        return (long) subBucketIndex << bucketIndex;
+    }
+
+    private long lowestEquivalentValue(long value) {
+        int bucketIndex = bucketIndexOf(value);
+        long subBucketIndex = value >>> bucketIndex;
+        return subBucketIndex << bucketIndex;
+    }
+
+    private long medianEquivalentValue(long value) {
+        long lowest = lowestEquivalentValue(value);
+        return lowest + (highestEquivalentValue(value) - lowest) / 2;
+    }
+
+    private long highestEquivalentValue(long value) {
+        int bucketIndex = bucketIndexOf(value);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        int rangeMagnitude = subBucketIndex >= subBucketCount ? bucketIndex + 1 : bucketIndex;
+        return lowestEquivalentValue(value) + (1L << rangeMagnitude) - 1;
+    }
+}
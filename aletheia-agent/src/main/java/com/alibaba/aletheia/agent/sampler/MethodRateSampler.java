@@ -0,0 +1,230 @@
+package com.alibaba.aletheia.agent.sampler;
+
+/**
+ * 按方法自适应的倒计数采样器
+ * 每个方法有独立的采样率档位，窗口结束时按"每个方法每个窗口的目标采样数"调整：
+ * 热点方法降低采样率，总采样量由目标采样数而非 CPU 阈值约束
+ *
+ * <p>档位 0 表示未分配，使用全局采样率；档位 k（1 - {@link #MAX_LEVEL}）的采样率为 2^-(k-1)。
+ * 全局采样率（运维通过 setSampleRate 设置，不超过 {@code MAX_SAMPLE_RATE}）是所有方法的上限：
+ * 按目标采样数算出的采样率不低于全局采样率时方法回到档位 0，因此低频方法不会超过全局采样率；
+ * 窗口内没有采到样本时无法区分“没有调用”和“调用很少”，档位保持不变，空闲方法不会逐步升高采样率。
+ * 每个线程为每个档位维护一个几何分布倒计数，同一档位的方法共享倒计数，
+ * 由于几何间隔等价于逐次独立的伯努利采样，共享不会引入偏差，且未命中采样时只需一次自减和一次分支。
+ *
+ * @author Aletheia Team
+ */
+public class MethodRateSampler {
+
+    /**
+     * 最低采样率档位（采样率 2^-20，约百万分之一）
+     */
+    public static final int MAX_LEVEL = 21;
+
+    /**
+     * 全局采样率档位
+     */
+    private static final int GLOBAL_LEVEL = 0;
+
+    /**
+     * 全量采样档位
+     */
+    private static final int FULL_RATE_LEVEL = 1;
+
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int PAGE_COUNT = MethodRegistry.MAX_METHODS >>> PAGE_SHIFT;
+
+    /**
+     * 各档位对应的采样率
+     */
+    private static final double[] LEVEL_RATES = new double[MAX_LEVEL + 1];
+
+    static {
+        for (int level = FULL_RATE_LEVEL; level <= MAX_LEVEL; level++) {
+            LEVEL_RATES[level] = Math.scalb(1.0, -(level - 1));
+        }
+    }
+
+    /**
+     * 方法 ID -> 采样率档位（分页，仅由刷新线程写入，埋点线程读到旧值时最多延迟一个窗口生效）
+     */
+    private final byte[][] levelPages = new byte[PAGE_COUNT][];
+
+    /**
+     * 每个线程各档位的倒计数状态
+     */
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(this::newState);
+
+    /**
+     * 全局采样率
+     */
+    private volatile double globalRate;
+
+    /**
+     * 全局采样率版本号，变更时各线程重新抽取档位 0 的间隔
+     */
+    private volatile int generation;
+
+    /**
+     * 每个方法每个窗口的目标采样数（0 表示关闭按方法自适应）
+     */
+    private volatile int targetSamplesPerWindow;
+
+    /**
+     * 构造函数
+     *
+     * @param globalRate 全局采样率（0.0 - 1.0）
+     * @param targetSamplesPerWindow 每个方法每个窗口的目标采样数（0 表示关闭按方法自适应）
+     */
+    public MethodRateSampler(double globalRate, int targetSamplesPerWindow) {
+        setGlobalRate(globalRate);
+        setTargetSamplesPerWindow(targetSamplesPerWindow);
+    }
+
+    /**
+     * 判断当前调用是否采样
+     *
+     * @param methodId 方法 ID
+     * @return true 表示采样
+     */
+    public boolean shouldSample(int methodId) {
+        State current = state.get();
+        int level = targetSamplesPerWindow > 0 ? levelOf(methodId) : GLOBAL_LEVEL;
+        if (level == GLOBAL_LEVEL && current.generation != generation) {
+            current.generation = generation;
+            current.countdowns[GLOBAL_LEVEL] = CountdownSampler.nextGap(globalRate);
+        }
+        if (--current.countdowns[level] > 0) {
+            return false;
+        }
+        current.countdowns[level] = CountdownSampler.nextGap(rateOfLevel(level));
+        return true;
+    }
+
+    /**
+     * 获取方法当前的有效采样率
+     *
+     * @param methodId 方法 ID
+     * @return 采样率
+     */
+    public double getRate(int methodId) {
+        return rateOfLevel(targetSamplesPerWindow > 0 ? levelOf(methodId) : GLOBAL_LEVEL);
+    }
+
+    /**
+     * 窗口结束时根据方法的采样数调整其采样率档位（由刷新线程调用）
+     *
+     * @param methodId 方法 ID
+     * @param sampledCount 本窗口内的采样数
+     */
+    public void onWindowEnd(int methodId, long sampledCount) {
+        int target = targetSamplesPerWindow;
+        if (target <= 0 || methodId < 0 || methodId >= MethodRegistry.MAX_METHODS) {
+            return;
+        }
+
+        int level = levelOf(methodId);
+        double rate = rateOfLevel(level);
+        int newLevel = level;
+        if (sampledCount > 0 && rate > 0) {
+            // 用采样数反推调用量，选择不超过目标采样数的最高采样率
+            double estimatedCalls = sampledCount / rate;
+            newLevel = levelForRate(target / estimatedCalls);
+        }
+        // 不超过全局采样率（运维下调全局采样率后，已有档位在下个窗口生效时被压回）
+        if (newLevel != GLOBAL_LEVEL && LEVEL_RATES[newLevel] >= globalRate) {
+            newLevel = GLOBAL_LEVEL;
+        }
+
+        if (newLevel != level) {
+            byte[] page = levelPages[methodId >>> PAGE_SHIFT];
+            if (page == null) {
+                page = new byte[PAGE_SIZE];
+                levelPages[methodId >>> PAGE_SHIFT] = page;
+            }
+            page[methodId & PAGE_MASK] = (byte) newLevel;
+        }
+    }
+
+    /**
+     * 设置全局采样率（未分配档位的方法以及关闭自适应时使用）
+     *
+     * @param rate 采样率（0.0 - 1.0）
+     */
+    public synchronized void setGlobalRate(double rate) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1");
+        }
+        this.globalRate = rate;
+        generation++;
+    }
+
+    public double getGlobalRate() {
+        return globalRate;
+    }
+
+    /**
+     * 设置每个方法每个窗口的目标采样数
+     *
+     * @param targetSamplesPerWindow 目标采样数（0 表示关闭按方法自适应）
+     */
+    public void setTargetSamplesPerWindow(int targetSamplesPerWindow) {
+        if (targetSamplesPerWindow < 0) {
+            throw new IllegalArgumentException("Target samples per window must be >= 0");
+        }
+        this.targetSamplesPerWindow = targetSamplesPerWindow;
+    }
+
+    public int getTargetSamplesPerWindow() {
+        return targetSamplesPerWindow;
+    }
+
+    private int levelOf(int methodId) {
+        if (methodId < 0 || methodId >= MethodRegistry.MAX_METHODS) {
+            return GLOBAL_LEVEL;
+        }
+        byte[] page = levelPages[methodId >>> PAGE_SHIFT];
+        return page == null ? GLOBAL_LEVEL : page[methodId & PAGE_MASK];
+    }
+
+    private double rateOfLevel(int level) {
+        return level == GLOBAL_LEVEL ? globalRate : LEVEL_RATES[level];
+    }
+
+    /**
+     * 计算采样率不超过给定值的最高档位
+     */
+    static int levelForRate(double rate) {
+        if (rate >= 1.0) {
+            return FULL_RATE_LEVEL;
+        }
+        if (rate <= LEVEL_RATES[MAX_LEVEL]) {
+            return MAX_LEVEL;
+        }
+        // 2^-(k-1) <= rate  =>  k - 1 >= log2(1 / rate)，用指数位计算避免浮点对数的舍入误差
+        double inverse = 1.0 / rate;
+        int exponent = Math.getExponent(inverse);
+        int shift = inverse == Math.scalb(1.0, exponent) ? exponent : exponent + 1;
+        return Math.min(MAX_LEVEL, FULL_RATE_LEVEL + shift);
+    }
+
+    private State newState() {
+        State created = new State();
+        created.generation = generation;
+        created.countdowns[GLOBAL_LEVEL] = CountdownSampler.nextGap(globalRate);
+        for (int level = FULL_RATE_LEVEL; level <= MAX_LEVEL; level++) {
+            created.countdowns[level] = CountdownSampler.nextGap(LEVEL_RATES[level]);
+        }
+        return created;
+    }
+
+    /**
+     * 线程倒计数状态
+     */
+    private static final class State {
+        final long[] countdowns = new long[MAX_LEVEL + 1];
+        int generation;
+    }
+}
@@ -0,0 +1,115 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 方法注册表
+ * 在字节码增强时为每个被埋点的方法分配一个稠密的 int ID，埋点只传递该 ID，
+ * 方法签名仅在生成 RtEvent 时按 ID 反查
+ *
+ * @author Aletheia Team
+ */
+public class MethodRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MethodRegistry.class);
+
+    /**
+     * 未注册的方法 ID（注册表已满时返回）
+     */
+    public static final int UNREGISTERED_ID = -1;
+
+    /**
+     * 最多可注册的方法数
+     */
+    public static final int MAX_METHODS = 1 << 20;
+
+    /**
+     * 签名数组初始容量
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final MethodRegistry INSTANCE = new MethodRegistry();
+
+    /**
+     * 方法签名 -> ID 的映射（仅在增强时使用）
+     */
+    private final ConcurrentHashMap<String, Integer> idBySignature = new ConcurrentHashMap<>();
+
+    /**
+     * ID -> 方法签名（写时复制，读取无锁）
+     */
+    private volatile String[] signatures = new String[INITIAL_CAPACITY];
+
+    /**
+     * 已分配的 ID 数量
+     */
+    private volatile int size = 0;
+
+    /**
+     * 获取全局注册表实例
+     */
+    public static MethodRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 注册方法，已注册时返回原 ID
+     *
+     * @param methodSignature 方法签名
+     * @return 方法 ID，注册表已满时返回 {@link #UNREGISTERED_ID}
+     */
+    public int register(String methodSignature) {
+        Integer id = idBySignature.get(methodSignature);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (this) {
+            id = idBySignature.get(methodSignature);
+            if (id != null) {
+                return id;
+            }
+            if (size >= MAX_METHODS) {
+                LOGGER.warn("Method registry is full, skip method: {}", methodSignature);
+                return UNREGISTERED_ID;
+            }
+
+            int newId = size;
+            String[] current = signatures;
+            if (newId >= current.length) {
+                String[] grown = new String[Math.min(current.length << 1, MAX_METHODS)];
+                System.arraycopy(current, 0, grown, 0, current.length);
+                current = grown;
+            }
+            current[newId] = methodSignature;
+            // 先发布数组再发布 size，保证读到 size 的线程一定能读到签名
+            signatures = current;
+            size = newId + 1;
+            idBySignature.put(methodSignature, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * 按 ID 获取方法签名
+     *
+     * @param methodId 方法 ID
+     * @return 方法签名，ID 无效时返回 null
+     */
+    public String getSignature(int methodId) {
+        if (methodId < 0 || methodId >= size) {
+            return null;
+        }
+        return signatures[methodId];
+    }
+
+    /**
+     * 获取已注册的方法数
+     */
+    public int size() {
+        return size;
+    }
+}
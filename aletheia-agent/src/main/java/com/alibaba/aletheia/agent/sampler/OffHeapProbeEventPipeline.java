@@ -0,0 +1,309 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基于堆外直接内存的探针事件流水线
+ * 事件以定长记录写入直接 {@link ByteBuffer}，堆内只保留每个槽位的发布序号和有限的锁标识表，
+ * 因此无论负载多高，流水线占用的堆大小都是固定的，不会在业务最吃紧时给 GC 增加压力
+ *
+ * <p>记录布局（{@link #RECORD_BYTES} 字节）：
+ * <pre>
+ * 0  int  类型（RT、锁获取、锁释放，锁事件可带 {@link #FLAG_IDENTITY_HASH}）
+ * 4  int  方法 ID / 锁标识编号 / 锁对象 identityHashCode
+ * 8  long RT 耗时或锁事件时间（纳秒）
+ * 16 long 线程 ID
+ * </pre>
+ * 生产者通过 CAS 认领序号，写完记录后以有序写发布该槽位的序号；聚合线程按序号顺序消费。
+ * 为了让业务线程不等待任何锁，聚合线程空闲时按等待策略自旋、让出或休眠，生产者不做唤醒。
+ *
+ * @author Aletheia Team
+ */
+final class OffHeapProbeEventPipeline extends ProbeEventPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OffHeapProbeEventPipeline.class);
+
+    /**
+     * 单条记录字节数
+     */
+    static final int RECORD_BYTES = 24;
+
+    /**
+     * 锁标识表最大容量，超过后新锁标识的事件按丢弃计数
+     */
+    static final int MAX_LOCK_IDENTITIES = 4096;
+
+    private static final int OFFSET_TYPE = 0;
+    private static final int OFFSET_KEY = 4;
+    private static final int OFFSET_VALUE = 8;
+    private static final int OFFSET_THREAD = 16;
+
+    private static final int TYPE_RT = 1;
+    private static final int TYPE_LOCK_ACQUIRE = 2;
+    private static final int TYPE_LOCK_RELEASE = 3;
+
+    /**
+     * 锁事件的 key 是锁对象的 identityHashCode，而不是锁标识编号
+     */
+    private static final int FLAG_IDENTITY_HASH = 0x100;
+
+    private static final long UNPUBLISHED = -1L;
+
+    /**
+     * sleeping 策略先自旋、再让出、最后短暂休眠的重试次数
+     */
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long SLEEP_PARK_NS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * blocking 策略的休眠时间（生产者不唤醒，按固定间隔检查）
+     */
+    private static final long BLOCKING_PARK_NS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long DRAIN_POLL_MS = 1;
+
+    private final int capacity;
+    private final int mask;
+    private final ByteBuffer buffer;
+    private final AtomicLongArray published;
+    private final AtomicLong claimSequence = new AtomicLong();
+    private final AtomicLong consumerSequence = new AtomicLong();
+
+    private final Map<String, Integer> lockIdentityIds = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> lockIdentities = new AtomicReferenceArray<>(MAX_LOCK_IDENTITIES);
+    private int lockIdentityCount;
+
+    private volatile boolean running;
+    private Thread consumerThread;
+
+    /**
+     * @param bufferSize   环形缓冲区记录数（2 的幂）
+     * @param waitStrategy 聚合线程等待策略（blocking、sleeping、yielding、busy-spin）
+     */
+    OffHeapProbeEventPipeline(int bufferSize, String waitStrategy) {
+        super(waitStrategy);
+        if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("bufferSize must be a power of 2");
+        }
+        this.capacity = bufferSize;
+        this.mask = bufferSize - 1;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize * RECORD_BYTES);
+        this.published = new AtomicLongArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            published.set(i, UNPUBLISHED);
+        }
+    }
+
+    @Override
+    public boolean publishRt(int methodId, long rtNs) {
+        long sequence = claim();
+        if (sequence < 0) {
+            droppedRt.increment();
+            return false;
+        }
+        write(sequence, TYPE_RT, methodId, rtNs, 0);
+        publishedRt.increment();
+        return true;
+    }
+
+    @Override
+    public boolean publishLock(boolean acquire, String lockIdentity, int lockHash, long threadId) {
+        int type = acquire ? TYPE_LOCK_ACQUIRE : TYPE_LOCK_RELEASE;
+        int key;
+        if (lockIdentity == null) {
+            type |= FLAG_IDENTITY_HASH;
+            key = lockHash;
+        } else {
+            Integer id = lockIdentityIds.get(lockIdentity);
+            key = id != null ? id : registerLockIdentity(lockIdentity);
+            if (key < 0) {
+                droppedLock.increment();
+                return false;
+            }
+        }
+        long sequence = claim();
+        if (sequence < 0) {
+            droppedLock.increment();
+            return false;
+        }
+        write(sequence, type, key, System.nanoTime(), threadId);
+        publishedLock.increment();
+        return true;
+    }
+
+    /**
+     * 认领一个序号，缓冲区满时返回 -1
+     */
+    private long claim() {
+        long sequence;
+        do {
+            sequence = claimSequence.get();
+            if (sequence - consumerSequence.get() >= capacity) {
+                return -1;
+            }
+        } while (!claimSequence.compareAndSet(sequence, sequence + 1));
+        return sequence;
+    }
+
+    private void write(long sequence, int type, int key, long value, long threadId) {
+        int slot = (int) (sequence & mask);
+        int offset = slot * RECORD_BYTES;
+        buffer.putInt(offset + OFFSET_TYPE, type);
+        buffer.putInt(offset + OFFSET_KEY, key);
+        buffer.putLong(offset + OFFSET_VALUE, value);
+        buffer.putLong(offset + OFFSET_THREAD, threadId);
+        // 有序写保证聚合线程看到序号时记录已写完
+        published.lazySet(slot, sequence);
+    }
+
+    /**
+     * 为锁标识分配编号（每个标识只在首次出现时进入）
+     *
+     * @return 编号，表已满时返回 -1
+     */
+    private synchronized int registerLockIdentity(String lockIdentity) {
+        Integer id = lockIdentityIds.get(lockIdentity);
+        if (id != null) {
+            return id;
+        }
+        if (lockIdentityCount >= MAX_LOCK_IDENTITIES) {
+            return -1;
+        }
+        int newId = lockIdentityCount++;
+        lockIdentities.set(newId, lockIdentity);
+        lockIdentityIds.put(lockIdentity, newId);
+        return newId;
+    }
+
+    @Override
+    protected String getType() {
+        return TYPE_OFF_HEAP;
+    }
+
+    @Override
+    protected int getBufferSize() {
+        return capacity;
+    }
+
+    @Override
+    protected long getRemainingCapacity() {
+        return capacity - (claimSequence.get() - consumerSequence.get());
+    }
+
+    @Override
+    protected void doStart() {
+        running = true;
+        consumerThread = new Thread(this::consume, THREAD_NAME);
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+    }
+
+    @Override
+    protected void doStop() {
+        long target = claimSequence.get();
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MS;
+        try {
+            while (consumerSequence.get() < target) {
+                if (System.currentTimeMillis() >= deadline) {
+                    LOGGER.warn("ProbeEventPipeline did not drain in {} ms, halting", SHUTDOWN_TIMEOUT_MS);
+                    break;
+                }
+                TimeUnit.MILLISECONDS.sleep(DRAIN_POLL_MS);
+            }
+            running = false;
+            consumerThread.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            running = false;
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 聚合线程主循环
+     */
+    private void consume() {
+        int idleCount = 0;
+        while (running) {
+            if (drain() > 0) {
+                idleCount = 0;
+            } else {
+                idle(idleCount++);
+            }
+        }
+    }
+
+    /**
+     * 按序号顺序消费已发布的记录
+     *
+     * @return 本次消费的记录数
+     */
+    private int drain() {
+        long next = consumerSequence.get();
+        int count = 0;
+        while (true) {
+            int slot = (int) (next & mask);
+            if (published.get(slot) != next) {
+                return count;
+            }
+            int offset = slot * RECORD_BYTES;
+            try {
+                dispatch(buffer.getInt(offset + OFFSET_TYPE), buffer.getInt(offset + OFFSET_KEY),
+                        buffer.getLong(offset + OFFSET_VALUE), buffer.getLong(offset + OFFSET_THREAD));
+            } catch (Exception e) {
+                LOGGER.debug("Error aggregating probe event", e);
+            }
+            next++;
+            count++;
+            consumed++;
+            // 释放槽位，生产者据此判断剩余容量
+            consumerSequence.lazySet(next);
+        }
+    }
+
+    private void dispatch(int type, int key, long value, long threadId) {
+        if (type == TYPE_RT) {
+            aggregateRt(key, value);
+            return;
+        }
+        boolean identityHash = (type & FLAG_IDENTITY_HASH) != 0;
+        String identity = identityHash ? String.valueOf(key) : lockIdentities.get(key);
+        aggregateLock((type & ~FLAG_IDENTITY_HASH) == TYPE_LOCK_ACQUIRE, identity, threadId, value);
+    }
+
+    /**
+     * 空闲时按等待策略等待
+     */
+    private void idle(int idleCount) {
+        switch (waitStrategyName) {
+            case "busy-spin":
+                break;
+            case "yielding":
+                Thread.yield();
+                break;
+            case "blocking":
+                LockSupport.parkNanos(BLOCKING_PARK_NS);
+                break;
+            default:
+                if (idleCount < SPIN_TRIES) {
+                    break;
+                }
+                if (idleCount < YIELD_TRIES) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(SLEEP_PARK_NS);
+                }
+                break;
+        }
+    }
+}
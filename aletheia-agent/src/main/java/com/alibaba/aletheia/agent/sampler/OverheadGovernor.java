@@ -0,0 +1,537 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import com.alibaba.aletheia.agent.collector.CollectorManager;
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.common.constant.AletheiaConstants;
+import com.alibaba.aletheia.common.util.TimeUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agent 开销控制器
+ * 周期性测量 Agent 自身的开销，与配置的预算（占进程全部 CPU 的比例）比较，闭环调整采样率、推送间隔和功能开关
+ *
+ * <p>开销由两部分组成：
+ * <ul>
+ *     <li>Aletheia 后台线程（名称以 "Aletheia-" 开头）的线程 CPU 时间，覆盖聚合、采集和导出</li>
+ *     <li>业务线程中的埋点开销：采样调用实测耗时 + 估算调用量 × 标定的单次采样决策耗时</li>
+ * </ul>
+ *
+ * <p>开启调控（overhead.enforce）后，超出预算时每个周期收紧一步：降低 RT 目标采样数 → 降低 RT 全局采样率 →
+ * 拉长推送间隔 → 依次关闭诊断功能；开销低于预算一半时按相反顺序逐步恢复到配置值
+ * （运维通过 JMX 修改 RT 采样率或开关功能后以运维的设置为准）。默认不调控，只统计开销并记录超出预算，
+ * 拉长推送间隔会改变窗口长度，关闭调控后已做的调整逐步恢复。每次决策都会记录下来，通过 JMX 查询。
+ *
+ * <p>单次采样决策耗时在控制器线程上标定：先预热让采样路径完成 JIT 编译，再取多轮计时的最小值，
+ * 不占用启动线程，也不会把解释执行的耗时计入开销。
+ *
+ * @author Aletheia Team
+ */
+public class OverheadGovernor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OverheadGovernor.class);
+
+    /**
+     * Agent 线程名前缀
+     */
+    private static final String AGENT_THREAD_PREFIX = "Aletheia-";
+
+    /**
+     * 超出预算时按顺序关闭的功能（开销从高到低）
+     */
+    private static final String[] SHEDDABLE_FEATURES = {"Lock", "Method", "CPU", "Thread"};
+
+    /**
+     * 开销低于 预算 × 该比例 时开始恢复
+     */
+    private static final double RELAX_RATIO = 0.5;
+
+    /**
+     * 保留的最近决策数
+     */
+    private static final int MAX_DECISIONS = 50;
+
+    /**
+     * 标定单次采样决策耗时时每轮的调用次数
+     */
+    private static final int CALIBRATION_CALLS = 100_000;
+
+    /**
+     * 标定前的预热轮数（使采样路径被 JIT 编译）
+     */
+    private static final int CALIBRATION_WARMUP_ROUNDS = 20;
+
+    /**
+     * 标定计时轮数（取最小值）
+     */
+    private static final int CALIBRATION_MEASURED_ROUNDS = 5;
+
+    /**
+     * RT 目标采样数下限
+     */
+    private static final int MIN_TARGET_SAMPLES = 1;
+
+    private final AgentConfig config;
+    private final CollectorManager collectorManager;
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final int processors = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 配置值（恢复时的上限），RT 采样率随运维修改更新
+     */
+    private volatile double configuredRtRate;
+    private final int configuredTargetSamples;
+    private final long configuredPushIntervalMs;
+
+    /**
+     * 由控制器关闭的功能（后关闭的先恢复）
+     */
+    private final Deque<String> shedFeatures = new ArrayDeque<>();
+
+    /**
+     * 最近的决策记录
+     */
+    private final Deque<Decision> decisions = new ArrayDeque<>();
+
+    /**
+     * 各 Agent 线程上次的 CPU 时间（键集合即缓存的 Agent 线程 ID）
+     */
+    private Map<Long, Long> lastThreadCpuNs = new HashMap<>();
+
+    /**
+     * 上次扫描 Agent 线程时 JVM 累计启动的线程数，没有新线程启动时不重新扫描
+     */
+    private long scannedStartedThreads = -1;
+
+    /**
+     * 上个周期是否超出预算（只统计时在进入超预算状态时记录一次）
+     */
+    private boolean overBudget;
+
+    private ScheduledExecutorService scheduler;
+    private long lastWallNs;
+    private long lastProbeTimeNs;
+    private long lastEstimatedCalls;
+
+    /**
+     * 单次采样决策耗时（纳秒，控制器线程标定完成前为 0）
+     */
+    private volatile double decisionCostNs;
+
+    private static volatile int calibrationSink;
+
+    private volatile double lastOverhead;
+    private volatile long lastAgentThreadCpuNs;
+    private volatile long lastProbeNs;
+
+    public OverheadGovernor(AgentConfig config, CollectorManager collectorManager) {
+        this.config = config;
+        this.collectorManager = collectorManager;
+        this.configuredRtRate = RtSampler.getSampleRate();
+        this.configuredTargetSamples = RtSampler.getTargetSamplesPerWindow();
+        this.configuredPushIntervalMs = config.getPushIntervalMs();
+    }
+
+    /**
+     * 启动开销控制器
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+
+        if (threadMXBean.isThreadCpuTimeSupported() && !threadMXBean.isThreadCpuTimeEnabled()) {
+            threadMXBean.setThreadCpuTimeEnabled(true);
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Aletheia-OverheadGovernor");
+            t.setDaemon(true);
+            return t;
+        });
+        // 单线程执行：标定和基线在首次评估之前完成，标定消耗的 CPU 不计入第一个周期
+        scheduler.execute(this::calibrate);
+        long intervalMs = AletheiaConstants.DEFAULT_GOVERNOR_INTERVAL_MS;
+        scheduler.scheduleAtFixedRate(this::evaluate, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        LOGGER.info("OverheadGovernor started, budget: {}", config.getOverheadConfig().getOverheadBudget());
+    }
+
+    /**
+     * 标定单次采样决策耗时并建立测量基线（在控制器线程上执行）
+     */
+    private void calibrate() {
+        try {
+            decisionCostNs = calibrateDecisionCost();
+            LOGGER.info("OverheadGovernor calibrated, decision cost: {}ns", String.format("%.2f", decisionCostNs));
+        } catch (Exception e) {
+            LOGGER.warn("Error calibrating sampling decision cost", e);
+        }
+        resetBaseline();
+    }
+
+    /**
+     * 运维修改 RT 采样率后更新恢复上限，避免放宽时被覆盖回启动时的配置值
+     *
+     * @param rate 新的 RT 采样率
+     */
+    public void onRtSampleRateChanged(double rate) {
+        configuredRtRate = rate;
+    }
+
+    /**
+     * 运维通过 JMX 开关功能后不再由控制器恢复该功能
+     *
+     * @param feature 功能名称
+     */
+    public void onFeatureChangedByOperator(String feature) {
+        synchronized (shedFeatures) {
+            shedFeatures.remove(feature);
+        }
+    }
+
+    /**
+     * 停止开销控制器
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 执行一次测量和调控
+     */
+    void evaluate() {
+        try {
+            long nowNs = TimeUtil.currentTimeNs();
+            long wallNs = nowNs - lastWallNs;
+            if (wallNs <= 0) {
+                return;
+            }
+
+            long agentThreadCpuNs = sampleAgentThreadCpu();
+            long probeTimeNs = RtSampler.getSampledProbeTimeNs();
+            long estimatedCalls = RtSampler.getEstimatedCalls();
+            long probeNs = (probeTimeNs - lastProbeTimeNs)
+                    + (long) ((estimatedCalls - lastEstimatedCalls) * decisionCostNs);
+
+            lastWallNs = nowNs;
+            lastProbeTimeNs = probeTimeNs;
+            lastEstimatedCalls = estimatedCalls;
+            lastAgentThreadCpuNs = agentThreadCpuNs;
+            lastProbeNs = probeNs;
+
+            adjust((double) (agentThreadCpuNs + probeNs) / ((double) wallNs * processors));
+        } catch (Exception e) {
+            LOGGER.warn("Error evaluating agent overhead", e);
+        }
+    }
+
+    /**
+     * 根据测得的开销调整一步
+     *
+     * @param overhead 开销（占进程全部 CPU 的比例）
+     */
+    void adjust(double overhead) {
+        lastOverhead = overhead;
+        double budget = config.getOverheadConfig().getOverheadBudget();
+        if (budget <= 0) {
+            return;
+        }
+
+        String action = null;
+        boolean wasOverBudget = overBudget;
+        overBudget = overhead > budget;
+        if (!config.getOverheadConfig().isOverheadEnforce()) {
+            // 只统计：进入超预算状态时记录一次，之前调控做的调整逐步恢复
+            action = relax();
+            if (action == null && overBudget && !wasOverBudget) {
+                action = "over budget, report only (overhead.enforce=false)";
+            }
+        } else if (overhead > budget) {
+            action = tighten();
+            if (action == null) {
+                action = "over budget, nothing left to shed";
+            }
+        } else if (overhead < budget * RELAX_RATIO) {
+            action = relax();
+        }
+
+        if (action != null) {
+            recordDecision(overhead, budget, action);
+        }
+    }
+
+    /**
+     * 收紧一步
+     *
+     * @return 执行的动作，无可收紧项时返回 null
+     */
+    private String tighten() {
+        int target = RtSampler.getTargetSamplesPerWindow();
+        if (target > MIN_TARGET_SAMPLES) {
+            int newTarget = Math.max(MIN_TARGET_SAMPLES, target / 2);
+            setTargetSamples(newTarget);
+            return "rt.target.samples " + target + " -> " + newTarget;
+        }
+
+        double rate = RtSampler.getSampleRate();
+        if (rate > AletheiaConstants.MIN_SAMPLE_RATE) {
+            double newRate = Math.max(AletheiaConstants.MIN_SAMPLE_RATE, rate / 2);
+            setRtRate(newRate);
+            return "rt.sample.rate " + rate + " -> " + newRate;
+        }
+
+        long interval = config.getPushIntervalMs();
+        if (interval < AletheiaConstants.MAX_PUSH_INTERVAL_MS) {
+            long newInterval = Math.min(AletheiaConstants.MAX_PUSH_INTERVAL_MS, interval * 2);
+            setPushInterval(newInterval);
+            return "push.interval.ms " + interval + " -> " + newInterval;
+        }
+
+        for (String feature : SHEDDABLE_FEATURES) {
+            if (config.isFeatureEnabled(feature)) {
+                config.disableFeature(feature);
+                if (collectorManager != null) {
+                    collectorManager.disableCollector(feature);
+                }
+                synchronized (shedFeatures) {
+                    shedFeatures.push(feature);
+                }
+                return "disable feature " + feature;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 放宽一步（按收紧的相反顺序，不超过配置值）
+     *
+     * @return 执行的动作，已完全恢复时返回 null
+     */
+    private String relax() {
+        String feature;
+        synchronized (shedFeatures) {
+            feature = shedFeatures.poll();
+        }
+        if (feature != null) {
+            config.enableFeature(feature);
+            if (collectorManager != null) {
+                collectorManager.enableCollector(feature);
+            }
+            return "enable feature " + feature;
+        }
+
+        long interval = config.getPushIntervalMs();
+        if (interval > configuredPushIntervalMs) {
+            long newInterval = Math.max(configuredPushIntervalMs, interval / 2);
+            setPushInterval(newInterval);
+            return "push.interval.ms " + interval + " -> " + newInterval;
+        }
+
+        double rate = RtSampler.getSampleRate();
+        if (rate < configuredRtRate) {
+            double newRate = Math.min(configuredRtRate, rate * 2);
+            setRtRate(newRate);
+            return "rt.sample.rate " + rate + " -> " + newRate;
+        }
+
+        int target = RtSampler.getTargetSamplesPerWindow();
+        if (target < configuredTargetSamples) {
+            int newTarget = Math.min(configuredTargetSamples, target * 2);
+            setTargetSamples(newTarget);
+            return "rt.target.samples " + target + " -> " + newTarget;
+        }
+        return null;
+    }
+
+    private void setTargetSamples(int target) {
+        config.getRtConfig().setRtTargetSamplesPerWindow(target);
+        RtSampler.setTargetSamplesPerWindow(target);
+    }
+
+    private void setRtRate(double rate) {
+        config.setSampleRate("RT", rate);
+        RtSampler.setSampleRate(rate);
+    }
+
+    private void setPushInterval(long intervalMs) {
+        if (collectorManager != null) {
+            collectorManager.reschedule(intervalMs);
+        } else {
+            config.setPushIntervalMs(intervalMs);
+        }
+    }
+
+    private void recordDecision(double overhead, double budget, String action) {
+        LOGGER.info("Agent overhead {} (budget {}): {}", String.format("%.4f", overhead), budget, action);
+        synchronized (decisions) {
+            if (decisions.size() >= MAX_DECISIONS) {
+                decisions.removeFirst();
+            }
+            decisions.addLast(new Decision(System.currentTimeMillis(), overhead, action));
+        }
+    }
+
+    /**
+     * 统计自上次采样以来 Agent 线程消耗的 CPU 时间
+     *
+     * @return CPU 时间增量（纳秒）
+     */
+    private long sampleAgentThreadCpu() {
+        if (!threadMXBean.isThreadCpuTimeSupported()) {
+            return 0;
+        }
+
+        Map<Long, Long> current = new HashMap<>();
+        long delta = 0;
+        for (long threadId : agentThreadIds()) {
+            long cpuNs = threadMXBean.getThreadCpuTime(threadId);
+            if (cpuNs < 0) {
+                // 线程已结束
+                continue;
+            }
+            current.put(threadId, cpuNs);
+            Long previous = lastThreadCpuNs.get(threadId);
+            delta += previous == null ? cpuNs : Math.max(0, cpuNs - previous);
+        }
+        lastThreadCpuNs = current;
+        return delta;
+    }
+
+    /**
+     * 获取 Agent 线程 ID
+     * 只在 JVM 有新线程启动后才按线程名重新扫描，否则沿用上次的结果（已结束的线程在统计时剔除）
+     */
+    private Iterable<Long> agentThreadIds() {
+        long started = threadMXBean.getTotalStartedThreadCount();
+        if (started == scannedStartedThreads) {
+            return lastThreadCpuNs.keySet();
+        }
+        scannedStartedThreads = started;
+        List<Long> ids = new ArrayList<>();
+        for (ThreadInfo info : threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds(), 0)) {
+            if (info != null && info.getThreadName().startsWith(AGENT_THREAD_PREFIX)) {
+                ids.add(info.getThreadId());
+            }
+        }
+        return ids;
+    }
+
+    private void resetBaseline() {
+        lastWallNs = TimeUtil.currentTimeNs();
+        lastProbeTimeNs = RtSampler.getSampledProbeTimeNs();
+        lastEstimatedCalls = RtSampler.getEstimatedCalls();
+        sampleAgentThreadCpu();
+    }
+
+    /**
+     * 标定单次采样决策（未命中采样时的埋点路径）的耗时
+     * 预热后取多轮计时的最小值，对应 JIT 编译后的稳态耗时
+     */
+    static double calibrateDecisionCost() {
+        MethodRateSampler sampler = new MethodRateSampler(0.0, 0);
+        for (int round = 0; round < CALIBRATION_WARMUP_ROUNDS; round++) {
+            timeDecisions(sampler);
+        }
+        long minElapsedNs = Long.MAX_VALUE;
+        for (int round = 0; round < CALIBRATION_MEASURED_ROUNDS; round++) {
+            minElapsedNs = Math.min(minElapsedNs, timeDecisions(sampler));
+        }
+        return (double) minElapsedNs / CALIBRATION_CALLS;
+    }
+
+    private static long timeDecisions(MethodRateSampler sampler) {
+        long startNs = TimeUtil.currentTimeNs();
+        int sampled = 0;
+        for (int i = 0; i < CALIBRATION_CALLS; i++) {
+            if (sampler.shouldSample(i & 0xFF)) {
+                sampled++;
+            }
+        }
+        long elapsedNs = TimeUtil.currentTimeNs() - startNs;
+        // 保留结果，避免循环被 JIT 消除
+        calibrationSink = sampled;
+        return elapsedNs;
+    }
+
+    /**
+     * 获取开销报告
+     *
+     * @return 报告（预算、最近一次测量、当前调控状态和最近决策）
+     */
+    public Map<String, Object> getReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("budget", config.getOverheadConfig().getOverheadBudget());
+        report.put("enforce", config.getOverheadConfig().isOverheadEnforce());
+        report.put("overhead", lastOverhead);
+        report.put("agentThreadCpuNs", lastAgentThreadCpuNs);
+        report.put("probeNs", lastProbeNs);
+        report.put("decisionCostNs", decisionCostNs);
+        report.put("rtSampleRate", RtSampler.getSampleRate());
+        report.put("rtTargetSamplesPerWindow", RtSampler.getTargetSamplesPerWindow());
+        report.put("pushIntervalMs", config.getPushIntervalMs());
+        synchronized (shedFeatures) {
+            report.put("shedFeatures", new ArrayList<>(shedFeatures));
+        }
+        synchronized (decisions) {
+            report.put("decisions", new ArrayList<>(decisions));
+        }
+        return report;
+    }
+
+    public double getLastOverhead() {
+        return lastOverhead;
+    }
+
+    /**
+     * 获取最近的决策记录
+     */
+    public List<Decision> getDecisions() {
+        synchronized (decisions) {
+            return new ArrayList<>(decisions);
+        }
+    }
+
+    /**
+     * 控制器决策记录
+     */
+    public static class Decision {
+        private final long timestampMs;
+        private final double overhead;
+        private final String action;
+
+        public Decision(long timestampMs, double overhead, String action) {
+            this.timestampMs = timestampMs;
+            this.overhead = overhead;
+            this.action = action;
+        }
+
+        public long getTimestampMs() {
+            return timestampMs;
+        }
+
+        public double getOverhead() {
+            return overhead;
+        }
+
+        public String getAction() {
+            return action;
+        }
+    }
+}
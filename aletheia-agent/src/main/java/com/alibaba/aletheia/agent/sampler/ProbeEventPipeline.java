@@ -0,0 +1,252 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import com.alibaba.aletheia.agent.diagnostic.DiagnosticHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 探针事件流水线
+ * 埋点把采样到的 RT 和锁事件写入固定容量的环形缓冲区中的定长事件（类型、方法 ID、耗时或时间戳、线程 ID），
+ * 由单个聚合线程消费并写入 {@link RtAggregator} 和 LockSampler，业务线程之间不再竞争聚合结构
+ *
+ * <p>缓冲区满时直接丢弃事件并计数，业务线程从不等待；等待策略只影响聚合线程（blocking、sleeping、yielding、busy-spin）。
+ * 流水线是可选的，未启动时埋点直接写入聚合结构。缓冲区有两种实现：
+ * <ul>
+ *   <li>disruptor：LMAX Disruptor 多生产者环形缓冲区，事件对象预分配在堆内</li>
+ *   <li>offheap：定长记录保存在堆外直接内存中，堆内只保留每个槽位的发布序号，Agent 占用的堆大小与负载无关</li>
+ * </ul>
+ *
+ * @author Aletheia Team
+ */
+public abstract class ProbeEventPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProbeEventPipeline.class);
+
+    /**
+     * Disruptor 环形缓冲区
+     */
+    public static final String TYPE_DISRUPTOR = "disruptor";
+
+    /**
+     * 堆外环形缓冲区
+     */
+    public static final String TYPE_OFF_HEAP = "offheap";
+
+    /**
+     * 停止时等待剩余事件消费完的最长时间
+     */
+    protected static final long SHUTDOWN_TIMEOUT_MS = 1000;
+
+    /**
+     * 聚合线程名
+     */
+    protected static final String THREAD_NAME = "Aletheia-ProbeAggregator";
+
+    /**
+     * 支持的等待策略
+     */
+    private static final List<String> WAIT_STRATEGIES = Arrays.asList("blocking", "sleeping", "yielding", "busy-spin");
+
+    /**
+     * 支持的缓冲区实现
+     */
+    private static final List<String> TYPES = Arrays.asList(TYPE_DISRUPTOR, TYPE_OFF_HEAP);
+
+    /**
+     * 当前运行的流水线（埋点据此决定是否经由流水线）
+     */
+    private static volatile ProbeEventPipeline active;
+
+    protected final String waitStrategyName;
+
+    // 业务线程更新的计数使用 LongAdder，避免计数本身成为竞争点
+    protected final LongAdder publishedRt = new LongAdder();
+    protected final LongAdder publishedLock = new LongAdder();
+    protected final LongAdder droppedRt = new LongAdder();
+    protected final LongAdder droppedLock = new LongAdder();
+
+    // 仅由聚合线程写入
+    protected volatile long consumed;
+
+    private boolean started;
+
+    /**
+     * @param waitStrategy 聚合线程等待策略（blocking、sleeping、yielding、busy-spin）
+     * @throws IllegalArgumentException 未知的等待策略
+     */
+    protected ProbeEventPipeline(String waitStrategy) {
+        if (!isWaitStrategySupported(waitStrategy)) {
+            throw new IllegalArgumentException("Unknown wait strategy: " + waitStrategy);
+        }
+        this.waitStrategyName = waitStrategy;
+    }
+
+    /**
+     * 创建流水线
+     *
+     * @param type         缓冲区实现（disruptor、offheap）
+     * @param bufferSize   环形缓冲区大小（2 的幂）
+     * @param waitStrategy 聚合线程等待策略
+     * @return 未启动的流水线
+     * @throws IllegalArgumentException 未知的实现或等待策略
+     */
+    public static ProbeEventPipeline create(String type, int bufferSize, String waitStrategy) {
+        if (TYPE_DISRUPTOR.equals(type)) {
+            return new DisruptorProbeEventPipeline(bufferSize, waitStrategy);
+        }
+        if (TYPE_OFF_HEAP.equals(type)) {
+            return new OffHeapProbeEventPipeline(bufferSize, waitStrategy);
+        }
+        throw new IllegalArgumentException("Unknown pipeline type: " + type);
+    }
+
+    /**
+     * 获取当前运行的流水线
+     *
+     * @return 流水线，未启动时返回 null
+     */
+    public static ProbeEventPipeline active() {
+        return active;
+    }
+
+    /**
+     * 启动聚合线程，并让埋点经由流水线发布事件
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        doStart();
+        started = true;
+        active = this;
+        LOGGER.info("ProbeEventPipeline started, type {}, buffer size {}, wait strategy {}", getType(),
+                getBufferSize(), waitStrategyName);
+    }
+
+    /**
+     * 停止流水线：埋点恢复直接写入聚合结构，聚合线程处理完已发布的事件后退出
+     */
+    public synchronized void stop() {
+        if (active == this) {
+            active = null;
+        }
+        if (!started) {
+            return;
+        }
+        doStop();
+        started = false;
+        LOGGER.info("ProbeEventPipeline stopped: {}", getStats());
+    }
+
+    /**
+     * 发布 RT 事件（埋点热路径，缓冲区满时丢弃）
+     *
+     * @param methodId 方法 ID
+     * @param rtNs RT（纳秒）
+     * @return 是否发布成功
+     */
+    public abstract boolean publishRt(int methodId, long rtNs);
+
+    /**
+     * 发布锁获取/释放事件（埋点热路径，缓冲区满时丢弃），事件时间在此处记录
+     *
+     * @param acquire      true 为获取，false 为释放
+     * @param lockIdentity 锁标识，为 null 时由聚合线程按 lockHash 生成
+     * @param lockHash     锁对象的 identityHashCode（lockIdentity 为 null 时使用）
+     * @param threadId     线程 ID
+     * @return 是否发布成功
+     */
+    public abstract boolean publishLock(boolean acquire, String lockIdentity, int lockHash, long threadId);
+
+    /**
+     * 获取流水线统计（发布数、丢弃数、已消费数、缓冲区剩余容量）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("type", getType());
+        stats.put("waitStrategy", waitStrategyName);
+        stats.put("bufferSize", getBufferSize());
+        stats.put("remainingCapacity", getRemainingCapacity());
+        stats.put("publishedRt", publishedRt.sum());
+        stats.put("publishedLock", publishedLock.sum());
+        stats.put("droppedRt", droppedRt.sum());
+        stats.put("droppedLock", droppedLock.sum());
+        stats.put("consumed", consumed);
+        return stats;
+    }
+
+    /**
+     * 获取因缓冲区满丢弃的事件总数
+     */
+    public long getDroppedCount() {
+        return droppedRt.sum() + droppedLock.sum();
+    }
+
+    /**
+     * 是否支持该等待策略
+     */
+    public static boolean isWaitStrategySupported(String name) {
+        return WAIT_STRATEGIES.contains(name);
+    }
+
+    /**
+     * 是否支持该缓冲区实现
+     */
+    public static boolean isTypeSupported(String type) {
+        return TYPES.contains(type);
+    }
+
+    /**
+     * 缓冲区实现名
+     */
+    protected abstract String getType();
+
+    /**
+     * 缓冲区大小
+     */
+    protected abstract int getBufferSize();
+
+    /**
+     * 缓冲区剩余容量
+     */
+    protected abstract long getRemainingCapacity();
+
+    /**
+     * 启动聚合线程
+     */
+    protected abstract void doStart();
+
+    /**
+     * 等待已发布的事件消费完（最长 {@link #SHUTDOWN_TIMEOUT_MS} 毫秒）后停止聚合线程
+     */
+    protected abstract void doStop();
+
+    /**
+     * 把 RT 事件写入聚合器（聚合线程调用）
+     */
+    protected static void aggregateRt(int methodId, long rtNs) {
+        RtSampler.recordRtNs(methodId, rtNs);
+    }
+
+    /**
+     * 把锁事件写入锁采样器（聚合线程调用）
+     *
+     * @param acquire      true 为获取，false 为释放
+     * @param lockIdentity 锁标识
+     * @param threadId     线程 ID
+     * @param timeNs       埋点记录的事件时间
+     */
+    protected static void aggregateLock(boolean acquire, String lockIdentity, long threadId, long timeNs) {
+        if (acquire) {
+            DiagnosticHelper.recordLockAcquire(lockIdentity, threadId, timeNs);
+        } else {
+            DiagnosticHelper.recordLockRelease(lockIdentity, threadId, timeNs);
+        }
+    }
+}
@@ -0,0 +1,449 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多分辨率滚动 RT 窗口
+ * 每次窗口刷新时，采集线程把各方法的窗口直方图合并进若干级环形槽位（例如 1s × 60、10s × 60、1min × 60），
+ * Agent 内即可回答“最近 10 秒与最近 5 分钟的 P99”这类区间查询，无需依赖外部 Collector
+ *
+ * <p>各窗口的采样率不同（按方法自适应采样会随调用量升降档位），合并时每个样本按 1/采样率 加权，
+ * 槽位保存的是估算调用数的分布，高采样率的窗口不会在区间分位数中占更大比重。
+ * 1/采样率 不是整数时按四舍五入的权重合并。
+ *
+ * <p>槽位直方图在首次使用时创建，轮转时清空复用，不再分配；槽位使用 1 位有效数字的直方图
+ * （约 4 KB，分位数相对误差约 6%，用于比较趋势），默认级别下每个方法 180 个槽位约 760 KB。跟踪的方法数有上限，按调用量准入：
+ * 每个方法维护每窗口估算调用数的衰减平均（半衰期为最细一级的时间跨度），达到上限时，
+ * 新方法本窗口的调用数超过被跟踪方法中最低值的 {@value #ADMIT_RATIO} 倍才替换该方法，
+ * 空闲超过最细一级跨度的方法直接回收，否则新方法不被跟踪并计数。
+ * 通过 {@link #track(String, long)} 指定的方法立即占用槽位且不会被回收。
+ * 最细一级的分辨率不应小于推送间隔，否则部分槽位始终为空。
+ *
+ * @author Aletheia Team
+ */
+public final class RollingRtWindows {
+
+    /**
+     * 槽位直方图有效数字位数
+     */
+    private static final int SLOT_SIGNIFICANT_DIGITS = 1;
+
+    /**
+     * 槽位直方图可记录的最大值（纳秒）
+     */
+    private static final long SLOT_HIGHEST_TRACKABLE_NS = RtAggregator.HIGHEST_TRACKABLE_RT_NS;
+
+    /**
+     * 新方法替换被跟踪方法所需的调用量倍数（避免两个相近的方法反复替换）
+     */
+    private static final double ADMIT_RATIO = 2.0;
+
+    /**
+     * 调用量衰减平均中本窗口的权重
+     */
+    private static final double CALL_RATE_ALPHA = 0.5;
+
+    private static final double P50 = 50.0;
+    private static final double P90 = 90.0;
+    private static final double P99 = 99.0;
+    private static final double P999 = 99.9;
+
+    private final Level[] levels;
+    private final int maxMethods;
+    private final Map<String, MethodWindows> methods = new HashMap<>();
+
+    /**
+     * 查询时复用的合并直方图
+     */
+    private final LogLinearHistogram scratch = newSlotHistogram();
+
+    private long untrackedRecords;
+    private long evictions;
+
+    /**
+     * @param levels     分辨率级别（按槽位时长从细到粗）
+     * @param maxMethods 最多跟踪的方法数
+     */
+    public RollingRtWindows(List<Level> levels, int maxMethods) {
+        if (levels.isEmpty()) {
+            throw new IllegalArgumentException("At least one rolling window level is required");
+        }
+        List<Level> sorted = new ArrayList<>(levels);
+        sorted.sort(Comparator.comparingLong(level -> level.slotMs));
+        this.levels = sorted.toArray(new Level[0]);
+        this.maxMethods = maxMethods;
+    }
+
+    /**
+     * 解析分辨率级别，格式为逗号分隔的 时长*槽位数，时长单位为 ms、s、m、h，例如 {@code 1s*60,10s*60,1m*60}
+     *
+     * @throws IllegalArgumentException 格式错误
+     */
+    public static List<Level> parseLevels(String spec) {
+        if (spec == null || spec.trim().isEmpty()) {
+            throw new IllegalArgumentException("Empty rolling window levels");
+        }
+        List<Level> levels = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String[] pieces = part.trim().split("\\*");
+            if (pieces.length != 2) {
+                throw new IllegalArgumentException("Invalid rolling window level: " + part);
+            }
+            long slotMs = parseDurationMs(pieces[0].trim());
+            int slotCount;
+            try {
+                slotCount = Integer.parseInt(pieces[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid slot count in rolling window level: " + part);
+            }
+            if (slotMs <= 0 || slotCount <= 0) {
+                throw new IllegalArgumentException("Rolling window level must be positive: " + part);
+            }
+            levels.add(new Level(slotMs, slotCount));
+        }
+        return levels;
+    }
+
+    private static long parseDurationMs(String duration) {
+        TimeUnit unit;
+        String number;
+        if (duration.endsWith("ms")) {
+            unit = TimeUnit.MILLISECONDS;
+            number = duration.substring(0, duration.length() - 2);
+        } else if (duration.endsWith("s")) {
+            unit = TimeUnit.SECONDS;
+            number = duration.substring(0, duration.length() - 1);
+        } else if (duration.endsWith("m")) {
+            unit = TimeUnit.MINUTES;
+            number = duration.substring(0, duration.length() - 1);
+        } else if (duration.endsWith("h")) {
+            unit = TimeUnit.HOURS;
+            number = duration.substring(0, duration.length() - 1);
+        } else {
+            throw new IllegalArgumentException("Missing unit (ms, s, m, h) in duration: " + duration);
+        }
+        try {
+            return unit.toMillis(Long.parseLong(number));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid duration: " + duration);
+        }
+    }
+
+    /**
+     * 合并一个方法的窗口直方图（全量采样，调用数即样本数）
+     *
+     * @param methodSignature 方法签名
+     * @param histogram       窗口直方图（合并期间没有并发记录）
+     * @param windowEndMs     窗口结束时间（墙上时钟，毫秒）
+     */
+    public void record(String methodSignature, LogLinearHistogram histogram, long windowEndMs) {
+        record(methodSignature, histogram, histogram.getTotalCount(), windowEndMs);
+    }
+
+    /**
+     * 合并一个方法的窗口直方图（由采集线程在窗口刷新时调用）
+     *
+     * @param methodSignature 方法签名
+     * @param histogram       窗口直方图（合并期间没有并发记录）
+     * @param estimatedCalls  本窗口估算调用数（样本数 / 采样率），用于准入
+     * @param windowEndMs     窗口结束时间（墙上时钟，毫秒）
+     */
+    public synchronized void record(String methodSignature, LogLinearHistogram histogram, double estimatedCalls,
+                                    long windowEndMs) {
+        MethodWindows windows = methods.get(methodSignature);
+        if (windows == null) {
+            windows = admit(methodSignature, estimatedCalls, windowEndMs);
+            if (windows == null) {
+                untrackedRecords++;
+                return;
+            }
+            windows.callRate = estimatedCalls;
+        } else {
+            windows.callRate = windows.decayedCallRate(windowEndMs, levels[0].spanMs()) * (1 - CALL_RATE_ALPHA)
+                    + estimatedCalls * CALL_RATE_ALPHA;
+        }
+        windows.lastRecordMs = windowEndMs;
+        // 每个样本代表的调用数（1/采样率）
+        long sampledCount = histogram.getTotalCount();
+        long weight = sampledCount > 0 ? Math.max(1, Math.round(estimatedCalls / sampledCount)) : 1;
+        // 窗口结束于槽位边界时，数据属于以该边界结束的槽位
+        long timeMs = windowEndMs - 1;
+        for (int i = 0; i < levels.length; i++) {
+            Level level = levels[i];
+            long epoch = timeMs / level.slotMs;
+            int position = (int) (epoch % level.slotCount);
+            LogLinearHistogram slot = windows.slots[i][position];
+            if (slot == null) {
+                slot = newSlotHistogram();
+                windows.slots[i][position] = slot;
+                windows.epochs[i][position] = epoch;
+            } else if (windows.epochs[i][position] != epoch) {
+                slot.reset();
+                windows.epochs[i][position] = epoch;
+            }
+            slot.add(histogram, weight);
+        }
+    }
+
+    /**
+     * 为新方法分配槽位，达到上限时回收空闲或调用量明显更低的方法
+     *
+     * @param estimatedCalls 新方法本窗口的估算调用数，为负数时表示按请求跟踪，只要有可回收的方法即替换
+     */
+    private MethodWindows admit(String methodSignature, double estimatedCalls, long nowMs) {
+        if (methods.size() < maxMethods) {
+            MethodWindows windows = new MethodWindows(methodSignature, levels);
+            methods.put(methodSignature, windows);
+            return windows;
+        }
+        long halfLifeMs = levels[0].spanMs();
+        MethodWindows idlest = null;
+        MethodWindows coldest = null;
+        double coldestRate = Double.MAX_VALUE;
+        for (MethodWindows candidate : methods.values()) {
+            if (candidate.pinned) {
+                continue;
+            }
+            if (idlest == null || candidate.lastRecordMs < idlest.lastRecordMs) {
+                idlest = candidate;
+            }
+            double rate = candidate.decayedCallRate(nowMs, halfLifeMs);
+            if (rate < coldestRate) {
+                coldest = candidate;
+                coldestRate = rate;
+            }
+        }
+        MethodWindows victim;
+        if (idlest != null && nowMs - idlest.lastRecordMs > halfLifeMs) {
+            victim = idlest;
+        } else if (coldest != null && (estimatedCalls < 0 || estimatedCalls > coldestRate * ADMIT_RATIO)) {
+            victim = coldest;
+        } else {
+            return null;
+        }
+        methods.remove(victim.methodSignature);
+        victim.reuse(methodSignature);
+        methods.put(methodSignature, victim);
+        evictions++;
+        return victim;
+    }
+
+    /**
+     * 按请求跟踪方法：立即分配槽位（达到上限时替换调用量最低的方法），此后不会被回收
+     *
+     * @param methodSignature 方法签名
+     * @param nowMs           当前时间（墙上时钟，毫秒）
+     * @return 是否已跟踪（所有槽位都被按请求跟踪的方法占用时返回 false）
+     */
+    public synchronized boolean track(String methodSignature, long nowMs) {
+        MethodWindows windows = methods.get(methodSignature);
+        if (windows == null) {
+            windows = admit(methodSignature, -1, nowMs);
+            if (windows == null) {
+                return false;
+            }
+        }
+        windows.pinned = true;
+        return true;
+    }
+
+    /**
+     * 取消按请求跟踪，方法的槽位按调用量参与回收
+     *
+     * @param methodSignature 方法签名
+     * @return 方法此前是否按请求跟踪
+     */
+    public synchronized boolean untrack(String methodSignature) {
+        MethodWindows windows = methods.get(methodSignature);
+        if (windows == null || !windows.pinned) {
+            return false;
+        }
+        windows.pinned = false;
+        return true;
+    }
+
+    /**
+     * 查询最近一段时间的 RT 分布
+     * 选择时间跨度能覆盖该区间的最细一级，超过最粗一级的跨度时按最粗一级的跨度查询
+     *
+     * @param methodSignature 方法签名
+     * @param rangeMs         查询区间（毫秒）
+     * @param nowMs           当前时间（墙上时钟，毫秒）
+     * @return 区间统计（估算调用数、最小/最大/平均值与分位数，单位纳秒），方法未被跟踪时返回 null
+     */
+    public synchronized Map<String, Object> query(String methodSignature, long rangeMs, long nowMs) {
+        MethodWindows windows = methods.get(methodSignature);
+        if (windows == null) {
+            return null;
+        }
+        int levelIndex = levels.length - 1;
+        for (int i = 0; i < levels.length; i++) {
+            if (levels[i].spanMs() >= rangeMs) {
+                levelIndex = i;
+                break;
+            }
+        }
+        Level level = levels[levelIndex];
+        long effectiveRangeMs = Math.max(level.slotMs, Math.min(rangeMs, level.spanMs()));
+        int slotCount = (int) ((effectiveRangeMs + level.slotMs - 1) / level.slotMs);
+
+        scratch.reset();
+        long currentEpoch = (nowMs - 1) / level.slotMs;
+        for (long epoch = currentEpoch - slotCount + 1; epoch <= currentEpoch; epoch++) {
+            int position = (int) (epoch % level.slotCount);
+            LogLinearHistogram slot = windows.slots[levelIndex][position];
+            if (slot != null && windows.epochs[levelIndex][position] == epoch) {
+                scratch.add(slot);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("methodSignature", methodSignature);
+        result.put("rangeMs", (long) slotCount * level.slotMs);
+        result.put("resolutionMs", level.slotMs);
+        result.put("estimatedCount", scratch.getTotalCount());
+        result.put("minNs", scratch.getMinValue());
+        result.put("maxNs", scratch.getMaxValue());
+        result.put("avgNs", scratch.getMean());
+        result.put("p50Ns", scratch.getValueAtPercentile(P50));
+        result.put("p90Ns", scratch.getValueAtPercentile(P90));
+        result.put("p99Ns", scratch.getValueAtPercentile(P99));
+        result.put("p999Ns", scratch.getValueAtPercentile(P999));
+        return result;
+    }
+
+    /**
+     * 获取正在跟踪的方法签名
+     */
+    public synchronized List<String> getTrackedMethods() {
+        List<String> tracked = new ArrayList<>(methods.keySet());
+        Collections.sort(tracked);
+        return tracked;
+    }
+
+    /**
+     * 获取统计信息（级别、跟踪方法数、回收次数、未被跟踪的记录数）
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        List<String> levelNames = new ArrayList<>(levels.length);
+        for (Level level : levels) {
+            levelNames.add(level.toString());
+        }
+        stats.put("levels", levelNames);
+        stats.put("trackedMethods", methods.size());
+        int pinned = 0;
+        for (MethodWindows windows : methods.values()) {
+            if (windows.pinned) {
+                pinned++;
+            }
+        }
+        stats.put("pinnedMethods", pinned);
+        stats.put("maxMethods", maxMethods);
+        stats.put("evictions", evictions);
+        stats.put("untrackedRecords", untrackedRecords);
+        return stats;
+    }
+
+    private static LogLinearHistogram newSlotHistogram() {
+        return new LogLinearHistogram(SLOT_HIGHEST_TRACKABLE_NS, SLOT_SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * 分辨率级别：槽位时长 × 槽位数
+     */
+    public static final class Level {
+
+        private final long slotMs;
+        private final int slotCount;
+
+        public Level(long slotMs, int slotCount) {
+            this.slotMs = slotMs;
+            this.slotCount = slotCount;
+        }
+
+        public long getSlotMs() {
+            return slotMs;
+        }
+
+        public int getSlotCount() {
+            return slotCount;
+        }
+
+        /**
+         * 该级别覆盖的时间跨度（毫秒）
+         */
+        public long spanMs() {
+            return slotMs * slotCount;
+        }
+
+        @Override
+        public String toString() {
+            return slotMs + "ms*" + slotCount;
+        }
+    }
+
+    /**
+     * 单个方法各级别的环形槽位
+     */
+    private static final class MethodWindows {
+
+        private String methodSignature;
+        private final LogLinearHistogram[][] slots;
+        private final long[][] epochs;
+        private long lastRecordMs;
+
+        /**
+         * 每窗口估算调用数的衰减平均（截至 lastRecordMs）
+         */
+        private double callRate;
+
+        /**
+         * 是否按请求跟踪（不参与回收）
+         */
+        private boolean pinned;
+
+        MethodWindows(String methodSignature, Level[] levels) {
+            this.methodSignature = methodSignature;
+            this.slots = new LogLinearHistogram[levels.length][];
+            this.epochs = new long[levels.length][];
+            for (int i = 0; i < levels.length; i++) {
+                slots[i] = new LogLinearHistogram[levels[i].slotCount];
+                epochs[i] = new long[levels[i].slotCount];
+            }
+        }
+
+        /**
+         * 衰减到指定时间的调用量（空闲方法随时间趋近 0）
+         */
+        double decayedCallRate(long nowMs, long halfLifeMs) {
+            long idleMs = Math.max(0, nowMs - lastRecordMs);
+            return callRate * Math.pow(2, -(double) idleMs / halfLifeMs);
+        }
+
+        /**
+         * 回收给另一个方法使用：清空槽位但保留直方图
+         */
+        void reuse(String newMethodSignature) {
+            this.methodSignature = newMethodSignature;
+            this.callRate = 0;
+            this.pinned = false;
+            for (int i = 0; i < slots.length; i++) {
+                for (int j = 0; j < slots[i].length; j++) {
+                    if (slots[i][j] != null) {
+                        slots[i][j].reset();
+                        // 使旧数据不会被任何查询命中
+                        epochs[i][j] = Long.MIN_VALUE;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -6,15 +6,27 @@ import com.alibaba.aletheia.common.util.TimeUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * RT 数据聚合器
  * 负责时间窗口内的 RT 数据聚合和分位数统计
+ * 每个方法使用 {@link LogLinearHistogram} 记录 RT，记录过程无锁，直方图创建后不再分配对象
+ * RT 以纳秒为单位记录，可分辨亚毫秒级的调用
+ *
+ * <p>直方图按 {@link MethodRegistry} 分配的方法 ID 存放在分页数组中，
+ * 记录路径只有两次数组访问，不再对方法签名做哈希查找；分页按需创建且从不复制，扩容不会丢失数据。
+ *
+ * <p>记录端使用活动/非活动两套分页表（双缓冲）。窗口只由采集线程在 {@link #getAndClearRtEvents(long)} 中切换：
+ * 交换两套分页表后通过 {@link WriterReaderPhaser} 等待仍在写旧表的业务线程退出，再读取并清空旧表，
+ * 因此切换时不丢样本，业务线程也从不计算分位数。直方图清空后复用，连续 {@value #RELEASE_AFTER_IDLE_WINDOWS}
+ * 个窗口无数据才由采集线程释放，间歇调用的方法不会在业务线程上反复创建直方图。
+ *
+ * <p>内存随活跃方法数线性增长，不是固定值：每个活跃方法持有两个直方图（两套分页表各一个），
+ * 值域 1 分钟时 2 位有效数字约 2 × 30 KB、3 位约 2 × 216 KB，10000 个活跃方法在默认精度下约占 600 MB，
+ * 启动时按配置的精度打印每个方法的占用。
  *
  * @author Aletheia Team
  */
@@ -23,9 +35,63 @@ public class RtAggregator {
     private static final Logger LOGGER = LoggerFactory.getLogger(RtAggregator.class);
 
     /**
-     * 方法签名 -> RT 数据列表的映射
+     * 可记录的最大 RT（纳秒），超出部分按该值计入分位数（最大值和平均值仍按实际值统计）
+     */
+    static final long HIGHEST_TRACKABLE_RT_NS = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * 直方图连续多少个窗口无数据后释放
+     */
+    private static final int RELEASE_AFTER_IDLE_WINDOWS = 30;
+
+    /**
+     * 每页可容纳的方法数（2 的幂）
+     */
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /**
+     * 分页数量，覆盖注册表允许的全部方法 ID
+     */
+    private static final int PAGE_COUNT = MethodRegistry.MAX_METHODS >>> PAGE_SHIFT;
+
+    /**
+     * 当前接收记录的分页表（方法 ID -> RT 直方图）
+     */
+    private volatile AtomicReferenceArray<AtomicReferenceArray<LogLinearHistogram>> activePages =
+            new AtomicReferenceArray<>(PAGE_COUNT);
+
+    /**
+     * 上一个窗口使用的分页表，下次切换时成为活动表
+     */
+    private AtomicReferenceArray<AtomicReferenceArray<LogLinearHistogram>> inactivePages =
+            new AtomicReferenceArray<>(PAGE_COUNT);
+
+    /**
+     * 各方法连续无数据的窗口数（分页按需创建，只由采集线程访问）
+     */
+    private final byte[][] idleWindowPages = new byte[PAGE_COUNT][];
+
+    /**
+     * 协调业务线程记录与采集线程切换分页表
+     */
+    private final WriterReaderPhaser phaser = new WriterReaderPhaser();
+
+    /**
+     * 方法注册表（用于签名与 ID 的相互转换）
+     */
+    private final MethodRegistry methodRegistry;
+
+    /**
+     * 按方法自适应采样器（为 null 时表示数据未经采样直接记录）
      */
-    private final ConcurrentHashMap<String, List<Long>> methodRtMap = new ConcurrentHashMap<>();
+    private final MethodRateSampler rateSampler;
+
+    /**
+     * 直方图有效数字位数（决定分位数精度）
+     */
+    private final int significantDigits;
 
     /**
      * 当前时间窗口开始时间（纳秒）
@@ -33,59 +99,229 @@ public class RtAggregator {
     private volatile long currentWindowStartNs = TimeUtil.currentTimeNs();
 
     /**
-     * 时间窗口大小（纳秒）
+     * 当前时间窗口开始时间（墙上时钟，毫秒）
      */
-    private final long windowSizeNs = TimeUtil.millisToNanos(AletheiaConstants.DEFAULT_WINDOW_SIZE_MS);
+    private volatile long currentWindowStartMs = TimeUtil.currentTimeMs();
 
     /**
-     * 记录 RT 数据
+     * 多分辨率滚动窗口（为 null 时不保留历史窗口）
+     */
+    private volatile RollingRtWindows rollingWindows;
+
+
+    public RtAggregator() {
+        this(AletheiaConstants.DEFAULT_HISTOGRAM_SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param significantDigits 直方图有效数字位数（1 - 3）
+     */
+    public RtAggregator(int significantDigits) {
+        this(significantDigits, MethodRegistry.getInstance());
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param significantDigits 直方图有效数字位数（1 - 3）
+     * @param methodRegistry 方法注册表
+     */
+    public RtAggregator(int significantDigits, MethodRegistry methodRegistry) {
+        this(significantDigits, methodRegistry, null);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param significantDigits 直方图有效数字位数（1 - 3）
+     * @param methodRegistry 方法注册表
+     * @param rateSampler 按方法自适应采样器，刷新时据此填充采样率并调整各方法的采样档位
+     */
+    public RtAggregator(int significantDigits, MethodRegistry methodRegistry, MethodRateSampler rateSampler) {
+        if (significantDigits < LogLinearHistogram.MIN_SIGNIFICANT_DIGITS
+                || significantDigits > LogLinearHistogram.MAX_SIGNIFICANT_DIGITS) {
+            throw new IllegalArgumentException("Significant digits must be between "
+                    + LogLinearHistogram.MIN_SIGNIFICANT_DIGITS + " and "
+                    + LogLinearHistogram.MAX_SIGNIFICANT_DIGITS);
+        }
+        this.significantDigits = significantDigits;
+        this.methodRegistry = methodRegistry;
+        this.rateSampler = rateSampler;
+        LOGGER.info("RT histogram significant digits: {}, memory per method: {} KB (two buffers)", significantDigits,
+                2 * LogLinearHistogram.footprintBytes(HIGHEST_TRACKABLE_RT_NS, significantDigits) / 1024);
+    }
+
+    /**
+     * 设置多分辨率滚动窗口，每次刷新时把各方法的窗口直方图合并进去
+     *
+     * @param rollingWindows 滚动窗口（null 表示关闭）
+     */
+    public void setRollingWindows(RollingRtWindows rollingWindows) {
+        this.rollingWindows = rollingWindows;
+    }
+
+    /**
+     * 记录 RT 数据（毫秒，兼容旧接口）
      *
      * @param methodSignature 方法签名
      * @param rtMs RT（毫秒）
      */
     public void recordRt(String methodSignature, long rtMs) {
+        recordRtNs(methodSignature, TimeUtil.millisToNanos(rtMs));
+    }
+
+    /**
+     * 记录 RT 数据
+     *
+     * @param methodSignature 方法签名
+     * @param rtNs RT（纳秒）
+     */
+    public void recordRtNs(String methodSignature, long rtNs) {
         if (methodSignature == null || methodSignature.isEmpty()) {
             return;
         }
+        recordRtNs(methodRegistry.register(methodSignature), rtNs);
+    }
+
+    /**
+     * 记录 RT 数据（埋点热路径）
+     *
+     * @param methodId 方法 ID（由 {@link MethodRegistry} 分配）
+     * @param rtNs RT（纳秒）
+     */
+    public void recordRtNs(int methodId, long rtNs) {
+        if (methodId < 0 || methodId >= MethodRegistry.MAX_METHODS) {
+            return;
+        }
 
+        long stamp = phaser.writerCriticalSectionEnter();
         try {
-            // 检查是否需要切换到新的时间窗口
-            long currentTime = TimeUtil.currentTimeNs();
-            if (currentTime - currentWindowStartNs >= windowSizeNs) {
-                flushWindow();
-                currentWindowStartNs = currentTime;
+            AtomicReferenceArray<AtomicReferenceArray<LogLinearHistogram>> pages = activePages;
+            AtomicReferenceArray<LogLinearHistogram> page = pages.get(methodId >>> PAGE_SHIFT);
+            if (page == null) {
+                page = createPage(pages, methodId >>> PAGE_SHIFT);
             }
-
-            // 记录 RT 数据
-            methodRtMap.computeIfAbsent(methodSignature, k -> Collections.synchronizedList(new ArrayList<>()))
-                    .add(rtMs);
+            int slot = methodId & PAGE_MASK;
+            LogLinearHistogram histogram = page.get(slot);
+            if (histogram == null) {
+                histogram = createHistogram(page, slot);
+            }
+            histogram.recordValue(rtNs);
         } catch (Exception e) {
             LOGGER.debug("Error recording RT data", e);
+        } finally {
+            phaser.writerCriticalSectionExit(stamp);
         }
     }
 
     /**
-     * 获取并清空当前窗口的 RT 事件列表
+     * 获取并清空当前窗口的 RT 事件列表（窗口结束时间取当前墙上时钟）
      *
      * @return RT 事件列表
      */
     public List<RtEvent> getAndClearRtEvents() {
-        List<RtEvent> events = new ArrayList<>();
-        long windowEndNs = TimeUtil.currentTimeNs();
+        return getAndClearRtEvents(TimeUtil.currentTimeMs());
+    }
+
+    /**
+     * 切换窗口，获取并清空上一窗口的 RT 事件列表（由采集线程调用）
+     *
+     * @param windowEndMs 窗口结束时间（墙上时钟，毫秒），通常为按推送间隔对齐的边界
+     * @return RT 事件列表
+     */
+    public List<RtEvent> getAndClearRtEvents(long windowEndMs) {
+        return getAndClearRtEvents(windowEndMs, new RtEventBuffer());
+    }
+
+    /**
+     * 切换窗口，把上一窗口的 RT 事件写入复用的缓冲（由采集线程调用）
+     *
+     * @param windowEndMs 窗口结束时间（墙上时钟，毫秒），通常为按推送间隔对齐的边界
+     * @param buffer 复用的事件缓冲，原有内容被覆盖
+     * @return 缓冲中的 RT 事件列表
+     */
+    public List<RtEvent> getAndClearRtEvents(long windowEndMs, RtEventBuffer buffer) {
+        phaser.readerLock();
+        try {
+            AtomicReferenceArray<AtomicReferenceArray<LogLinearHistogram>> pages = activePages;
+            activePages = inactivePages;
+            inactivePages = pages;
+            long windowEndNs = TimeUtil.currentTimeNs();
+            // 等待仍在写旧表的业务线程退出，此后旧表只由本线程访问
+            phaser.flipPhase();
+            collectEvents(pages, windowEndNs, windowEndMs, buffer);
+            return buffer.getEvents();
+        } finally {
+            phaser.readerUnlock();
+        }
+    }
+
+    private void collectEvents(AtomicReferenceArray<AtomicReferenceArray<LogLinearHistogram>> pages,
+                               long windowEndNs, long windowEndMs, RtEventBuffer buffer) {
+        buffer.clear();
+        int registered = methodRegistry.size();
+        for (int methodId = 0; methodId < registered; methodId++) {
+            AtomicReferenceArray<LogLinearHistogram> page = pages.get(methodId >>> PAGE_SHIFT);
+            int slot = methodId & PAGE_MASK;
+            LogLinearHistogram histogram = page == null ? null : page.get(slot);
+            long sampledCount = histogram == null ? 0 : histogram.getTotalCount();
+            if (histogram != null) {
+                trackIdleWindows(page, methodId, sampledCount);
+            }
 
-        for (String methodSignature : methodRtMap.keySet()) {
-            List<Long> rtList = methodRtMap.remove(methodSignature);
-            if (rtList == null || rtList.isEmpty()) {
+            // 有效采样率取调整前的值，再按本窗口采样数调整方法的采样档位
+            double sampleRate = 1.0;
+            if (rateSampler != null) {
+                sampleRate = rateSampler.getRate(methodId);
+                rateSampler.onWindowEnd(methodId, sampledCount);
+            }
+            if (sampledCount == 0) {
                 continue;
             }
 
-            RtEvent event = calculateRtEvent(methodSignature, currentWindowStartNs, windowEndNs, rtList);
-            if (event != null) {
-                events.add(event);
+            // 仅在刷新时把 ID 反查为方法签名
+            String methodSignature = methodRegistry.getSignature(methodId);
+            RtEvent event = buffer.next();
+            fillRtEvent(event, methodSignature, currentWindowStartNs, windowEndNs, histogram, sampleRate);
+            event.setWindowStartMs(currentWindowStartMs);
+            event.setWindowEndMs(windowEndMs);
+            RollingRtWindows rolling = rollingWindows;
+            if (rolling != null) {
+                rolling.record(methodSignature, histogram,
+                        sampleRate > 0 ? sampledCount / sampleRate : sampledCount, windowEndMs);
             }
+            // 清空后留给下下个窗口复用
+            histogram.reset();
         }
 
-        return events;
+        currentWindowStartNs = windowEndNs;
+        currentWindowStartMs = windowEndMs;
+    }
+
+    /**
+     * 累计方法连续无数据的窗口数，达到阈值后释放刚结束窗口的直方图（另一套分页表在下个窗口释放）
+     */
+    private void trackIdleWindows(AtomicReferenceArray<LogLinearHistogram> page, int methodId, long sampledCount) {
+        byte[] idlePage = idleWindowPages[methodId >>> PAGE_SHIFT];
+        if (sampledCount > 0) {
+            if (idlePage != null) {
+                idlePage[methodId & PAGE_MASK] = 0;
+            }
+            return;
+        }
+        if (idlePage == null) {
+            idlePage = new byte[PAGE_SIZE];
+            idleWindowPages[methodId >>> PAGE_SHIFT] = idlePage;
+        }
+        int slot = methodId & PAGE_MASK;
+        if (idlePage[slot] < RELEASE_AFTER_IDLE_WINDOWS) {
+            idlePage[slot]++;
+        }
+        if (idlePage[slot] >= RELEASE_AFTER_IDLE_WINDOWS) {
+            page.set(slot, null);
+        }
     }
 
     /**
@@ -93,83 +329,69 @@ public class RtAggregator {
      */
     public void flushWindow() {
         getAndClearRtEvents();
-        currentWindowStartNs = TimeUtil.currentTimeNs();
     }
 
     /**
-     * 计算 RT 事件统计信息
+     * 计算 RT 事件统计信息（覆盖事件的全部统计字段）
      *
+     * @param event 待填充的事件
      * @param methodSignature 方法签名
      * @param windowStartNs 窗口开始时间
      * @param windowEndNs 窗口结束时间
-     * @param rtList RT 数据列表
-     * @return RT 事件
+     * @param histogram RT 直方图（样本数大于 0）
+     * @param sampleRate 窗口内的有效采样率
      */
-    private RtEvent calculateRtEvent(String methodSignature, long windowStartNs, 
-                                      long windowEndNs, List<Long> rtList) {
-        if (rtList == null || rtList.isEmpty()) {
-            return null;
-        }
-
-        // 排序以便计算分位数
-        List<Long> sortedList = new ArrayList<>(rtList);
-        Collections.sort(sortedList);
-
-        int count = sortedList.size();
-        RtEvent event = new RtEvent();
+    private void fillRtEvent(RtEvent event, String methodSignature, long windowStartNs, long windowEndNs,
+                             LogLinearHistogram histogram, double sampleRate) {
+        long count = histogram.getTotalCount();
         event.setMethodSignature(methodSignature);
         event.setWindowStartNs(windowStartNs);
         event.setWindowEndNs(windowEndNs);
-        event.setSampleCount(count);
-
-        // 计算最小值
-        event.setMinMs(sortedList.get(0));
-
-        // 计算最大值
-        event.setMaxMs(sortedList.get(count - 1));
-
-        // 计算平均值
-        long sum = 0;
-        for (Long rt : sortedList) {
-            sum += rt;
-        }
-        event.setAvgMs((double) sum / count);
-
-        // 计算 P50
-        event.setP50Ms(calculatePercentile(sortedList, 50));
-
-        // 计算 P99
-        event.setP99Ms(calculatePercentile(sortedList, 99));
+        event.setSampleCount((int) Math.min(count, Integer.MAX_VALUE));
+        event.setSampleRate(sampleRate);
+        event.setEstimatedCount(sampleRate > 0 ? Math.round(count / sampleRate) : count);
 
-        // 计算 P999
-        event.setP999Ms(calculatePercentile(sortedList, 99.9));
+        // 分位数通过扫描直方图桶计算（纳秒）
+        event.setMinNs(histogram.getMinValue());
+        event.setMaxNs(histogram.getMaxValue());
+        event.setAvgNs(histogram.getMean());
+        event.setP50Ns(histogram.getValueAtPercentile(50));
+        event.setP99Ns(histogram.getValueAtPercentile(99));
+        event.setP999Ns(histogram.getValueAtPercentile(99.9));
 
-        return event;
+        // 毫秒字段保留小数，兼容旧的消费方
+        event.setMinMs(TimeUtil.nanosToMillisPrecise(event.getMinNs()));
+        event.setMaxMs(TimeUtil.nanosToMillisPrecise(event.getMaxNs()));
+        event.setAvgMs(event.getAvgNs() / TimeUtil.millisToNanos(1));
+        event.setP50Ms(TimeUtil.nanosToMillisPrecise(event.getP50Ns()));
+        event.setP99Ms(TimeUtil.nanosToMillisPrecise(event.getP99Ns()));
+        event.setP999Ms(TimeUtil.nanosToMillisPrecise(event.getP999Ns()));
     }
 
     /**
-     * 计算分位数
-     *
-     * @param sortedList 已排序的列表
-     * @param percentile 百分位数（0-100）
-     * @return 分位数值
+     * 创建分页（并发创建时以先发布者为准）
      */
-    private double calculatePercentile(List<Long> sortedList, double percentile) {
-        if (sortedList == null || sortedList.isEmpty()) {
-            return 0.0;
+    private AtomicReferenceArray<LogLinearHistogram> createPage(
+            AtomicReferenceArray<AtomicReferenceArray<LogLinearHistogram>> pages, int pageIndex) {
+        AtomicReferenceArray<LogLinearHistogram> page = new AtomicReferenceArray<>(PAGE_SIZE);
+        if (pages.compareAndSet(pageIndex, null, page)) {
+            return page;
         }
+        return pages.get(pageIndex);
+    }
 
-        int count = sortedList.size();
-        double index = (percentile / 100.0) * (count - 1);
-        int lowerIndex = (int) Math.floor(index);
-        int upperIndex = (int) Math.ceil(index);
-
-        if (lowerIndex == upperIndex) {
-            return sortedList.get(lowerIndex);
+    /**
+     * 创建新的 RT 直方图（并发创建时以先发布者为准）
+     */
+    private LogLinearHistogram createHistogram(AtomicReferenceArray<LogLinearHistogram> page, int slot) {
+        LogLinearHistogram histogram = new LogLinearHistogram(HIGHEST_TRACKABLE_RT_NS, significantDigits);
+        while (!page.compareAndSet(slot, null, histogram)) {
+            LogLinearHistogram existing = page.get(slot);
+            if (existing != null) {
+                return existing;
+            }
         }
-
-        double weight = index - lowerIndex;
-        return sortedList.get(lowerIndex) * (1 - weight) + sortedList.get(upperIndex) * weight;
+        return histogram;
     }
 
     /**
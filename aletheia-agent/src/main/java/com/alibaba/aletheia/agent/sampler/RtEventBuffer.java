@@ -0,0 +1,58 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import com.alibaba.aletheia.common.model.RtEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 可复用的 RT 事件缓冲
+ * 采集线程每个窗口把 RT 事件写入同一个缓冲，事件对象和列表在窗口之间复用，
+ * 方法数稳定后刷新窗口不再分配。缓冲中的事件只在下次刷新前有效，非线程安全
+ *
+ * @author Aletheia Team
+ */
+public final class RtEventBuffer {
+
+    /**
+     * 已创建的事件对象（只增不减）
+     */
+    private final List<RtEvent> pool = new ArrayList<>();
+
+    /**
+     * 本窗口的事件
+     */
+    private final List<RtEvent> events = new ArrayList<>();
+
+    /**
+     * 清空本窗口的事件（事件对象保留在池中）
+     */
+    void clear() {
+        events.clear();
+    }
+
+    /**
+     * 取一个事件对象加入本窗口（字段由调用方全部覆盖）
+     */
+    RtEvent next() {
+        int index = events.size();
+        RtEvent event;
+        if (index < pool.size()) {
+            event = pool.get(index);
+        } else {
+            event = new RtEvent();
+            pool.add(event);
+        }
+        events.add(event);
+        return event;
+    }
+
+    /**
+     * 获取本窗口的事件列表
+     *
+     * @return RT 事件列表（下次刷新时被覆盖）
+     */
+    public List<RtEvent> getEvents() {
+        return events;
+    }
+}
@@ -1,16 +1,19 @@
 package com.alibaba.aletheia.agent.sampler;
 
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.agent.config.RtConfig;
 import com.alibaba.aletheia.common.constant.AletheiaConstants;
 import com.alibaba.aletheia.common.util.TimeUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * RT 采样器
- * 使用 ThreadLocalRandom 进行低开销采样
+ * 使用 {@link MethodRateSampler} 进行低开销的按方法自适应采样，未命中采样的调用只需一次自减和一次分支
+ * 启用了 {@link ProbeEventPipeline} 时采样到的 RT 发布到流水线，由聚合线程写入聚合器
  *
  * @author Aletheia Team
  */
@@ -18,80 +21,184 @@ public class RtSampler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RtSampler.class);
 
+    /**
+     * 采样决策器（全局采样率和目标采样数取自 AgentConfig 中 RT 的配置）
+     */
+    private static final MethodRateSampler SAMPLER = new MethodRateSampler(
+            clampSampleRate(AgentConfig.getInstance().getSampleRate("RT")),
+            AgentConfig.getInstance().getRtConfig().getRtTargetSamplesPerWindow());
+
     /**
      * RT 聚合器实例
      */
-    private static final RtAggregator RT_AGGREGATOR = new RtAggregator();
+    private static final RtAggregator RT_AGGREGATOR = new RtAggregator(
+            AgentConfig.getInstance().getRtConfig().getHistogramSignificantDigits(), MethodRegistry.getInstance(),
+            SAMPLER);
 
     /**
-     * 当前采样率
+     * 多分辨率滚动 RT 窗口（关闭时为 null）
      */
-    private static volatile double sampleRate = AletheiaConstants.DEFAULT_SAMPLE_RATE;
+    private static final RollingRtWindows ROLLING_WINDOWS = createRollingWindows();
 
     /**
-     * 方法开始时间存储（ThreadLocal）
+     * 未命中采样时 {@link #onMethodStart(int)} 的返回值
      */
-    private static final ThreadLocal<Long> METHOD_START_TIME = new ThreadLocal<>();
+    public static final long NOT_SAMPLED = 0L;
 
     /**
-     * 总采样次数
+     * 旧的按签名埋点方式使用的开始时间存储（仅供兼容接口使用）
      */
-    private static final AtomicLong TOTAL_SAMPLES = new AtomicLong(0);
+    private static final ThreadLocal<Long> LEGACY_START_TIME = new ThreadLocal<>();
+
+    /**
+     * 总采样次数（所有业务线程都会更新，按线程分散计数避免缓存行争用）
+     */
+    private static final LongAdder TOTAL_SAMPLES = new LongAdder();
+
+    /**
+     * 采样调用在埋点中累计消耗的时间（纳秒）
+     */
+    private static final LongAdder SAMPLED_PROBE_TIME_NS = new LongAdder();
+
+    /**
+     * 按采样率估算的累计调用次数（每次刷新时累加）
+     */
+    private static final AtomicLong ESTIMATED_CALLS = new AtomicLong(0);
 
     /**
      * 方法开始时的回调
      *
-     * @param methodSignature 方法签名
+     * <p>返回的开始时间由埋点代码保存在方法局部变量中，并在方法退出时传回 {@link #onMethodEnd(int, long)}，
+     * 因此不需要 ThreadLocal，嵌套调用之间也不会互相覆盖。
+     *
+     * @param methodId 方法 ID（由 {@link MethodRegistry} 在增强时分配）
+     * @return 开始时间（纳秒），未命中采样时返回 {@link #NOT_SAMPLED}
      */
-    public static void onMethodStart(String methodSignature) {
-        // 采样率判断：使用 ThreadLocalRandom 避免锁竞争
-        if (ThreadLocalRandom.current().nextDouble() > sampleRate) {
-            return;
+    public static long onMethodStart(int methodId) {
+        // 采样判断：倒计数未到 0 时直接返回，不生成随机数
+        if (!SAMPLER.shouldSample(methodId)) {
+            return NOT_SAMPLED;
         }
 
-        try {
-            METHOD_START_TIME.set(TimeUtil.currentTimeNs());
-            TOTAL_SAMPLES.incrementAndGet();
-        } catch (Exception e) {
-            // 避免采样逻辑影响业务代码
-            LOGGER.debug("Error in onMethodStart", e);
-        }
+        TOTAL_SAMPLES.increment();
+        long startTime = TimeUtil.currentTimeNs();
+        // nanoTime 恰好为 0 时避免与未采样标记冲突
+        return startTime == NOT_SAMPLED ? 1L : startTime;
     }
 
     /**
-     * 方法结束时的回调
+     * 方法结束时的回调（正常返回和异常退出都会调用）
      *
-     * @param methodSignature 方法签名
+     * @param methodId 方法 ID（由 {@link MethodRegistry} 在增强时分配）
+     * @param startTime {@link #onMethodStart(int)} 返回的开始时间
      */
-    public static void onMethodEnd(String methodSignature) {
-        Long startTime = METHOD_START_TIME.get();
-        if (startTime == null) {
+    public static void onMethodEnd(int methodId, long startTime) {
+        if (startTime == NOT_SAMPLED) {
             return;
         }
 
         try {
             long endTime = TimeUtil.currentTimeNs();
-            long rtNs = endTime - startTime;
-            long rtMs = TimeUtil.nanosToMillis(rtNs);
 
-            // 记录 RT 数据到聚合器
-            RT_AGGREGATOR.recordRt(methodSignature, rtMs);
+            // 记录 RT 数据到聚合器（纳秒精度，避免亚毫秒调用被截断为 0）
+            ProbeEventPipeline pipeline = ProbeEventPipeline.active();
+            if (pipeline != null) {
+                pipeline.publishRt(methodId, endTime - startTime);
+            } else {
+                RT_AGGREGATOR.recordRtNs(methodId, endTime - startTime);
+            }
 
-            METHOD_START_TIME.remove();
+            // 统计采样调用自身的开销，供开销控制器使用
+            SAMPLED_PROBE_TIME_NS.add(TimeUtil.currentTimeNs() - endTime);
         } catch (Exception e) {
             // 避免采样逻辑影响业务代码
             LOGGER.debug("Error in onMethodEnd", e);
-            METHOD_START_TIME.remove();
         }
     }
 
+    /**
+     * 把 RT 写入聚合器（探针事件流水线的聚合线程调用）
+     *
+     * @param methodId 方法 ID
+     * @param rtNs RT（纳秒）
+     */
+    static void recordRtNs(int methodId, long rtNs) {
+        RT_AGGREGATOR.recordRtNs(methodId, rtNs);
+    }
+
+    /**
+     * 方法开始时的回调（兼容按签名埋点的旧 Transformer）
+     *
+     * @param methodSignature 方法签名
+     * @deprecated 使用 {@link #onMethodStart(int)}，开始时间由埋点保存在局部变量中
+     */
+    @Deprecated
+    public static void onMethodStart(String methodSignature) {
+        long startTime = onMethodStart(MethodRegistry.UNREGISTERED_ID);
+        if (startTime != NOT_SAMPLED) {
+            LEGACY_START_TIME.set(startTime);
+        }
+    }
+
+    /**
+     * 方法结束时的回调（兼容按签名埋点的旧 Transformer）
+     *
+     * @param methodSignature 方法签名
+     * @deprecated 使用 {@link #onMethodEnd(int, long)}
+     */
+    @Deprecated
+    public static void onMethodEnd(String methodSignature) {
+        Long startTime = LEGACY_START_TIME.get();
+        if (startTime == null) {
+            return;
+        }
+        LEGACY_START_TIME.remove();
+        onMethodEnd(MethodRegistry.getInstance().register(methodSignature), startTime);
+    }
+
     /**
      * 获取并清空 RT 事件列表
      *
      * @return RT 事件列表
      */
     public static java.util.List<com.alibaba.aletheia.common.model.RtEvent> getAndClearRtEvents() {
-        return RT_AGGREGATOR.getAndClearRtEvents();
+        return getAndClearRtEvents(TimeUtil.currentTimeMs());
+    }
+
+    /**
+     * 切换窗口，获取并清空上一窗口的 RT 事件列表
+     *
+     * @param windowEndMs 窗口结束时间（墙上时钟，毫秒）
+     * @return RT 事件列表
+     */
+    public static java.util.List<com.alibaba.aletheia.common.model.RtEvent> getAndClearRtEvents(long windowEndMs) {
+        java.util.List<com.alibaba.aletheia.common.model.RtEvent> events =
+                RT_AGGREGATOR.getAndClearRtEvents(windowEndMs);
+        addEstimatedCalls(events);
+        return events;
+    }
+
+    /**
+     * 切换窗口，把上一窗口的 RT 事件写入复用的缓冲（采集线程使用，稳态下不分配）
+     *
+     * @param windowEndMs 窗口结束时间（墙上时钟，毫秒）
+     * @param buffer 复用的事件缓冲
+     * @return 缓冲中的 RT 事件列表（下次刷新时被覆盖）
+     */
+    public static java.util.List<com.alibaba.aletheia.common.model.RtEvent> getAndClearRtEvents(long windowEndMs,
+                                                                                              RtEventBuffer buffer) {
+        java.util.List<com.alibaba.aletheia.common.model.RtEvent> events =
+                RT_AGGREGATOR.getAndClearRtEvents(windowEndMs, buffer);
+        addEstimatedCalls(events);
+        return events;
+    }
+
+    private static void addEstimatedCalls(java.util.List<com.alibaba.aletheia.common.model.RtEvent> events) {
+        long estimatedCalls = 0;
+        for (int i = 0; i < events.size(); i++) {
+            estimatedCalls += events.get(i).getEstimatedCount();
+        }
+        ESTIMATED_CALLS.addAndGet(estimatedCalls);
     }
 
     /**
@@ -100,14 +207,25 @@ public class RtSampler {
      * @param rate 采样率（0.0 - 1.0）
      */
     public static void setSampleRate(double rate) {
-        if (rate < AletheiaConstants.MIN_SAMPLE_RATE) {
-            rate = AletheiaConstants.MIN_SAMPLE_RATE;
-        }
-        if (rate > AletheiaConstants.MAX_SAMPLE_RATE) {
-            rate = AletheiaConstants.MAX_SAMPLE_RATE;
-        }
-        sampleRate = rate;
-        LOGGER.info("Sample rate updated to: {}", sampleRate);
+        SAMPLER.setGlobalRate(clampSampleRate(rate));
+        LOGGER.info("Sample rate updated to: {}", SAMPLER.getGlobalRate());
+    }
+
+    /**
+     * 设置每个方法每个窗口的目标采样数
+     *
+     * @param targetSamplesPerWindow 目标采样数（0 表示关闭按方法自适应，所有方法使用全局采样率）
+     */
+    public static void setTargetSamplesPerWindow(int targetSamplesPerWindow) {
+        SAMPLER.setTargetSamplesPerWindow(targetSamplesPerWindow);
+        LOGGER.info("RT target samples per window updated to: {}", targetSamplesPerWindow);
+    }
+
+    /**
+     * 获取每个方法每个窗口的目标采样数
+     */
+    public static int getTargetSamplesPerWindow() {
+        return SAMPLER.getTargetSamplesPerWindow();
     }
 
     /**
@@ -116,7 +234,43 @@ public class RtSampler {
      * @return 采样率
      */
     public static double getSampleRate() {
-        return sampleRate;
+        return SAMPLER.getGlobalRate();
+    }
+
+    /**
+     * 按配置创建滚动窗口并挂到 RT 聚合器上
+     */
+    private static RollingRtWindows createRollingWindows() {
+        RtConfig config = AgentConfig.getInstance().getRtConfig();
+        if (!config.isRollingWindowsEnabled()) {
+            return null;
+        }
+        RollingRtWindows windows = new RollingRtWindows(
+                RollingRtWindows.parseLevels(config.getRollingWindowLevels()), config.getRollingWindowMaxMethods());
+        RT_AGGREGATOR.setRollingWindows(windows);
+        return windows;
+    }
+
+    /**
+     * 获取多分辨率滚动 RT 窗口
+     *
+     * @return 滚动窗口，未启用时返回 null
+     */
+    public static RollingRtWindows getRollingWindows() {
+        return ROLLING_WINDOWS;
+    }
+
+    /**
+     * 将采样率限制在允许范围内
+     */
+    private static double clampSampleRate(double rate) {
+        if (rate < AletheiaConstants.MIN_SAMPLE_RATE) {
+            return AletheiaConstants.MIN_SAMPLE_RATE;
+        }
+        if (rate > AletheiaConstants.MAX_SAMPLE_RATE) {
+            return AletheiaConstants.MAX_SAMPLE_RATE;
+        }
+        return rate;
     }
 
     /**
@@ -125,6 +279,24 @@ public class RtSampler {
      * @return 总采样次数
      */
     public static long getTotalSamples() {
-        return TOTAL_SAMPLES.get();
+        return TOTAL_SAMPLES.sum();
+    }
+
+    /**
+     * 获取采样调用在埋点中累计消耗的时间
+     *
+     * @return 累计时间（纳秒）
+     */
+    public static long getSampledProbeTimeNs() {
+        return SAMPLED_PROBE_TIME_NS.sum();
+    }
+
+    /**
+     * 获取按采样率估算的累计调用次数（包含未采样的调用）
+     *
+     * @return 累计调用次数
+     */
+    public static long getEstimatedCalls() {
+        return ESTIMATED_CALLS.get();
     }
 }
@@ -0,0 +1,118 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 写者-读者相位器（HdrHistogram WriterReaderPhaser 的同一思路）
+ * 写者进入/退出临界区只有两次原子自增，从不等待；读者切换双缓冲后调用 {@link #flipPhase()}，
+ * 等待所有在切换前进入临界区的写者退出，之后即可独占读取并清空切换下来的缓冲
+ *
+ * <p>相位计数按线程 ID 分散到若干条带，每个条带独占一段缓存行，多核同时记录时不会争用同一个计数器。
+ * 每个写者的进入与退出落在同一条带上，读者逐条带切换并等待，各条带互不影响。
+ *
+ * <pre>
+ * long stamp = phaser.writerCriticalSectionEnter();
+ * try {
+ *     // 写入当前活动缓冲
+ * } finally {
+ *     phaser.writerCriticalSectionExit(stamp);
+ * }
+ * </pre>
+ *
+ * @author Aletheia Team
+ */
+final class WriterReaderPhaser {
+
+    /**
+     * 最多条带数
+     */
+    private static final int MAX_STRIPES = 64;
+
+    /**
+     * 每个条带占用的 long 数（128 字节，避开相邻缓存行预取造成的伪共享）
+     */
+    private static final int STRIPE_WIDTH = 16;
+
+    private static final int START_EPOCH = 0;
+    private static final int EVEN_END_EPOCH = 1;
+    private static final int ODD_END_EPOCH = 2;
+
+    private final int stripeMask;
+    private final AtomicLongArray epochs;
+
+    private final ReentrantLock readerLock = new ReentrantLock();
+
+    WriterReaderPhaser() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism 预期的并发写者数量，决定条带数（向上取 2 的幂，最多 {@link #MAX_STRIPES}）
+     */
+    WriterReaderPhaser(int parallelism) {
+        int stripes = Math.min(MAX_STRIPES, Integer.highestOneBit(Math.max(1, parallelism - 1)) << 1);
+        this.stripeMask = stripes - 1;
+        this.epochs = new AtomicLongArray(stripes * STRIPE_WIDTH);
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            epochs.set(stripe * STRIPE_WIDTH + ODD_END_EPOCH, Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * 写者进入临界区
+     *
+     * @return 退出时需要传回的标记
+     */
+    long writerCriticalSectionEnter() {
+        int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        long epoch = epochs.getAndIncrement(stripe * STRIPE_WIDTH + START_EPOCH);
+        // 符号位记录相位（奇相位的计数从 Long.MIN_VALUE 开始），低位记录条带编号
+        return (epoch & Long.MIN_VALUE) | stripe;
+    }
+
+    /**
+     * 写者退出临界区
+     *
+     * @param stamp {@link #writerCriticalSectionEnter()} 的返回值
+     */
+    void writerCriticalSectionExit(long stamp) {
+        int base = (int) (stamp & (MAX_STRIPES - 1)) * STRIPE_WIDTH;
+        epochs.getAndIncrement(base + (stamp < 0 ? ODD_END_EPOCH : EVEN_END_EPOCH));
+    }
+
+    /**
+     * 获取读者锁（同一时刻只有一个读者切换相位）
+     */
+    void readerLock() {
+        readerLock.lock();
+    }
+
+    /**
+     * 释放读者锁
+     */
+    void readerUnlock() {
+        readerLock.unlock();
+    }
+
+    /**
+     * 切换相位，并等待切换前进入临界区的写者全部退出（需持有读者锁）
+     */
+    void flipPhase() {
+        if (!readerLock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("flipPhase() requires the reader lock");
+        }
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            int base = stripe * STRIPE_WIDTH;
+            boolean nextPhaseIsEven = epochs.get(base + START_EPOCH) < 0;
+            long initialStartValue = nextPhaseIsEven ? 0 : Long.MIN_VALUE;
+            epochs.set(base + (nextPhaseIsEven ? EVEN_END_EPOCH : ODD_END_EPOCH), initialStartValue);
+
+            long startValueAtFlip = epochs.getAndSet(base + START_EPOCH, initialStartValue);
+            int previousEndEpoch = base + (nextPhaseIsEven ? ODD_END_EPOCH : EVEN_END_EPOCH);
+            while (epochs.get(previousEndEpoch) != startValueAtFlip) {
+                Thread.yield();
+            }
+        }
+    }
+}
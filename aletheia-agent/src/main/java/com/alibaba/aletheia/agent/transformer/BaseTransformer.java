@@ -1,16 +1,23 @@
 package com.alibaba.aletheia.agent.transformer;
 
 import com.alibaba.aletheia.agent.config.AgentConfig;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.IllegalClassFormatException;
 import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 基础 Transformer
  * 提供统一的 transform 接口和异常处理
+ * 设置了 {@link TransformCache} 且子类提供增强配置指纹时，相同的原始字节码直接返回缓存的增强结果
+ * 子类通过 {@link #createVisitor} 提供 ASM 访问器，{@link CompositeTransformer} 可以把多个子类串联到同一次解析上
  *
  * @author Aletheia Team
  */
@@ -20,6 +27,13 @@ public abstract class BaseTransformer implements ClassFileTransformer {
     protected final ClassFilter classFilter;
     protected final AgentConfig config;
 
+    /**
+     * 当前线程正在执行的增强需要随结果缓存的元数据
+     */
+    private static final ThreadLocal<List<String>> CACHE_METADATA = new ThreadLocal<>();
+
+    private volatile TransformCache transformCache;
+
     public BaseTransformer(AgentConfig config) {
         this.config = config;
         this.classFilter = new ClassFilter(config);
@@ -29,19 +43,41 @@ public abstract class BaseTransformer implements ClassFileTransformer {
     public final byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
                                  ProtectionDomain protectionDomain, byte[] classfileBuffer)
             throws IllegalClassFormatException {
+        byte[] transformed = transformClass(loader, className, classfileBuffer);
+        afterTransform(className, classBeingRedefined, transformed);
+        return transformed;
+    }
+
+    /**
+     * 增强完成后的回调（默认不处理）
+     *
+     * @param className           类名（内部格式，可能为 null）
+     * @param classBeingRedefined 重新转换时为被转换的类，首次加载时为 null
+     * @param transformed         增强结果，为 null 时类保持原始字节码
+     */
+    protected void afterTransform(String className, Class<?> classBeingRedefined, byte[] transformed) {
+    }
+
+    private byte[] transformClass(ClassLoader loader, String className, byte[] classfileBuffer) {
         try {
-            // 快速过滤：检查是否应该增强
-            if (!classFilter.shouldTransform(className, classfileBuffer)) {
+            // 检查功能是否启用
+            if (!isFeatureEnabled()) {
                 return null;
             }
 
-            // 检查功能是否启用
-            if (!isFeatureEnabled()) {
+            // 过滤并解析类（解析结果供增强复用）
+            ClassReader classReader = classFilter.parseIfTransformable(className, classfileBuffer);
+            if (classReader == null) {
                 return null;
             }
 
             // 执行实际的转换逻辑
-            return doTransform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+            TransformCache cache = transformCache;
+            String fingerprint = cache != null ? cacheFingerprint() : null;
+            if (fingerprint == null) {
+                return doTransform(loader, classReader, className);
+            }
+            return transformWithCache(cache, fingerprint, loader, classReader, className, classfileBuffer);
 
         } catch (Throwable e) {
             // 捕获所有异常，避免影响类加载
@@ -50,13 +86,99 @@ public abstract class BaseTransformer implements ClassFileTransformer {
         }
     }
 
+    private byte[] transformWithCache(TransformCache cache, String fingerprint, ClassLoader loader,
+                                      ClassReader classReader, String className, byte[] classfileBuffer) {
+        byte[] key = TransformCache.key(getClass().getName(), fingerprint, classfileBuffer);
+        TransformCache.Entry entry = cache.get(key);
+        if (entry != null && acceptCached(entry.getMetadata())) {
+            cache.recordHit();
+            return entry.getData();
+        }
+
+        List<String> metadata = new ArrayList<>();
+        CACHE_METADATA.set(metadata);
+        long start = System.nanoTime();
+        byte[] transformed;
+        try {
+            transformed = doTransform(loader, classReader, className);
+        } finally {
+            CACHE_METADATA.remove();
+        }
+        cache.recordMiss(System.nanoTime() - start, entry != null);
+        if (transformed != null) {
+            cache.put(key, transformed, metadata);
+        }
+        return transformed;
+    }
+
+    /**
+     * 设置增强结果缓存（null 表示不使用缓存）
+     */
+    public void setTransformCache(TransformCache transformCache) {
+        this.transformCache = transformCache;
+    }
+
+    /**
+     * 增强配置指纹，影响增强结果的配置都应包含在内
+     * 返回 null 表示该 Transformer 的结果不可缓存
+     */
+    protected String cacheFingerprint() {
+        return null;
+    }
+
+    /**
+     * 校验缓存记录的元数据在当前 JVM 中是否仍然有效
+     */
+    protected boolean acceptCached(List<String> metadata) {
+        return true;
+    }
+
+    /**
+     * 在增强过程中记录需要随结果缓存的元数据（未启用缓存时忽略）
+     */
+    protected static void addCacheMetadata(String value) {
+        List<String> metadata = CACHE_METADATA.get();
+        if (metadata != null) {
+            metadata.add(value);
+        }
+    }
+
     /**
      * 执行实际的转换逻辑
+     */
+    protected byte[] doTransform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                                 ProtectionDomain protectionDomain, byte[] classfileBuffer)
+            throws IllegalClassFormatException {
+        return doTransform(loader, new ClassReader(classfileBuffer), className);
+    }
+
+    /**
+     * 在已解析的类上执行转换：由 {@link #createVisitor} 构造访问器，输出到一个计算栈帧的 ClassWriter
+     * 栈帧计算通过 {@link HierarchyClassWriter} 从类文件解析继承关系，不在增强过程中加载类
+     *
+     * @param loader 定义该类的 ClassLoader（null 表示启动类加载器）
+     * @return 增强后的字节码，无需增强时返回 null
+     */
+    protected byte[] doTransform(ClassLoader loader, ClassReader classReader, String className) {
+        ClassWriter classWriter = new HierarchyClassWriter(classReader, ClassWriter.COMPUTE_FRAMES, loader);
+        ClassVisitor visitor = createVisitor(classWriter, classReader, className);
+        if (visitor == null) {
+            return null;
+        }
+        classReader.accept(visitor, ClassReader.EXPAND_FRAMES);
+        return classWriter.toByteArray();
+    }
+
+    /**
+     * 创建增强访问器，事件处理后交给 next
      * 子类实现此方法
+     *
+     * @param next        下游访问器
+     * @param classReader 已解析的原始类（可用于预分析）
+     * @param className   类名（内部格式）
+     * @return 增强访问器，该类无需增强时返回 null
      */
-    protected abstract byte[] doTransform(ClassLoader loader, String className, Class<?> classBeingRedefined,
-                                          ProtectionDomain protectionDomain, byte[] classfileBuffer)
-            throws IllegalClassFormatException;
+    protected abstract ClassVisitor createVisitor(ClassVisitor next, ClassReader classReader, String className);
 
     /**
      * 检查功能是否启用
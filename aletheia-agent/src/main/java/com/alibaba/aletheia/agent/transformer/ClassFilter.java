@@ -1,16 +1,18 @@
 package com.alibaba.aletheia.agent.transformer;
 
 import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.agent.weaver.WovenMarker;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Opcodes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Set;
-
 /**
  * 类过滤器
  * 实现白名单/黑名单过滤策略
+ * 模式由 {@link ScopeMatchers} 预先编译为 {@link ClassNameMatcher}，过滤时只扫描一遍类名
+ * 已由 {@link com.alibaba.aletheia.agent.weaver.OfflineWeaver} 离线织入的类直接跳过
+ * 配置了方法级切点时，只保留可能含有命中方法的类（{@link PointcutMatcher#matchesClass}）
  *
  * @author Aletheia Team
  */
@@ -19,9 +21,11 @@ public class ClassFilter {
     private static final Logger LOGGER = LoggerFactory.getLogger(ClassFilter.class);
 
     private final AgentConfig config;
+    private final ScopeMatchers matchers;
 
     public ClassFilter(AgentConfig config) {
         this.config = config;
+        this.matchers = new ScopeMatchers(config);
     }
 
     /**
@@ -32,90 +36,117 @@ public class ClassFilter {
      * @return true 如果应该增强
      */
     public boolean shouldTransform(String className, byte[] classfileBuffer) {
+        return parseIfTransformable(className, classfileBuffer) != null;
+    }
+
+    /**
+     * 过滤并解析类，解析结果可直接用于增强，避免重复解析
+     *
+     * @param className 类名（内部格式，如 com/example/Test）
+     * @param classfileBuffer 类文件字节码
+     * @return 解析后的 ClassReader，不应增强时返回 null
+     */
+    public ClassReader parseIfTransformable(String className, byte[] classfileBuffer) {
         if (className == null || classfileBuffer == null) {
-            return false;
+            return null;
         }
 
         // 检查类大小
         if (classfileBuffer.length > config.getMaxClassSize()) {
             LOGGER.debug("Class {} too large ({} bytes), skipping", className, classfileBuffer.length);
-            return false;
-        }
-
-        // 检查排除模式（黑名单）
-        for (String excludePattern : config.getExcludePatterns()) {
-            if (className.startsWith(excludePattern)) {
-                return false;
-            }
+            return null;
         }
 
-        // 如果有包含模式（白名单），则只增强匹配的类
-        Set<String> includePatterns = config.getIncludePatterns();
-        if (!includePatterns.isEmpty()) {
-            boolean matched = false;
-            for (String includePattern : includePatterns) {
-                if (className.startsWith(includePattern)) {
-                    matched = true;
-                    break;
-                }
-            }
-            if (!matched) {
-                return false;
-            }
+        // 检查包含/排除模式
+        if (!matchesPatterns(className)) {
+            return null;
         }
 
         // 检查类类型（不增强接口、抽象类、枚举、注解、Lambda等）
-        if (!isTransformableClass(className, classfileBuffer)) {
+        return parseTransformableClass(className, classfileBuffer);
+    }
+
+    /**
+     * 仅按类名判断是否在增强范围内（不在黑名单中，且白名单为空或匹配白名单）
+     *
+     * @param className 类名（内部格式）
+     */
+    public boolean matchesPatterns(String className) {
+        if (isExcluded(className)) {
             return false;
         }
 
-        return true;
+        // 如果有包含模式（白名单），则只增强匹配的类
+        ClassNameMatcher includeMatcher = matchers.getIncludeMatcher();
+        return includeMatcher.isEmpty() || includeMatcher.matches(className);
     }
 
     /**
-     * 检查类是否可增强
+     * 判断类名是否命中排除模式（黑名单）
+     *
+     * @param className 类名（内部格式）
      */
-    private boolean isTransformableClass(String className, byte[] classfileBuffer) {
+    public boolean isExcluded(String className) {
+        return matchers.getExcludeMatcher().matches(className);
+    }
+
+    /**
+     * 检查类是否可增强，可增强时返回解析结果
+     */
+    private ClassReader parseTransformableClass(String className, byte[] classfileBuffer) {
         // Lambda 表达式生成的类
         if (className.contains("$$Lambda$")) {
-            return false;
+            return null;
         }
 
-        // 内部类（可选，可以根据配置决定）
-        if (className.contains("$") && !config.getIncludePatterns().isEmpty()) {
-            // 如果有白名单，内部类也需要匹配
-            return true;
+        ClassReader cr;
+        try {
+            cr = new ClassReader(classfileBuffer);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to parse class: {}", className, e);
+            return null;
         }
 
-        try {
-            ClassReader cr = new ClassReader(classfileBuffer);
-            int access = cr.getAccess();
+        // 构建时已离线织入的类
+        if (WovenMarker.isWoven(cr, classfileBuffer)) {
+            WovenMarker.recordSkipped();
+            return null;
+        }
 
-            // 接口
-            if ((access & Opcodes.ACC_INTERFACE) != 0) {
-                return false;
-            }
+        // 方法级切点：类名和父类/接口都不可能命中的类不增强
+        PointcutMatcher pointcuts = matchers.getPointcutMatcher();
+        if (!pointcuts.isEmpty() && !pointcuts.matchesClass(className, cr.getSuperName(), cr.getInterfaces())) {
+            return null;
+        }
 
-            // 注解
-            if ((access & Opcodes.ACC_ANNOTATION) != 0) {
-                return false;
-            }
+        // 内部类（可选，可以根据配置决定）
+        if (className.contains("$") && !matchers.getIncludeMatcher().isEmpty()) {
+            // 如果有白名单，内部类也需要匹配
+            return cr;
+        }
 
-            // 枚举
-            if ((access & Opcodes.ACC_ENUM) != 0) {
-                return false;
-            }
+        int access = cr.getAccess();
 
-            // 抽象类（可选，可以根据配置决定）
-            // if ((access & Opcodes.ACC_ABSTRACT) != 0) {
-            //     return false;
-            // }
+        // 接口
+        if ((access & Opcodes.ACC_INTERFACE) != 0) {
+            return null;
+        }
 
-        } catch (Exception e) {
-            LOGGER.warn("Failed to parse class: {}", className, e);
-            return false;
+        // 注解
+        if ((access & Opcodes.ACC_ANNOTATION) != 0) {
+            return null;
         }
 
-        return true;
+        // 枚举
+        if ((access & Opcodes.ACC_ENUM) != 0) {
+            return null;
+        }
+
+        // 抽象类（可选，可以根据配置决定）
+        // if ((access & Opcodes.ACC_ABSTRACT) != 0) {
+        //     return null;
+        // }
+
+        return cr;
     }
 }
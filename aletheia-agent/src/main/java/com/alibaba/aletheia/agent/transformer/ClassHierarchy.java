@@ -0,0 +1,216 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 类继承关系解析器
+ * 通过 ClassLoader 的资源读取类文件并只解析类头（父类、访问标志），不触发类加载，
+ * 供 {@link HierarchyClassWriter} 计算栈帧时求公共父类
+ *
+ * <p>每个 ClassLoader 一个按访问顺序淘汰的有界缓存，ClassLoader 以弱引用作为键，卸载后缓存随之回收。
+ *
+ * @author Aletheia Team
+ */
+public class ClassHierarchy {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassHierarchy.class);
+
+    private static final ClassHierarchy INSTANCE = new ClassHierarchy();
+
+    /**
+     * 每个 ClassLoader 最多缓存的类数
+     */
+    private static final int MAX_ENTRIES_PER_LOADER = 4096;
+
+    /**
+     * 继承链最大深度（防止损坏的类文件造成死循环）
+     */
+    private static final int MAX_DEPTH = 256;
+
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    private static final String OBJECT = "java/lang/Object";
+
+    private final Map<ClassLoader, Map<String, ClassInfo>> caches = new WeakHashMap<>();
+    private final Map<String, ClassInfo> bootstrapCache = newCache();
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong unresolved = new AtomicLong(0);
+
+    ClassHierarchy() {
+    }
+
+    public static ClassHierarchy getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 求两个类的公共父类
+     *
+     * @param loader 定义类所用的 ClassLoader（null 表示启动类加载器）
+     * @return 公共父类（内部格式），任一类无法解析时返回 null
+     */
+    public String getCommonSuperClass(ClassLoader loader, String type1, String type2) {
+        if (type1.equals(type2)) {
+            return type1;
+        }
+        List<String> chain1 = superChain(loader, type1);
+        List<String> chain2 = superChain(loader, type2);
+        if (chain1 == null || chain2 == null) {
+            unresolved.incrementAndGet();
+            return null;
+        }
+        // 验证器把接口类型视为 Object，与 ClassWriter 默认实现一致
+        if (isInterface(loader, type1) || isInterface(loader, type2)) {
+            return OBJECT;
+        }
+        Set<String> supers2 = new HashSet<>(chain2);
+        for (String type : chain1) {
+            if (supers2.contains(type)) {
+                return type;
+            }
+        }
+        return OBJECT;
+    }
+
+    /**
+     * 登记正在增强的类（其字节码可能无法通过资源读取，如运行时生成的类）
+     */
+    public void register(ClassLoader loader, String className, String superName, int access) {
+        Map<String, ClassInfo> cache = cacheFor(loader);
+        synchronized (cache) {
+            cache.put(className, new ClassInfo(superName, (access & Opcodes.ACC_INTERFACE) != 0));
+        }
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public Map<String, Object> getStats() {
+        int loaders;
+        synchronized (caches) {
+            loaders = caches.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("unresolved", unresolved.get());
+        stats.put("loaders", loaders);
+        return stats;
+    }
+
+    /**
+     * 从类本身到 java/lang/Object 的父类链，无法解析时返回 null
+     */
+    private List<String> superChain(ClassLoader loader, String type) {
+        List<String> chain = new ArrayList<>();
+        String current = type;
+        while (current != null && chain.size() < MAX_DEPTH) {
+            chain.add(current);
+            ClassInfo info = lookup(loader, current);
+            if (info == null) {
+                return null;
+            }
+            current = info.superName;
+        }
+        return chain;
+    }
+
+    private boolean isInterface(ClassLoader loader, String type) {
+        ClassInfo info = lookup(loader, type);
+        return info != null && info.isInterface;
+    }
+
+    private ClassInfo lookup(ClassLoader loader, String type) {
+        Map<String, ClassInfo> cache = cacheFor(loader);
+        synchronized (cache) {
+            ClassInfo info = cache.get(type);
+            if (info != null) {
+                hits.incrementAndGet();
+                return info;
+            }
+        }
+        misses.incrementAndGet();
+        ClassInfo info = read(loader, type);
+        if (info != null) {
+            synchronized (cache) {
+                cache.put(type, info);
+            }
+        }
+        return info;
+    }
+
+    private ClassInfo read(ClassLoader loader, String type) {
+        String resource = type + ".class";
+        try (InputStream in = loader != null
+                ? loader.getResourceAsStream(resource)
+                : ClassLoader.getSystemResourceAsStream(resource)) {
+            if (in == null) {
+                return null;
+            }
+            ClassReader reader = new ClassReader(readFully(in));
+            return new ClassInfo(reader.getSuperName(), (reader.getAccess() & Opcodes.ACC_INTERFACE) != 0);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Failed to read class header: {}", type, e);
+            return null;
+        }
+    }
+
+    private Map<String, ClassInfo> cacheFor(ClassLoader loader) {
+        if (loader == null) {
+            return bootstrapCache;
+        }
+        synchronized (caches) {
+            return caches.computeIfAbsent(loader, key -> newCache());
+        }
+    }
+
+    private static Map<String, ClassInfo> newCache() {
+        return new LinkedHashMap<String, ClassInfo>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ClassInfo> eldest) {
+                return size() > MAX_ENTRIES_PER_LOADER;
+            }
+        };
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 类头信息
+     */
+    private static final class ClassInfo {
+
+        private final String superName;
+        private final boolean isInterface;
+
+        ClassInfo(String superName, boolean isInterface) {
+            this.superName = superName;
+            this.isInterface = isInterface;
+        }
+    }
+}
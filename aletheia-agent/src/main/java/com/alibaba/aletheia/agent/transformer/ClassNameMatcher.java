@@ -0,0 +1,328 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 类名模式匹配器
+ * 把一组包含/排除模式编译成不可变的确定有限自动机（字面量前缀即退化为前缀树），
+ * 匹配时只对类名做一次逐字符扫描，不分配对象
+ *
+ * <p>模式为内部格式的类名前缀（如 com/example/），支持通配符：
+ * {@code ?} 匹配一个非 '/' 字符，{@code *} 匹配任意个非 '/' 字符，{@code **} 匹配任意字符（包括 '/'，{@code **}/ 也可匹配零层包）。
+ * 任一模式匹配类名的某个前缀即视为命中，与原来的 startsWith 语义一致。
+ *
+ * @author Aletheia Team
+ */
+public final class ClassNameMatcher {
+
+    /**
+     * 不含任何模式的匹配器
+     */
+    public static final ClassNameMatcher EMPTY = compile(new ArrayList<String>());
+
+    private static final int DEAD = -1;
+    private static final int STAR = -1;
+    private static final int DOUBLE_STAR = -2;
+    private static final int QUESTION = -3;
+    private static final char SEPARATOR = '/';
+
+    /**
+     * 每个状态显式列出的字符（升序，总包含 '/'）
+     */
+    private final char[][] keys;
+
+    /**
+     * 每个状态显式字符对应的下一状态
+     */
+    private final int[][] targets;
+
+    /**
+     * 每个状态遇到其他非 '/' 字符时的下一状态
+     */
+    private final int[] otherTargets;
+
+    private final boolean[] accepting;
+    private final boolean empty;
+
+    private ClassNameMatcher(char[][] keys, int[][] targets, int[] otherTargets, boolean[] accepting,
+                             boolean empty) {
+        this.keys = keys;
+        this.targets = targets;
+        this.otherTargets = otherTargets;
+        this.accepting = accepting;
+        this.empty = empty;
+    }
+
+    /**
+     * 判断类名是否命中任一模式
+     *
+     * @param className 类名（内部格式）
+     */
+    public boolean matches(String className) {
+        if (empty) {
+            return false;
+        }
+        int state = 0;
+        if (accepting[state]) {
+            return true;
+        }
+        for (int i = 0, n = className.length(); i < n; i++) {
+            state = next(state, className.charAt(i));
+            if (state == DEAD) {
+                return false;
+            }
+            if (accepting[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 判断整个字符串是否完整匹配任一模式（不按前缀命中，用于切点中的类名、方法名等）
+     *
+     * @param value 待匹配的字符串
+     */
+    public boolean matchesFully(String value) {
+        if (empty) {
+            return false;
+        }
+        int state = 0;
+        for (int i = 0, n = value.length(); i < n; i++) {
+            state = next(state, value.charAt(i));
+            if (state == DEAD) {
+                return false;
+            }
+        }
+        return accepting[state];
+    }
+
+    /**
+     * 是否不含任何模式
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * 状态数（用于统计）
+     */
+    public int stateCount() {
+        return accepting.length;
+    }
+
+    private int next(int state, char c) {
+        int index = Arrays.binarySearch(keys[state], c);
+        if (index >= 0) {
+            return targets[state][index];
+        }
+        return otherTargets[state];
+    }
+
+    /**
+     * 编译模式集合
+     *
+     * @param patterns 模式（内部格式）
+     * @return 匹配器
+     */
+    public static ClassNameMatcher compile(Collection<String> patterns) {
+        List<int[]> tokens = new ArrayList<>(patterns.size());
+        for (String pattern : patterns) {
+            tokens.add(tokenize(pattern));
+        }
+        return new Builder(tokens).build(patterns.isEmpty());
+    }
+
+    private static int[] tokenize(String pattern) {
+        int[] tokens = new int[pattern.length()];
+        int count = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*') {
+                if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '*') {
+                    tokens[count++] = DOUBLE_STAR;
+                    i++;
+                } else {
+                    tokens[count++] = STAR;
+                }
+            } else if (c == '?') {
+                tokens[count++] = QUESTION;
+            } else {
+                tokens[count++] = c;
+            }
+        }
+        return Arrays.copyOf(tokens, count);
+    }
+
+    /**
+     * 子集构造：每个 DFA 状态对应一组 (模式, 位置)
+     */
+    private static final class Builder {
+
+        private final List<int[]> patterns;
+        private final Map<String, Integer> stateIds = new HashMap<>();
+        private final List<long[]> stateSets = new ArrayList<>();
+
+        Builder(List<int[]> patterns) {
+            this.patterns = patterns;
+        }
+
+        ClassNameMatcher build(boolean empty) {
+            TreeSet<Long> start = new TreeSet<>();
+            for (int p = 0; p < patterns.size(); p++) {
+                addWithClosure(start, p, 0, true);
+            }
+            Deque<Integer> pending = new ArrayDeque<>();
+            pending.add(stateId(start));
+
+            List<char[]> keyList = new ArrayList<>();
+            List<int[]> targetList = new ArrayList<>();
+            List<Integer> otherList = new ArrayList<>();
+            List<Boolean> acceptList = new ArrayList<>();
+
+            while (!pending.isEmpty()) {
+                int id = pending.poll();
+                long[] positions = stateSets.get(id);
+
+                // 显式字符：该状态下所有字面量字符，加上 '/'
+                TreeMap<Character, Integer> transitions = new TreeMap<>();
+                TreeSet<Character> chars = new TreeSet<>();
+                chars.add(SEPARATOR);
+                boolean accept = false;
+                for (long position : positions) {
+                    int[] tokens = patterns.get((int) (position >>> 32));
+                    int pos = (int) position;
+                    if (pos == tokens.length) {
+                        accept = true;
+                    } else if (tokens[pos] >= 0) {
+                        chars.add((char) tokens[pos]);
+                    }
+                }
+                for (char c : chars) {
+                    transitions.put(c, transition(positions, c, false, pending));
+                }
+                int other = transition(positions, (char) 0, true, pending);
+
+                char[] keys = new char[transitions.size()];
+                int[] targets = new int[transitions.size()];
+                int i = 0;
+                for (Map.Entry<Character, Integer> entry : transitions.entrySet()) {
+                    keys[i] = entry.getKey();
+                    targets[i] = entry.getValue();
+                    i++;
+                }
+                ensureSize(keyList, id);
+                ensureSize(targetList, id);
+                ensureSize(otherList, id);
+                ensureSize(acceptList, id);
+                keyList.set(id, keys);
+                targetList.set(id, targets);
+                otherList.set(id, other);
+                acceptList.set(id, accept);
+            }
+
+            int n = stateSets.size();
+            char[][] keys = keyList.toArray(new char[n][]);
+            int[][] targets = targetList.toArray(new int[n][]);
+            int[] others = new int[n];
+            boolean[] accepting = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                others[i] = otherList.get(i);
+                accepting[i] = acceptList.get(i);
+            }
+            return new ClassNameMatcher(keys, targets, others, accepting, empty);
+        }
+
+        /**
+         * 计算读入一个字符后的状态；other 为 true 时表示任一未显式列出的非 '/' 字符
+         */
+        private int transition(long[] positions, char c, boolean other, Deque<Integer> pending) {
+            TreeSet<Long> next = new TreeSet<>();
+            boolean separator = !other && c == SEPARATOR;
+            for (long position : positions) {
+                int p = (int) (position >>> 32);
+                int pos = (int) position;
+                int[] tokens = patterns.get(p);
+                if (pos == tokens.length) {
+                    continue;
+                }
+                int token = tokens[pos];
+                if (token == DOUBLE_STAR) {
+                    addWithClosure(next, p, pos, false);
+                } else if (token == STAR) {
+                    if (!separator) {
+                        addWithClosure(next, p, pos, false);
+                    }
+                } else if (token == QUESTION) {
+                    if (!separator) {
+                        addWithClosure(next, p, pos + 1, true);
+                    }
+                } else if (!other && token == c) {
+                    addWithClosure(next, p, pos + 1, true);
+                }
+            }
+            if (next.isEmpty()) {
+                return DEAD;
+            }
+            String key = next.toString();
+            Integer id = stateIds.get(key);
+            if (id == null) {
+                id = stateId(next);
+                pending.add(id);
+            }
+            return id;
+        }
+
+        private int stateId(TreeSet<Long> positions) {
+            String key = positions.toString();
+            Integer id = stateIds.get(key);
+            if (id != null) {
+                return id;
+            }
+            long[] set = new long[positions.size()];
+            int i = 0;
+            for (long position : positions) {
+                set[i++] = position;
+            }
+            int newId = stateSets.size();
+            stateSets.add(set);
+            stateIds.put(key, newId);
+            return newId;
+        }
+
+        /**
+         * 加入位置及其 epsilon 闭包（通配符可以匹配零个字符）
+         *
+         * @param entering 是否刚进入该位置；只有刚进入的 "**&#47;" 才能整体匹配零层包，
+         *                 ** 已经吃掉字符后的自环不能再跳过后面的 '/'
+         */
+        private void addWithClosure(TreeSet<Long> set, int pattern, int pos, boolean entering) {
+            int[] tokens = patterns.get(pattern);
+            boolean added = set.add(((long) pattern << 32) | pos);
+            if (pos == tokens.length) {
+                return;
+            }
+            if (entering && tokens[pos] == DOUBLE_STAR && pos + 1 < tokens.length && tokens[pos + 1] == SEPARATOR) {
+                addWithClosure(set, pattern, pos + 2, true);
+            }
+            if (added && (tokens[pos] == STAR || tokens[pos] == DOUBLE_STAR)) {
+                addWithClosure(set, pattern, pos + 1, true);
+            }
+        }
+
+        private static <T> void ensureSize(List<T> list, int index) {
+            while (list.size() <= index) {
+                list.add(null);
+            }
+        }
+    }
+}
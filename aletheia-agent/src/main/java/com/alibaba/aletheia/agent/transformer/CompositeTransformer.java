@@ -0,0 +1,131 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 组合 Transformer
+ * 作为唯一注册到 Instrumentation 的 ClassFileTransformer，每个类只过滤、解析一次，
+ * 把所有已启用成员的访问器串成一条 ASM 流水线，只经过一个 ClassWriter 输出
+ *
+ * <p>先注册的成员位于流水线上游，看到的是原始字节码，与分别注册时的增强顺序一致。
+ * 增强结果缓存以组合为单位，指纹由已启用成员的指纹拼接而成。
+ * 组合 Transformer 记录修改过的类，卸载时只需重新转换这些类即可恢复原始字节码。
+ *
+ * @author Aletheia Team
+ */
+public class CompositeTransformer extends BaseTransformer {
+
+    private final List<BaseTransformer> members = new CopyOnWriteArrayList<>();
+
+    /**
+     * 修改过字节码的类（内部格式）
+     */
+    private final Set<String> modifiedClasses = ConcurrentHashMap.newKeySet();
+
+    public CompositeTransformer(AgentConfig config) {
+        super(config);
+    }
+
+    /**
+     * 添加成员（追加到流水线末端）
+     */
+    public void addTransformer(BaseTransformer transformer) {
+        members.add(transformer);
+    }
+
+    /**
+     * 移除成员
+     */
+    public void removeTransformer(BaseTransformer transformer) {
+        members.remove(transformer);
+    }
+
+    /**
+     * 成员数量
+     */
+    public int size() {
+        return members.size();
+    }
+
+    /**
+     * 获取修改过字节码的类（内部格式）
+     */
+    public Set<String> getModifiedClasses() {
+        return Collections.unmodifiableSet(modifiedClasses);
+    }
+
+    @Override
+    protected void afterTransform(String className, Class<?> classBeingRedefined, byte[] transformed) {
+        // 只增不减：同名类可能由多个 ClassLoader 加载，多恢复一个未修改的类没有副作用
+        if (className != null && transformed != null) {
+            modifiedClasses.add(className);
+        }
+    }
+
+    @Override
+    protected boolean isFeatureEnabled() {
+        for (BaseTransformer member : members) {
+            if (member.isFeatureEnabled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected String cacheFingerprint() {
+        StringBuilder fingerprint = new StringBuilder();
+        for (BaseTransformer member : activeMembers()) {
+            String memberFingerprint = member.cacheFingerprint();
+            if (memberFingerprint == null) {
+                // 任一成员不可缓存则整体不可缓存
+                return null;
+            }
+            fingerprint.append(member.getClass().getName()).append('=').append(memberFingerprint).append(';');
+        }
+        return fingerprint.toString();
+    }
+
+    @Override
+    protected boolean acceptCached(List<String> metadata) {
+        for (BaseTransformer member : activeMembers()) {
+            if (!member.acceptCached(metadata)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected ClassVisitor createVisitor(ClassVisitor next, ClassReader classReader, String className) {
+        List<BaseTransformer> active = activeMembers();
+        // 从下游往上游构造，使先注册的成员最先处理事件
+        ClassVisitor visitor = next;
+        for (int i = active.size() - 1; i >= 0; i--) {
+            ClassVisitor memberVisitor = active.get(i).createVisitor(visitor, classReader, className);
+            if (memberVisitor != null) {
+                visitor = memberVisitor;
+            }
+        }
+        return visitor == next ? null : visitor;
+    }
+
+    private List<BaseTransformer> activeMembers() {
+        List<BaseTransformer> active = new ArrayList<>(members.size());
+        for (BaseTransformer member : members) {
+            if (member.isFeatureEnabled()) {
+                active.add(member);
+            }
+        }
+        return active;
+    }
+}
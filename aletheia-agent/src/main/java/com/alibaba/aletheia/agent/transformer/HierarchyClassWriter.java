@@ -0,0 +1,57 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 不触发类加载的 ClassWriter
+ * ClassWriter 默认的 getCommonSuperClass 通过 Class.forName 加载类，在 ClassFileTransformer 中可能引起递归加载、
+ * 死锁，并拖慢增强；这里改由 {@link ClassHierarchy} 从类文件字节码解析继承关系
+ *
+ * <p>继承关系无法从资源解析时（如父类由自定义 ClassLoader 动态生成）才退回默认实现，并计入统计。
+ *
+ * @author Aletheia Team
+ */
+public class HierarchyClassWriter extends ClassWriter {
+
+    private static final AtomicLong FALLBACKS = new AtomicLong(0);
+
+    private final ClassLoader loader;
+    private final ClassHierarchy hierarchy;
+
+    /**
+     * @param classReader 原始类（其父类和访问标志会预先登记，正在定义的类无需通过资源读取）
+     * @param flags       ClassWriter 标志
+     * @param loader      定义该类的 ClassLoader（null 表示启动类加载器）
+     */
+    public HierarchyClassWriter(ClassReader classReader, int flags, ClassLoader loader) {
+        super(classReader, flags);
+        this.loader = loader;
+        this.hierarchy = ClassHierarchy.getInstance();
+        hierarchy.register(loader, classReader.getClassName(), classReader.getSuperName(), classReader.getAccess());
+    }
+
+    @Override
+    protected String getCommonSuperClass(String type1, String type2) {
+        String common = hierarchy.getCommonSuperClass(loader, type1, type2);
+        if (common != null) {
+            return common;
+        }
+        FALLBACKS.incrementAndGet();
+        return super.getCommonSuperClass(type1, type2);
+    }
+
+    @Override
+    protected ClassLoader getClassLoader() {
+        return loader != null ? loader : super.getClassLoader();
+    }
+
+    /**
+     * 退回默认实现（加载类）的次数
+     */
+    public static long getFallbackCount() {
+        return FALLBACKS.get();
+    }
+}
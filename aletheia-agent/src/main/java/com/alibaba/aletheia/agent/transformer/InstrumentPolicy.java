@@ -0,0 +1,224 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.agent.config.InstrumentConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 方法埋点策略
+ * 根据 {@link MethodProfile} 决定是否对方法埋点：跳过配置的平凡形态（getter/setter/委托/空方法）、
+ * 字节码过小的方法，以及埋点后会越过 JIT 内联阈值的方法，避免改变被测应用的内联决策
+ *
+ * <p>内联阈值取自当前 JVM 的 MaxInlineSize / FreqInlineSize，无法读取时使用 HotSpot 默认值。
+ *
+ * <p>统计按决策计数而不是按方法去重：类每被增强一次（包括配置变化、按热点增强和去除埋点引起的重新转换），
+ * 其中每个方法都会再计一次，用于观察各原因的相对比例。
+ *
+ * @author Aletheia Team
+ */
+public class InstrumentPolicy {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(InstrumentPolicy.class);
+
+    /**
+     * HotSpot 默认 MaxInlineSize（非热点方法的内联上限）
+     */
+    static final int DEFAULT_MAX_INLINE_SIZE = 35;
+
+    /**
+     * HotSpot 默认 FreqInlineSize（热点方法的内联上限）
+     */
+    static final int DEFAULT_FREQ_INLINE_SIZE = 325;
+
+    /**
+     * 入口埋点字节数：压入方法 ID + invokedynamic + lstore
+     */
+    static final int ENTRY_PROBE_BYTES = 10;
+
+    /**
+     * 每个返回点的出口埋点字节数：lload + lconst_0 + lcmp + ifeq + 压入方法 ID + lload + invokedynamic
+     */
+    static final int EXIT_PROBE_BYTES = 17;
+
+    /**
+     * 异常处理器字节数：出口埋点 + athrow
+     */
+    static final int HANDLER_PROBE_BYTES = EXIT_PROBE_BYTES + 1;
+
+    /**
+     * 跳过原因
+     */
+    public enum Decision {
+        INSTRUMENT,
+        SKIP_SHAPE,
+        SKIP_SMALL,
+        SKIP_INLINE_CROSSING
+    }
+
+    private final AgentConfig config;
+    private final int maxInlineSize;
+    private final int freqInlineSize;
+
+    // 跳过的方法形态（按配置中的形态名集合解析，集合整体替换后重新解析）
+    private volatile SkippedShapes skippedShapes = new SkippedShapes(null, Collections.<MethodShape>emptySet());
+
+    private final AtomicLong instrumented = new AtomicLong(0);
+    private final AtomicLong skippedByShape = new AtomicLong(0);
+    private final AtomicLong skippedBySize = new AtomicLong(0);
+    private final AtomicLong skippedByInlineCrossing = new AtomicLong(0);
+
+    public InstrumentPolicy(AgentConfig config) {
+        this(config, readVmIntOption("MaxInlineSize", DEFAULT_MAX_INLINE_SIZE),
+                readVmIntOption("FreqInlineSize", DEFAULT_FREQ_INLINE_SIZE));
+    }
+
+    InstrumentPolicy(AgentConfig config, int maxInlineSize, int freqInlineSize) {
+        this.config = config;
+        this.maxInlineSize = maxInlineSize;
+        this.freqInlineSize = freqInlineSize;
+    }
+
+    /**
+     * 判断方法是否埋点，并计入决策统计
+     *
+     * @param profile 方法概况（无法分析时为 null，按需要埋点处理）
+     * @return 决策
+     */
+    public Decision decide(MethodProfile profile) {
+        Decision decision = evaluate(profile);
+        switch (decision) {
+            case SKIP_SHAPE:
+                skippedByShape.incrementAndGet();
+                break;
+            case SKIP_SMALL:
+                skippedBySize.incrementAndGet();
+                break;
+            case SKIP_INLINE_CROSSING:
+                skippedByInlineCrossing.incrementAndGet();
+                break;
+            default:
+                instrumented.incrementAndGet();
+        }
+        return decision;
+    }
+
+    private Decision evaluate(MethodProfile profile) {
+        if (profile == null) {
+            return Decision.INSTRUMENT;
+        }
+        InstrumentConfig instrumentConfig = config.getInstrumentConfig();
+        if (resolveSkippedShapes(instrumentConfig.getSkippedMethodShapes()).contains(profile.getShape())) {
+            return Decision.SKIP_SHAPE;
+        }
+        if (profile.getCodeLength() < instrumentConfig.getMinInstrumentBytecodeSize()) {
+            return Decision.SKIP_SMALL;
+        }
+        if (instrumentConfig.isSkipInlineCrossing() && crossesInlineLimit(profile)) {
+            return Decision.SKIP_INLINE_CROSSING;
+        }
+        return Decision.INSTRUMENT;
+    }
+
+    /**
+     * 把配置中的形态名解析为 {@link MethodShape}，未知的形态名忽略并告警
+     */
+    private Set<MethodShape> resolveSkippedShapes(Set<String> names) {
+        SkippedShapes resolved = skippedShapes;
+        if (resolved.names == names) {
+            return resolved.shapes;
+        }
+        Set<MethodShape> shapes = EnumSet.noneOf(MethodShape.class);
+        for (String name : names) {
+            try {
+                shapes.add(MethodShape.valueOf(name));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Unknown method shape: {}", name);
+            }
+        }
+        skippedShapes = new SkippedShapes(names, shapes);
+        return shapes;
+    }
+
+    /**
+     * 埋点前可内联、埋点后超过内联阈值
+     */
+    private boolean crossesInlineLimit(MethodProfile profile) {
+        int before = profile.getCodeLength();
+        int after = before + estimateProbeBytes(profile.getReturnCount());
+        return (before <= maxInlineSize && after > maxInlineSize)
+                || (before <= freqInlineSize && after > freqInlineSize);
+    }
+
+    /**
+     * 估算埋点增加的字节码长度
+     */
+    static int estimateProbeBytes(int returnCount) {
+        return ENTRY_PROBE_BYTES + returnCount * EXIT_PROBE_BYTES + HANDLER_PROBE_BYTES;
+    }
+
+    /**
+     * 获取统计信息（各类决策的累计次数，同一方法被重新转换时重复计入）
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("instrumentDecisions", instrumented.get());
+        stats.put("skippedByShape", skippedByShape.get());
+        stats.put("skippedBySize", skippedBySize.get());
+        stats.put("skippedByInlineCrossing", skippedByInlineCrossing.get());
+        stats.put("maxInlineSize", maxInlineSize);
+        stats.put("freqInlineSize", freqInlineSize);
+        return stats;
+    }
+
+    /**
+     * 影响埋点决策的配置指纹（用于增强结果缓存）
+     */
+    public String getFingerprint() {
+        InstrumentConfig instrumentConfig = config.getInstrumentConfig();
+        return resolveSkippedShapes(instrumentConfig.getSkippedMethodShapes()) + "|"
+                + instrumentConfig.getMinInstrumentBytecodeSize() + "|"
+                + instrumentConfig.isSkipInlineCrossing() + "|" + maxInlineSize + "|" + freqInlineSize;
+    }
+
+    /**
+     * 获取跳过决策的累计次数
+     */
+    public long getSkippedCount() {
+        return skippedByShape.get() + skippedBySize.get() + skippedByInlineCrossing.get();
+    }
+
+    private static int readVmIntOption(String name, int defaultValue) {
+        try {
+            com.sun.management.HotSpotDiagnosticMXBean bean =
+                    ManagementFactory.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class);
+            if (bean != null) {
+                return Integer.parseInt(bean.getVMOption(name).getValue());
+            }
+        } catch (Exception | LinkageError e) {
+            LOGGER.debug("Failed to read VM option {}, using {}", name, defaultValue, e);
+        }
+        return defaultValue;
+    }
+
+    /**
+     * 形态名集合及其解析结果
+     */
+    private static final class SkippedShapes {
+        final Set<String> names;
+        final Set<MethodShape> shapes;
+
+        SkippedShapes(Set<String> names, Set<MethodShape> shapes) {
+            this.names = names;
+            this.shapes = shapes;
+        }
+    }
+}
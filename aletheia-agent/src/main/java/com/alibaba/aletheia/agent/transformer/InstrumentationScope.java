@@ -0,0 +1,89 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 埋点方法白名单
+ * 按热点增强模式下只有白名单中的方法会被 {@link MethodRtTransformer} 埋点，白名单由热点采样器周期性整体替换
+ *
+ * <p>方法以 "类名.方法名" 标识（与 {@link com.alibaba.aletheia.agent.sampler.MethodRegistry} 的签名一致），
+ * 替换时返回成员发生变化的类，只需重新转换这些类。
+ *
+ * @author Aletheia Team
+ */
+public class InstrumentationScope {
+
+    private volatile Set<String> methods = Collections.emptySet();
+
+    private final AtomicLong updates = new AtomicLong(0);
+    private final AtomicLong added = new AtomicLong(0);
+    private final AtomicLong removed = new AtomicLong(0);
+
+    /**
+     * 判断方法是否在白名单中
+     *
+     * @param methodSignature 方法签名（类名.方法名）
+     */
+    public boolean contains(String methodSignature) {
+        return methods.contains(methodSignature);
+    }
+
+    /**
+     * 整体替换白名单
+     *
+     * @param newMethods 新的方法签名集合
+     * @return 有方法加入或移出的类（内部格式）
+     */
+    public synchronized Set<String> update(Set<String> newMethods) {
+        Set<String> current = methods;
+        Set<String> changedClasses = new HashSet<>();
+        long addedCount = 0;
+        long removedCount = 0;
+        for (String method : newMethods) {
+            if (!current.contains(method)) {
+                changedClasses.add(internalClassName(method));
+                addedCount++;
+            }
+        }
+        for (String method : current) {
+            if (!newMethods.contains(method)) {
+                changedClasses.add(internalClassName(method));
+                removedCount++;
+            }
+        }
+        methods = Collections.unmodifiableSet(new HashSet<>(newMethods));
+        updates.incrementAndGet();
+        added.addAndGet(addedCount);
+        removed.addAndGet(removedCount);
+        return changedClasses;
+    }
+
+    /**
+     * 获取当前白名单
+     */
+    public Set<String> getMethods() {
+        return methods;
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("methods", methods.size());
+        stats.put("updates", updates.get());
+        stats.put("added", added.get());
+        stats.put("removed", removed.get());
+        return stats;
+    }
+
+    private static String internalClassName(String methodSignature) {
+        int separator = methodSignature.lastIndexOf('.');
+        return methodSignature.substring(0, Math.max(separator, 0)).replace('.', '/');
+    }
+}
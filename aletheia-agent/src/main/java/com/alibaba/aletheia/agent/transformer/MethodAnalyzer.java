@@ -0,0 +1,302 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 方法预分析器
+ * 在增强前扫描一遍类文件，得到每个方法的字节码长度、形态、返回指令数和注解，
+ * 供 {@link InstrumentPolicy} 和 {@link PointcutMatcher} 决定是否埋点
+ *
+ * <p>字节码长度直接读取 Code 属性中的 code_length，与 HotSpot 判断内联阈值时使用的长度一致。
+ * 形态判断需要额外遍历一次方法体（与增强共用已解析的 ClassReader，但不是同一次遍历），
+ * 遍历时只保留前 {@value #MAX_TRIVIAL_INSNS} 条指令，更长的方法只计数。
+ *
+ * @author Aletheia Team
+ */
+public final class MethodAnalyzer {
+
+    private static final String CODE_ATTRIBUTE = "Code";
+
+    /**
+     * 平凡形态的最大指令数（链式 setter：aload_0, xload, putfield, aload_0, areturn）
+     */
+    private static final int MAX_TRIVIAL_INSNS = 5;
+
+    private MethodAnalyzer() {
+    }
+
+    /**
+     * 分析类中的所有方法
+     *
+     * @param classReader 类读取器
+     * @return 方法名 + 描述符 -> 方法概况
+     */
+    public static Map<String, MethodProfile> analyze(ClassReader classReader) {
+        Map<String, Integer> codeLengths = readCodeLengths(classReader);
+        Map<String, MethodProfile> profiles = new HashMap<>(codeLengths.size() * 2);
+
+        classReader.accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor,
+                                             String signature, String[] exceptions) {
+                String key = name + descriptor;
+                Integer codeLength = codeLengths.get(key);
+                if (codeLength == null) {
+                    return null;
+                }
+                return new ShapeVisitor(access, codeLength, profile -> profiles.put(key, profile));
+            }
+        }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+        return profiles;
+    }
+
+    /**
+     * 直接解析类文件的 methods 表，读取每个方法 Code 属性中的 code_length
+     */
+    private static Map<String, Integer> readCodeLengths(ClassReader classReader) {
+        Map<String, Integer> codeLengths = new HashMap<>();
+        char[] buffer = new char[classReader.getMaxStringLength()];
+
+        // access_flags, this_class, super_class, interfaces
+        int offset = classReader.header + 6;
+        offset += 2 + classReader.readUnsignedShort(offset) * 2;
+
+        // fields
+        int fieldsCount = classReader.readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < fieldsCount; i++) {
+            offset = skipMember(classReader, offset);
+        }
+
+        // methods
+        int methodsCount = classReader.readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < methodsCount; i++) {
+            String name = classReader.readUTF8(offset + 2, buffer);
+            String descriptor = classReader.readUTF8(offset + 4, buffer);
+            int attributesCount = classReader.readUnsignedShort(offset + 6);
+            offset += 8;
+            for (int j = 0; j < attributesCount; j++) {
+                String attributeName = classReader.readUTF8(offset, buffer);
+                int attributeLength = classReader.readInt(offset + 2);
+                if (CODE_ATTRIBUTE.equals(attributeName)) {
+                    // max_stack(2) + max_locals(2) + code_length(4)
+                    codeLengths.put(name + descriptor, classReader.readInt(offset + 10));
+                }
+                offset += 6 + attributeLength;
+            }
+        }
+        return codeLengths;
+    }
+
+    private static int skipMember(ClassReader classReader, int offset) {
+        int attributesCount = classReader.readUnsignedShort(offset + 6);
+        offset += 8;
+        for (int i = 0; i < attributesCount; i++) {
+            offset += 6 + classReader.readInt(offset + 2);
+        }
+        return offset;
+    }
+
+    /**
+     * 记录方法开头的指令并在结束时判断形态
+     * getter/setter/空方法的判断只需要前几条指令，委托方法只需要最后一条指令和计数，
+     * 因此指令序列保存在定长数组中，超出后只计数，不为每条指令装箱
+     */
+    private static final class ShapeVisitor extends MethodVisitor {
+
+        private final boolean isStatic;
+        private final int codeLength;
+        private final Consumer<MethodProfile> sink;
+        private final int[] opcodes = new int[MAX_TRIVIAL_INSNS];
+        private int insnCount;
+        private int lastOpcode = -1;
+        private List<String> annotations = Collections.emptyList();
+        private int returnCount;
+        private int invokeCount;
+        private boolean onlySimpleInsns = true;
+
+        ShapeVisitor(int access, int codeLength, Consumer<MethodProfile> sink) {
+            super(Opcodes.ASM9);
+            this.isStatic = (access & Opcodes.ACC_STATIC) != 0;
+            this.codeLength = codeLength;
+            this.sink = sink;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+            if (annotations.isEmpty()) {
+                annotations = new ArrayList<>(2);
+            }
+            annotations.add(descriptor);
+            return null;
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            if (opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN) {
+                returnCount++;
+            } else if (opcode != Opcodes.POP) {
+                onlySimpleInsns = false;
+            }
+            record(opcode);
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int var) {
+            if (opcode > Opcodes.ALOAD) {
+                onlySimpleInsns = false;
+            }
+            // 用负数标记 this 的加载，便于识别 getter/setter
+            record(opcode == Opcodes.ALOAD && var == 0 && !isStatic ? -Opcodes.ALOAD : opcode);
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+            if (opcode == Opcodes.PUTFIELD || opcode == Opcodes.PUTSTATIC) {
+                onlySimpleInsns = false;
+            }
+            record(opcode);
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor,
+                                    boolean isInterface) {
+            invokeCount++;
+            record(opcode);
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            if (opcode != Opcodes.CHECKCAST) {
+                onlySimpleInsns = false;
+            }
+            record(opcode);
+        }
+
+        @Override
+        public void visitIntInsn(int opcode, int operand) {
+            markComplex(opcode);
+        }
+
+        @Override
+        public void visitLdcInsn(Object value) {
+            markComplex(Opcodes.LDC);
+        }
+
+        @Override
+        public void visitIincInsn(int var, int increment) {
+            markComplex(Opcodes.IINC);
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+            markComplex(opcode);
+        }
+
+        @Override
+        public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+            markComplex(Opcodes.TABLESWITCH);
+        }
+
+        @Override
+        public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+            markComplex(Opcodes.LOOKUPSWITCH);
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle,
+                                           Object... bootstrapMethodArguments) {
+            markComplex(Opcodes.INVOKEDYNAMIC);
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+            markComplex(Opcodes.MULTIANEWARRAY);
+        }
+
+        @Override
+        public void visitEnd() {
+            sink.accept(new MethodProfile(classify(), codeLength, returnCount, annotations));
+        }
+
+        private void markComplex(int opcode) {
+            onlySimpleInsns = false;
+            record(opcode);
+        }
+
+        private void record(int opcode) {
+            if (insnCount < MAX_TRIVIAL_INSNS) {
+                opcodes[insnCount] = opcode;
+            }
+            insnCount++;
+            lastOpcode = opcode;
+        }
+
+        private MethodShape classify() {
+            int size = insnCount;
+            if (size == 1 && opcodes[0] == Opcodes.RETURN) {
+                return MethodShape.EMPTY;
+            }
+            if (isGetter(size)) {
+                return MethodShape.GETTER;
+            }
+            if (isSetter(size)) {
+                return MethodShape.SETTER;
+            }
+            if (onlySimpleInsns && invokeCount == 1 && returnCount == 1 && isReturn(lastOpcode)) {
+                return MethodShape.DELEGATOR;
+            }
+            return MethodShape.OTHER;
+        }
+
+        private boolean isGetter(int size) {
+            // this.field / 静态字段读取后直接返回
+            if (isStatic) {
+                return size == 2 && opcodes[0] == Opcodes.GETSTATIC && isValueReturn(opcodes[1]);
+            }
+            return size == 3 && opcodes[0] == -Opcodes.ALOAD && opcodes[1] == Opcodes.GETFIELD
+                    && isValueReturn(opcodes[2]);
+        }
+
+        private boolean isSetter(int size) {
+            if (isStatic) {
+                return size == 3 && isLoad(opcodes[0]) && opcodes[1] == Opcodes.PUTSTATIC
+                        && opcodes[2] == Opcodes.RETURN;
+            }
+            if (size < 4 || opcodes[0] != -Opcodes.ALOAD || !isLoad(opcodes[1])
+                    || opcodes[2] != Opcodes.PUTFIELD) {
+                return false;
+            }
+            // void setter 或返回 this 的链式 setter
+            return (size == 4 && opcodes[3] == Opcodes.RETURN)
+                    || (size == 5 && opcodes[3] == -Opcodes.ALOAD && opcodes[4] == Opcodes.ARETURN);
+        }
+
+        private static boolean isLoad(int opcode) {
+            return opcode >= Opcodes.ILOAD && opcode <= Opcodes.ALOAD;
+        }
+
+        private static boolean isReturn(int opcode) {
+            return opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN;
+        }
+
+        private static boolean isValueReturn(int opcode) {
+            return opcode >= Opcodes.IRETURN && opcode <= Opcodes.ARETURN;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 去除埋点的方法名单
+ * 名单中的方法不再被 {@link MethodRtTransformer} 埋点，由去除埋点器在发现调用极频繁且极廉价的方法时加入，
+ * 加入后重新转换所在的类即可移除已有埋点
+ *
+ * <p>方法以 "类名.方法名" 标识（与 {@link com.alibaba.aletheia.agent.sampler.MethodRegistry} 的签名一致）。
+ * 同名的多个重载方法共用一个签名，其 RT 统计是各重载合并的结果，无法判断哪个重载廉价：
+ * 增强时发现同一签名下有多个埋点方法就标记为重载，标记为重载的签名不会加入名单。
+ *
+ * @author Aletheia Team
+ */
+public class MethodDenylist {
+
+    private final Set<String> methods = ConcurrentHashMap.newKeySet();
+
+    private final Set<String> overloaded = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 判断方法是否已去除埋点
+     *
+     * @param methodSignature 方法签名（类名.方法名）
+     */
+    public boolean contains(String methodSignature) {
+        return methods.contains(methodSignature);
+    }
+
+    /**
+     * 加入名单
+     *
+     * @param methodSignature 方法签名（类名.方法名）
+     * @return 是否为新加入的方法，已标记为重载的方法不加入并返回 false
+     */
+    public boolean add(String methodSignature) {
+        return !overloaded.contains(methodSignature) && methods.add(methodSignature);
+    }
+
+    /**
+     * 标记签名下有多个埋点的重载方法
+     *
+     * @param methodSignature 方法签名（类名.方法名）
+     */
+    public void markOverloaded(String methodSignature) {
+        overloaded.add(methodSignature);
+    }
+
+    /**
+     * 判断签名下是否有多个埋点的重载方法
+     *
+     * @param methodSignature 方法签名（类名.方法名）
+     */
+    public boolean isOverloaded(String methodSignature) {
+        return overloaded.contains(methodSignature);
+    }
+
+    /**
+     * 获取当前名单
+     */
+    public Set<String> getMethods() {
+        return Collections.unmodifiableSet(methods);
+    }
+
+    public int size() {
+        return methods.size();
+    }
+}
@@ -0,0 +1,56 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 方法概况（增强前由 {@link MethodAnalyzer} 得到）
+ *
+ * @author Aletheia Team
+ */
+public final class MethodProfile {
+
+    private final MethodShape shape;
+    private final int codeLength;
+    private final int returnCount;
+    private final List<String> annotations;
+
+    public MethodProfile(MethodShape shape, int codeLength, int returnCount) {
+        this(shape, codeLength, returnCount, Collections.<String>emptyList());
+    }
+
+    public MethodProfile(MethodShape shape, int codeLength, int returnCount, List<String> annotations) {
+        this.shape = shape;
+        this.codeLength = codeLength;
+        this.returnCount = returnCount;
+        this.annotations = annotations;
+    }
+
+    /**
+     * 获取方法形态
+     */
+    public MethodShape getShape() {
+        return shape;
+    }
+
+    /**
+     * 获取字节码长度（Code 属性中的 code_length）
+     */
+    public int getCodeLength() {
+        return codeLength;
+    }
+
+    /**
+     * 获取返回指令数
+     */
+    public int getReturnCount() {
+        return returnCount;
+    }
+
+    /**
+     * 获取方法上的注解（类型描述符，如 Lcom/example/Timed;）
+     */
+    public List<String> getAnnotations() {
+        return annotations;
+    }
+}
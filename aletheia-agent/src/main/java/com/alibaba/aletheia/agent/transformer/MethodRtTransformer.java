@@ -1,46 +1,167 @@
 package com.alibaba.aletheia.agent.transformer;
 
 import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.agent.sampler.MethodRegistry;
 import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.AdviceAdapter;
 
-import java.lang.instrument.IllegalClassFormatException;
-import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 方法 RT 统计 Transformer
  * 在方法入口和出口添加 RT 统计埋点
+ * 增强时通过 {@link MethodRegistry} 为方法分配 int ID，埋点只压入该常量，运行时无需处理方法签名字符串
+ * 增强前先由 {@link MethodAnalyzer} 预分析方法，{@link InstrumentPolicy} 跳过的方法不埋点也不占用方法 ID
+ * 埋点通过 {@link ProbeEmitter} 生成，关闭 RT 功能后已增强类中的埋点被重新链接为空方法
+ * 增强结果可缓存：缓存记录保存方法 ID 分配（"id:签名"），命中时只有 ID 与当前注册表一致才复用
+ * 设置了 {@link InstrumentationScope} 时（按热点增强模式）只为白名单中的方法埋点，此时增强结果不缓存
+ * 配置了方法级切点时只为命中 {@link PointcutMatcher} 的方法埋点，切点计入增强结果缓存的指纹
+ * {@link MethodDenylist} 中的方法（调用极频繁且极廉价）不埋点，缓存中埋点了这些方法的增强结果不再复用
+ * 离线织入时方法 ID 延迟到运行时链接埋点才分配（字节码中只保存方法签名），因此只增强支持 invokedynamic 的类
  *
  * @author Aletheia Team
  */
 public class MethodRtTransformer extends BaseTransformer {
 
+    private final InstrumentPolicy instrumentPolicy;
+
+    private final ScopeMatchers matchers;
+
+    /**
+     * 是否延迟到埋点链接时才分配方法 ID（离线织入）
+     */
+    private final boolean lateBoundIds;
+
+    /**
+     * 埋点方法白名单，null 表示不限制
+     */
+    private volatile InstrumentationScope scope;
+
+    /**
+     * 去除埋点的方法名单
+     */
+    private final MethodDenylist denylist = new MethodDenylist();
+
     public MethodRtTransformer(AgentConfig config) {
+        this(config, false);
+    }
+
+    /**
+     * @param lateBoundIds 为 true 时不在增强时分配方法 ID，由埋点链接时按方法签名注册（用于离线织入）
+     */
+    public MethodRtTransformer(AgentConfig config, boolean lateBoundIds) {
         super(config);
+        this.instrumentPolicy = new InstrumentPolicy(config);
+        this.matchers = new ScopeMatchers(config);
+        this.lateBoundIds = lateBoundIds;
     }
 
+    /**
+     * 埋点字节码格式版本（修改埋点代码时递增，使旧的缓存失效）
+     */
+    private static final String PROBE_FORMAT = "rt-v2";
+
+    private static final char METADATA_SEPARATOR = ':';
+
     @Override
     protected boolean isFeatureEnabled() {
         return config.isFeatureEnabled("RT");
     }
 
     @Override
-    protected byte[] doTransform(ClassLoader loader, String className, Class<?> classBeingRedefined,
-                                ProtectionDomain protectionDomain, byte[] classfileBuffer)
-            throws IllegalClassFormatException {
-        try {
-            // 使用 ASM 进行字节码增强
-            ClassReader classReader = new ClassReader(classfileBuffer);
-            ClassWriter classWriter = new ClassWriter(classReader, ClassWriter.COMPUTE_FRAMES);
-            MethodAdapter methodAdapter = new MethodAdapter(classWriter, className);
-
-            classReader.accept(methodAdapter, ClassReader.EXPAND_FRAMES);
-            return classWriter.toByteArray();
-        } catch (Exception e) {
-            logger.warn("Failed to transform class: {}", className, e);
+    protected String cacheFingerprint() {
+        if (scope != null) {
+            // 增强结果取决于随时变化的白名单
             return null;
         }
+        PointcutMatcher pointcuts = matchers.getPointcutMatcher();
+        String fingerprint = PROBE_FORMAT + "|" + instrumentPolicy.getFingerprint();
+        return pointcuts.isEmpty() ? fingerprint : fingerprint + "|" + pointcuts.getFingerprint();
+    }
+
+    @Override
+    protected boolean acceptCached(List<String> metadata) {
+        Set<String> signatures = new HashSet<>();
+        for (String assignment : metadata) {
+            String methodSignature = assignment.substring(assignment.indexOf(METADATA_SEPARATOR) + 1);
+            // 缓存结果仍含已去除的埋点
+            if (denylist.contains(methodSignature) || !seedAssignment(assignment)) {
+                return false;
+            }
+            // 同一签名出现多次说明有多个埋点的重载方法
+            if (!signatures.add(methodSignature)) {
+                denylist.markOverloaded(methodSignature);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按缓存中的分配记录注册方法（按写入顺序重放可在重启后得到相同的 ID）
+     *
+     * @param metadata 一条缓存记录的元数据
+     */
+    public static void seedRegistry(List<String> metadata) {
+        for (String assignment : metadata) {
+            seedAssignment(assignment);
+        }
+    }
+
+    /**
+     * 注册分配记录中的方法
+     *
+     * @return 分配到的 ID 是否与记录一致
+     */
+    private static boolean seedAssignment(String assignment) {
+        int separator = assignment.indexOf(METADATA_SEPARATOR);
+        if (separator <= 0) {
+            return false;
+        }
+        try {
+            int expectedId = Integer.parseInt(assignment.substring(0, separator));
+            return MethodRegistry.getInstance().register(assignment.substring(separator + 1)) == expectedId;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    @Override
+    protected ClassVisitor createVisitor(ClassVisitor next, ClassReader classReader, String className) {
+        // 预分析原始方法，决定哪些方法埋点
+        Map<String, MethodProfile> profiles = MethodAnalyzer.analyze(classReader);
+        return new MethodAdapter(next, className, profiles, instrumentPolicy, lateBoundIds, scope,
+                denylist, matchers.getPointcutMatcher());
+    }
+
+    /**
+     * 设置埋点方法白名单（null 表示不限制）
+     */
+    public void setInstrumentationScope(InstrumentationScope scope) {
+        this.scope = scope;
+    }
+
+    /**
+     * 获取去除埋点的方法名单
+     */
+    public MethodDenylist getDenylist() {
+        return denylist;
+    }
+
+    /**
+     * 获取埋点过滤统计（埋点 / 各原因跳过的决策次数）
+     */
+    public Map<String, Object> getInstrumentStats() {
+        return instrumentPolicy.getStats();
     }
 
     /**
@@ -49,10 +170,37 @@ public class MethodRtTransformer extends BaseTransformer {
     private static class MethodAdapter extends org.objectweb.asm.ClassVisitor {
 
         private String className;
+        private final Map<String, MethodProfile> profiles;
+        private final InstrumentPolicy policy;
+        private final boolean lateBoundIds;
+        private final InstrumentationScope scope;
+        private final MethodDenylist denylist;
+        private final PointcutMatcher pointcuts;
+        private final Set<String> instrumentedNames = new HashSet<>();
+        private boolean indy;
+        private String superName;
+        private String[] interfaces;
 
-        MethodAdapter(org.objectweb.asm.ClassVisitor cv, String className) {
+        MethodAdapter(org.objectweb.asm.ClassVisitor cv, String className, Map<String, MethodProfile> profiles,
+                      InstrumentPolicy policy, boolean lateBoundIds, InstrumentationScope scope,
+                      MethodDenylist denylist, PointcutMatcher pointcuts) {
             super(Opcodes.ASM9, cv);
             this.className = className;
+            this.profiles = profiles;
+            this.policy = policy;
+            this.lateBoundIds = lateBoundIds;
+            this.scope = scope;
+            this.denylist = denylist;
+            this.pointcuts = pointcuts;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName,
+                          String[] interfaces) {
+            indy = ProbeEmitter.supportsInvokeDynamic(version);
+            this.superName = superName;
+            this.interfaces = interfaces;
+            super.visit(version, access, name, signature, superName, interfaces);
         }
 
         @Override
@@ -63,77 +211,183 @@ public class MethodRtTransformer extends BaseTransformer {
                 return null;
             }
 
-            // 排除构造函数、静态初始化块和抽象方法
-            if (name.equals("<init>") || name.equals("<clinit>")
-                    || (access & Opcodes.ACC_ABSTRACT) != 0) {
+            // 排除构造函数、静态初始化块、抽象方法和本地方法；延迟绑定 ID 依赖 invokedynamic
+            if ((lateBoundIds && !indy) || name.equals("<init>") || name.equals("<clinit>")
+                    || (access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0) {
                 return mv;
             }
 
+            // 按热点增强模式下只为白名单中的方法埋点
+            String methodSignature = className.replace('/', '.') + "." + name;
+            if (scope != null && !scope.contains(methodSignature)) {
+                return mv;
+            }
+            if (denylist.contains(methodSignature)) {
+                return mv;
+            }
+
+            // 配置了切点时只为命中的方法埋点
+            MethodProfile profile = profiles.get(name + descriptor);
+            if (!pointcuts.isEmpty() && !pointcuts.matchesMethod(className, superName, interfaces, access, name,
+                    descriptor, profile != null ? profile.getAnnotations() : Collections.<String>emptyList())) {
+                return mv;
+            }
+
+            // 平凡方法、过小方法和埋点后会越过内联阈值的方法不埋点
+            if (policy.decide(profile) != InstrumentPolicy.Decision.INSTRUMENT) {
+                return mv;
+            }
+            // 重载方法共用签名，合并后的统计不能作为去除其中某个重载的依据
+            if (!instrumentedNames.add(name)) {
+                denylist.markOverloaded(methodSignature);
+            }
+
+            if (lateBoundIds) {
+                return new MethodVisitorAdapter(mv, MethodRegistry.UNREGISTERED_ID, methodSignature, true,
+                        access, name, descriptor);
+            }
+
+            // 分配方法 ID，注册表已满时不做增强
+            int methodId = MethodRegistry.getInstance().register(methodSignature);
+            if (methodId == MethodRegistry.UNREGISTERED_ID) {
+                return mv;
+            }
+            addCacheMetadata(methodId + String.valueOf(METADATA_SEPARATOR) + methodSignature);
+
             // 添加方法埋点
-            return new MethodVisitorAdapter(mv, className, name, descriptor);
+            return new MethodVisitorAdapter(mv, methodId, null, indy, access, name, descriptor);
         }
     }
 
     /**
      * 方法访问器适配器，在方法入口和出口添加统计代码
+     *
+     * <p>开始时间保存在方法的局部变量中（无 ThreadLocal、无装箱，嵌套调用互不覆盖），
+     * 方法体整体包裹在 try/finally 中，正常返回和异常抛出（包括被调方法抛出的异常）都会记录结束时间。
+     * 受保护区间在每个正常退出的结束埋点前断开，结束埋点本身抛出异常（例如链接错误）时不会再进入 finally 处理器重复记录。
      */
-    private static class MethodVisitorAdapter extends org.objectweb.asm.MethodVisitor {
+    private static class MethodVisitorAdapter extends AdviceAdapter {
 
-        private String className;
-        private String methodName;
+        private static final String SAMPLER_OWNER = "com/alibaba/aletheia/agent/sampler/RtSampler";
 
-        MethodVisitorAdapter(org.objectweb.asm.MethodVisitor mv, String className,
-                             String methodName, String descriptor) {
-            super(Opcodes.ASM9, mv);
-            this.className = className;
-            this.methodName = methodName;
+        private static final String FEATURE = "RT";
+
+        private final int methodId;
+
+        /**
+         * 方法签名，不为 null 时方法 ID 在埋点链接时才分配
+         */
+        private final String lateBoundSignature;
+
+        /**
+         * 是否以 invokedynamic 调用埋点
+         */
+        private final boolean indy;
+
+        /**
+         * 当前受保护区间的起始位置
+         */
+        private Label rangeStart = new Label();
+
+        /**
+         * 已结束的受保护区间（起始、结束成对存放）
+         */
+        private final List<Label> closedRanges = new ArrayList<>();
+
+        /**
+         * 开始时间局部变量槽位
+         */
+        private int startTimeLocal;
+
+        MethodVisitorAdapter(MethodVisitor mv, int methodId, String lateBoundSignature, boolean indy, int access,
+                             String name, String descriptor) {
+            super(Opcodes.ASM9, mv, access, name, descriptor);
+            this.methodId = methodId;
+            this.lateBoundSignature = lateBoundSignature;
+            this.indy = indy;
+        }
+
+        @Override
+        protected void onMethodEnter() {
+            // long start = RtSampler.onMethodStart(methodId);
+            startTimeLocal = newLocal(Type.LONG_TYPE);
+            if (lateBoundSignature != null) {
+                ProbeEmitter.invokeMethodProbe(mv, SAMPLER_OWNER, "onMethodStart", "()J", FEATURE,
+                        lateBoundSignature);
+            } else {
+                pushMethodId();
+                ProbeEmitter.invokeProbe(mv, indy, SAMPLER_OWNER, "onMethodStart", "(I)J", FEATURE);
+            }
+            mv.visitVarInsn(Opcodes.LSTORE, startTimeLocal);
+            mv.visitLabel(rangeStart);
+            // 保证方法体以返回指令开头时第一个区间也不为空
+            mv.visitInsn(Opcodes.NOP);
         }
 
         @Override
-        public void visitCode() {
-            super.visitCode();
-            // 在方法入口添加开始时间记录
-            String methodSignature = className.replace('/', '.') + "." + methodName;
-            injectStartTime(methodSignature);
+        protected void onMethodExit(int opcode) {
+            // ATHROW 由 finally 处理器统一记录，避免重复统计
+            if (opcode != Opcodes.ATHROW) {
+                // 区间在结束埋点前断开，下一个区间从返回指令开始（每个区间至少包含一条指令）
+                Label rangeEnd = new Label();
+                mv.visitLabel(rangeEnd);
+                closedRanges.add(rangeStart);
+                closedRanges.add(rangeEnd);
+                injectEndTime();
+                rangeStart = new Label();
+                mv.visitLabel(rangeStart);
+            }
         }
 
         @Override
-        public void visitInsn(int opcode) {
-            // 在方法返回前添加结束时间记录
-            if (opcode == Opcodes.RETURN || opcode == Opcodes.IRETURN
-                    || opcode == Opcodes.LRETURN || opcode == Opcodes.FRETURN
-                    || opcode == Opcodes.DRETURN || opcode == Opcodes.ARETURN
-                    || opcode == Opcodes.ATHROW) {
-                String methodSignature = className.replace('/', '.') + "." + methodName;
-                injectEndTime(methodSignature);
-            }
-            super.visitInsn(opcode);
+        public void visitMaxs(int maxStack, int maxLocals) {
+            // finally 处理器：记录结束时间后重新抛出异常
+            Label handler = new Label();
+            mv.visitLabel(handler);
+            injectEndTime();
+            mv.visitInsn(Opcodes.ATHROW);
+            for (int i = 0; i < closedRanges.size(); i += 2) {
+                mv.visitTryCatchBlock(closedRanges.get(i), closedRanges.get(i + 1), handler, null);
+            }
+            mv.visitTryCatchBlock(rangeStart, handler, handler, null);
+            super.visitMaxs(maxStack, maxLocals);
         }
 
         /**
-         * 注入开始时间记录代码
+         * 注入结束时间记录代码：if (start != 0) RtSampler.onMethodEnd(methodId, start)
+         * 采样决策内联在埋点中，未采样的调用不会进入 RtSampler；RT 关闭时入口埋点恒返回 0，整段被 JIT 消除
          */
-        private void injectStartTime(String methodSignature) {
-            // 调用 RtSampler.onMethodStart(methodSignature)
-            mv.visitLdcInsn(methodSignature);
-            mv.visitMethodInsn(Opcodes.INVOKESTATIC,
-                    "com/alibaba/aletheia/agent/sampler/RtSampler",
-                    "onMethodStart",
-                    "(Ljava/lang/String;)V",
-                    false);
+        private void injectEndTime() {
+            Label notSampled = new Label();
+            mv.visitVarInsn(Opcodes.LLOAD, startTimeLocal);
+            mv.visitInsn(Opcodes.LCONST_0);
+            mv.visitInsn(Opcodes.LCMP);
+            mv.visitJumpInsn(Opcodes.IFEQ, notSampled);
+            if (lateBoundSignature != null) {
+                mv.visitVarInsn(Opcodes.LLOAD, startTimeLocal);
+                ProbeEmitter.invokeMethodProbe(mv, SAMPLER_OWNER, "onMethodEnd", "(J)V", FEATURE,
+                        lateBoundSignature);
+            } else {
+                pushMethodId();
+                mv.visitVarInsn(Opcodes.LLOAD, startTimeLocal);
+                ProbeEmitter.invokeProbe(mv, indy, SAMPLER_OWNER, "onMethodEnd", "(IJ)V", FEATURE);
+            }
+            mv.visitLabel(notSampled);
         }
 
         /**
-         * 注入结束时间记录代码
+         * 压入方法 ID 常量（按大小选择最短的指令）
          */
-        private void injectEndTime(String methodSignature) {
-            // 调用 RtSampler.onMethodEnd(methodSignature)
-            mv.visitLdcInsn(methodSignature);
-            mv.visitMethodInsn(Opcodes.INVOKESTATIC,
-                    "com/alibaba/aletheia/agent/sampler/RtSampler",
-                    "onMethodEnd",
-                    "(Ljava/lang/String;)V",
-                    false);
+        private void pushMethodId() {
+            if (methodId <= Opcodes.ICONST_5 - Opcodes.ICONST_0) {
+                mv.visitInsn(Opcodes.ICONST_0 + methodId);
+            } else if (methodId <= Byte.MAX_VALUE) {
+                mv.visitIntInsn(Opcodes.BIPUSH, methodId);
+            } else if (methodId <= Short.MAX_VALUE) {
+                mv.visitIntInsn(Opcodes.SIPUSH, methodId);
+            } else {
+                mv.visitLdcInsn(methodId);
+            }
         }
     }
 }
@@ -0,0 +1,35 @@
+package com.alibaba.aletheia.agent.transformer;
+
+/**
+ * 方法形态
+ * 用于在增强前识别体积极小、通常会被 JIT 内联的平凡方法
+ *
+ * @author Aletheia Team
+ */
+public enum MethodShape {
+
+    /**
+     * 空方法（只有 return）
+     */
+    EMPTY,
+
+    /**
+     * 字段读取（getter）
+     */
+    GETTER,
+
+    /**
+     * 字段写入（setter，包括返回 this 的链式 setter）
+     */
+    SETTER,
+
+    /**
+     * 委托方法（只加载参数/字段后调用一次其他方法并返回）
+     */
+    DELEGATOR,
+
+    /**
+     * 其他方法
+     */
+    OTHER
+}
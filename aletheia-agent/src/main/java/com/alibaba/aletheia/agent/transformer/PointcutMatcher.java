@@ -0,0 +1,304 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import org.objectweb.asm.Opcodes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * 方法级切点匹配器
+ * 把一组切点表达式编译成不可变的匹配器：每个切点的类名、父类/接口、方法名、描述符和注解模式
+ * 分别编译为 {@link ClassNameMatcher} 自动机，匹配时只逐字符扫描，不分配对象
+ *
+ * <p>切点表达式由空白分隔的 key=value 组成，省略的条件不做限制，多个条件同时满足才命中：
+ * <pre>
+ * class=com.example.**.*Service method=get*|find* desc=(J)* annotation=com.example.Timed
+ * modifiers=public,!static super=com.example.BaseService
+ * </pre>
+ * <ul>
+ *   <li>class：类名模式（. 或 / 分隔），通配符与 {@link ClassNameMatcher} 相同，但需完整匹配</li>
+ *   <li>super：直接父类或直接实现的任一接口匹配该模式</li>
+ *   <li>method：方法名模式</li>
+ *   <li>desc：方法描述符模式，* 可跨越 '/' 匹配任意字符</li>
+ *   <li>annotation：方法上任一注解的类型匹配该模式</li>
+ *   <li>modifiers：逗号分隔的修饰符，! 前缀表示不能有该修饰符（public、protected、private、static、final、synchronized）</li>
+ * </ul>
+ * 每个模式可用 | 分隔多个候选。未配置切点时不做方法级限制，配置后只有命中任一切点的方法会被埋点，
+ * 类过滤时只保留可能含有命中方法的类。
+ *
+ * @author Aletheia Team
+ */
+public final class PointcutMatcher {
+
+    /**
+     * 不含任何切点的匹配器（不做限制）
+     */
+    public static final PointcutMatcher EMPTY = new PointcutMatcher(Collections.<Pointcut>emptyList(), "");
+
+    private static final String ALTERNATIVE = "\\|";
+
+    private final Pointcut[] pointcuts;
+    private final String fingerprint;
+
+    private PointcutMatcher(List<Pointcut> pointcuts, String fingerprint) {
+        this.pointcuts = pointcuts.toArray(new Pointcut[0]);
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * 编译切点表达式
+     *
+     * @param expressions 切点表达式
+     * @return 匹配器
+     * @throws IllegalArgumentException 表达式语法错误
+     */
+    public static PointcutMatcher compile(Collection<String> expressions) {
+        // 按表达式排序，使指纹与添加顺序无关
+        TreeSet<String> sorted = new TreeSet<>(expressions);
+        List<Pointcut> pointcuts = new ArrayList<>(sorted.size());
+        for (String expression : sorted) {
+            pointcuts.add(parse(expression));
+        }
+        return new PointcutMatcher(pointcuts, String.join(";", sorted));
+    }
+
+    /**
+     * 校验切点表达式
+     *
+     * @throws IllegalArgumentException 表达式语法错误
+     */
+    public static void validate(String expression) {
+        parse(expression);
+    }
+
+    /**
+     * 生成按类名选择已加载类的条件（用于切点变化后只重新转换相关的类）
+     * 切点带有父类/接口条件时无法只按类名判断，选择所有类
+     *
+     * @param expression 切点表达式
+     * @return 类名（内部格式）选择条件
+     */
+    public static Predicate<String> classSelector(String expression) {
+        Pointcut pointcut = parse(expression);
+        if (pointcut.superTypes != null || pointcut.classes == null) {
+            return className -> true;
+        }
+        return pointcut.classes::matchesFully;
+    }
+
+    /**
+     * 是否不含任何切点
+     */
+    public boolean isEmpty() {
+        return pointcuts.length == 0;
+    }
+
+    /**
+     * 切点指纹（排序后的表达式，用于增强结果缓存）
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * 判断类是否可能含有命中切点的方法
+     *
+     * @param className  类名（内部格式）
+     * @param superName  直接父类（内部格式，可能为 null）
+     * @param interfaces 直接实现的接口（内部格式）
+     */
+    public boolean matchesClass(String className, String superName, String[] interfaces) {
+        if (pointcuts.length == 0) {
+            return true;
+        }
+        for (Pointcut pointcut : pointcuts) {
+            if (pointcut.matchesClass(className, superName, interfaces)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 判断方法是否命中任一切点
+     *
+     * @param className   类名（内部格式）
+     * @param superName   直接父类（内部格式，可能为 null）
+     * @param interfaces  直接实现的接口（内部格式）
+     * @param access      方法访问标志
+     * @param name        方法名
+     * @param descriptor  方法描述符
+     * @param annotations 方法上的注解类型描述符
+     */
+    public boolean matchesMethod(String className, String superName, String[] interfaces, int access, String name,
+                                 String descriptor, List<String> annotations) {
+        if (pointcuts.length == 0) {
+            return true;
+        }
+        for (Pointcut pointcut : pointcuts) {
+            if (pointcut.matchesClass(className, superName, interfaces)
+                    && pointcut.matchesMethod(access, name, descriptor, annotations)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Pointcut parse(String expression) {
+        if (expression == null || expression.trim().isEmpty()) {
+            throw new IllegalArgumentException("Empty pointcut");
+        }
+        Pointcut pointcut = new Pointcut();
+        for (String term : expression.trim().split("\\s+")) {
+            int separator = term.indexOf('=');
+            if (separator <= 0 || separator == term.length() - 1) {
+                throw new IllegalArgumentException("Invalid pointcut term '" + term + "' in: " + expression);
+            }
+            String key = term.substring(0, separator);
+            String value = term.substring(separator + 1);
+            switch (key) {
+                case "class":
+                    pointcut.classes = compileAlternatives(value.replace('.', '/'), "", "");
+                    break;
+                case "super":
+                    pointcut.superTypes = compileAlternatives(value.replace('.', '/'), "", "");
+                    break;
+                case "method":
+                    pointcut.methods = compileAlternatives(value, "", "");
+                    break;
+                case "desc":
+                    pointcut.descriptors = compileAlternatives(spanSeparators(value), "", "");
+                    break;
+                case "annotation":
+                    pointcut.annotations = compileAlternatives(value.replace('.', '/'), "L", ";");
+                    break;
+                case "modifiers":
+                    parseModifiers(pointcut, value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown pointcut key '" + key + "' in: " + expression);
+            }
+        }
+        return pointcut;
+    }
+
+    private static ClassNameMatcher compileAlternatives(String value, String prefix, String suffix) {
+        List<String> patterns = new ArrayList<>();
+        for (String alternative : value.split(ALTERNATIVE)) {
+            if (alternative.isEmpty()) {
+                throw new IllegalArgumentException("Empty alternative in pattern: " + value);
+            }
+            patterns.add(prefix + alternative + suffix);
+        }
+        return ClassNameMatcher.compile(patterns);
+    }
+
+    /**
+     * 描述符中的类型含有 '/'，把单个 * 换成可跨越 '/' 的 **
+     */
+    private static String spanSeparators(String pattern) {
+        StringBuilder result = new StringBuilder(pattern.length() + 4);
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*') {
+                result.append("**");
+                while (i + 1 < pattern.length() && pattern.charAt(i + 1) == '*') {
+                    i++;
+                }
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private static void parseModifiers(Pointcut pointcut, String value) {
+        for (String modifier : value.split(",")) {
+            boolean negated = modifier.startsWith("!");
+            int flag = modifierFlag(negated ? modifier.substring(1) : modifier);
+            if (negated) {
+                pointcut.forbiddenAccess |= flag;
+            } else {
+                pointcut.requiredAccess |= flag;
+            }
+        }
+    }
+
+    private static int modifierFlag(String modifier) {
+        switch (modifier) {
+            case "public":
+                return Opcodes.ACC_PUBLIC;
+            case "protected":
+                return Opcodes.ACC_PROTECTED;
+            case "private":
+                return Opcodes.ACC_PRIVATE;
+            case "static":
+                return Opcodes.ACC_STATIC;
+            case "final":
+                return Opcodes.ACC_FINAL;
+            case "synchronized":
+                return Opcodes.ACC_SYNCHRONIZED;
+            default:
+                throw new IllegalArgumentException("Unknown modifier: " + modifier);
+        }
+    }
+
+    /**
+     * 编译后的单个切点，为 null 的条件不做限制
+     */
+    private static final class Pointcut {
+
+        private ClassNameMatcher classes;
+        private ClassNameMatcher superTypes;
+        private ClassNameMatcher methods;
+        private ClassNameMatcher descriptors;
+        private ClassNameMatcher annotations;
+        private int requiredAccess;
+        private int forbiddenAccess;
+
+        boolean matchesClass(String className, String superName, String[] interfaces) {
+            if (classes != null && !classes.matchesFully(className)) {
+                return false;
+            }
+            if (superTypes == null) {
+                return true;
+            }
+            if (superName != null && superTypes.matchesFully(superName)) {
+                return true;
+            }
+            if (interfaces != null) {
+                for (String anInterface : interfaces) {
+                    if (superTypes.matchesFully(anInterface)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        boolean matchesMethod(int access, String name, String descriptor, List<String> methodAnnotations) {
+            if ((access & requiredAccess) != requiredAccess || (access & forbiddenAccess) != 0) {
+                return false;
+            }
+            if (methods != null && !methods.matchesFully(name)) {
+                return false;
+            }
+            if (descriptors != null && !descriptors.matchesFully(descriptor)) {
+                return false;
+            }
+            if (annotations == null) {
+                return true;
+            }
+            for (String annotation : methodAnnotations) {
+                if (annotations.matchesFully(annotation)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
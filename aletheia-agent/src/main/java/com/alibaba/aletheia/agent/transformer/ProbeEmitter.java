@@ -0,0 +1,70 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import com.alibaba.aletheia.agent.probe.ProbeBootstrap;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * 埋点调用生成器
+ * 类文件版本支持 invokedynamic（Java 7+）时生成由 {@link ProbeBootstrap} 链接的 invokedynamic，
+ * 功能关闭后埋点被链接为空方法；更老的类文件退回 invokestatic 直接调用记录方法
+ *
+ * @author Aletheia Team
+ */
+public final class ProbeEmitter {
+
+    private static final Handle BOOTSTRAP = new Handle(Opcodes.H_INVOKESTATIC,
+            ProbeBootstrap.class.getName().replace('.', '/'), ProbeBootstrap.BOOTSTRAP_METHOD,
+            ProbeBootstrap.BOOTSTRAP_DESCRIPTOR, false);
+
+    private static final Handle BIND_METHOD_BOOTSTRAP = new Handle(Opcodes.H_INVOKESTATIC,
+            ProbeBootstrap.class.getName().replace('.', '/'), ProbeBootstrap.BIND_METHOD_BOOTSTRAP,
+            ProbeBootstrap.BIND_METHOD_BOOTSTRAP_DESCRIPTOR, false);
+
+    private ProbeEmitter() {
+    }
+
+    /**
+     * 判断类文件版本是否支持 invokedynamic
+     *
+     * @param version ClassVisitor.visit 收到的版本号
+     */
+    public static boolean supportsInvokeDynamic(int version) {
+        return (version & 0xFFFF) >= Opcodes.V1_7;
+    }
+
+    /**
+     * 生成对记录方法的调用
+     *
+     * @param mv         方法访问器
+     * @param indy       是否使用 invokedynamic
+     * @param owner      记录方法所在类的内部名
+     * @param name       记录方法名
+     * @param descriptor 记录方法描述符
+     * @param features   控制该埋点的功能名（多个用逗号分隔，任一启用即生效）
+     */
+    public static void invokeProbe(MethodVisitor mv, boolean indy, String owner, String name,
+                                   String descriptor, String features) {
+        if (indy) {
+            mv.visitInvokeDynamicInsn(name, descriptor, BOOTSTRAP, owner, features);
+        } else {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, owner, name, descriptor, false);
+        }
+    }
+
+    /**
+     * 生成方法 ID 在链接时才绑定的 invokedynamic 调用（用于离线织入，方法 ID 不进入字节码）
+     *
+     * @param mv              方法访问器
+     * @param owner           记录方法所在类的内部名
+     * @param name            记录方法名
+     * @param descriptor      调用点描述符（记录方法描述符去掉第一个 int 方法 ID 参数）
+     * @param features        控制该埋点的功能名
+     * @param methodSignature 方法签名（类名.方法名）
+     */
+    public static void invokeMethodProbe(MethodVisitor mv, String owner, String name, String descriptor,
+                                         String features, String methodSignature) {
+        mv.visitInvokeDynamicInsn(name, descriptor, BIND_METHOD_BOOTSTRAP, owner, features, methodSignature);
+    }
+}
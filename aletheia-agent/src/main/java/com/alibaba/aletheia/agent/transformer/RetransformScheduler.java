@@ -0,0 +1,194 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.common.constant.AletheiaConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * 运行时重新转换调度器
+ * 在后台线程中按批调用 {@link Instrumentation#retransformClasses}，避免一次性重新转换大量类造成长时间停顿
+ *
+ * <p>每批耗时超过停顿预算时批大小减半，低于预算一半时逐步恢复到配置值；批次之间短暂让出 CPU。
+ * 一批失败时逐个重试，定位并跳过无法转换的类。
+ *
+ * @author Aletheia Team
+ */
+public class RetransformScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetransformScheduler.class);
+
+    private final Instrumentation instrumentation;
+    private final AgentConfig config;
+    private final ExecutorService executor;
+
+    // 当前/最近一次任务的进度
+    private volatile String currentReason;
+    private volatile boolean running;
+    private volatile int totalClasses;
+    private volatile int doneClasses;
+    private volatile int failedClasses;
+    private volatile int batchSize;
+    private volatile long lastBatchMs;
+    private volatile long startTimeMs;
+    private volatile long elapsedMs;
+    private volatile long completedJobs;
+
+    public RetransformScheduler(Instrumentation instrumentation, AgentConfig config) {
+        this.instrumentation = instrumentation;
+        this.config = config;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Aletheia-Retransform");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 提交重新转换任务（按提交顺序依次执行）
+     *
+     * @param reason   触发原因（用于日志和进度）
+     * @param selector 按类名（内部格式）选择需要重新转换的类
+     * @return 任务句柄，完成时得到任务结束时的进度信息
+     */
+    public Future<Map<String, Object>> submit(String reason, Predicate<String> selector) {
+        if (!instrumentation.isRetransformClassesSupported()) {
+            LOGGER.warn("Retransform not supported by this JVM, skip: {}", reason);
+            return null;
+        }
+        return executor.submit(() -> run(reason, selector));
+    }
+
+    /**
+     * 获取进度信息
+     */
+    public Map<String, Object> getProgress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("running", running);
+        progress.put("reason", currentReason);
+        progress.put("totalClasses", totalClasses);
+        progress.put("doneClasses", doneClasses);
+        progress.put("failedClasses", failedClasses);
+        progress.put("batchSize", batchSize);
+        progress.put("lastBatchMs", lastBatchMs);
+        progress.put("elapsedMs", running ? System.currentTimeMillis() - startTimeMs : elapsedMs);
+        progress.put("completedJobs", completedJobs);
+        return progress;
+    }
+
+    /**
+     * 停止调度器（未执行的任务被丢弃）
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Map<String, Object> run(String reason, Predicate<String> selector) {
+        List<Class<?>> targets = selectClasses(selector);
+        int maxBatchSize = config.getInstrumentConfig().getRetransformBatchSize();
+        long budgetNs = TimeUnit.MILLISECONDS.toNanos(config.getInstrumentConfig().getRetransformPauseBudgetMs());
+
+        currentReason = reason;
+        totalClasses = targets.size();
+        doneClasses = 0;
+        failedClasses = 0;
+        batchSize = maxBatchSize;
+        startTimeMs = System.currentTimeMillis();
+        running = true;
+        LOGGER.info("Retransforming {} loaded classes ({})", targets.size(), reason);
+
+        try {
+            int index = 0;
+            while (index < targets.size() && !Thread.currentThread().isInterrupted()) {
+                int end = Math.min(index + batchSize, targets.size());
+                List<Class<?>> batch = targets.subList(index, end);
+
+                long start = System.nanoTime();
+                retransformBatch(batch);
+                long batchNs = System.nanoTime() - start;
+
+                index = end;
+                doneClasses = index;
+                lastBatchMs = TimeUnit.NANOSECONDS.toMillis(batchNs);
+                adaptBatchSize(batchNs, budgetNs, maxBatchSize);
+                LOGGER.debug("Retransform progress {}/{} ({}), batch {} ms", index, targets.size(), reason,
+                        lastBatchMs);
+
+                if (index < targets.size()) {
+                    Thread.sleep(AletheiaConstants.RETRANSFORM_BATCH_INTERVAL_MS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            elapsedMs = System.currentTimeMillis() - startTimeMs;
+            running = false;
+            completedJobs++;
+            LOGGER.info("Retransformed {}/{} classes in {} ms, {} failed ({})", doneClasses, totalClasses,
+                    elapsedMs, failedClasses, reason);
+        }
+        return getProgress();
+    }
+
+    /**
+     * 按本批耗时调整下一批大小
+     */
+    private void adaptBatchSize(long batchNs, long budgetNs, int maxBatchSize) {
+        if (batchNs > budgetNs && batchSize > 1) {
+            batchSize = Math.max(1, batchSize / 2);
+        } else if (batchNs < budgetNs / 2 && batchSize < maxBatchSize) {
+            batchSize = Math.min(maxBatchSize, batchSize * 2);
+        }
+    }
+
+    private List<Class<?>> selectClasses(Predicate<String> selector) {
+        List<Class<?>> targets = new ArrayList<>();
+        for (Class<?> clazz : instrumentation.getAllLoadedClasses()) {
+            if (clazz.isArray() || clazz.isPrimitive() || !instrumentation.isModifiableClass(clazz)) {
+                continue;
+            }
+            String internalName = clazz.getName().replace('.', '/');
+            if (internalName.contains("$$Lambda")) {
+                continue;
+            }
+            try {
+                if (selector.test(internalName)) {
+                    targets.add(clazz);
+                }
+            } catch (Exception e) {
+                LOGGER.debug("Selector failed for {}", internalName, e);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * 整批重新转换；失败时整批都不生效，逐个重试以跳过出错的类
+     */
+    private void retransformBatch(List<Class<?>> batch) {
+        try {
+            instrumentation.retransformClasses(batch.toArray(new Class<?>[0]));
+        } catch (Throwable batchError) {
+            LOGGER.debug("Batch retransform failed, retrying one by one", batchError);
+            for (Class<?> clazz : batch) {
+                try {
+                    instrumentation.retransformClasses(clazz);
+                } catch (Throwable e) {
+                    failedClasses++;
+                    LOGGER.warn("Failed to retransform class: {}", clazz.getName(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 编译后的增强范围
+ * 持有由 {@link AgentConfig} 中的包含/排除模式和切点编译出的 {@link ClassNameMatcher} 与 {@link PointcutMatcher}，
+ * 配置的模式版本号变化后在下一次使用时整体重建并替换，类加载路径上只比较版本号，无需复制模式集合
+ *
+ * <p>无法解析的切点在编译时忽略并告警（JMX 入口在加入配置前已校验）。
+ *
+ * @author Aletheia Team
+ */
+public class ScopeMatchers {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScopeMatchers.class);
+
+    private final AgentConfig config;
+
+    private volatile Compiled compiled = new Compiled(-1, ClassNameMatcher.EMPTY, ClassNameMatcher.EMPTY,
+            PointcutMatcher.EMPTY);
+
+    public ScopeMatchers(AgentConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * 获取包含模式匹配器（白名单）
+     */
+    public ClassNameMatcher getIncludeMatcher() {
+        return current().includeMatcher;
+    }
+
+    /**
+     * 获取排除模式匹配器（黑名单）
+     */
+    public ClassNameMatcher getExcludeMatcher() {
+        return current().excludeMatcher;
+    }
+
+    /**
+     * 获取切点匹配器（未配置切点时为 {@link PointcutMatcher#EMPTY}）
+     */
+    public PointcutMatcher getPointcutMatcher() {
+        return current().pointcutMatcher;
+    }
+
+    private Compiled current() {
+        Compiled snapshot = compiled;
+        if (snapshot.version == config.getPatternVersion()) {
+            return snapshot;
+        }
+        return rebuild();
+    }
+
+    /**
+     * 重新编译模式和切点
+     * 串行执行；先读版本号再读模式，编译期间的修改会使版本号再次变化，下一次使用时重建
+     */
+    private synchronized Compiled rebuild() {
+        long version = config.getPatternVersion();
+        Compiled snapshot = compiled;
+        if (snapshot.version == version) {
+            return snapshot;
+        }
+        snapshot = new Compiled(version,
+                ClassNameMatcher.compile(new ArrayList<>(config.getIncludePatterns())),
+                ClassNameMatcher.compile(new ArrayList<>(config.getExcludePatterns())),
+                PointcutMatcher.compile(validPointcuts(config.getPointcuts())));
+        compiled = snapshot;
+        return snapshot;
+    }
+
+    private static List<String> validPointcuts(Set<String> pointcuts) {
+        List<String> valid = new ArrayList<>(pointcuts.size());
+        for (String pointcut : pointcuts) {
+            try {
+                PointcutMatcher.validate(pointcut);
+                valid.add(pointcut);
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Invalid pointcut '{}': {}", pointcut, e.getMessage());
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * 某一版本模式的编译结果
+     */
+    private static final class Compiled {
+        final long version;
+        final ClassNameMatcher includeMatcher;
+        final ClassNameMatcher excludeMatcher;
+        final PointcutMatcher pointcutMatcher;
+
+        Compiled(long version, ClassNameMatcher includeMatcher, ClassNameMatcher excludeMatcher,
+                 PointcutMatcher pointcutMatcher) {
+            this.version = version;
+            this.includeMatcher = includeMatcher;
+            this.excludeMatcher = excludeMatcher;
+            this.pointcutMatcher = pointcutMatcher;
+        }
+    }
+}
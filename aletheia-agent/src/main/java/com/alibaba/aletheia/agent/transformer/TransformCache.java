@@ -0,0 +1,441 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 增强结果缓存
+ * 以“Transformer + 增强配置指纹 + 原始类字节码”的 SHA-1 为键，把增强后的字节码追加写入数据目录下的内存映射文件，
+ * 重启后未变化的类直接取回增强结果，不再重复执行 ASM 解析和帧计算
+ *
+ * <p>文件格式：头部（魔数、版本、已写入长度），之后依次为记录（键、元数据字符串列表、字节码）。
+ * 追加写入（同一键以最后一条记录为准），文件被其他 JVM 占用时不启用缓存。
+ *
+ * <p>打开时若被覆盖的旧记录不少于已写入长度的一半，先就地压缩；写满时再压缩，
+ * 只保留本次运行中读到或写入过的记录（类已升级或增强配置变化后，旧键不会再被命中）。
+ * 压缩后剩余空间仍不足时才停止写入。
+ *
+ * @author Aletheia Team
+ */
+public class TransformCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransformCache.class);
+
+    /**
+     * 缓存文件名
+     */
+    public static final String FILE_NAME = "transform-cache.bin";
+
+    private static final int MAGIC = 0x414C5443;
+    private static final int FORMAT_VERSION = 1;
+    private static final int END_OFFSET_POSITION = 8;
+    private static final int HEADER_SIZE = 16;
+    private static final int KEY_SIZE = 20;
+
+    /**
+     * 压缩后剩余空间低于 容量 / 该值 时视为已满，避免每次写入都重新压缩
+     */
+    private static final int MIN_FREE_DIVISOR = 8;
+
+    private final RandomAccessFile file;
+    private final FileLock lock;
+    private final MappedByteBuffer buffer;
+    private final Map<String, Slot> index = new HashMap<>();
+
+    /**
+     * 本次运行中读到或写入过的键（写满压缩时保留）
+     */
+    private final Set<String> usedKeys = new HashSet<>();
+    private int end;
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong rejected = new AtomicLong(0);
+    private final AtomicLong stores = new AtomicLong(0);
+    private final AtomicLong missTimeNs = new AtomicLong(0);
+    private final AtomicLong compactions = new AtomicLong(0);
+    private volatile boolean full;
+
+    private TransformCache(RandomAccessFile file, FileLock lock, MappedByteBuffer buffer) {
+        this.file = file;
+        this.lock = lock;
+        this.buffer = buffer;
+    }
+
+    /**
+     * 打开（或创建）缓存文件
+     *
+     * @param path     缓存文件
+     * @param maxBytes 文件最大长度
+     * @return 缓存，无法打开或文件被占用时返回 null
+     */
+    public static TransformCache open(File path, long maxBytes) {
+        RandomAccessFile raf = null;
+        try {
+            File parent = path.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                LOGGER.warn("Failed to create transform cache directory: {}", parent);
+                return null;
+            }
+            raf = new RandomAccessFile(path, "rw");
+            FileChannel channel = raf.getChannel();
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                LOGGER.warn("Transform cache {} is used by another process, cache disabled", path);
+                raf.close();
+                return null;
+            }
+            long size = Math.min(maxBytes, Integer.MAX_VALUE);
+            TransformCache cache = new TransformCache(raf, lock, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            cache.load();
+            LOGGER.info("Transform cache opened: {} ({} entries, {} bytes)", path, cache.index.size(), cache.end);
+            return cache;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Failed to open transform cache: {}", path, e);
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException ignored) {
+                    // ignore
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 计算缓存键
+     *
+     * @param transformer    Transformer 名称
+     * @param fingerprint    增强配置指纹
+     * @param classfileBytes 原始类字节码
+     */
+    public static byte[] key(String transformer, String fingerprint, byte[] classfileBytes) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(transformer.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(fingerprint.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(classfileBytes);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    /**
+     * 查询缓存
+     *
+     * @return 缓存记录，未命中返回 null
+     */
+    public synchronized Entry get(byte[] key) {
+        String hex = toHex(key);
+        Slot slot = index.get(hex);
+        if (slot == null) {
+            return null;
+        }
+        usedKeys.add(hex);
+        return readEntry(slot.offset);
+    }
+
+    /**
+     * 写入缓存（键已存在时追加新记录并覆盖索引；写满时先压缩，压缩后仍不足时忽略）
+     *
+     * @param key      缓存键
+     * @param data     增强后的字节码
+     * @param metadata 需要与字节码一同保存的元数据（如方法 ID 分配）
+     */
+    public synchronized void put(byte[] key, byte[] data, List<String> metadata) {
+        if (full) {
+            return;
+        }
+        String hex = toHex(key);
+        byte[] record;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(KEY_SIZE + data.length + 64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.write(key);
+            out.writeInt(metadata.size());
+            for (String value : metadata) {
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(utf8.length);
+                out.write(utf8);
+            }
+            out.writeInt(data.length);
+            out.write(data);
+            record = bytes.toByteArray();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to encode transform cache record", e);
+            return;
+        }
+        usedKeys.add(hex);
+        if ((long) end + record.length > buffer.capacity()) {
+            index.keySet().retainAll(usedKeys);
+            compact();
+            int free = buffer.capacity() - end;
+            if (record.length > free || free < buffer.capacity() / MIN_FREE_DIVISOR) {
+                full = true;
+                LOGGER.warn("Transform cache is full ({} bytes in use), new classes will not be cached", end);
+                return;
+            }
+        }
+        ByteBuffer target = buffer.duplicate();
+        target.position(end);
+        target.put(record);
+        index.put(hex, new Slot(end, record.length));
+        end += record.length;
+        // 记录写完后再更新长度，进程中途退出时最后一条不完整的记录会被忽略
+        buffer.putLong(END_OFFSET_POSITION, end);
+        stores.incrementAndGet();
+    }
+
+    /**
+     * 按写入顺序遍历有效记录（每个键最后一条）的元数据
+     */
+    public synchronized void forEachMetadata(Consumer<List<String>> consumer) {
+        for (Slot slot : liveSlots()) {
+            consumer.accept(readEntry(slot.offset).getMetadata());
+        }
+    }
+
+    /**
+     * 记录一次命中
+     */
+    public void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    /**
+     * 记录一次未命中
+     *
+     * @param transformNs 实际执行增强的耗时
+     * @param rejectedHit 是否为找到记录但元数据校验失败
+     */
+    public void recordMiss(long transformNs, boolean rejectedHit) {
+        misses.incrementAndGet();
+        missTimeNs.addAndGet(transformNs);
+        if (rejectedHit) {
+            rejected.incrementAndGet();
+        }
+    }
+
+    /**
+     * 获取统计信息（命中数、未命中数、按未命中平均增强耗时估算的节省时间）
+     */
+    public Map<String, Object> getStats() {
+        long missCount = misses.get();
+        long avgMissNs = missCount == 0 ? 0 : missTimeNs.get() / missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("misses", missCount);
+        stats.put("rejected", rejected.get());
+        stats.put("stores", stores.get());
+        stats.put("entries", size());
+        stats.put("usedBytes", usedBytes());
+        stats.put("capacityBytes", buffer.capacity());
+        stats.put("compactions", compactions.get());
+        stats.put("full", full);
+        stats.put("avgTransformMs", avgMissNs / 1e6);
+        stats.put("estimatedSavedMs", hits.get() * avgMissNs / 1e6);
+        return stats;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized int usedBytes() {
+        return end;
+    }
+
+    /**
+     * 关闭缓存文件
+     */
+    public synchronized void close() {
+        try {
+            buffer.force();
+            lock.release();
+            file.close();
+        } catch (IOException e) {
+            LOGGER.debug("Failed to close transform cache", e);
+        }
+    }
+
+    private void load() {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            // 新文件或格式不兼容：重新初始化
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, FORMAT_VERSION);
+            buffer.putLong(END_OFFSET_POSITION, HEADER_SIZE);
+        }
+        long recordedEnd = buffer.getLong(END_OFFSET_POSITION);
+        int limit = recordedEnd < HEADER_SIZE || recordedEnd > buffer.capacity() ? HEADER_SIZE : (int) recordedEnd;
+
+        int offset = HEADER_SIZE;
+        int liveBytes = 0;
+        try {
+            while (offset < limit) {
+                Entry entry = readEntry(offset);
+                if (entry.nextOffset > limit) {
+                    break;
+                }
+                int length = entry.nextOffset - offset;
+                Slot previous = index.put(toHex(entry.key), new Slot(offset, length));
+                liveBytes += length - (previous != null ? previous.length : 0);
+                offset = entry.nextOffset;
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Transform cache is corrupted after offset {}, truncating", offset, e);
+        }
+        end = offset;
+        buffer.putLong(END_OFFSET_POSITION, end);
+        if (end > HEADER_SIZE && liveBytes <= (end - HEADER_SIZE) / 2) {
+            compact();
+        }
+    }
+
+    /**
+     * 把索引中的记录按原顺序前移到文件头部之后，丢弃其余记录
+     * 目标位置不超过源位置，可以就地移动；移动期间长度记为只有头部，进程中途退出时缓存为空而不是损坏
+     */
+    private void compact() {
+        int before = end;
+        buffer.putLong(END_OFFSET_POSITION, HEADER_SIZE);
+        int position = HEADER_SIZE;
+        for (Slot slot : liveSlots()) {
+            if (slot.offset != position) {
+                byte[] record = new byte[slot.length];
+                ByteBuffer source = buffer.duplicate();
+                source.position(slot.offset);
+                source.get(record);
+                ByteBuffer target = buffer.duplicate();
+                target.position(position);
+                target.put(record);
+                slot.offset = position;
+            }
+            position += slot.length;
+        }
+        end = position;
+        buffer.putLong(END_OFFSET_POSITION, end);
+        compactions.incrementAndGet();
+        LOGGER.info("Transform cache compacted: {} -> {} bytes, {} entries", before, end, index.size());
+    }
+
+    /**
+     * 有效记录（按文件中的位置排序）
+     */
+    private List<Slot> liveSlots() {
+        List<Slot> slots = new ArrayList<>(index.values());
+        slots.sort(Comparator.comparingInt(slot -> slot.offset));
+        return slots;
+    }
+
+    private Entry readEntry(int offset) {
+        ByteBuffer source = buffer.duplicate();
+        source.position(offset);
+        byte[] key = new byte[KEY_SIZE];
+        source.get(key);
+        int metadataCount = checkedCount(source);
+        List<String> metadata = new ArrayList<>(metadataCount);
+        for (int i = 0; i < metadataCount; i++) {
+            byte[] utf8 = new byte[checkedLength(source)];
+            source.get(utf8);
+            metadata.add(new String(utf8, StandardCharsets.UTF_8));
+        }
+        byte[] data = new byte[checkedLength(source)];
+        source.get(data);
+        return new Entry(key, Collections.unmodifiableList(metadata), data, source.position());
+    }
+
+    /**
+     * 读取元数据条数：每条至少有 4 字节的长度，其后还有 4 字节的数据长度，损坏的条数不会导致按其分配
+     */
+    private static int checkedCount(ByteBuffer source) {
+        int count = source.getInt();
+        if (count < 0 || count > (source.remaining() - Integer.BYTES) / Integer.BYTES) {
+            throw new IllegalStateException("Invalid metadata count " + count);
+        }
+        return count;
+    }
+
+    private static int checkedLength(ByteBuffer source) {
+        int length = source.getInt();
+        if (length < 0 || length > source.remaining()) {
+            throw new IllegalStateException("Invalid record length " + length);
+        }
+        return length;
+    }
+
+    private static String toHex(byte[] key) {
+        StringBuilder sb = new StringBuilder(key.length * 2);
+        for (byte b : key) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 记录在文件中的位置
+     */
+    private static final class Slot {
+
+        private int offset;
+        private final int length;
+
+        Slot(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * 缓存记录
+     */
+    public static final class Entry {
+
+        private final byte[] key;
+        private final List<String> metadata;
+        private final byte[] data;
+        private final int nextOffset;
+
+        Entry(byte[] key, List<String> metadata, byte[] data, int nextOffset) {
+            this.key = key;
+            this.metadata = metadata;
+            this.data = data;
+            this.nextOffset = nextOffset;
+        }
+
+        public List<String> getMetadata() {
+            return metadata;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+    }
+}
@@ -1,16 +1,32 @@
 package com.alibaba.aletheia.agent.transformer;
 
 import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.agent.diagnostic.transformer.LockTransformer;
+import com.alibaba.aletheia.agent.probe.ProbeBootstrap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
 
 /**
  * Transformer 管理器
  * 统一管理所有 Transformer，支持动态添加/移除
+ * 所有 Transformer 都作为 {@link CompositeTransformer} 的成员，向 Instrumentation 只注册一个组合 Transformer，每个类只解析一次
+ * 启停 Transformer 或修改增强范围时，通过 {@link RetransformScheduler} 在后台分批重新转换已加载的类
+ * 卸载（{@link #detach()}）时从 Instrumentation 移除组合 Transformer，并把修改过的类重新转换回原始字节码
  *
  * @author Aletheia Team
  */
@@ -21,33 +37,57 @@ public class TransformerManager {
     private final Instrumentation instrumentation;
     private final AgentConfig config;
     private final Map<String, BaseTransformer> transformers = new ConcurrentHashMap<>();
+    private final CompositeTransformer pipeline;
+    private volatile boolean pipelineRegistered;
+    private final ClassFilter classFilter;
+    private final RetransformScheduler retransformScheduler;
+    private volatile boolean canRetransform;
+    private volatile TransformCache transformCache;
+    private volatile InstrumentationScope instrumentationScope;
+    private volatile MethodDenylist methodDenylist;
+    private volatile boolean detached;
+    private volatile int detachedClasses;
+    private volatile Future<Map<String, Object>> detachJob;
 
     public TransformerManager(Instrumentation instrumentation, AgentConfig config) {
         this.instrumentation = instrumentation;
         this.config = config;
+        this.classFilter = new ClassFilter(config);
+        this.pipeline = new CompositeTransformer(config);
+        this.retransformScheduler = new RetransformScheduler(instrumentation, config);
     }
 
     /**
-     * 注册 Transformer
+     * 注册 Transformer（加入组合 Transformer 的流水线末端）
      */
-    public void registerTransformer(String name, BaseTransformer transformer, boolean canRetransform) {
+    public synchronized void registerTransformer(String name, BaseTransformer transformer, boolean canRetransform) {
+        if (detached) {
+            LOGGER.warn("Agent detached, transformer {} not registered", name);
+            return;
+        }
         if (transformers.containsKey(name)) {
             LOGGER.warn("Transformer {} already registered, removing old one", name);
             removeTransformer(name);
         }
 
-        instrumentation.addTransformer(transformer, canRetransform);
+        pipeline.addTransformer(transformer);
         transformers.put(name, transformer);
+        if (!pipelineRegistered) {
+            // 同一 JVM 中卸载后再次挂载时，恢复上次卸载时断开的埋点
+            ProbeBootstrap.relinkAll();
+            instrumentation.addTransformer(pipeline, canRetransform);
+            pipelineRegistered = true;
+        }
         LOGGER.info("Transformer {} registered (canRetransform={})", name, canRetransform);
     }
 
     /**
      * 移除 Transformer
      */
-    public void removeTransformer(String name) {
+    public synchronized void removeTransformer(String name) {
         BaseTransformer transformer = transformers.remove(name);
         if (transformer != null) {
-            instrumentation.removeTransformer(transformer);
+            pipeline.removeTransformer(transformer);
             LOGGER.info("Transformer {} removed", name);
         }
     }
@@ -63,39 +103,254 @@ public class TransformerManager {
      * 初始化默认 Transformer
      */
     public void initDefaultTransformers(boolean canRetransform) {
+        this.canRetransform = canRetransform;
+        openTransformCache();
+
         // RT Transformer
         MethodRtTransformer rtTransformer = new MethodRtTransformer(config);
+        if (config.getProfileConfig().isProfileGuided()) {
+            // 按热点增强：启动时不埋点，由热点采样器填充白名单
+            instrumentationScope = new InstrumentationScope();
+            rtTransformer.setInstrumentationScope(instrumentationScope);
+        }
+        methodDenylist = rtTransformer.getDenylist();
         registerTransformer("RT", rtTransformer, canRetransform);
 
         // Lock Transformer（用于锁竞争诊断）
         if (config.isFeatureEnabled("Lock") || config.isFeatureEnabled("Thread")) {
-            com.alibaba.aletheia.agent.diagnostic.transformer.LockTransformer lockTransformer =
-                    new com.alibaba.aletheia.agent.diagnostic.transformer.LockTransformer(config);
-            registerTransformer("Lock", lockTransformer, canRetransform);
+            registerTransformer("Lock", new LockTransformer(config), canRetransform);
+        }
+    }
+
+    /**
+     * 打开增强结果缓存，并按缓存中的分配记录预先注册方法，使重启后的方法 ID 与缓存一致
+     */
+    private void openTransformCache() {
+        if (!config.getInstrumentConfig().isTransformCacheEnabled()) {
+            return;
+        }
+        String dataDir = config.getDataDir() != null
+                ? config.getDataDir()
+                : System.getProperty("java.io.tmpdir") + "/aletheia";
+        long maxBytes = config.getInstrumentConfig().getTransformCacheMaxMb() * 1024L * 1024L;
+        TransformCache cache = TransformCache.open(new File(dataDir, TransformCache.FILE_NAME), maxBytes);
+        if (cache != null) {
+            cache.forEachMetadata(MethodRtTransformer::seedRegistry);
+            transformCache = cache;
+            pipeline.setTransformCache(cache);
         }
     }
 
     /**
-     * 启用 Transformer
+     * 获取埋点方法白名单（未启用按热点增强时为 null）
+     */
+    public InstrumentationScope getInstrumentationScope() {
+        return instrumentationScope;
+    }
+
+    /**
+     * 获取去除埋点的方法名单（未初始化默认 Transformer 时为 null）
+     */
+    public MethodDenylist getMethodDenylist() {
+        return methodDenylist;
+    }
+
+    /**
+     * 是否支持重新转换已加载的类
+     */
+    public boolean canRetransform() {
+        return canRetransform;
+    }
+
+    /**
+     * 获取增强结果缓存统计（未启用缓存时为空）
+     */
+    public Map<String, Object> getTransformCacheStats() {
+        TransformCache cache = transformCache;
+        return cache != null ? cache.getStats() : Collections.<String, Object>emptyMap();
+    }
+
+    /**
+     * 启用 Transformer，并在后台重新转换范围内已加载的类
      */
     public void enableTransformer(String name) {
-        BaseTransformer transformer = transformers.get(name);
+        // 锁诊断 Transformer 按需注册（Lock 和 Thread 功能共用）
+        if (("Lock".equals(name) || "Thread".equals(name)) && !transformers.containsKey("Lock")) {
+            registerTransformer("Lock", new LockTransformer(config), canRetransform);
+        }
+        String registeredName = "Thread".equals(name) ? "Lock" : name;
+        BaseTransformer transformer = transformers.get(registeredName);
         if (transformer != null) {
             LOGGER.info("Transformer {} enabled", name);
+            retransformScope("enable " + name, null);
         } else {
             LOGGER.warn("Transformer {} not found", name);
         }
     }
 
     /**
-     * 禁用 Transformer
+     * 禁用 Transformer，并在后台重新转换已加载的类以移除埋点
      */
     public void disableTransformer(String name) {
-        BaseTransformer transformer = transformers.get(name);
+        String registeredName = "Thread".equals(name) ? "Lock" : name;
+        BaseTransformer transformer = transformers.get(registeredName);
         if (transformer != null) {
             LOGGER.info("Transformer {} disabled", name);
+            retransformScope("disable " + name, null);
         } else {
             LOGGER.warn("Transformer {} not found", name);
         }
     }
+
+    /**
+     * 重新转换增强范围变化涉及的已加载类
+     *
+     * @param reason 触发原因
+     * @param pattern 变化的包含或排除模式（内部格式，支持 ?、*、** 通配符，与配置中的模式同样编译），
+     *                为 null 时表示当前增强范围内的类和已被修改过的类
+     */
+    public void retransformScope(String reason, String pattern) {
+        Predicate<String> selector;
+        if (pattern == null) {
+            selector = this::inScopeOrModified;
+        } else {
+            ClassNameMatcher matcher = ClassNameMatcher.compile(Collections.singletonList(pattern));
+            selector = matcher::matches;
+        }
+        retransform(reason, selector);
+    }
+
+    /**
+     * 当前增强范围内（按包含、排除模式）的类需要按新配置增强，已被修改过的类可能需要恢复，
+     * 范围外的框架和类库类不受影响
+     */
+    private boolean inScopeOrModified(String className) {
+        return classFilter.matchesPatterns(className) || pipeline.getModifiedClasses().contains(className);
+    }
+
+    /**
+     * 在后台分批重新转换按类名选中的已加载类
+     */
+    public void retransform(String reason, Predicate<String> selector) {
+        if (detached) {
+            LOGGER.debug("Agent detached, skip retransform: {}", reason);
+            return;
+        }
+        if (!canRetransform) {
+            LOGGER.debug("Transformers registered without retransform support, skip: {}", reason);
+            return;
+        }
+        retransformScheduler.submit(reason, selector);
+    }
+
+    /**
+     * 获取重新转换进度
+     */
+    public Map<String, Object> getRetransformProgress() {
+        return retransformScheduler.getProgress();
+    }
+
+    /**
+     * 卸载所有 Transformer 并恢复修改过的类
+     * 组合 Transformer 移出 Instrumentation 后，重新转换时不再有 Aletheia 的 Transformer 参与，类恢复为原始字节码；
+     * 恢复沿用后台分批重新转换（受停顿预算约束），排在已提交的重新转换任务之后。卸载后不再注册 Transformer
+     *
+     * @return 恢复任务句柄（不支持重新转换时为 null），重复调用返回同一任务
+     */
+    public synchronized Future<Map<String, Object>> detach() {
+        if (detached) {
+            return detachJob;
+        }
+        detached = true;
+        if (pipelineRegistered) {
+            instrumentation.removeTransformer(pipeline);
+            pipelineRegistered = false;
+        }
+        for (String name : new ArrayList<>(transformers.keySet())) {
+            removeTransformer(name);
+        }
+        // 恢复完成前以及恢复失败的类中，埋点都不再记录
+        ProbeBootstrap.unlinkAll();
+
+        Set<String> modifiedClasses = new HashSet<>(pipeline.getModifiedClasses());
+        detachedClasses = modifiedClasses.size();
+        if (!canRetransform) {
+            LOGGER.warn("Transformers removed, {} modified classes cannot be restored without retransform support",
+                    modifiedClasses.size());
+            return null;
+        }
+        LOGGER.info("Transformers removed, restoring {} modified classes", modifiedClasses.size());
+        detachJob = retransformScheduler.submit("detach", modifiedClasses::contains);
+        return detachJob;
+    }
+
+    /**
+     * 等待卸载时的类恢复完成
+     *
+     * @param timeoutMs 最长等待时间（毫秒）
+     * @return 卸载状态，见 {@link #getDetachStatus()}
+     */
+    public Map<String, Object> awaitDetach(long timeoutMs) {
+        Future<Map<String, Object>> job = detachJob;
+        if (job != null) {
+            try {
+                job.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException e) {
+                LOGGER.warn("Restoring modified classes did not complete", e);
+            }
+        }
+        return getDetachStatus();
+    }
+
+    /**
+     * 获取卸载状态（是否已卸载、需恢复的类数，恢复完成后包括已恢复和失败的类数，进行中时包括恢复进度）
+     */
+    public Map<String, Object> getDetachStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("detached", detached);
+        if (!detached) {
+            status.put("modifiedClasses", pipeline.getModifiedClasses().size());
+            return status;
+        }
+        status.put("modifiedClasses", detachedClasses);
+        Future<Map<String, Object>> job = detachJob;
+        if (job == null) {
+            status.put("restoredClasses", 0);
+            return status;
+        }
+        if (!job.isDone()) {
+            status.put("completed", false);
+            status.put("progress", retransformScheduler.getProgress());
+            return status;
+        }
+        status.put("completed", true);
+        try {
+            Map<String, Object> result = job.get();
+            int done = (Integer) result.get("doneClasses");
+            int failed = (Integer) result.get("failedClasses");
+            status.put("restoredClasses", done - failed);
+            status.put("failedClasses", failed);
+            status.put("elapsedMs", result.get("elapsedMs"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            status.put("error", String.valueOf(e.getCause()));
+        }
+        return status;
+    }
+
+    /**
+     * 停止后台重新转换并关闭增强结果缓存
+     */
+    public void shutdown() {
+        retransformScheduler.shutdown();
+        TransformCache cache = transformCache;
+        if (cache != null) {
+            transformCache = null;
+            pipeline.setTransformCache(null);
+            cache.close();
+        }
+    }
 }
@@ -0,0 +1,323 @@
+package com.alibaba.aletheia.agent.weaver;
+
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.agent.diagnostic.transformer.LockTransformer;
+import com.alibaba.aletheia.agent.transformer.BaseTransformer;
+import com.alibaba.aletheia.agent.transformer.CompositeTransformer;
+import com.alibaba.aletheia.agent.transformer.MethodRtTransformer;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.instrument.IllegalClassFormatException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 离线织入工具
+ * 在构建阶段用与 Agent 相同的 Transformer 流水线（RT、Lock）增强 jar 或类目录，输出预增强的产物，
+ * 运行时 Agent 通过 {@link WovenMarker} 识别并跳过这些类，类加载阶段不再有增强开销
+ *
+ * <p>RT 埋点的方法 ID 在运行时链接埋点时才分配，因此织入结果与运行时的方法注册表无关；
+ * 织入产物运行时需要挂载 Agent（埋点引导类位于 Agent 中），功能开关仍然通过重新链接埋点生效。
+ *
+ * <pre>
+ * java -jar aletheia-agent.jar &lt;输入 jar 或目录&gt; &lt;输出 jar 或目录&gt;
+ *      [--features RT,Lock] [--include 前缀]... [--exclude 前缀]... [--classpath 路径] [--threads N]
+ * </pre>
+ *
+ * @author Aletheia Team
+ */
+public final class OfflineWeaver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OfflineWeaver.class);
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private static final String META_INF = "META-INF/";
+
+    private static final String DEFAULT_FEATURES = "RT";
+
+    private static final List<String> WEAVABLE_FEATURES = Arrays.asList("RT", "Lock");
+
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private static final int EXIT_USAGE = 2;
+
+    private static final int EXIT_FAILURE = 1;
+
+    private final CompositeTransformer pipeline;
+    private final ClassLoader hierarchyLoader;
+    private final int threads;
+
+    private final AtomicInteger wovenClasses = new AtomicInteger(0);
+    private final AtomicInteger unchangedClasses = new AtomicInteger(0);
+
+    /**
+     * @param config          增强配置（功能开关、包含/排除模式、埋点过滤）
+     * @param hierarchyLoader 用于解析类继承关系的 ClassLoader（应能找到输入及其依赖的类文件）
+     * @param threads         并行增强的线程数
+     */
+    public OfflineWeaver(AgentConfig config, ClassLoader hierarchyLoader, int threads) {
+        this.hierarchyLoader = hierarchyLoader;
+        this.threads = Math.max(1, threads);
+        this.pipeline = new CompositeTransformer(config);
+        pipeline.addTransformer(new MethodRtTransformer(config, true));
+        pipeline.addTransformer(new LockTransformer(config));
+        pipeline.addTransformer(new MarkerTransformer(config));
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            printUsage();
+            System.exit(EXIT_USAGE);
+        }
+        File input = new File(args[0]);
+        File output = new File(args[1]);
+        String features = DEFAULT_FEATURES;
+        List<String> includes = new ArrayList<>();
+        List<String> excludes = new ArrayList<>();
+        List<File> classpath = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 2; i < args.length; i++) {
+                String option = args[i];
+                String value = i + 1 < args.length ? args[++i] : null;
+                if (value == null) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                switch (option) {
+                    case "--features":
+                        features = value;
+                        break;
+                    case "--include":
+                        includes.add(value.replace('.', '/'));
+                        break;
+                    case "--exclude":
+                        excludes.add(value.replace('.', '/'));
+                        break;
+                    case "--classpath":
+                        for (String path : value.split(File.pathSeparator)) {
+                            classpath.add(new File(path));
+                        }
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + option);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(EXIT_USAGE);
+        }
+
+        AgentConfig config = AgentConfig.getInstance();
+        List<String> enabled = Arrays.asList(features.split(","));
+        for (String feature : WEAVABLE_FEATURES) {
+            if (enabled.contains(feature)) {
+                config.enableFeature(feature);
+            } else {
+                config.disableFeature(feature);
+            }
+        }
+        includes.forEach(config::addIncludePattern);
+        excludes.forEach(config::addExcludePattern);
+
+        classpath.add(0, input);
+        try (URLClassLoader loader = new URLClassLoader(toUrls(classpath),
+                ClassLoader.getSystemClassLoader().getParent())) {
+            new OfflineWeaver(config, loader, threads).weave(input, output);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Offline weaving failed", e);
+            System.exit(EXIT_FAILURE);
+        }
+    }
+
+    /**
+     * 织入 jar 或类目录
+     *
+     * @param input  输入 jar 或目录
+     * @param output 输出 jar 或目录（输入为目录时输出也是目录）
+     */
+    public void weave(File input, File output) throws IOException {
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Aletheia-Weaver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            if (input.isDirectory()) {
+                weaveDirectory(input.toPath(), output.toPath(), executor);
+            } else {
+                weaveJar(input, output, executor);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        LOGGER.info("Woven {} -> {}: {} class(es) instrumented, {} unchanged, {} ms", input, output,
+                wovenClasses.get(), unchangedClasses.get(), System.currentTimeMillis() - start);
+    }
+
+    public int getWovenClasses() {
+        return wovenClasses.get();
+    }
+
+    public int getUnchangedClasses() {
+        return unchangedClasses.get();
+    }
+
+    private void weaveJar(File input, File output, ExecutorService executor) throws IOException {
+        try (JarFile jar = new JarFile(input);
+             JarOutputStream out = new JarOutputStream(new FileOutputStream(output))) {
+            List<String> names = new ArrayList<>();
+            List<Future<byte[]>> results = new ArrayList<>();
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                if (entry.isDirectory() || isSignatureFile(entry.getName())) {
+                    continue;
+                }
+                byte[] bytes;
+                try (InputStream in = jar.getInputStream(entry)) {
+                    bytes = readFully(in);
+                }
+                names.add(entry.getName());
+                results.add(submit(executor, entry.getName(), bytes));
+            }
+            // 按原顺序写出
+            for (int i = 0; i < names.size(); i++) {
+                out.putNextEntry(new JarEntry(names.get(i)));
+                out.write(await(results.get(i)));
+                out.closeEntry();
+            }
+        }
+    }
+
+    private void weaveDirectory(Path input, Path output, ExecutorService executor) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(input)) {
+            files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        List<Future<byte[]>> results = new ArrayList<>(files.size());
+        for (Path file : files) {
+            String name = input.relativize(file).toString().replace(File.separatorChar, '/');
+            results.add(submit(executor, name, Files.readAllBytes(file)));
+        }
+        for (int i = 0; i < files.size(); i++) {
+            Path target = output.resolve(input.relativize(files.get(i)));
+            Files.createDirectories(target.getParent());
+            try (OutputStream out = Files.newOutputStream(target)) {
+                out.write(await(results.get(i)));
+            }
+        }
+    }
+
+    private Future<byte[]> submit(ExecutorService executor, String entryName, byte[] bytes) {
+        if (!entryName.endsWith(CLASS_SUFFIX) || entryName.startsWith(META_INF)) {
+            return executor.submit(() -> bytes);
+        }
+        String className = entryName.substring(0, entryName.length() - CLASS_SUFFIX.length());
+        return executor.submit(() -> weaveClass(className, bytes));
+    }
+
+    /**
+     * 增强一个类，无需增强或增强失败时返回原始字节码
+     */
+    byte[] weaveClass(String className, byte[] bytes) throws IllegalClassFormatException {
+        byte[] woven = pipeline.transform(hierarchyLoader, className, null, null, bytes);
+        if (woven == null) {
+            unchangedClasses.incrementAndGet();
+            return bytes;
+        }
+        wovenClasses.incrementAndGet();
+        return woven;
+    }
+
+    private static byte[] await(Future<byte[]> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while weaving", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to weave entry", e.getCause());
+        }
+    }
+
+    /**
+     * 织入后原有签名失效，不再复制签名文件
+     */
+    private static boolean isSignatureFile(String name) {
+        if (!name.startsWith(META_INF) || name.indexOf('/', META_INF.length()) >= 0) {
+            return false;
+        }
+        return name.endsWith(".SF") || name.endsWith(".RSA") || name.endsWith(".DSA") || name.endsWith(".EC");
+    }
+
+    private static URL[] toUrls(List<File> files) throws MalformedURLException {
+        URL[] urls = new URL[files.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = files.get(i).toURI().toURL();
+        }
+        return urls;
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java -jar aletheia-agent.jar <input jar|dir> <output jar|dir>"
+                + " [--features RT,Lock] [--include prefix]... [--exclude prefix]..."
+                + " [--classpath path] [--threads N]");
+    }
+
+    /**
+     * 流水线末端的标记 Transformer，为织入结果写入 {@link WovenMarker}
+     */
+    private static final class MarkerTransformer extends BaseTransformer {
+
+        MarkerTransformer(AgentConfig config) {
+            super(config);
+        }
+
+        @Override
+        protected ClassVisitor createVisitor(ClassVisitor next, ClassReader classReader, String className) {
+            return WovenMarker.mark(next);
+        }
+    }
+}
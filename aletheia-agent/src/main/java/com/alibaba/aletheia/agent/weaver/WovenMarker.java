@@ -0,0 +1,98 @@
+package com.alibaba.aletheia.agent.weaver;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 离线织入标记
+ * {@link OfflineWeaver} 输出的类带有一个运行时不可见的类注解，Agent 在过滤阶段识别后直接跳过，不再重复增强
+ *
+ * <p>识别只扫描常量池中的 UTF8 常量，不遍历类结构；注解类型本身不需要存在。
+ *
+ * @author Aletheia Team
+ */
+public final class WovenMarker {
+
+    /**
+     * 标记注解描述符
+     */
+    public static final String DESCRIPTOR = "Lcom/alibaba/aletheia/agent/weaver/Woven;";
+
+    private static final byte[] DESCRIPTOR_UTF8 = DESCRIPTOR.getBytes(StandardCharsets.UTF_8);
+
+    private static final int CONSTANT_UTF8 = 1;
+
+    private static final AtomicLong SKIPPED = new AtomicLong(0);
+
+    private WovenMarker() {
+    }
+
+    /**
+     * 判断类是否已离线织入
+     *
+     * @param classReader     已解析的类
+     * @param classfileBuffer 类文件字节码（classReader 的来源）
+     */
+    public static boolean isWoven(ClassReader classReader, byte[] classfileBuffer) {
+        for (int i = 1, n = classReader.getItemCount(); i < n; i++) {
+            int offset = classReader.getItem(i);
+            // offset 指向 tag 之后；long/double 占用的第二个槽位为 0
+            if (offset > 0 && classfileBuffer[offset - 1] == CONSTANT_UTF8 && utf8Equals(classfileBuffer, offset)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 为类添加离线织入标记
+     *
+     * @param next 下游访问器
+     * @return 在类结束时写入标记注解的访问器
+     */
+    public static ClassVisitor mark(ClassVisitor next) {
+        return new ClassVisitor(Opcodes.ASM9, next) {
+            @Override
+            public void visitEnd() {
+                AnnotationVisitor marker = super.visitAnnotation(DESCRIPTOR, false);
+                if (marker != null) {
+                    marker.visitEnd();
+                }
+                super.visitEnd();
+            }
+        };
+    }
+
+    /**
+     * 记录一次因已织入而跳过的增强
+     */
+    public static void recordSkipped() {
+        SKIPPED.incrementAndGet();
+    }
+
+    /**
+     * 因已织入而跳过增强的类数
+     */
+    public static long getSkippedCount() {
+        return SKIPPED.get();
+    }
+
+    private static boolean utf8Equals(byte[] buffer, int offset) {
+        int length = ((buffer[offset] & 0xFF) << 8) | (buffer[offset + 1] & 0xFF);
+        if (length != DESCRIPTOR_UTF8.length) {
+            return false;
+        }
+        int start = offset + 2;
+        for (int i = 0; i < length; i++) {
+            if (buffer[start + i] != DESCRIPTOR_UTF8[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
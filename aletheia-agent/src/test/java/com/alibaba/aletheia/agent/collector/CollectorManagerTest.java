@@ -0,0 +1,180 @@
+package com.alibaba.aletheia.agent.collector;
+
+import com.alibaba.aletheia.agent.collector.gc.GcEventCollector;
+import com.alibaba.aletheia.agent.collector.memory.MemoryCollector;
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.agent.exporter.BaseExporter;
+import com.alibaba.aletheia.agent.exporter.ExporterManager;
+import com.alibaba.aletheia.agent.sampler.MethodRegistry;
+import com.alibaba.aletheia.agent.sampler.RtSampler;
+import com.alibaba.aletheia.common.model.AgentData;
+import com.alibaba.aletheia.common.model.RtEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * CollectorManager 测试类
+ *
+ * @author Aletheia Team
+ */
+public class CollectorManagerTest {
+
+    private static final String[] FEATURES = {"RT", "GC", "Memory"};
+
+    private static final int METHODS = 8;
+
+    /**
+     * 每个窗口每个方法的调用次数（保证按最低采样率也能采到样本，直方图不被释放）
+     */
+    private static final int CALLS_PER_WINDOW = 2000;
+
+    /**
+     * 间歇方法每隔多少个窗口调用一次（空闲窗口数小于直方图的释放阈值）
+     */
+    private static final int INTERMITTENT_PERIOD = 10;
+
+    private static final int WARMUP_CYCLES = 200;
+
+    private static final int MEASURED_CYCLES = 101;
+
+    /**
+     * 稳态下每次采集允许的分配量：剩余的分配来自 JMX 每次返回的 MemoryUsage 对象
+     */
+    private static final long MAX_BYTES_PER_CYCLE = 512;
+
+    private final AgentConfig config = AgentConfig.getInstance();
+    private final boolean[] featureStates = new boolean[FEATURES.length];
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < FEATURES.length; i++) {
+            featureStates[i] = config.isFeatureEnabled(FEATURES[i]);
+            config.enableFeature(FEATURES[i]);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (int i = 0; i < FEATURES.length; i++) {
+            if (!featureStates[i]) {
+                config.disableFeature(FEATURES[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testSteadyStateCollectionCycleDoesNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        CollectorManager manager = new CollectorManager(config);
+        GcEventCollector gcCollector = new GcEventCollector(config);
+        MemoryCollector memoryCollector = new MemoryCollector(config);
+        manager.registerCollector("GC", gcCollector);
+        manager.registerCollector("Memory", memoryCollector);
+        gcCollector.start();
+        memoryCollector.start();
+
+        // 导出路径也在测量范围内；文件导出器未启动，只有计数导出器接收数据
+        ExporterManager exporterManager = new ExporterManager(config);
+        exporterManager.start();
+        CountingExporter exporter = new CountingExporter();
+        exporterManager.registerExporter("counting", exporter);
+        manager.setExporterManager(exporterManager);
+
+        int[] methodIds = new int[METHODS];
+        for (int i = 0; i < METHODS; i++) {
+            methodIds[i] = MethodRegistry.getInstance().register("com.example.Steady.call" + i);
+        }
+        int intermittentId = MethodRegistry.getInstance().register("com.example.Steady.intermittent");
+
+        try {
+            for (int i = 0; i < WARMUP_CYCLES; i++) {
+                runCycle(manager, methodIds, intermittentId, i);
+            }
+
+            long[] allocated = new long[MEASURED_CYCLES];
+            exporter.exports = 0;
+            exporter.intermittentExports = 0;
+            for (int i = 0; i < MEASURED_CYCLES; i++) {
+                long before = threadBean.getThreadAllocatedBytes(threadId);
+                runCycle(manager, methodIds, intermittentId, i);
+                allocated[i] = threadBean.getThreadAllocatedBytes(threadId) - before;
+            }
+
+            // 每次采集都不超过上限：空闲后再次调用的方法复用保留的直方图，不会在某个周期集中分配
+            long max = 0;
+            for (long bytes : allocated) {
+                max = Math.max(max, bytes);
+            }
+            assertTrue("Bytes allocated per collection cycle: " + Arrays.toString(allocated),
+                    max <= MAX_BYTES_PER_CYCLE);
+            assertEquals("Every cycle should be exported", MEASURED_CYCLES, exporter.exports);
+            assertEquals("Intermittent method should be exported whenever it is called",
+                    (MEASURED_CYCLES + INTERMITTENT_PERIOD - 1) / INTERMITTENT_PERIOD, exporter.intermittentExports);
+        } finally {
+            exporterManager.stop();
+            gcCollector.stop();
+            memoryCollector.stop();
+        }
+    }
+
+    private static void runCycle(CollectorManager manager, int[] methodIds, int intermittentId, int cycle) {
+        for (int methodId : methodIds) {
+            call(methodId);
+        }
+        if (cycle % INTERMITTENT_PERIOD == 0) {
+            call(intermittentId);
+        }
+        manager.collectAndExportData();
+    }
+
+    private static void call(int methodId) {
+        for (int i = 0; i < CALLS_PER_WINDOW; i++) {
+            RtSampler.onMethodEnd(methodId, RtSampler.onMethodStart(methodId));
+        }
+    }
+
+    /**
+     * 只计数的导出器（导出时不分配）
+     */
+    private static final class CountingExporter extends BaseExporter {
+
+        private int exports;
+        private int intermittentExports;
+
+        @Override
+        protected void doExport(AgentData agentData) {
+            exports++;
+            List<RtEvent> rtEvents = agentData.getRtEvents();
+            if (rtEvents == null) {
+                return;
+            }
+            for (int i = 0; i < rtEvents.size(); i++) {
+                if ("com.example.Steady.intermittent".equals(rtEvents.get(i).getMethodSignature())) {
+                    intermittentExports++;
+                }
+            }
+        }
+
+        @Override
+        protected void doStart() {
+        }
+
+        @Override
+        protected void doStop() {
+        }
+    }
+}
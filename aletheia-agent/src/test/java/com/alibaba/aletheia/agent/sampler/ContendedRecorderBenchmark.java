@@ -0,0 +1,99 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 多线程争用同一记录器的基准测试
+ * 对比共享 {@link AtomicLong} 计数、CAS 循环求极值与按线程分散的 {@link LongAdder}、{@link LongAccumulator}，
+ * 以及所有线程记录同一方法时 {@link RtAggregator} 的吞吐，用于验证吞吐随线程数线性增长
+ *
+ * <p>运行方式：执行 main 方法，依次以 1 到 64 个线程运行全部基准
+ *
+ * @author Aletheia Team
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContendedRecorderBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+    private AtomicLong sharedCounter;
+    private AtomicLong sharedMax;
+    private LongAdder stripedCounter;
+    private LongAccumulator stripedMax;
+    private RtAggregator aggregator;
+    private int methodId;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        sharedCounter = new AtomicLong();
+        sharedMax = new AtomicLong();
+        stripedCounter = new LongAdder();
+        stripedMax = new LongAccumulator(Math::max, 0);
+
+        MethodRegistry registry = new MethodRegistry();
+        aggregator = new RtAggregator(2, registry);
+        methodId = registry.register("com.example.Hot.call");
+    }
+
+    @Benchmark
+    public void counterAtomicLong() {
+        sharedCounter.incrementAndGet();
+    }
+
+    @Benchmark
+    public void counterLongAdder() {
+        stripedCounter.increment();
+    }
+
+    @Benchmark
+    public void maxCasLoop() {
+        long value = ThreadLocalRandom.current().nextLong(1, 1_000_000);
+        long current = sharedMax.get();
+        while (value > current && !sharedMax.compareAndSet(current, value)) {
+            current = sharedMax.get();
+        }
+    }
+
+    @Benchmark
+    public void maxLongAccumulator() {
+        stripedMax.accumulate(ThreadLocalRandom.current().nextLong(1, 1_000_000));
+    }
+
+    @Benchmark
+    public void recordSameMethod() {
+        aggregator.recordRtNs(methodId, ThreadLocalRandom.current().nextLong(1_000, 1_000_000));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : THREAD_COUNTS) {
+            new Runner(new OptionsBuilder()
+                    .include(ContendedRecorderBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+}
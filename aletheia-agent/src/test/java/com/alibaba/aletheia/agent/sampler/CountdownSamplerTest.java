@@ -0,0 +1,53 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * CountdownSampler 测试类
+ *
+ * @author Aletheia Team
+ */
+public class CountdownSamplerTest {
+
+    private static final int CALLS = 1_000_000;
+
+    @Test
+    public void testSampledFractionMatchesRate() {
+        double[] rates = {0.001, 0.01, 0.1, 0.5};
+        for (double rate : rates) {
+            CountdownSampler sampler = new CountdownSampler(rate);
+            assertEquals("Sampled fraction for rate " + rate, rate, sampledFraction(sampler), rate * 0.15);
+        }
+    }
+
+    @Test
+    public void testRateChangeTakesEffectImmediately() {
+        CountdownSampler sampler = new CountdownSampler(0.0001);
+        sampler.shouldSample();
+
+        // 之前抽取的长间隔不应延续到新采样率下
+        sampler.setRate(1.0);
+        assertTrue("Rate 1.0 should sample the next call", sampler.shouldSample());
+        assertEquals("Rate 1.0 should sample every call", 1.0, sampledFraction(sampler), 0.0);
+
+        sampler.setRate(0.0);
+        assertEquals("Rate 0.0 should never sample", 0.0, sampledFraction(sampler), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRate() {
+        new CountdownSampler(1.5);
+    }
+
+    private static double sampledFraction(CountdownSampler sampler) {
+        int sampled = 0;
+        for (int i = 0; i < CALLS; i++) {
+            if (sampler.shouldSample()) {
+                sampled++;
+            }
+        }
+        return (double) sampled / CALLS;
+    }
+}
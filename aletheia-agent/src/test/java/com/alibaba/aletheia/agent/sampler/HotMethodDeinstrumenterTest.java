@@ -0,0 +1,104 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.agent.transformer.MethodDenylist;
+import com.alibaba.aletheia.common.model.RtEvent;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.*;
+
+/**
+ * HotMethodDeinstrumenter 测试类
+ *
+ * @author Aletheia Team
+ */
+public class HotMethodDeinstrumenterTest {
+
+    private static final long WINDOW_NS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final int SAMPLES = 100;
+
+    @Test
+    public void testOnlyFrequentCheapMethodsAreRemovedWithinCap() {
+        AgentConfig config = AgentConfig.getInstance();
+        int maxPerMinute = config.getProfileConfig().getDeinstrumentMaxPerMinute();
+        MethodDenylist denylist = new MethodDenylist();
+        List<Predicate<String>> retransforms = new ArrayList<>();
+        HotMethodDeinstrumenter deinstrumenter = new HotMethodDeinstrumenter(config, denylist,
+                (reason, selector) -> retransforms.add(selector));
+        try {
+            config.getProfileConfig().setDeinstrumentMaxPerMinute(1);
+            long hot = config.getProfileConfig().getDeinstrumentMinCallsPerSec() * 2;
+            long cheap = config.getProfileConfig().getDeinstrumentMaxMeanNs() / 2;
+
+            deinstrumenter.onWindow(Arrays.asList(
+                    event("com.example.Point.getX", hot, cheap),
+                    event("com.example.Point.getY", hot * 2, cheap),
+                    event("com.example.Service.handle", hot, config.getProfileConfig().getDeinstrumentMaxMeanNs() * 10),
+                    event("com.example.Dao.rare", config.getProfileConfig().getDeinstrumentMinCallsPerSec() / 10, cheap)), 0);
+
+            assertEquals("Hottest candidate goes first, the other waits for the cap",
+                    1, denylist.size());
+            assertTrue(denylist.contains("com.example.Point.getY"));
+            assertEquals(1, retransforms.size());
+            assertTrue(retransforms.get(0).test("com/example/Point"));
+            assertFalse(retransforms.get(0).test("com/example/Service"));
+
+            // 同一分钟内不再去除
+            deinstrumenter.onWindow(Arrays.asList(event("com.example.Point.getX", hot, cheap)),
+                    TimeUnit.SECONDS.toMillis(30));
+            assertFalse(denylist.contains("com.example.Point.getX"));
+
+            deinstrumenter.onWindow(Arrays.asList(event("com.example.Point.getX", hot, cheap)),
+                    TimeUnit.MINUTES.toMillis(1));
+            assertTrue(denylist.contains("com.example.Point.getX"));
+            assertFalse(denylist.contains("com.example.Service.handle"));
+            assertFalse(denylist.contains("com.example.Dao.rare"));
+
+            Map<String, Object> report = deinstrumenter.getReport();
+            assertEquals(2L, report.get("removed"));
+            assertEquals(2L, report.get("deferred"));
+            assertEquals(2, ((List<?>) report.get("methods")).size());
+        } finally {
+            config.getProfileConfig().setDeinstrumentMaxPerMinute(maxPerMinute);
+        }
+    }
+
+    @Test
+    public void testOverloadedMethodsAreKept() {
+        AgentConfig config = AgentConfig.getInstance();
+        MethodDenylist denylist = new MethodDenylist();
+        List<Predicate<String>> retransforms = new ArrayList<>();
+        HotMethodDeinstrumenter deinstrumenter = new HotMethodDeinstrumenter(config, denylist,
+                (reason, selector) -> retransforms.add(selector));
+        long hot = config.getProfileConfig().getDeinstrumentMinCallsPerSec() * 2;
+        long cheap = config.getProfileConfig().getDeinstrumentMaxMeanNs() / 2;
+
+        // 合并统计看似廉价，但去除会同时移除同名的其他重载
+        denylist.markOverloaded("com.example.Codec.encode");
+        deinstrumenter.onWindow(Arrays.asList(event("com.example.Codec.encode", hot, cheap)), 0);
+
+        assertFalse(denylist.contains("com.example.Codec.encode"));
+        assertFalse(denylist.add("com.example.Codec.encode"));
+        assertTrue(retransforms.isEmpty());
+        assertEquals(0L, deinstrumenter.getReport().get("removed"));
+    }
+
+    private static RtEvent event(String signature, long callsPerSec, long meanNs) {
+        RtEvent event = new RtEvent();
+        event.setMethodSignature(signature);
+        event.setWindowStartNs(0);
+        event.setWindowEndNs(WINDOW_NS);
+        event.setSampleCount(SAMPLES);
+        event.setEstimatedCount(callsPerSec);
+        event.setAvgNs(meanNs);
+        return event;
+    }
+}
@@ -0,0 +1,96 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.agent.transformer.InstrumentationScope;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.*;
+
+/**
+ * HotMethodProfiler 测试类
+ *
+ * @author Aletheia Team
+ */
+public class HotMethodProfilerTest {
+
+    @Test
+    public void testTopMethodsAreInstrumentedAndColdOnesRemoved() {
+        AgentConfig config = AgentConfig.getInstance();
+        int topN = config.getProfileConfig().getProfileGuidedTopN();
+        InstrumentationScope scope = new InstrumentationScope();
+        List<Predicate<String>> retransforms = new ArrayList<>();
+        HotMethodProfiler profiler = new HotMethodProfiler(config, scope,
+                (reason, selector) -> retransforms.add(selector));
+        try {
+            config.getProfileConfig().setProfileGuidedTopN(2);
+
+            for (int i = 0; i < 10; i++) {
+                profiler.recordStack(stack("com.example.Service.handle", "com.example.Controller.serve"));
+            }
+            for (int i = 0; i < 3; i++) {
+                profiler.recordStack(stack("com.example.Dao.query", "com.example.Service.handle"));
+            }
+            profiler.recordStack(stack("java.lang.Thread.run", "com.example.Cold.rarely"));
+            profiler.rerank();
+
+            assertEquals(new HashSet<>(Arrays.asList("com.example.Service.handle", "com.example.Controller.serve")),
+                    scope.getMethods());
+            assertEquals(1, retransforms.size());
+            assertTrue(retransforms.get(0).test("com/example/Service"));
+            assertFalse("Classes without hot methods should not be retransformed",
+                    retransforms.get(0).test("com/example/Cold"));
+
+            // 热点转移：旧热点衰减后退出，新热点加入
+            for (int round = 0; round < 4; round++) {
+                for (int i = 0; i < 20; i++) {
+                    profiler.recordStack(stack("com.example.Dao.query", "com.example.Batch.run"));
+                }
+                profiler.rerank();
+            }
+            assertEquals(new HashSet<>(Arrays.asList("com.example.Dao.query", "com.example.Batch.run")),
+                    scope.getMethods());
+            assertEquals("Stable hot set should not trigger retransforms", 2, retransforms.size());
+            assertTrue("Classes losing probes should be retransformed",
+                    retransforms.get(1).test("com/example/Controller"));
+        } finally {
+            config.getProfileConfig().setProfileGuidedTopN(topN);
+        }
+    }
+
+    @Test
+    public void testRecursiveFramesCountOncePerStack() {
+        AgentConfig config = AgentConfig.getInstance();
+        int topN = config.getProfileConfig().getProfileGuidedTopN();
+        InstrumentationScope scope = new InstrumentationScope();
+        HotMethodProfiler profiler = new HotMethodProfiler(config, scope, (reason, selector) -> { });
+        try {
+            config.getProfileConfig().setProfileGuidedTopN(1);
+
+            // 递归方法在一条栈上出现多次，只计一次
+            profiler.recordStack(stack("com.example.Tree.walk", "com.example.Tree.walk", "com.example.Tree.walk"));
+            profiler.recordStack(stack("com.example.Parser.parse"));
+            profiler.recordStack(stack("com.example.Parser.parse"));
+            profiler.rerank();
+
+            assertEquals(new HashSet<>(Arrays.asList("com.example.Parser.parse")), scope.getMethods());
+        } finally {
+            config.getProfileConfig().setProfileGuidedTopN(topN);
+        }
+    }
+
+    private static StackTraceElement[] stack(String... methods) {
+        StackTraceElement[] stack = new StackTraceElement[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            int separator = methods[i].lastIndexOf('.');
+            stack[i] = new StackTraceElement(methods[i].substring(0, separator), methods[i].substring(separator + 1),
+                    null, -1);
+        }
+        return stack;
+    }
+}
@@ -0,0 +1,105 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * LogLinearHistogram 测试类
+ *
+ * @author Aletheia Team
+ */
+public class LogLinearHistogramTest {
+
+    @Test
+    public void testExactValuesBelowSubBucketCount() {
+        LogLinearHistogram histogram = new LogLinearHistogram(3_600_000L, 2);
+        for (int i = 1; i <= 100; i++) {
+            histogram.recordValue(i);
+        }
+
+        assertEquals("Total count should be 100", 100, histogram.getTotalCount());
+        assertEquals("P50 should be 50", 50, histogram.getValueAtPercentile(50));
+        assertEquals("P99 should be 99", 99, histogram.getValueAtPercentile(99));
+        assertEquals("P100 should be max", 100, histogram.getValueAtPercentile(100));
+        assertEquals("Min should be 1", 1, histogram.getMinValue());
+        assertEquals("Max should be 100", 100, histogram.getMaxValue());
+        assertEquals("Mean should be 50.5", 50.5, histogram.getMean(), 0.001);
+    }
+
+    @Test
+    public void testRelativeErrorWithinSignificantDigits() {
+        long[] values = {1_234L, 98_765L, 5_000_000L, 777_777_777L, 123_456_789_012L};
+        for (int digits = 1; digits <= 3; digits++) {
+            LogLinearHistogram histogram = new LogLinearHistogram(Long.MAX_VALUE / 4, digits);
+            for (long value : values) {
+                histogram.recordValue(value);
+            }
+
+            double maxRelativeError = Math.pow(10, -digits);
+            long p50 = histogram.getValueAtPercentile(50);
+            double error = Math.abs(p50 - 5_000_000L) / 5_000_000.0;
+            assertTrue("Relative error " + error + " exceeds " + maxRelativeError, error <= maxRelativeError);
+        }
+    }
+
+    @Test
+    public void testPercentilesAgainstSortedSamples() {
+        LogLinearHistogram histogram = new LogLinearHistogram(10_000_000_000L, 2);
+        long[] samples = new long[100_000];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = 1 + (long) (Math.abs(random.nextGaussian()) * 1_000_000);
+            histogram.recordValue(samples[i]);
+        }
+        Arrays.sort(samples);
+
+        double[] percentiles = {50, 90, 99, 99.9};
+        for (double percentile : percentiles) {
+            long expected = samples[(int) Math.ceil(percentile / 100.0 * samples.length) - 1];
+            long actual = histogram.getValueAtPercentile(percentile);
+            double error = Math.abs(actual - expected) / (double) expected;
+            assertTrue("P" + percentile + " error " + error + " too large", error <= 0.01);
+        }
+    }
+
+    @Test
+    public void testValuesAboveHighestTrackableAreClamped() {
+        LogLinearHistogram histogram = new LogLinearHistogram(1000, 2);
+        histogram.recordValue(10);
+        histogram.recordValue(5000);
+
+        assertEquals("Total count should be 2", 2, histogram.getTotalCount());
+        assertEquals("Max keeps the real value", 5000, histogram.getMaxValue());
+        assertTrue("P100 should be at least highest trackable", histogram.getValueAtPercentile(100) >= 1000);
+    }
+
+    @Test
+    public void testNegativeValuesIgnored() {
+        LogLinearHistogram histogram = new LogLinearHistogram(1000, 2);
+        histogram.recordValue(-1);
+
+        assertEquals("Negative value should be ignored", 0, histogram.getTotalCount());
+        assertEquals("Empty histogram percentile should be 0", 0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSignificantDigits() {
+        new LogLinearHistogram(1000, 6);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDigitsAboveCapAreRejected() {
+        new LogLinearHistogram(1000, LogLinearHistogram.MAX_SIGNIFICANT_DIGITS + 1);
+    }
+
+    @Test
+    public void testFootprintMatchesCountsArray() {
+        long hourNs = 3_600_000_000_000L;
+        assertEquals(36_864L, LogLinearHistogram.footprintBytes(hourNs, 2));
+        assertTrue(LogLinearHistogram.footprintBytes(hourNs, LogLinearHistogram.MAX_SIGNIFICANT_DIGITS) < 512 * 1024);
+    }
+}
@@ -0,0 +1,110 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import com.alibaba.aletheia.common.model.RtEvent;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * MethodRateSampler 测试类
+ *
+ * @author Aletheia Team
+ */
+public class MethodRateSamplerTest {
+
+    private static final int TARGET_SAMPLES = 100;
+
+    private static final int WINDOWS = 20;
+
+    @Test
+    public void testLevelForRate() {
+        assertEquals("Rate 1.0 is level 1", 1, MethodRateSampler.levelForRate(1.0));
+        assertEquals("Rate 0.5 is level 2", 2, MethodRateSampler.levelForRate(0.5));
+        assertEquals("Rate 0.25 is level 3", 3, MethodRateSampler.levelForRate(0.25));
+        assertEquals("Rate 0.3 rounds down to 0.25", 3, MethodRateSampler.levelForRate(0.3));
+        assertEquals("Tiny rate is clamped", MethodRateSampler.MAX_LEVEL, MethodRateSampler.levelForRate(1e-12));
+    }
+
+    @Test
+    public void testHotAndRareMethodsConvergeToTarget() {
+        MethodRateSampler sampler = new MethodRateSampler(0.01, TARGET_SAMPLES);
+        int hot = 0;
+        int rare = 1;
+
+        long hotSampled = 0;
+        long rareSampled = 0;
+        for (int window = 0; window < WINDOWS; window++) {
+            hotSampled = runWindow(sampler, hot, 1_000_000);
+            rareSampled = runWindow(sampler, rare, 10);
+        }
+
+        // 档位为 2 的幂，收敛后的采样数落在 (target / 2, target] 附近
+        assertTrue("Hot method sampled " + hotSampled, hotSampled > TARGET_SAMPLES / 4
+                && hotSampled < TARGET_SAMPLES * 2);
+        assertTrue("Hot method rate should be lowered", sampler.getRate(hot) < 0.001);
+        assertEquals("Rare method should stay at the global rate", 0.01, sampler.getRate(rare), 0.0);
+        assertTrue("Rare method sampled " + rareSampled, rareSampled <= 10);
+    }
+
+    @Test
+    public void testIdleMethodDoesNotClimbAboveGlobalRate() {
+        MethodRateSampler sampler = new MethodRateSampler(0.01, TARGET_SAMPLES);
+        int idle = 0;
+        for (int window = 0; window < WINDOWS; window++) {
+            sampler.onWindowEnd(idle, 0);
+        }
+        assertEquals("Idle method should keep the global rate", 0.01, sampler.getRate(idle), 0.0);
+    }
+
+    @Test
+    public void testLoweringGlobalRateCapsMethodLevels() {
+        MethodRateSampler sampler = new MethodRateSampler(0.1, TARGET_SAMPLES);
+        int warm = 0;
+        // 约 2000 次调用：按目标采样数算出约 1/16，低于全局采样率
+        for (int window = 0; window < WINDOWS; window++) {
+            runWindow(sampler, warm, 2000);
+        }
+        assertTrue("Warm method rate " + sampler.getRate(warm), sampler.getRate(warm) < 0.1);
+
+        sampler.setGlobalRate(0.001);
+        runWindow(sampler, warm, 2000);
+        assertTrue("Rate " + sampler.getRate(warm) + " should be capped by the global rate",
+                sampler.getRate(warm) <= 0.001);
+    }
+
+    @Test
+    public void testDisabledUsesGlobalRate() {
+        MethodRateSampler sampler = new MethodRateSampler(0.01, 0);
+        runWindow(sampler, 0, 10);
+        assertEquals("Global rate should apply", 0.01, sampler.getRate(0), 0.0);
+    }
+
+    @Test
+    public void testEventsCarryEffectiveRate() {
+        MethodRegistry registry = new MethodRegistry();
+        MethodRateSampler sampler = new MethodRateSampler(0.5, TARGET_SAMPLES);
+        RtAggregator aggregator = new RtAggregator(2, registry, sampler);
+        int methodId = registry.register("com.example.Codec.encode");
+
+        for (int i = 0; i < 10; i++) {
+            aggregator.recordRtNs(methodId, 1_000L);
+        }
+        List<RtEvent> events = aggregator.getAndClearRtEvents();
+        assertEquals("Should have one event", 1, events.size());
+        assertEquals("Rate in effect during the window", 0.5, events.get(0).getSampleRate(), 0.0);
+        assertEquals("Count scaled back by rate", 20, events.get(0).getEstimatedCount());
+    }
+
+    private static long runWindow(MethodRateSampler sampler, int methodId, int calls) {
+        long sampled = 0;
+        for (int i = 0; i < calls; i++) {
+            if (sampler.shouldSample(methodId)) {
+                sampled++;
+            }
+        }
+        sampler.onWindowEnd(methodId, sampled);
+        return sampled;
+    }
+}
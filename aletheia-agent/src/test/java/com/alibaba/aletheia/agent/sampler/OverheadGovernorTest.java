@@ -0,0 +1,188 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.common.constant.AletheiaConstants;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * OverheadGovernor 测试类
+ *
+ * @author Aletheia Team
+ */
+public class OverheadGovernorTest {
+
+    /**
+     * 足够把所有调控项收紧/恢复到底的步数
+     */
+    private static final int MAX_STEPS = 100;
+
+    @Test
+    public void testTightenThenRelaxBackToConfiguredValues() {
+        AgentConfig config = AgentConfig.getInstance();
+        config.getOverheadConfig().setOverheadBudget(0.01);
+        config.getOverheadConfig().setOverheadEnforce(true);
+        config.enableFeature("Lock");
+
+        OverheadGovernor governor = new OverheadGovernor(config, null);
+        double configuredRate = RtSampler.getSampleRate();
+        int configuredTarget = RtSampler.getTargetSamplesPerWindow();
+        long configuredInterval = config.getPushIntervalMs();
+
+        try {
+            // 持续超预算：先降目标采样数，再降采样率，再拉长推送间隔，最后关闭功能
+            governor.adjust(0.5);
+            assertTrue("Target samples should be lowered first",
+                    RtSampler.getTargetSamplesPerWindow() < configuredTarget);
+            for (int i = 0; i < MAX_STEPS && config.isFeatureEnabled("Lock"); i++) {
+                governor.adjust(0.5);
+            }
+            assertEquals("Rate should reach the minimum", AletheiaConstants.MIN_SAMPLE_RATE,
+                    RtSampler.getSampleRate(), 1e-9);
+            assertEquals("Interval should reach the maximum", AletheiaConstants.MAX_PUSH_INTERVAL_MS,
+                    config.getPushIntervalMs());
+            assertFalse("Lock diagnostics should be shed", config.isFeatureEnabled("Lock"));
+
+            List<OverheadGovernor.Decision> decisions = governor.getDecisions();
+            assertTrue("Decisions should be recorded", decisions.size() > 1);
+            assertTrue("Last decision should shed Lock",
+                    decisions.get(decisions.size() - 1).getAction().contains("Lock"));
+
+            // 开销处于预算内但高于一半：保持不变
+            int decisionCount = governor.getDecisions().size();
+            governor.adjust(0.008);
+            assertEquals("No action inside the hysteresis band", decisionCount, governor.getDecisions().size());
+
+            // 开销很低：逐步恢复到配置值
+            for (int i = 0; i < MAX_STEPS; i++) {
+                governor.adjust(0.0);
+            }
+            assertTrue("Lock diagnostics should be restored", config.isFeatureEnabled("Lock"));
+            assertEquals("Interval should be restored", configuredInterval, config.getPushIntervalMs());
+            assertEquals("Rate should be restored", configuredRate, RtSampler.getSampleRate(), 1e-9);
+            assertEquals("Target should be restored", configuredTarget, RtSampler.getTargetSamplesPerWindow());
+        } finally {
+            config.getOverheadConfig().setOverheadEnforce(AletheiaConstants.DEFAULT_OVERHEAD_ENFORCE);
+            config.disableFeature("Lock");
+            config.setPushIntervalMs(configuredInterval);
+            RtSampler.setSampleRate(configuredRate);
+            RtSampler.setTargetSamplesPerWindow(configuredTarget);
+        }
+    }
+
+    @Test
+    public void testRelaxStopsAtOperatorRate() {
+        AgentConfig config = AgentConfig.getInstance();
+        config.getOverheadConfig().setOverheadBudget(0.01);
+        config.getOverheadConfig().setOverheadEnforce(true);
+        OverheadGovernor governor = new OverheadGovernor(config, null);
+        double configuredRate = RtSampler.getSampleRate();
+        int configuredTarget = RtSampler.getTargetSamplesPerWindow();
+        long configuredInterval = config.getPushIntervalMs();
+        double operatorRate = configuredRate / 4;
+
+        try {
+            for (int i = 0; i < MAX_STEPS && RtSampler.getSampleRate() > AletheiaConstants.MIN_SAMPLE_RATE; i++) {
+                governor.adjust(0.5);
+            }
+            // 运维通过 JMX 修改采样率后，恢复不应超过新值
+            RtSampler.setSampleRate(operatorRate);
+            governor.onRtSampleRateChanged(operatorRate);
+            for (int i = 0; i < MAX_STEPS; i++) {
+                governor.adjust(0.0);
+            }
+            assertEquals("Rate should be restored to the operator's value", operatorRate,
+                    RtSampler.getSampleRate(), 1e-9);
+            assertEquals("Target should be restored", configuredTarget, RtSampler.getTargetSamplesPerWindow());
+        } finally {
+            config.getOverheadConfig().setOverheadEnforce(AletheiaConstants.DEFAULT_OVERHEAD_ENFORCE);
+            config.getOverheadConfig().setOverheadBudget(AletheiaConstants.DEFAULT_OVERHEAD_BUDGET);
+            config.setPushIntervalMs(configuredInterval);
+            config.setSampleRate("RT", configuredRate);
+            RtSampler.setSampleRate(configuredRate);
+            RtSampler.setTargetSamplesPerWindow(configuredTarget);
+        }
+    }
+
+    @Test
+    public void testOperatorDisabledFeatureIsNotRestored() {
+        AgentConfig config = AgentConfig.getInstance();
+        config.getOverheadConfig().setOverheadBudget(0.01);
+        config.getOverheadConfig().setOverheadEnforce(true);
+        config.enableFeature("Lock");
+        OverheadGovernor governor = new OverheadGovernor(config, null);
+        double configuredRate = RtSampler.getSampleRate();
+        int configuredTarget = RtSampler.getTargetSamplesPerWindow();
+        long configuredInterval = config.getPushIntervalMs();
+
+        try {
+            for (int i = 0; i < MAX_STEPS && config.isFeatureEnabled("Lock"); i++) {
+                governor.adjust(0.5);
+            }
+            assertFalse("Lock diagnostics should be shed", config.isFeatureEnabled("Lock"));
+
+            // 运维随后通过 JMX 关闭了该功能，恢复时以运维的设置为准
+            config.disableFeature("Lock");
+            governor.onFeatureChangedByOperator("Lock");
+            for (int i = 0; i < MAX_STEPS; i++) {
+                governor.adjust(0.0);
+            }
+            assertFalse("Operator's choice should win", config.isFeatureEnabled("Lock"));
+            assertEquals("Interval should still be restored", configuredInterval, config.getPushIntervalMs());
+        } finally {
+            config.getOverheadConfig().setOverheadEnforce(AletheiaConstants.DEFAULT_OVERHEAD_ENFORCE);
+            config.disableFeature("Lock");
+            config.setPushIntervalMs(configuredInterval);
+            RtSampler.setSampleRate(configuredRate);
+            RtSampler.setTargetSamplesPerWindow(configuredTarget);
+        }
+    }
+
+    @Test
+    public void testReportOnlyByDefault() {
+        AgentConfig config = AgentConfig.getInstance();
+        config.getOverheadConfig().setOverheadBudget(0.01);
+        config.enableFeature("Lock");
+        OverheadGovernor governor = new OverheadGovernor(config, null);
+        double configuredRate = RtSampler.getSampleRate();
+        int configuredTarget = RtSampler.getTargetSamplesPerWindow();
+        long configuredInterval = config.getPushIntervalMs();
+
+        try {
+            assertFalse(config.getOverheadConfig().isOverheadEnforce());
+            for (int i = 0; i < MAX_STEPS; i++) {
+                governor.adjust(0.5);
+            }
+            assertEquals(configuredRate, RtSampler.getSampleRate(), 1e-9);
+            assertEquals(configuredTarget, RtSampler.getTargetSamplesPerWindow());
+            assertEquals(configuredInterval, config.getPushIntervalMs());
+            assertTrue(config.isFeatureEnabled("Lock"));
+            assertEquals("Entering the over-budget state is recorded once", 1, governor.getDecisions().size());
+        } finally {
+            config.disableFeature("Lock");
+        }
+    }
+
+    @Test
+    public void testCalibratedDecisionCostIsPlausible() {
+        double costNs = OverheadGovernor.calibrateDecisionCost();
+        assertTrue("Decision cost: " + costNs, costNs > 0 && costNs < 1000);
+    }
+
+    @Test
+    public void testZeroBudgetOnlyMeasures() {
+        AgentConfig config = AgentConfig.getInstance();
+        OverheadGovernor governor = new OverheadGovernor(config, null);
+        config.getOverheadConfig().setOverheadBudget(0);
+        try {
+            governor.adjust(0.9);
+            assertEquals("Overhead should be recorded", 0.9, governor.getLastOverhead(), 0.0);
+            assertTrue("No decisions without a budget", governor.getDecisions().isEmpty());
+        } finally {
+            config.getOverheadConfig().setOverheadBudget(AletheiaConstants.DEFAULT_OVERHEAD_BUDGET);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import com.alibaba.aletheia.common.model.RtEvent;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * ProbeEventPipeline 测试类
+ *
+ * @author Aletheia Team
+ */
+public class ProbeEventPipelineTest {
+
+    private static final int BUFFER_SIZE = 64;
+
+    private static final int EVENTS = 20;
+
+    @Test
+    public void testDisruptorEventsAreAggregatedByConsumerThread() {
+        assertAggregated(ProbeEventPipeline.TYPE_DISRUPTOR, "com.example.Pipeline.disruptor");
+    }
+
+    @Test
+    public void testOffHeapEventsAreAggregatedByConsumerThread() {
+        assertAggregated(ProbeEventPipeline.TYPE_OFF_HEAP, "com.example.Pipeline.offHeap");
+    }
+
+    @Test
+    public void testOffHeapDropsWhenFull() {
+        // 未启动时没有消费者，缓冲区写满后的事件全部丢弃
+        ProbeEventPipeline pipeline = ProbeEventPipeline.create(ProbeEventPipeline.TYPE_OFF_HEAP, BUFFER_SIZE,
+                "blocking");
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            assertTrue(pipeline.publishRt(MethodRegistry.UNREGISTERED_ID, i));
+        }
+        assertFalse(pipeline.publishRt(MethodRegistry.UNREGISTERED_ID, 1));
+        assertFalse(pipeline.publishLock(true, "com.example.Lock", 0, 1L));
+
+        Map<String, Object> stats = pipeline.getStats();
+        assertEquals((long) BUFFER_SIZE, stats.get("publishedRt"));
+        assertEquals(1L, stats.get("droppedRt"));
+        assertEquals(1L, stats.get("droppedLock"));
+        assertEquals(0L, stats.get("remainingCapacity"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownWaitStrategyIsRejected() {
+        ProbeEventPipeline.create(ProbeEventPipeline.TYPE_OFF_HEAP, BUFFER_SIZE, "spin-forever");
+    }
+
+    private static void assertAggregated(String type, String signature) {
+        int methodId = MethodRegistry.getInstance().register(signature);
+        RtSampler.getAndClearRtEvents();
+
+        ProbeEventPipeline pipeline = ProbeEventPipeline.create(type, BUFFER_SIZE, "blocking");
+        pipeline.start();
+        try {
+            assertSame(pipeline, ProbeEventPipeline.active());
+            for (int i = 1; i <= EVENTS; i++) {
+                assertTrue(pipeline.publishRt(methodId, i * 1_000L));
+            }
+        } finally {
+            pipeline.stop();
+        }
+        assertNull("Probes should write directly after stop", ProbeEventPipeline.active());
+
+        RtEvent event = null;
+        for (RtEvent candidate : RtSampler.getAndClearRtEvents()) {
+            if (signature.equals(candidate.getMethodSignature())) {
+                event = candidate;
+            }
+        }
+        assertNotNull(event);
+        assertEquals(EVENTS, event.getSampleCount());
+
+        Map<String, Object> stats = pipeline.getStats();
+        assertEquals((long) EVENTS, stats.get("publishedRt"));
+        assertEquals((long) EVENTS, stats.get("consumed"));
+        assertEquals(0L, pipeline.getDroppedCount());
+    }
+}
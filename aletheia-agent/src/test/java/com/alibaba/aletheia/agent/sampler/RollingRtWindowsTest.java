@@ -0,0 +1,192 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * RollingRtWindows 测试类
+ *
+ * @author Aletheia Team
+ */
+public class RollingRtWindowsTest {
+
+    private static final String METHOD = "com.example.Rolling.call";
+
+    private static final long SECOND_MS = 1000L;
+
+    private static final long HOUR_NS = TimeUnit.HOURS.toNanos(1);
+
+    /**
+     * 对齐到分钟边界的起始时间
+     */
+    private static final long START_MS = 1_700_000_040_000L;
+
+    @Test
+    public void testShortAndLongRangesSeeDifferentWindows() {
+        RollingRtWindows windows = new RollingRtWindows(RollingRtWindows.parseLevels("1s*60,10s*60,1m*60"), 4);
+        LogLinearHistogram window = new LogLinearHistogram(HOUR_NS, 2);
+
+        // 前 50 秒每秒 10 个 1ms 样本，最后 10 秒每秒 10 个 100ms 样本
+        long nowMs = START_MS;
+        for (int second = 1; second <= 60; second++) {
+            long rtNs = second <= 50 ? 1_000_000L : 100_000_000L;
+            for (int i = 0; i < 10; i++) {
+                window.recordValue(rtNs);
+            }
+            nowMs = START_MS + second * SECOND_MS;
+            windows.record(METHOD, window, nowMs);
+            window.reset();
+        }
+
+        Map<String, Object> last10s = windows.query(METHOD, 10 * SECOND_MS, nowMs);
+        assertEquals(1000L, last10s.get("resolutionMs"));
+        assertEquals(100L, last10s.get("estimatedCount"));
+        assertTrue((Long) last10s.get("p50Ns") >= 90_000_000L);
+
+        Map<String, Object> last60s = windows.query(METHOD, 60 * SECOND_MS, nowMs);
+        assertEquals(600L, last60s.get("estimatedCount"));
+        assertTrue((Long) last60s.get("p50Ns") <= 1_100_000L);
+        assertTrue((Long) last60s.get("p99Ns") >= 90_000_000L);
+
+        // 5 分钟区间落在 10 秒一级
+        Map<String, Object> last5m = windows.query(METHOD, 300 * SECOND_MS, nowMs);
+        assertEquals(10_000L, last5m.get("resolutionMs"));
+        assertEquals(600L, last5m.get("estimatedCount"));
+
+        // 10 秒之后最细一级的旧槽位不再命中
+        Map<String, Object> later = windows.query(METHOD, 10 * SECOND_MS, nowMs + 20 * SECOND_MS);
+        assertEquals(0L, later.get("estimatedCount"));
+    }
+
+    @Test
+    public void testSlotsAreReusedAcrossRotations() {
+        RollingRtWindows windows = new RollingRtWindows(RollingRtWindows.parseLevels("1s*4"), 1);
+        LogLinearHistogram window = new LogLinearHistogram(HOUR_NS, 2);
+        window.recordValue(5_000_000L);
+
+        // 绕环多圈后只保留最近 4 个槽位的数据
+        long nowMs = START_MS;
+        for (int second = 1; second <= 20; second++) {
+            nowMs = START_MS + second * SECOND_MS;
+            windows.record(METHOD, window, nowMs);
+        }
+        assertEquals(4L, windows.query(METHOD, 4 * SECOND_MS, nowMs).get("estimatedCount"));
+    }
+
+    @Test
+    public void testIdleMethodIsEvictedWhenFull() {
+        RollingRtWindows windows = new RollingRtWindows(RollingRtWindows.parseLevels("1s*10"), 1);
+        LogLinearHistogram window = new LogLinearHistogram(HOUR_NS, 2);
+        window.recordValue(1_000_000L);
+
+        windows.record("com.example.A.call", window, START_MS);
+        // A 仍在最细一级的跨度内活跃，B 不被跟踪
+        windows.record("com.example.B.call", window, START_MS + 5 * SECOND_MS);
+        assertEquals(Collections.singletonList("com.example.A.call"), windows.getTrackedMethods());
+
+        // A 空闲超过跨度后被回收
+        windows.record("com.example.B.call", window, START_MS + 20 * SECOND_MS);
+        assertEquals(Collections.singletonList("com.example.B.call"), windows.getTrackedMethods());
+        assertNull(windows.query("com.example.A.call", 10 * SECOND_MS, START_MS + 20 * SECOND_MS));
+
+        Map<String, Object> stats = windows.getStats();
+        assertEquals(1L, stats.get("evictions"));
+        assertEquals(1L, stats.get("untrackedRecords"));
+    }
+
+    @Test
+    public void testHotMethodReplacesColdMethodWhenFull() {
+        RollingRtWindows windows = new RollingRtWindows(RollingRtWindows.parseLevels("1s*60"), 2);
+        LogLinearHistogram window = new LogLinearHistogram(HOUR_NS, 2);
+        window.recordValue(1_000_000L);
+
+        // 冷方法先占满槽位；热方法按估算调用数（样本数 / 采样率）准入
+        windows.record("com.example.Cold.a", window, 10, START_MS);
+        windows.record("com.example.Cold.b", window, 1_000, START_MS);
+        windows.record("com.example.Hot.call", window, 100_000, START_MS + SECOND_MS);
+        assertEquals(Arrays.asList("com.example.Cold.b", "com.example.Hot.call"),
+                windows.getTrackedMethods());
+
+        // 调用量相近的方法不替换
+        windows.record("com.example.Warm.call", window, 1_500, START_MS + 2 * SECOND_MS);
+        assertFalse(windows.getTrackedMethods().contains("com.example.Warm.call"));
+        assertEquals(1L, windows.getStats().get("untrackedRecords"));
+    }
+
+    @Test
+    public void testTrackedOnRequestIsNeverEvicted() {
+        RollingRtWindows windows = new RollingRtWindows(RollingRtWindows.parseLevels("1s*10"), 1);
+        LogLinearHistogram window = new LogLinearHistogram(HOUR_NS, 2);
+        window.recordValue(1_000_000L);
+
+        windows.record("com.example.Hot.call", window, 100_000, START_MS);
+        assertTrue(windows.track("com.example.Rare.call", START_MS));
+        assertEquals(Collections.singletonList("com.example.Rare.call"), windows.getTrackedMethods());
+
+        // 按请求跟踪的方法空闲或调用量低都不会被替换
+        windows.record("com.example.Hot.call", window, 100_000, START_MS + 60 * SECOND_MS);
+        assertEquals(Collections.singletonList("com.example.Rare.call"), windows.getTrackedMethods());
+        assertFalse("No slot left for another pinned method", windows.track("com.example.Other.call", START_MS));
+
+        assertTrue(windows.untrack("com.example.Rare.call"));
+        windows.record("com.example.Hot.call", window, 100_000, START_MS + 61 * SECOND_MS);
+        assertEquals(Collections.singletonList("com.example.Hot.call"), windows.getTrackedMethods());
+    }
+
+    @Test
+    public void testWindowsAreWeightedBySampleRate() {
+        RollingRtWindows windows = new RollingRtWindows(RollingRtWindows.parseLevels("1s*60"), 1);
+        LogLinearHistogram window = new LogLinearHistogram(HOUR_NS, 2);
+
+        // 低调用量窗口全量采样：10 个样本代表 10 次调用
+        for (int i = 0; i < 10; i++) {
+            window.recordValue(1_000_000L);
+        }
+        windows.record(METHOD, window, 10, START_MS + SECOND_MS);
+        window.reset();
+
+        // 高调用量窗口按 1% 采样：10 个样本代表 1000 次调用
+        for (int i = 0; i < 10; i++) {
+            window.recordValue(100_000_000L);
+        }
+        windows.record(METHOD, window, 1_000, START_MS + 2 * SECOND_MS);
+
+        Map<String, Object> result = windows.query(METHOD, 2 * SECOND_MS, START_MS + 2 * SECOND_MS);
+        assertEquals(1010L, result.get("estimatedCount"));
+        assertTrue("Median should follow the high-volume window", (Long) result.get("p50Ns") >= 90_000_000L);
+    }
+
+    @Test
+    public void testParseLevels() {
+        List<RollingRtWindows.Level> levels = RollingRtWindows.parseLevels("500ms*10, 1m*60,1h*24");
+        assertEquals(3, levels.size());
+        assertEquals(500L, levels.get(0).getSlotMs());
+        assertEquals(60_000L * 60, levels.get(1).spanMs());
+        assertEquals(24, levels.get(2).getSlotCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseLevelsRejectsMissingUnit() {
+        RollingRtWindows.parseLevels("10*60");
+    }
+
+    @Test
+    public void testAddMergesAcrossPrecisions() {
+        LogLinearHistogram fine = new LogLinearHistogram(HOUR_NS, 3);
+        fine.recordValue(1_234_567L);
+        fine.recordValue(7_654_321L);
+        LogLinearHistogram coarse = new LogLinearHistogram(HOUR_NS, 1);
+        coarse.add(fine);
+
+        assertEquals(2L, coarse.getTotalCount());
+        assertEquals(1_234_567L, coarse.getMinValue());
+        assertEquals(7_654_321L, coarse.getMaxValue());
+    }
+}
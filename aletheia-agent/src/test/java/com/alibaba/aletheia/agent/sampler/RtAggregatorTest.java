@@ -2,8 +2,13 @@ package com.alibaba.aletheia.agent.sampler;
 
 import com.alibaba.aletheia.common.model.RtEvent;
 import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
 /**
  * RtAggregator 测试类
@@ -49,6 +54,92 @@ public class RtAggregatorTest {
         assertEquals("Max should be 100", 100.0, event.getMaxMs(), 0.1);
     }
 
+    @Test
+    public void testSubMillisecondRt() {
+        RtAggregator aggregator = new RtAggregator();
+        String methodSignature = "com.example.Cache.get";
+
+        // 记录 1us - 100us 的调用，旧实现会全部截断为 0ms
+        for (int i = 1; i <= 100; i++) {
+            aggregator.recordRtNs(methodSignature, i * 1_000L);
+        }
+
+        List<RtEvent> events = aggregator.getAndClearRtEvents();
+        assertEquals("Should have one event", 1, events.size());
+
+        RtEvent event = events.get(0);
+        assertEquals("P50 should be around 50us", 50_000L, event.getP50Ns(), 500);
+        assertEquals("P99 should be around 99us", 99_000L, event.getP99Ns(), 990);
+        assertEquals("Min should be 1us", 1_000L, event.getMinNs());
+        assertEquals("Max should be 100us", 100_000L, event.getMaxNs());
+        assertEquals("P50 in ms should keep fraction", 0.05, event.getP50Ms(), 0.001);
+    }
+
+    @Test
+    public void testRecordByMethodId() {
+        MethodRegistry registry = new MethodRegistry();
+        RtAggregator aggregator = new RtAggregator(2, registry);
+
+        int first = registry.register("com.example.Codec.encode");
+        int second = registry.register("com.example.Codec.decode");
+        assertEquals("Registering again should return the same id", first,
+                registry.register("com.example.Codec.encode"));
+
+        // 跨分页的 ID 也应能正确记录
+        for (int i = 0; i < 2000; i++) {
+            registry.register("com.example.Filler.m" + i);
+        }
+        int far = registry.register("com.example.Codec.flush");
+
+        aggregator.recordRtNs(first, 1_000L);
+        aggregator.recordRtNs(first, 2_000L);
+        aggregator.recordRtNs(second, 3_000L);
+        aggregator.recordRtNs(far, 4_000L);
+        aggregator.recordRtNs(MethodRegistry.UNREGISTERED_ID, 5_000L);
+
+        List<RtEvent> events = aggregator.getAndClearRtEvents();
+        assertEquals("Should have three events", 3, events.size());
+        for (RtEvent event : events) {
+            if ("com.example.Codec.encode".equals(event.getMethodSignature())) {
+                assertEquals("Encode sample count should be 2", 2, event.getSampleCount());
+            } else {
+                assertTrue("Unexpected signature " + event.getMethodSignature(),
+                        "com.example.Codec.decode".equals(event.getMethodSignature())
+                                || "com.example.Codec.flush".equals(event.getMethodSignature()));
+                assertEquals("Sample count should be 1", 1, event.getSampleCount());
+            }
+        }
+        assertTrue("Flushed slots should be cleared", aggregator.getAndClearRtEvents().isEmpty());
+    }
+
+    @Test
+    public void testIntermittentMethodKeepsItsHistograms() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        MethodRegistry registry = new MethodRegistry();
+        RtAggregator aggregator = new RtAggregator(2, registry);
+        int methodId = registry.register("com.example.Batch.run");
+        // 两套分页表都创建好直方图
+        aggregator.recordRtNs(methodId, 1_000L);
+        aggregator.getAndClearRtEvents();
+        aggregator.recordRtNs(methodId, 1_000L);
+        aggregator.getAndClearRtEvents();
+
+        // 空闲几个窗口后再次调用：直方图被复用，记录路径不分配
+        for (int i = 0; i < 4; i++) {
+            aggregator.getAndClearRtEvents();
+        }
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        aggregator.recordRtNs(methodId, 2_000L);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+        assertTrue("Recording after a short idle period allocated " + allocated + " bytes", allocated < 1024);
+    }
+
     @Test
     public void testEmptyData() {
         RtAggregator aggregator = new RtAggregator();
@@ -67,4 +158,53 @@ public class RtAggregatorTest {
         List<RtEvent> events = aggregator.getAndClearRtEvents();
         assertEquals("Should have two events", 2, events.size());
     }
+
+    @Test
+    public void testWindowRotationLosesNoSamples() throws Exception {
+        MethodRegistry registry = new MethodRegistry();
+        RtAggregator aggregator = new RtAggregator(2, registry);
+        int methodId = registry.register("com.example.Hot.call");
+        int writers = 4;
+        int perWriter = 50_000;
+
+        CountDownLatch done = new CountDownLatch(writers);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            Thread thread = new Thread(() -> {
+                for (int n = 0; n < perWriter; n++) {
+                    aggregator.recordRtNs(methodId, 1_000L);
+                }
+                done.countDown();
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        // 写入期间不断切换窗口，所有窗口的样本数之和应等于写入总数
+        long total = 0;
+        long windowEndMs = 1_000L;
+        while (done.getCount() > 0) {
+            total += sampleCount(aggregator.getAndClearRtEvents(windowEndMs));
+            windowEndMs += 1_000L;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        List<RtEvent> last = aggregator.getAndClearRtEvents(windowEndMs);
+        total += sampleCount(last);
+        assertEquals((long) writers * perWriter, total);
+
+        aggregator.recordRtNs(methodId, 1_000L);
+        RtEvent event = aggregator.getAndClearRtEvents(windowEndMs + 1_000L).get(0);
+        assertEquals("Window start should be the previous boundary", windowEndMs, event.getWindowStartMs());
+        assertEquals(windowEndMs + 1_000L, event.getWindowEndMs());
+    }
+
+    private static long sampleCount(List<RtEvent> events) {
+        long count = 0;
+        for (RtEvent event : events) {
+            count += event.getSampleCount();
+        }
+        return count;
+    }
 }
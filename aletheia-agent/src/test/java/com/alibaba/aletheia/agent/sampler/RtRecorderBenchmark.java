@@ -0,0 +1,108 @@
+package com.alibaba.aletheia.agent.sampler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RT 记录方式基准测试
+ * 对比原有 synchronizedList + 排序 与 {@link LogLinearHistogram} 的记录吞吐和分位数计算开销
+ *
+ * <p>运行方式：执行 main 方法，或 {@code java -cp <test-classpath> org.openjdk.jmh.Main RtRecorderBenchmark}
+ *
+ * @author Aletheia Team
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RtRecorderBenchmark {
+
+    /**
+     * 单个窗口内的样本数（用于模拟窗口刷新和分位数计算）
+     */
+    private static final int WINDOW_SAMPLES = 100_000;
+
+    @Param({"2", "3"})
+    private int significantDigits;
+
+    private LogLinearHistogram histogram;
+    private List<Long> synchronizedList;
+
+    private LogLinearHistogram filledHistogram;
+    private List<Long> filledList;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        histogram = new LogLinearHistogram(TimeUnit.HOURS.toMillis(1), significantDigits);
+        synchronizedList = Collections.synchronizedList(new ArrayList<>());
+
+        filledHistogram = new LogLinearHistogram(TimeUnit.HOURS.toMillis(1), significantDigits);
+        filledList = new ArrayList<>(WINDOW_SAMPLES);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < WINDOW_SAMPLES; i++) {
+            long value = random.nextLong(1, 1000);
+            filledHistogram.recordValue(value);
+            filledList.add(value);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordHistogram() {
+        histogram.recordValue(ThreadLocalRandom.current().nextLong(1, 1000));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordSynchronizedList() {
+        synchronized (synchronizedList) {
+            if (synchronizedList.size() >= WINDOW_SAMPLES) {
+                synchronizedList.clear();
+            }
+            synchronizedList.add(ThreadLocalRandom.current().nextLong(1, 1000));
+        }
+    }
+
+    @Benchmark
+    public long percentilesHistogram() {
+        return filledHistogram.getValueAtPercentile(50)
+                + filledHistogram.getValueAtPercentile(99)
+                + filledHistogram.getValueAtPercentile(99.9);
+    }
+
+    @Benchmark
+    public long percentilesListSort() {
+        List<Long> sorted = new ArrayList<>(filledList);
+        Collections.sort(sorted);
+        int count = sorted.size();
+        return sorted.get(count / 2) + sorted.get((int) (count * 0.99)) + sorted.get((int) (count * 0.999));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RtRecorderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
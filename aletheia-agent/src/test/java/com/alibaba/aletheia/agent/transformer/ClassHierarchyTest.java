@@ -0,0 +1,67 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import static org.junit.Assert.*;
+
+/**
+ * ClassHierarchy 测试类
+ *
+ * @author Aletheia Team
+ */
+public class ClassHierarchyTest {
+
+    @Test
+    public void testCommonSuperClassFromClassFiles() {
+        ClassHierarchy hierarchy = new ClassHierarchy();
+        ClassLoader loader = getClass().getClassLoader();
+
+        assertEquals("java/util/AbstractList",
+                hierarchy.getCommonSuperClass(loader, "java/util/ArrayList", "java/util/LinkedList"));
+        assertEquals("java/lang/Number", hierarchy.getCommonSuperClass(null, "java/lang/Integer", "java/lang/Long"));
+        assertEquals("Interfaces are treated as Object", "java/lang/Object",
+                hierarchy.getCommonSuperClass(loader, "java/util/List", "java/util/ArrayList"));
+        assertNull("Unknown classes cannot be resolved",
+                hierarchy.getCommonSuperClass(loader, "com/example/Missing", "java/lang/Integer"));
+    }
+
+    @Test
+    public void testResolvingDoesNotLoadClasses() throws Exception {
+        URL testClasses = ClassHierarchyTest.class.getProtectionDomain().getCodeSource().getLocation();
+        try (IsolatedLoader loader = new IsolatedLoader(testClasses)) {
+            String left = Left.class.getName().replace('.', '/');
+            String right = Right.class.getName().replace('.', '/');
+
+            assertEquals(Base.class.getName().replace('.', '/'),
+                    new ClassHierarchy().getCommonSuperClass(loader, left, right));
+            assertFalse("Class should not be loaded", loader.isLoaded(Left.class.getName()));
+            assertFalse("Class should not be loaded", loader.isLoaded(Base.class.getName()));
+        }
+    }
+
+    /**
+     * 不委派给应用类加载器的 ClassLoader，可以检查某个类是否被它加载
+     */
+    private static class IsolatedLoader extends URLClassLoader {
+
+        IsolatedLoader(URL classes) {
+            super(new URL[]{classes}, null);
+        }
+
+        boolean isLoaded(String name) {
+            return findLoadedClass(name) != null;
+        }
+    }
+
+    public static class Base {
+    }
+
+    public static class Left extends Base {
+    }
+
+    public static class Right extends Base {
+    }
+}
@@ -0,0 +1,62 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * ClassNameMatcher 测试类
+ *
+ * @author Aletheia Team
+ */
+public class ClassNameMatcherTest {
+
+    @Test
+    public void testPrefixesBehaveLikeStartsWith() {
+        ClassNameMatcher matcher = ClassNameMatcher.compile(Arrays.asList("java/", "javax/", "com/sun/", "sun/"));
+
+        assertTrue(matcher.matches("java/lang/String"));
+        assertTrue(matcher.matches("javax/net/SocketFactory"));
+        assertTrue(matcher.matches("com/sun/Foo"));
+        assertTrue(matcher.matches("sun/misc/Unsafe"));
+        assertFalse(matcher.matches("jav"));
+        assertFalse(matcher.matches("javafx/Foo"));
+        assertFalse(matcher.matches("com/example/Foo"));
+        assertFalse(matcher.isEmpty());
+    }
+
+    @Test
+    public void testGlobs() {
+        ClassNameMatcher matcher = ClassNameMatcher.compile(Arrays.asList(
+                "com/*/service/", "org/**/Controller", "net/Foo?Bar"));
+
+        assertTrue(matcher.matches("com/example/service/OrderService"));
+        assertFalse("* should not cross packages", matcher.matches("com/example/sub/service/OrderService"));
+        assertTrue(matcher.matches("org/a/b/c/Controller"));
+        assertTrue("**/ should also match zero packages", matcher.matches("org/Controller"));
+        assertFalse(matcher.matches("org/a/b/c/UserController"));
+        assertFalse(matcher.matches("org/a/b/Service"));
+        assertTrue(matcher.matches("net/Foo1Bar"));
+        assertFalse(matcher.matches("net/FooBar"));
+    }
+
+    @Test
+    public void testOverlappingLiteralAndGlob() {
+        ClassNameMatcher matcher = ClassNameMatcher.compile(Arrays.asList("com/example/Fo", "com/*/Bar"));
+
+        assertTrue(matcher.matches("com/example/Foo"));
+        assertTrue(matcher.matches("com/example/Bar"));
+        assertTrue(matcher.matches("com/other/Bar"));
+        assertFalse(matcher.matches("com/other/Foo"));
+    }
+
+    @Test
+    public void testEmpty() {
+        ClassNameMatcher matcher = ClassNameMatcher.compile(Collections.<String>emptyList());
+        assertTrue(matcher.isEmpty());
+        assertFalse(matcher.matches("com/example/Foo"));
+    }
+}
@@ -0,0 +1,124 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.agent.config.InstrumentConfig;
+import com.alibaba.aletheia.agent.diagnostic.transformer.LockTransformer;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * CompositeTransformer 测试类
+ *
+ * @author Aletheia Team
+ */
+public class CompositeTransformerTest {
+
+    @Test
+    public void testMembersShareOnePass() throws Exception {
+        AgentConfig config = AgentConfig.getInstance();
+        boolean rtEnabled = config.isFeatureEnabled("RT");
+        boolean lockEnabled = config.isFeatureEnabled("Lock");
+        InstrumentConfig instrumentConfig = config.getInstrumentConfig();
+        Set<String> skippedShapes = instrumentConfig.getSkippedMethodShapes();
+        int minSize = instrumentConfig.getMinInstrumentBytecodeSize();
+        boolean skipInlineCrossing = instrumentConfig.isSkipInlineCrossing();
+
+        String internalName = Fixture.class.getName().replace('.', '/');
+        byte[] original = readClassBytes(internalName);
+        Set<String> probes;
+        try {
+            config.enableFeature("RT");
+            config.enableFeature("Lock");
+            instrumentConfig.setSkippedMethodShapes(Collections.<String>emptySet());
+            instrumentConfig.setMinInstrumentBytecodeSize(0);
+            instrumentConfig.setSkipInlineCrossing(false);
+
+            CompositeTransformer composite = new CompositeTransformer(config);
+            composite.addTransformer(new MethodRtTransformer(config));
+            composite.addTransformer(new LockTransformer(config));
+            probes = collectProbes(composite.doTransform(getClass().getClassLoader(), internalName, null, null,
+                    original));
+
+            // 关闭 Lock 后只剩 RT 访问器
+            config.disableFeature("Lock");
+            Set<String> rtOnly = collectProbes(composite.doTransform(getClass().getClassLoader(), internalName,
+                    null, null, original));
+            assertTrue(rtOnly.contains("onMethodStart"));
+            assertFalse(rtOnly.contains("onMonitorEnter"));
+        } finally {
+            restoreFeature(config, "RT", rtEnabled);
+            restoreFeature(config, "Lock", lockEnabled);
+            instrumentConfig.setSkippedMethodShapes(skippedShapes);
+            instrumentConfig.setMinInstrumentBytecodeSize(minSize);
+            instrumentConfig.setSkipInlineCrossing(skipInlineCrossing);
+        }
+
+        assertTrue("RT probes should be emitted", probes.contains("onMethodStart"));
+        assertTrue("RT probes should be emitted", probes.contains("onMethodEnd"));
+        assertTrue("Lock probes should be emitted", probes.contains("onMonitorEnter"));
+        assertTrue("Lock probes should be emitted", probes.contains("onMonitorExit"));
+    }
+
+    private static Set<String> collectProbes(byte[] transformed) {
+        assertNotNull("Class should be transformed", transformed);
+        Set<String> probes = new HashSet<>();
+        new ClassReader(transformed).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                             String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM9) {
+                    @Override
+                    public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle,
+                                                       Object... bootstrapMethodArguments) {
+                        probes.add(name);
+                    }
+                };
+            }
+        }, 0);
+        return probes;
+    }
+
+    private static void restoreFeature(AgentConfig config, String feature, boolean enabled) {
+        if (enabled) {
+            config.enableFeature(feature);
+        } else {
+            config.disableFeature(feature);
+        }
+    }
+
+    private static byte[] readClassBytes(String internalName) throws Exception {
+        try (InputStream in = CompositeTransformerTest.class.getClassLoader()
+                .getResourceAsStream(internalName + ".class")) {
+            byte[] buffer = new byte[in.available()];
+            int read = 0;
+            while (read < buffer.length) {
+                read += in.read(buffer, read, buffer.length - read);
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * 被增强的测试类
+     */
+    public static class Fixture {
+
+        private int counter;
+
+        public synchronized int increment() {
+            counter = counter + 1;
+            return counter;
+        }
+    }
+}
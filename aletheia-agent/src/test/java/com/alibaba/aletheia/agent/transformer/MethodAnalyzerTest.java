@@ -0,0 +1,122 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * MethodAnalyzer / InstrumentPolicy 测试类
+ *
+ * @author Aletheia Team
+ */
+public class MethodAnalyzerTest {
+
+    @Test
+    public void testClassifiesShapes() throws Exception {
+        Map<String, MethodProfile> profiles = MethodAnalyzer.analyze(new ClassReader(Fixture.class.getName()));
+
+        assertEquals(MethodShape.EMPTY, profiles.get("empty()V").getShape());
+        assertEquals(MethodShape.GETTER, profiles.get("getValue()I").getShape());
+        assertEquals(MethodShape.SETTER, profiles.get("setValue(I)V").getShape());
+        assertEquals(MethodShape.SETTER, profiles.get("withValue(I)L" + internalName() + ";").getShape());
+        assertEquals(MethodShape.DELEGATOR, profiles.get("delegate()I").getShape());
+        // 指令数超过定长窗口的委托方法仍按最后一条指令识别
+        assertEquals(MethodShape.DELEGATOR, profiles.get("delegateMany(IIII)I").getShape());
+        assertEquals(MethodShape.OTHER, profiles.get("compute(I)I").getShape());
+        assertNull("Abstract methods have no code", profiles.get("abstractMethod()V"));
+    }
+
+    @Test
+    public void testReadsCodeLengthAndReturns() throws Exception {
+        Map<String, MethodProfile> profiles = MethodAnalyzer.analyze(new ClassReader(Fixture.class.getName()));
+
+        // aload_0, getfield #x, ireturn
+        assertEquals(5, profiles.get("getValue()I").getCodeLength());
+        assertEquals(1, profiles.get("getValue()I").getReturnCount());
+        assertEquals(2, profiles.get("compute(I)I").getReturnCount());
+        assertTrue(profiles.get("compute(I)I").getCodeLength() > profiles.get("getValue()I").getCodeLength());
+    }
+
+    @Test
+    public void testPolicySkipsTrivialSmallAndInlineCrossingMethods() {
+        InstrumentPolicy policy = new InstrumentPolicy(AgentConfig.getInstance(),
+                InstrumentPolicy.DEFAULT_MAX_INLINE_SIZE, InstrumentPolicy.DEFAULT_FREQ_INLINE_SIZE);
+        int probeBytes = InstrumentPolicy.estimateProbeBytes(1);
+
+        assertEquals(InstrumentPolicy.Decision.SKIP_SHAPE,
+                policy.decide(new MethodProfile(MethodShape.GETTER, 5, 1)));
+        assertEquals(InstrumentPolicy.Decision.SKIP_SMALL,
+                policy.decide(new MethodProfile(MethodShape.OTHER, 4, 1)));
+        // 埋点前可按 MaxInlineSize 内联，埋点后超出
+        assertEquals(InstrumentPolicy.Decision.SKIP_INLINE_CROSSING,
+                policy.decide(new MethodProfile(MethodShape.OTHER, InstrumentPolicy.DEFAULT_MAX_INLINE_SIZE, 1)));
+        // 埋点前已超过 MaxInlineSize，埋点后仍在 FreqInlineSize 内
+        assertEquals(InstrumentPolicy.Decision.INSTRUMENT,
+                policy.decide(new MethodProfile(MethodShape.OTHER, InstrumentPolicy.DEFAULT_MAX_INLINE_SIZE + 1, 1)));
+        // 埋点后越过 FreqInlineSize
+        assertEquals(InstrumentPolicy.Decision.SKIP_INLINE_CROSSING, policy.decide(
+                new MethodProfile(MethodShape.OTHER, InstrumentPolicy.DEFAULT_FREQ_INLINE_SIZE - probeBytes + 1, 1)));
+        assertEquals(InstrumentPolicy.Decision.INSTRUMENT, policy.decide(null));
+
+        Map<String, Object> stats = policy.getStats();
+        assertEquals(2L, stats.get("instrumentDecisions"));
+        assertEquals(1L, stats.get("skippedByShape"));
+        assertEquals(1L, stats.get("skippedBySize"));
+        assertEquals(2L, stats.get("skippedByInlineCrossing"));
+    }
+
+    private static String internalName() {
+        return Fixture.class.getName().replace('.', '/');
+    }
+
+    /**
+     * 被分析的测试类
+     */
+    public abstract static class Fixture {
+
+        private int value;
+
+        public void empty() {
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+
+        public Fixture withValue(int value) {
+            this.value = value;
+            return this;
+        }
+
+        public int delegate() {
+            return getValue();
+        }
+
+        public int delegateMany(int a, int b, int c, int d) {
+            return sum(a, b, c, d);
+        }
+
+        public abstract int sum(int a, int b, int c, int d);
+
+        public int compute(int n) {
+            if (n < 0) {
+                return -1;
+            }
+            int sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += i * value;
+            }
+            return sum;
+        }
+
+        public abstract void abstractMethod();
+    }
+}
@@ -0,0 +1,299 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.agent.config.InstrumentConfig;
+import com.alibaba.aletheia.agent.sampler.RtSampler;
+import com.alibaba.aletheia.common.model.RtEvent;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * MethodRtTransformer 测试类
+ *
+ * @author Aletheia Team
+ */
+public class MethodRtTransformerTest {
+
+    /**
+     * 调用次数（采样率上限为 10%，保证每个方法都能被采到）
+     */
+    private static final int INVOCATIONS = 5000;
+
+    /**
+     * 内层方法自旋的时长（纳秒），外层方法的耗时不应小于该值
+     */
+    private static final long INNER_SPIN_NS = 20_000L;
+
+    private static final String PREFIX = Fixture.class.getName() + ".";
+
+    @Test
+    public void testNestedAndExceptionalExitsAreTimed() throws Exception {
+        AgentConfig config = AgentConfig.getInstance();
+        boolean rtEnabled = config.isFeatureEnabled("RT");
+        config.enableFeature("RT");
+        Map<String, RtEvent> events;
+        long sampledEntries;
+        try {
+            Class<?> fixtureClass = loadTransformed(Fixture.class);
+            RtSampler.getAndClearRtEvents();
+            long samplesBefore = RtSampler.getTotalSamples();
+            invokeFixture(fixtureClass);
+            sampledEntries = RtSampler.getTotalSamples() - samplesBefore;
+            events = collectEvents();
+        } finally {
+            restoreFeature(config, "RT", rtEnabled);
+        }
+
+        RtEvent outer = events.get(PREFIX + "outer");
+        RtEvent inner = events.get(PREFIX + "inner");
+        RtEvent failing = events.get(PREFIX + "failing");
+        RtEvent thrower = events.get(PREFIX + "thrower");
+        assertNotNull("Outer method should be timed", outer);
+        assertNotNull("Inner method should be timed", inner);
+        assertNotNull("Caller of a throwing method should be timed", failing);
+        assertNotNull("Throwing method should be timed", thrower);
+
+        // 每次被采样的进入恰好记录一次退出：正常退出和经过 finally 处理器的异常退出都不丢失、不重复
+        long recordedExits = outer.getSampleCount() + inner.getSampleCount()
+                + failing.getSampleCount() + thrower.getSampleCount();
+        assertTrue("Some entries should be sampled", sampledEntries > 0);
+        assertEquals("Every sampled entry should record exactly one exit", sampledEntries, recordedExits);
+
+        // 嵌套调用时外层方法的计时不会被内层覆盖：外层每次调用都包含内层的自旋
+        assertTrue("Inner min " + inner.getMinNs() + "ns should cover its spin", inner.getMinNs() >= INNER_SPIN_NS);
+        assertTrue("Outer min " + outer.getMinNs() + "ns should include the inner spin",
+                outer.getMinNs() >= INNER_SPIN_NS);
+    }
+
+    @Test
+    public void testDisablingFeatureRelinksProbesWithoutRetransform() throws Exception {
+        AgentConfig config = AgentConfig.getInstance();
+        boolean rtEnabled = config.isFeatureEnabled("RT");
+        config.enableFeature("RT");
+        try {
+            Class<?> fixtureClass = loadTransformed(Fixture.class);
+
+            // 关闭 RT：已增强类中的埋点被链接为空方法
+            config.disableFeature("RT");
+            RtSampler.getAndClearRtEvents();
+            invokeFixture(fixtureClass);
+            assertNull("Disabled probes should not record", collectEvents().get(PREFIX + "outer"));
+
+            // 重新启用：同一个类无需重新转换即恢复记录
+            config.enableFeature("RT");
+            invokeFixture(fixtureClass);
+            assertNotNull("Re-enabled probes should record", collectEvents().get(PREFIX + "outer"));
+        } finally {
+            restoreFeature(config, "RT", rtEnabled);
+        }
+    }
+
+    @Test
+    public void testExitProbesAreOutsideTheFinallyRange() throws Exception {
+        // 结束埋点若处在 finally 处理器的受保护区间内，埋点自身抛出异常时会被处理器再记录一次
+        List<String> violations = new ArrayList<>();
+        int[] exitProbes = new int[1];
+        new ClassReader(transform(Fixture.class)).accept(new ClassVisitor(Opcodes.ASM9) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                             String[] exceptions) {
+                return new ExitProbeChecker(name, violations, exitProbes);
+            }
+        }, 0);
+
+        assertTrue("Instrumented methods should have exit probes", exitProbes[0] > 0);
+        assertTrue("Exit probes covered by the finally handler: " + violations, violations.isEmpty());
+    }
+
+    private static void invokeFixture(Class<?> fixtureClass) throws Exception {
+        Method outer = fixtureClass.getMethod("outer");
+        Method failing = fixtureClass.getMethod("failing");
+        for (int i = 0; i < INVOCATIONS; i++) {
+            assertEquals("Instrumented method should keep its result", 2, outer.invoke(null));
+            try {
+                failing.invoke(null);
+                fail("Exception should propagate through the probe");
+            } catch (InvocationTargetException e) {
+                assertTrue("Original exception should be rethrown",
+                        e.getCause() instanceof IllegalStateException);
+            }
+        }
+    }
+
+    private static Map<String, RtEvent> collectEvents() {
+        Map<String, RtEvent> events = new HashMap<>();
+        for (RtEvent event : RtSampler.getAndClearRtEvents()) {
+            events.put(event.getMethodSignature(), event);
+        }
+        return events;
+    }
+
+    private static void restoreFeature(AgentConfig config, String feature, boolean enabled) {
+        if (enabled) {
+            config.enableFeature(feature);
+        } else {
+            config.disableFeature(feature);
+        }
+    }
+
+    private static Class<?> loadTransformed(Class<?> clazz) throws Exception {
+        byte[] transformed = transform(clazz);
+        return new ClassLoader(MethodRtTransformerTest.class.getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                if (name.equals(clazz.getName())) {
+                    return defineClass(name, transformed, 0, transformed.length);
+                }
+                return super.loadClass(name, resolve);
+            }
+        }.loadClass(clazz.getName());
+    }
+
+    private static byte[] transform(Class<?> clazz) throws Exception {
+        String internalName = clazz.getName().replace('.', '/');
+        byte[] original = readClassBytes(internalName);
+
+        // 测试方法都很小，关闭埋点过滤以验证埋点本身
+        AgentConfig config = AgentConfig.getInstance();
+        InstrumentConfig instrumentConfig = config.getInstrumentConfig();
+        Set<String> skippedShapes = instrumentConfig.getSkippedMethodShapes();
+        int minSize = instrumentConfig.getMinInstrumentBytecodeSize();
+        boolean skipInlineCrossing = instrumentConfig.isSkipInlineCrossing();
+        byte[] transformed;
+        try {
+            instrumentConfig.setSkippedMethodShapes(Collections.<String>emptySet());
+            instrumentConfig.setMinInstrumentBytecodeSize(0);
+            instrumentConfig.setSkipInlineCrossing(false);
+            transformed = new MethodRtTransformer(config)
+                    .doTransform(clazz.getClassLoader(), internalName, null, null, original);
+        } finally {
+            instrumentConfig.setSkippedMethodShapes(skippedShapes);
+            instrumentConfig.setMinInstrumentBytecodeSize(minSize);
+            instrumentConfig.setSkipInlineCrossing(skipInlineCrossing);
+        }
+        assertNotNull("Class should be transformed", transformed);
+        return transformed;
+    }
+
+    private static byte[] readClassBytes(String internalName) throws IOException {
+        try (InputStream in = MethodRtTransformerTest.class.getClassLoader()
+                .getResourceAsStream(internalName + ".class")) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * 按代码顺序跟踪处于受保护区间内的位置，检查正常退出的结束埋点（处理器代码之外的）不在任何区间内
+     */
+    private static final class ExitProbeChecker extends MethodVisitor {
+
+        private final String methodName;
+        private final List<String> violations;
+        private final int[] exitProbes;
+        private final List<Label[]> blocks = new ArrayList<>();
+        private final Set<Label> handlers = new HashSet<>();
+        private final Set<Label[]> active = new HashSet<>();
+        private boolean inHandler;
+
+        ExitProbeChecker(String methodName, List<String> violations, int[] exitProbes) {
+            super(Opcodes.ASM9);
+            this.methodName = methodName;
+            this.violations = violations;
+            this.exitProbes = exitProbes;
+        }
+
+        @Override
+        public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+            blocks.add(new Label[]{start, end});
+            handlers.add(handler);
+        }
+
+        @Override
+        public void visitLabel(Label label) {
+            for (Label[] block : blocks) {
+                if (block[1] == label) {
+                    active.remove(block);
+                }
+                if (block[0] == label) {
+                    active.add(block);
+                }
+            }
+            if (handlers.contains(label)) {
+                inHandler = true;
+            }
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            check(name);
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle,
+                                           Object... bootstrapMethodArguments) {
+            check(name);
+        }
+
+        private void check(String name) {
+            if (inHandler || !name.contains("onMethodEnd")) {
+                return;
+            }
+            exitProbes[0]++;
+            if (!active.isEmpty()) {
+                violations.add(methodName);
+            }
+        }
+    }
+
+    /**
+     * 被增强的测试类
+     */
+    public static class Fixture {
+
+        public static int outer() {
+            return inner() + 1;
+        }
+
+        public static int inner() {
+            long start = System.nanoTime();
+            while (System.nanoTime() - start < INNER_SPIN_NS) {
+                // 自旋，给外层方法一个已知的耗时下限
+            }
+            return 1;
+        }
+
+        public static void failing() {
+            thrower();
+        }
+
+        public static void thrower() {
+            throw new IllegalStateException("expected");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * PointcutMatcher 测试类
+ *
+ * @author Aletheia Team
+ */
+public class PointcutMatcherTest {
+
+    private static final String[] NO_INTERFACES = new String[0];
+
+    private static final List<String> NO_ANNOTATIONS = Collections.emptyList();
+
+    @Test
+    public void testClassAndMethodConditions() {
+        PointcutMatcher matcher = PointcutMatcher.compile(Collections.singletonList(
+                "class=com.example.**.*Service method=get*|find* desc=(J)* modifiers=public,!static"));
+
+        assertTrue(matcher.matchesClass("com/example/user/UserService", "java/lang/Object", NO_INTERFACES));
+        assertFalse("Class glob must match the whole name",
+                matcher.matchesClass("com/example/user/UserServiceImpl", "java/lang/Object", NO_INTERFACES));
+
+        String owner = "com/example/UserService";
+        assertTrue(matcher.matchesMethod(owner, null, NO_INTERFACES, Opcodes.ACC_PUBLIC, "getUser",
+                "(J)Lcom/example/User;", NO_ANNOTATIONS));
+        assertTrue(matcher.matchesMethod(owner, null, NO_INTERFACES, Opcodes.ACC_PUBLIC, "findUser",
+                "(J)V", NO_ANNOTATIONS));
+        assertFalse(matcher.matchesMethod(owner, null, NO_INTERFACES, Opcodes.ACC_PUBLIC, "save",
+                "(J)V", NO_ANNOTATIONS));
+        assertFalse(matcher.matchesMethod(owner, null, NO_INTERFACES, Opcodes.ACC_PUBLIC, "getUser",
+                "(Ljava/lang/String;)V", NO_ANNOTATIONS));
+        assertFalse("Static methods are excluded", matcher.matchesMethod(owner, null, NO_INTERFACES,
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "getUser", "(J)V", NO_ANNOTATIONS));
+        assertFalse("Non-public methods are excluded", matcher.matchesMethod(owner, null, NO_INTERFACES,
+                Opcodes.ACC_PRIVATE, "getUser", "(J)V", NO_ANNOTATIONS));
+    }
+
+    @Test
+    public void testSuperTypeAndAnnotationConditions() {
+        PointcutMatcher matcher = PointcutMatcher.compile(Arrays.asList(
+                "super=com.example.Handler annotation=com.example.Timed",
+                "class=com.example.Dao method=query"));
+
+        String[] handler = {"java/io/Serializable", "com/example/Handler"};
+        assertTrue(matcher.matchesClass("org/other/OrderHandler", "java/lang/Object", handler));
+        assertFalse(matcher.matchesClass("org/other/Order", "java/lang/Object", NO_INTERFACES));
+        assertTrue(matcher.matchesMethod("org/other/OrderHandler", "java/lang/Object", handler, 0, "handle",
+                "()V", Collections.singletonList("Lcom/example/Timed;")));
+        assertFalse("Methods without the annotation are excluded", matcher.matchesMethod(
+                "org/other/OrderHandler", "java/lang/Object", handler, 0, "handle", "()V", NO_ANNOTATIONS));
+        assertTrue(matcher.matchesMethod("com/example/Dao", "java/lang/Object", NO_INTERFACES, 0, "query",
+                "()V", NO_ANNOTATIONS));
+
+        assertTrue(PointcutMatcher.classSelector("class=com.example.*Dao").test("com/example/UserDao"));
+        assertFalse(PointcutMatcher.classSelector("class=com.example.*Dao").test("com/example/UserService"));
+        assertTrue("Super type pointcuts cannot be selected by name",
+                PointcutMatcher.classSelector("super=com.example.Handler").test("org/other/Order"));
+    }
+
+    @Test
+    public void testEmptyMatcherAndSyntaxErrors() {
+        assertTrue(PointcutMatcher.EMPTY.isEmpty());
+        assertTrue(PointcutMatcher.EMPTY.matchesMethod("a/B", null, NO_INTERFACES, 0, "m", "()V", NO_ANNOTATIONS));
+        assertEquals("Fingerprint should not depend on order",
+                PointcutMatcher.compile(Arrays.asList("method=a", "method=b")).getFingerprint(),
+                PointcutMatcher.compile(Arrays.asList("method=b", "method=a")).getFingerprint());
+
+        for (String invalid : Arrays.asList("", "method", "unknown=x", "modifiers=volatile", "method=a||b")) {
+            try {
+                PointcutMatcher.validate(invalid);
+                fail("Should reject: " + invalid);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+}
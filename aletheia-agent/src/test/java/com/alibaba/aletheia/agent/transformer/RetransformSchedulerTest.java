@@ -0,0 +1,108 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import org.junit.Test;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * RetransformScheduler 测试类
+ *
+ * @author Aletheia Team
+ */
+public class RetransformSchedulerTest {
+
+    private static final Class<?>[] LOADED = {
+            String.class, Integer.class, Long.class, ArrayList.class, Arrays.class,
+            RetransformSchedulerTest.class, AgentConfig.class, ClassFilter.class, int[].class
+    };
+
+    @Test
+    public void testRetransformsSelectedClassesInBoundedBatches() throws Exception {
+        List<Class<?>[]> batches = Collections.synchronizedList(new ArrayList<>());
+        Instrumentation inst = fakeInstrumentation(batches, null);
+
+        AgentConfig config = AgentConfig.getInstance();
+        int batchSize = config.getInstrumentConfig().getRetransformBatchSize();
+        config.getInstrumentConfig().setRetransformBatchSize(2);
+        RetransformScheduler scheduler = new RetransformScheduler(inst, config);
+        try {
+            Future<?> job = scheduler.submit("test", name -> name.startsWith("java/lang/")
+                    || name.startsWith("com/alibaba/"));
+            job.get(10, TimeUnit.SECONDS);
+        } finally {
+            scheduler.shutdown();
+            config.getInstrumentConfig().setRetransformBatchSize(batchSize);
+        }
+
+        List<Class<?>> retransformed = new ArrayList<>();
+        for (Class<?>[] batch : batches) {
+            assertTrue("Batch should not exceed the configured size", batch.length <= 2);
+            retransformed.addAll(Arrays.asList(batch));
+        }
+        assertEquals(Arrays.asList(String.class, Integer.class, Long.class, RetransformSchedulerTest.class,
+                AgentConfig.class, ClassFilter.class), retransformed);
+
+        Map<String, Object> progress = scheduler.getProgress();
+        assertEquals(false, progress.get("running"));
+        assertEquals(6, progress.get("totalClasses"));
+        assertEquals(6, progress.get("doneClasses"));
+        assertEquals(0, progress.get("failedClasses"));
+    }
+
+    @Test
+    public void testFailingClassIsIsolated() throws Exception {
+        List<Class<?>[]> batches = Collections.synchronizedList(new ArrayList<>());
+        Instrumentation inst = fakeInstrumentation(batches, Integer.class);
+
+        RetransformScheduler scheduler = new RetransformScheduler(inst, AgentConfig.getInstance());
+        try {
+            scheduler.submit("test", name -> name.startsWith("java/lang/")).get(10, TimeUnit.SECONDS);
+        } finally {
+            scheduler.shutdown();
+        }
+
+        Map<String, Object> progress = scheduler.getProgress();
+        assertEquals(3, progress.get("doneClasses"));
+        assertEquals(1, progress.get("failedClasses"));
+        assertTrue("Other classes should be retried one by one", batches.stream()
+                .anyMatch(b -> b.length == 1 && b[0] == Long.class));
+    }
+
+    /**
+     * 记录 retransformClasses 调用的 Instrumentation，failing 不为 null 时包含该类的调用抛出异常
+     */
+    private static Instrumentation fakeInstrumentation(List<Class<?>[]> batches, Class<?> failing) {
+        return (Instrumentation) Proxy.newProxyInstance(RetransformSchedulerTest.class.getClassLoader(),
+                new Class<?>[]{Instrumentation.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isRetransformClassesSupported":
+                            return true;
+                        case "getAllLoadedClasses":
+                            return LOADED.clone();
+                        case "isModifiableClass":
+                            return !((Class<?>) args[0]).isArray();
+                        case "retransformClasses":
+                            Class<?>[] classes = (Class<?>[]) args[0];
+                            if (failing != null && Arrays.asList(classes).contains(failing)) {
+                                throw new UnmodifiableClassException(failing.getName());
+                            }
+                            batches.add(classes);
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
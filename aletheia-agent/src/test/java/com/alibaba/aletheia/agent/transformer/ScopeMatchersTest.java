@@ -0,0 +1,46 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * ScopeMatchers 测试类
+ *
+ * @author Aletheia Team
+ */
+public class ScopeMatchersTest {
+
+    private static final String INCLUDE = "com/example/scope/";
+
+    private static final String POINTCUT = "class=com.example.scope.* method=handle";
+
+    private static final String INVALID_POINTCUT = "method=";
+
+    @Test
+    public void testRebuildsAfterPatternsChange() {
+        AgentConfig config = AgentConfig.getInstance();
+        ScopeMatchers matchers = new ScopeMatchers(config);
+        assertFalse(matchers.getIncludeMatcher().matches("com/example/scope/Handler"));
+
+        try {
+            config.addIncludePattern(INCLUDE);
+            config.addPointcut(POINTCUT);
+            config.addPointcut(INVALID_POINTCUT);
+
+            assertTrue(matchers.getIncludeMatcher().matches("com/example/scope/Handler"));
+            PointcutMatcher pointcuts = matchers.getPointcutMatcher();
+            assertFalse("Valid pointcuts must survive an invalid one", pointcuts.isEmpty());
+            assertTrue(pointcuts.matchesClass("com/example/scope/Handler", "java/lang/Object", new String[0]));
+            assertSame("Unchanged patterns must not be recompiled", pointcuts, matchers.getPointcutMatcher());
+        } finally {
+            config.removeIncludePattern(INCLUDE);
+            config.removePointcut(POINTCUT);
+            config.removePointcut(INVALID_POINTCUT);
+        }
+
+        assertFalse(matchers.getIncludeMatcher().matches("com/example/scope/Handler"));
+        assertTrue(matchers.getPointcutMatcher().isEmpty());
+    }
+}
@@ -0,0 +1,171 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * TransformCache 测试类
+ *
+ * @author Aletheia Team
+ */
+public class TransformCacheTest {
+
+    private static final long MAX_BYTES = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testEntriesSurviveReopen() throws Exception {
+        File file = new File(folder.getRoot(), TransformCache.FILE_NAME);
+        byte[] original = {1, 2, 3};
+        byte[] key = TransformCache.key("RT", "fp", original);
+        byte[] transformed = {4, 5, 6, 7};
+
+        TransformCache cache = TransformCache.open(file, MAX_BYTES);
+        assertNotNull(cache);
+        assertNull("Empty cache should miss", cache.get(key));
+        cache.put(key, transformed, Arrays.asList("0:a.B.c", "1:a.B.d"));
+        cache.close();
+
+        TransformCache reopened = TransformCache.open(file, MAX_BYTES);
+        assertNotNull(reopened);
+        try {
+            TransformCache.Entry entry = reopened.get(key);
+            assertNotNull("Entry should be read back after reopen", entry);
+            assertArrayEquals(transformed, entry.getData());
+            assertEquals(Arrays.asList("0:a.B.c", "1:a.B.d"), entry.getMetadata());
+
+            List<List<String>> metadata = new ArrayList<>();
+            reopened.forEachMetadata(metadata::add);
+            assertEquals(1, metadata.size());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void testCorruptedMetadataCountIsTruncated() throws Exception {
+        File file = new File(folder.getRoot(), TransformCache.FILE_NAME);
+        byte[] key = TransformCache.key("RT", "fp", new byte[]{1});
+
+        TransformCache cache = TransformCache.open(file, MAX_BYTES);
+        assertNotNull(cache);
+        cache.put(key, new byte[]{2}, Collections.singletonList("0:a.B.c"));
+        cache.close();
+
+        // 第一条记录的元数据条数（文件头 16 字节 + 键 20 字节之后）被写坏
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(16 + 20);
+            raf.writeInt(Integer.MAX_VALUE);
+        }
+
+        TransformCache reopened = TransformCache.open(file, MAX_BYTES);
+        assertNotNull(reopened);
+        try {
+            assertNull("Corrupted record should be dropped", reopened.get(key));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void testKeyDependsOnFingerprintAndLaterRecordWins() throws Exception {
+        byte[] original = {1, 2, 3};
+        assertFalse(Arrays.equals(TransformCache.key("RT", "a", original), TransformCache.key("RT", "b", original)));
+
+        TransformCache cache = TransformCache.open(new File(folder.getRoot(), TransformCache.FILE_NAME), MAX_BYTES);
+        assertNotNull(cache);
+        try {
+            byte[] key = TransformCache.key("RT", "a", original);
+            cache.put(key, new byte[]{1}, Collections.<String>emptyList());
+            cache.put(key, new byte[]{2}, Collections.<String>emptyList());
+            assertArrayEquals(new byte[]{2}, cache.get(key).getData());
+            assertEquals(1, cache.size());
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testFullCacheStopsWriting() throws Exception {
+        TransformCache cache = TransformCache.open(new File(folder.getRoot(), TransformCache.FILE_NAME), 64);
+        assertNotNull(cache);
+        try {
+            byte[] key = TransformCache.key("RT", "fp", new byte[]{1});
+            cache.put(key, new byte[128], Collections.<String>emptyList());
+            assertNull("Record larger than the file should be dropped", cache.get(key));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testReopenSkipsAndCompactsSupersededRecords() throws Exception {
+        File file = new File(folder.getRoot(), TransformCache.FILE_NAME);
+        byte[] key = TransformCache.key("RT", "fp", new byte[]{1});
+
+        TransformCache cache = TransformCache.open(file, MAX_BYTES);
+        assertNotNull(cache);
+        cache.put(key, new byte[256], Collections.singletonList("0:a.B.old"));
+        cache.put(key, new byte[256], Collections.singletonList("0:a.B.new"));
+        int bothRecords = cache.usedBytes();
+        cache.close();
+
+        TransformCache reopened = TransformCache.open(file, MAX_BYTES);
+        assertNotNull(reopened);
+        try {
+            List<List<String>> metadata = new ArrayList<>();
+            reopened.forEachMetadata(metadata::add);
+            assertEquals("Only the latest record should be seeded",
+                    Collections.singletonList(Collections.singletonList("0:a.B.new")), metadata);
+            assertTrue("Superseded record should be compacted away", reopened.usedBytes() < bothRecords);
+            assertEquals(Collections.singletonList("0:a.B.new"), reopened.get(key).getMetadata());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void testFullCacheDropsRecordsUnusedInThisRun() throws Exception {
+        File file = new File(folder.getRoot(), TransformCache.FILE_NAME);
+        long maxBytes = 4096;
+        TransformCache cache = TransformCache.open(file, maxBytes);
+        assertNotNull(cache);
+        List<byte[]> staleKeys = new ArrayList<>();
+        for (int i = 0; cache.usedBytes() + 1024 < maxBytes; i++) {
+            byte[] key = TransformCache.key("RT", "old", new byte[]{(byte) i});
+            cache.put(key, new byte[900], Collections.<String>emptyList());
+            staleKeys.add(key);
+        }
+        cache.close();
+
+        // 重启后旧记录都没有被读到，写满时被压缩掉
+        TransformCache reopened = TransformCache.open(file, maxBytes);
+        assertNotNull(reopened);
+        try {
+            byte[] usedKey = staleKeys.get(0);
+            assertNotNull(reopened.get(usedKey));
+            byte[] newKey = TransformCache.key("RT", "new", new byte[]{1});
+            reopened.put(newKey, new byte[900], Collections.<String>emptyList());
+
+            assertNotNull("New record should be written after compaction", reopened.get(newKey));
+            assertNotNull("Record read in this run should be kept", reopened.get(usedKey));
+            assertNull("Unused record should be dropped", reopened.get(staleKeys.get(1)));
+            assertEquals(2, reopened.size());
+            assertEquals(1L, reopened.getStats().get("compactions"));
+        } finally {
+            reopened.close();
+        }
+    }
+}
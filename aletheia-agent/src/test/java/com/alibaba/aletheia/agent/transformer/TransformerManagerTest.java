@@ -0,0 +1,129 @@
+package com.alibaba.aletheia.agent.transformer;
+
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.agent.probe.ProbeBootstrap;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * TransformerManager 测试类
+ *
+ * @author Aletheia Team
+ */
+public class TransformerManagerTest {
+
+    private static final String MODIFIED = "com/example/detach/Modified";
+
+    private static final String UNTOUCHED = "com/example/detach/Untouched";
+
+    @Test
+    public void testDetachRemovesPipelineAndRestoresModifiedClasses() throws Exception {
+        byte[] modifiedBytes = classBytes(MODIFIED);
+        Class<?> modified = defineClass(MODIFIED, modifiedBytes);
+        Class<?> untouched = defineClass(UNTOUCHED, classBytes(UNTOUCHED));
+
+        List<ClassFileTransformer> registered = Collections.synchronizedList(new ArrayList<>());
+        List<Class<?>> retransformed = Collections.synchronizedList(new ArrayList<>());
+        Instrumentation inst = (Instrumentation) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Instrumentation.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "addTransformer":
+                            registered.add((ClassFileTransformer) args[0]);
+                            return null;
+                        case "removeTransformer":
+                            return registered.remove(args[0]);
+                        case "isRetransformClassesSupported":
+                        case "isModifiableClass":
+                            return true;
+                        case "getAllLoadedClasses":
+                            return new Class<?>[]{modified, untouched};
+                        case "retransformClasses":
+                            retransformed.addAll(Arrays.asList((Class<?>[]) args[0]));
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        AgentConfig config = AgentConfig.getInstance();
+        boolean cacheEnabled = config.getInstrumentConfig().isTransformCacheEnabled();
+        TransformerManager manager = new TransformerManager(inst, config);
+        try {
+            config.getInstrumentConfig().setTransformCacheEnabled(false);
+            manager.initDefaultTransformers(true);
+            manager.registerTransformer("Touch", new TouchTransformer(config), true);
+            assertEquals(1, registered.size());
+
+            assertNotNull(registered.get(0).transform(null, MODIFIED, null, null, modifiedBytes));
+            assertEquals(1, manager.getDetachStatus().get("modifiedClasses"));
+
+            Map<String, Object> result = manager.detach().get(10, TimeUnit.SECONDS);
+            assertEquals(1, result.get("doneClasses"));
+            assertTrue("Pipeline should be removed from Instrumentation", registered.isEmpty());
+            assertEquals(Collections.<Class<?>>singletonList(modified), retransformed);
+
+            Map<String, Object> status = manager.getDetachStatus();
+            assertEquals(true, status.get("completed"));
+            assertEquals(1, status.get("restoredClasses"));
+
+            manager.registerTransformer("Late", new TouchTransformer(config), true);
+            assertTrue("No transformer should be registered after detach", registered.isEmpty());
+        } finally {
+            manager.shutdown();
+            config.getInstrumentConfig().setTransformCacheEnabled(cacheEnabled);
+            // 卸载会断开 JVM 内全部埋点，恢复以免影响其他测试
+            ProbeBootstrap.relinkAll();
+        }
+    }
+
+    private static byte[] classBytes(String internalName) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, internalName, null, "java/lang/Object", null);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static Class<?> defineClass(String internalName, byte[] bytes) {
+        return new ClassLoader(TransformerManagerTest.class.getClassLoader()) {
+            Class<?> define() {
+                return defineClass(internalName.replace('/', '.'), bytes, 0, bytes.length);
+            }
+        }.define();
+    }
+
+    /**
+     * 对所有类返回透传访问器的 Transformer（使类被视为已修改）
+     */
+    private static final class TouchTransformer extends BaseTransformer {
+
+        TouchTransformer(AgentConfig config) {
+            super(config);
+        }
+
+        @Override
+        protected boolean isFeatureEnabled() {
+            return true;
+        }
+
+        @Override
+        protected ClassVisitor createVisitor(ClassVisitor next, ClassReader classReader, String className) {
+            return new ClassVisitor(Opcodes.ASM9, next) {
+            };
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.alibaba.aletheia.agent.weaver;
+
+import com.alibaba.aletheia.agent.config.AgentConfig;
+import com.alibaba.aletheia.agent.config.InstrumentConfig;
+import com.alibaba.aletheia.agent.sampler.RtSampler;
+import com.alibaba.aletheia.agent.transformer.ClassFilter;
+import com.alibaba.aletheia.common.model.RtEvent;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassReader;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * OfflineWeaver 测试类
+ *
+ * @author Aletheia Team
+ */
+public class OfflineWeaverTest {
+
+    /**
+     * 调用次数（采样率上限为 10%，保证方法能被采到）
+     */
+    private static final int INVOCATIONS = 5000;
+
+    private static final String AGENT_EXCLUDE = "com/alibaba/aletheia/";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWovenClassesRecordWithoutRuntimeTransform() throws Exception {
+        String internalName = Fixture.class.getName().replace('.', '/');
+        File input = folder.newFolder("in");
+        File output = folder.newFolder("out");
+        File classFile = new File(input, internalName + ".class");
+        assertTrue(classFile.getParentFile().mkdirs());
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(internalName + ".class")) {
+            Files.copy(in, classFile.toPath());
+        }
+        Files.write(new File(input, "readme.txt").toPath(), new byte[]{1});
+
+        AgentConfig config = AgentConfig.getInstance();
+        boolean rtEnabled = config.isFeatureEnabled("RT");
+        InstrumentConfig instrumentConfig = config.getInstrumentConfig();
+        Set<String> skippedShapes = instrumentConfig.getSkippedMethodShapes();
+        int minSize = instrumentConfig.getMinInstrumentBytecodeSize();
+        boolean skipInlineCrossing = instrumentConfig.isSkipInlineCrossing();
+        byte[] woven;
+        try {
+            config.enableFeature("RT");
+            config.removeExcludePattern(AGENT_EXCLUDE);
+            instrumentConfig.setSkippedMethodShapes(Collections.<String>emptySet());
+            instrumentConfig.setMinInstrumentBytecodeSize(0);
+            instrumentConfig.setSkipInlineCrossing(false);
+
+            OfflineWeaver weaver = new OfflineWeaver(config, getClass().getClassLoader(), 2);
+            weaver.weave(input, output);
+            assertEquals(1, weaver.getWovenClasses());
+            assertTrue("Resources should be copied", new File(output, "readme.txt").isFile());
+
+            woven = Files.readAllBytes(new File(output, internalName + ".class").toPath());
+            assertTrue(WovenMarker.isWoven(new ClassReader(woven), woven));
+            assertFalse("Agent should skip pre-woven classes",
+                    new ClassFilter(config).shouldTransform(internalName, woven));
+
+            // 方法 ID 在运行时链接埋点时分配
+            RtSampler.getAndClearRtEvents();
+            Method work = defineClass(Fixture.class.getName(), woven).getMethod("work", int.class);
+            for (int i = 0; i < INVOCATIONS; i++) {
+                assertEquals(i + 1, work.invoke(null, i));
+            }
+        } finally {
+            if (!rtEnabled) {
+                config.disableFeature("RT");
+            }
+            config.addExcludePattern(AGENT_EXCLUDE);
+            instrumentConfig.setSkippedMethodShapes(skippedShapes);
+            instrumentConfig.setMinInstrumentBytecodeSize(minSize);
+            instrumentConfig.setSkipInlineCrossing(skipInlineCrossing);
+        }
+
+        boolean recorded = false;
+        for (RtEvent event : RtSampler.getAndClearRtEvents()) {
+            recorded |= (Fixture.class.getName() + ".work").equals(event.getMethodSignature());
+        }
+        assertTrue("Woven probe should record with a late-bound method ID", recorded);
+    }
+
+    private static Class<?> defineClass(String name, byte[] bytes) throws ClassNotFoundException {
+        return new ClassLoader(OfflineWeaverTest.class.getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(String className, boolean resolve) throws ClassNotFoundException {
+                if (className.equals(name)) {
+                    return defineClass(name, bytes, 0, bytes.length);
+                }
+                return super.loadClass(className, resolve);
+            }
+        }.loadClass(name);
+    }
+
+    /**
+     * 被织入的测试类
+     */
+    public static class Fixture {
+
+        public static int work(int value) {
+            return value + 1;
+        }
+    }
+}
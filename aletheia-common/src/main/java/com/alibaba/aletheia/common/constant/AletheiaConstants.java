@@ -32,11 +32,136 @@ public final class AletheiaConstants {
      */
     public static final long DEFAULT_PUSH_INTERVAL_MS = 1000;
 
+    /**
+     * RT 直方图默认有效数字位数（相对误差约 1%）
+     */
+    public static final int DEFAULT_HISTOGRAM_SIGNIFICANT_DIGITS = 2;
+
+    /**
+     * RT 默认每个方法每个窗口的目标采样数（0 表示关闭按方法自适应采样）
+     */
+    public static final int DEFAULT_RT_TARGET_SAMPLES_PER_WINDOW = 100;
+
+    /**
+     * Agent 默认开销预算（占进程全部 CPU 的比例，1%）
+     */
+    public static final double DEFAULT_OVERHEAD_BUDGET = 0.01;
+
+    /**
+     * 默认不因超出开销预算而调控（只统计和报告），调控会改变采样率、推送间隔和功能开关
+     */
+    public static final boolean DEFAULT_OVERHEAD_ENFORCE = false;
+
+    /**
+     * 开销控制器默认评估周期（毫秒）
+     */
+    public static final long DEFAULT_GOVERNOR_INTERVAL_MS = 5000;
+
+    /**
+     * 开销控制器允许放宽到的最大推送间隔（毫秒）
+     */
+    public static final long MAX_PUSH_INTERVAL_MS = 60000;
+
+    /**
+     * 默认参与 RT 埋点的最小方法字节码长度（字节），更小的方法埋点开销远大于其自身耗时
+     */
+    public static final int DEFAULT_MIN_INSTRUMENT_BYTECODE_SIZE = 8;
+
+    /**
+     * 运行时重新转换的默认批大小（每批最多的类数）
+     */
+    public static final int DEFAULT_RETRANSFORM_BATCH_SIZE = 64;
+
+    /**
+     * 运行时重新转换单批的默认停顿预算（毫秒），超出时缩小批大小
+     */
+    public static final long DEFAULT_RETRANSFORM_PAUSE_BUDGET_MS = 20;
+
+    /**
+     * 运行时重新转换批次之间的间隔（毫秒）
+     */
+    public static final long RETRANSFORM_BATCH_INTERVAL_MS = 10;
+
+    /**
+     * Agent 关闭时等待已修改类恢复完成的最长时间（毫秒）
+     */
+    public static final long DETACH_AWAIT_TIMEOUT_MS = 30000;
+
+    /**
+     * 增强结果缓存文件默认最大长度（MB）
+     */
+    public static final int DEFAULT_TRANSFORM_CACHE_MAX_MB = 64;
+
+    /**
+     * 按热点增强模式下默认保留埋点的方法数
+     */
+    public static final int DEFAULT_PROFILE_GUIDED_TOP_N = 200;
+
+    /**
+     * 按热点增强模式下线程栈采样的默认间隔（毫秒）
+     */
+    public static final long DEFAULT_PROFILE_SAMPLE_INTERVAL_MS = 1000;
+
+    /**
+     * 按热点增强模式下重新排序热点方法的默认间隔（毫秒）
+     */
+    public static final long DEFAULT_PROFILE_RERANK_INTERVAL_MS = 30000;
+
+    /**
+     * 去除埋点的默认调用频率下限（次/秒），方法调用频率高于该值且平均 RT 低于上限时去除埋点
+     */
+    public static final long DEFAULT_DEINSTRUMENT_MIN_CALLS_PER_SEC = 1000000;
+
+    /**
+     * 去除埋点的默认平均 RT 上限（纳秒）
+     */
+    public static final long DEFAULT_DEINSTRUMENT_MAX_MEAN_NS = 100;
+
+    /**
+     * 每分钟最多去除埋点的默认方法数
+     */
+    public static final int DEFAULT_DEINSTRUMENT_MAX_PER_MINUTE = 10;
+
     /**
      * RingBuffer 默认大小
      */
     public static final int DEFAULT_RING_BUFFER_SIZE = 1024 * 8;
 
+    /**
+     * 探针事件流水线聚合线程的默认等待策略
+     */
+    public static final String DEFAULT_PIPELINE_WAIT_STRATEGY = "sleeping";
+
+    /**
+     * 探针事件流水线的默认缓冲区实现（disruptor 或 offheap）
+     */
+    public static final String DEFAULT_PIPELINE_TYPE = "disruptor";
+
+    /**
+     * 锁采样器最多跟踪的锁数量，超过后新锁的事件只计数不记录
+     */
+    public static final int DEFAULT_MAX_TRACKED_LOCKS = 10000;
+
+    /**
+     * 方法采样器最多跟踪的方法数量，超过后新方法的样本只计数不记录
+     */
+    public static final int DEFAULT_MAX_TRACKED_METHODS = 10000;
+
+    /**
+     * 默认不在 Agent 内保留滚动 RT 窗口（默认级别和方法数下约占 12 MB 堆）
+     */
+    public static final boolean DEFAULT_ROLLING_WINDOWS_ENABLED = false;
+
+    /**
+     * Agent 内滚动 RT 窗口的默认分辨率级别（槽位时长*槽位数）
+     */
+    public static final String DEFAULT_ROLLING_WINDOW_LEVELS = "1s*60,10s*60,1m*60";
+
+    /**
+     * 滚动 RT 窗口默认最多跟踪的方法数（每个方法约 180 个槽位，每个槽位约 4 KB）
+     */
+    public static final int DEFAULT_ROLLING_WINDOW_MAX_METHODS = 16;
+
     /**
      * RT 异常告警阈值倍数
      */
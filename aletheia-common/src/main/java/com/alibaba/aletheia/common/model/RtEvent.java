@@ -31,6 +31,18 @@ public class RtEvent implements Serializable {
     @JsonProperty("windowEndNs")
     private long windowEndNs;
 
+    /**
+     * 时间窗口开始时间（墙上时钟，毫秒）
+     */
+    @JsonProperty("windowStartMs")
+    private long windowStartMs;
+
+    /**
+     * 时间窗口结束时间（墙上时钟，毫秒，按推送间隔对齐，便于跨 JVM 聚合）
+     */
+    @JsonProperty("windowEndMs")
+    private long windowEndMs;
+
     /**
      * 采样次数
      */
@@ -73,6 +85,54 @@ public class RtEvent implements Serializable {
     @JsonProperty("avgMs")
     private double avgMs;
 
+    /**
+     * P50 RT（纳秒）
+     */
+    @JsonProperty("p50Ns")
+    private long p50Ns;
+
+    /**
+     * P99 RT（纳秒）
+     */
+    @JsonProperty("p99Ns")
+    private long p99Ns;
+
+    /**
+     * P999 RT（纳秒）
+     */
+    @JsonProperty("p999Ns")
+    private long p999Ns;
+
+    /**
+     * 最小 RT（纳秒）
+     */
+    @JsonProperty("minNs")
+    private long minNs;
+
+    /**
+     * 最大 RT（纳秒）
+     */
+    @JsonProperty("maxNs")
+    private long maxNs;
+
+    /**
+     * 平均 RT（纳秒）
+     */
+    @JsonProperty("avgNs")
+    private double avgNs;
+
+    /**
+     * 窗口内的有效采样率（用于将采样数还原为调用量）
+     */
+    @JsonProperty("sampleRate")
+    private double sampleRate;
+
+    /**
+     * 按采样率估算的窗口内调用次数
+     */
+    @JsonProperty("estimatedCount")
+    private long estimatedCount;
+
     public String getMethodSignature() {
         return methodSignature;
     }
@@ -97,6 +157,22 @@ public class RtEvent implements Serializable {
         this.windowEndNs = windowEndNs;
     }
 
+    public long getWindowStartMs() {
+        return windowStartMs;
+    }
+
+    public void setWindowStartMs(long windowStartMs) {
+        this.windowStartMs = windowStartMs;
+    }
+
+    public long getWindowEndMs() {
+        return windowEndMs;
+    }
+
+    public void setWindowEndMs(long windowEndMs) {
+        this.windowEndMs = windowEndMs;
+    }
+
     public int getSampleCount() {
         return sampleCount;
     }
@@ -153,14 +229,81 @@ public class RtEvent implements Serializable {
         this.avgMs = avgMs;
     }
 
+    public long getP50Ns() {
+        return p50Ns;
+    }
+
+    public void setP50Ns(long p50Ns) {
+        this.p50Ns = p50Ns;
+    }
+
+    public long getP99Ns() {
+        return p99Ns;
+    }
+
+    public void setP99Ns(long p99Ns) {
+        this.p99Ns = p99Ns;
+    }
+
+    public long getP999Ns() {
+        return p999Ns;
+    }
+
+    public void setP999Ns(long p999Ns) {
+        this.p999Ns = p999Ns;
+    }
+
+    public long getMinNs() {
+        return minNs;
+    }
+
+    public void setMinNs(long minNs) {
+        this.minNs = minNs;
+    }
+
+    public long getMaxNs() {
+        return maxNs;
+    }
+
+    public void setMaxNs(long maxNs) {
+        this.maxNs = maxNs;
+    }
+
+    public double getAvgNs() {
+        return avgNs;
+    }
+
+    public void setAvgNs(double avgNs) {
+        this.avgNs = avgNs;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public long getEstimatedCount() {
+        return estimatedCount;
+    }
+
+    public void setEstimatedCount(long estimatedCount) {
+        this.estimatedCount = estimatedCount;
+    }
+
     @Override
     public String toString() {
         return "RtEvent{"
                 + "methodSignature='" + methodSignature + '\''
                 + ", sampleCount=" + sampleCount
+                + ", sampleRate=" + sampleRate
                 + ", p50Ms=" + p50Ms
                 + ", p99Ms=" + p99Ms
                 + ", p999Ms=" + p999Ms
+                + ", p50Ns=" + p50Ns
+                + ", p99Ns=" + p99Ns
                 + '}';
     }
 }
@@ -45,6 +45,16 @@ public final class TimeUtil {
         return nanos / NANOS_PER_MILLIS;
     }
 
+    /**
+     * 纳秒转毫秒（保留小数部分，用于亚毫秒级 RT）
+     *
+     * @param nanos 纳秒
+     * @return 毫秒
+     */
+    public static double nanosToMillisPrecise(long nanos) {
+        return (double) nanos / NANOS_PER_MILLIS;
+    }
+
     /**
      * 毫秒转纳秒
      *
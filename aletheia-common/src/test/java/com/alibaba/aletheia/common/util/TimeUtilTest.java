@@ -39,6 +39,13 @@ public class TimeUtilTest {
         assertEquals("5 million nanos should equal 5 millis", 5, millis);
     }
 
+    @Test
+    public void testNanosToMillisPrecise() {
+        assertEquals("1.5 million nanos should equal 1.5 millis", 1.5, TimeUtil.nanosToMillisPrecise(1_500_000L), 1e-9);
+        assertEquals("Sub-millisecond nanos should not truncate to 0", 0.0125,
+                TimeUtil.nanosToMillisPrecise(12_500L), 1e-9);
+    }
+
     @Test
     public void testMillisToNanos() {
         long millis = 1;